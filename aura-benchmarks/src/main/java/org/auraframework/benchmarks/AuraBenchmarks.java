@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import org.auraframework.util.test.diff.PerfGoldFilesUtil;
+import org.auraframework.util.test.perf.metrics.PerfMetrics;
+import org.auraframework.util.test.perf.metrics.PerfMetricsComparator;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+/**
+ * Runs the benchmarks, and writes the results as perf metrics so that they can be compared with a baseline the way
+ * the perf tests compare with their gold files.<br>
+ * <br>
+ * The arguments are passed to JMH, e.g. a regexp of the benchmarks to run. Each benchmark gives a metric named
+ * Benchmark.&lt;class&gt;.&lt;method&gt;, with its parameters if it has any, whose value is the score, and a .alloc
+ * metric with the bytes allocated per operation. Metrics are whole numbers, so a time per operation is given in a
+ * unit a thousand times finer than that of the benchmark (e.g. ns/op for us/op), to keep sub-unit scores apart. The metrics are written to
+ * aura.benchmarks.results, and if aura.benchmarks.baseline names a file of earlier results, compared with it. A
+ * metric that moved by more than aura.benchmarks.variability percent (10 by default) is reported, and the exit
+ * status is then 1.
+ */
+public final class AuraBenchmarks {
+    private static final String METRIC_PREFIX = "Benchmark.";
+
+    private static final String ALLOCATION_RESULT = "gc.alloc.rate.norm";
+
+    /**
+     * Each unit of time per operation, and the unit a thousand times finer.
+     */
+    private static final Map<String, String> FINER_UNITS = ImmutableMap.of(
+            "s/op", "ms/op",
+            "ms/op", "us/op",
+            "us/op", "ns/op",
+            "ns/op", "ps/op");
+
+    private AuraBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        PerfMetrics metrics = toMetrics(new Runner(options).run());
+
+        String resultsPath = System.getProperty("aura.benchmarks.results", "benchmarks.json");
+        File results = new File(resultsPath);
+        Files.createParentDirs(results);
+        Files.write(PerfGoldFilesUtil.toGoldFileText(metrics, false), results, Charsets.UTF_8);
+        System.out.println("Results written to " + results.getAbsolutePath());
+
+        String baselinePath = System.getProperty("aura.benchmarks.baseline");
+        if (!Strings.isNullOrEmpty(baselinePath)) {
+            String differences = compare(new File(baselinePath), metrics);
+            if (differences != null) {
+                System.err.println(differences);
+                System.exit(1);
+            }
+            System.out.println("Results are within " + BaselineComparator.VARIABILITY + "% of " + baselinePath);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * @return the results as metrics, see the class comment for the names.
+     */
+    static PerfMetrics toMetrics(Collection<RunResult> runResults) {
+        PerfMetrics metrics = new PerfMetrics();
+        for (RunResult runResult : runResults) {
+            String name = getMetricName(runResult.getParams());
+            Result<?> primary = runResult.getPrimaryResult();
+            setScore(metrics, name, primary.getScore(), primary.getScoreUnit());
+            for (Map.Entry<String, Result> entry : runResult.getSecondaryResults().entrySet()) {
+                if (entry.getKey().endsWith(ALLOCATION_RESULT)) {
+                    Result<?> allocation = entry.getValue();
+                    metrics.setMetric(name + ".alloc", Math.round(allocation.getScore()), allocation.getScoreUnit());
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Set a metric to a score, in a finer unit if it is a time per operation.
+     */
+    static void setScore(PerfMetrics metrics, String name, double score, String unit) {
+        String finerUnit = FINER_UNITS.get(unit);
+        if (finerUnit != null) {
+            metrics.setMetric(name, Math.round(score * 1000), finerUnit);
+        } else {
+            metrics.setMetric(name, Math.round(score), unit);
+        }
+    }
+
+    private static String getMetricName(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        // org.auraframework.benchmarks.JsonBenchmark.encode -> JsonBenchmark.encode
+        int method = benchmark.lastIndexOf('.');
+        StringBuilder name = new StringBuilder(METRIC_PREFIX);
+        name.append(benchmark.substring(benchmark.lastIndexOf('.', method - 1) + 1));
+        for (String key : params.getParamsKeys()) {
+            name.append('[').append(key).append('=').append(params.getParam(key)).append(']');
+        }
+        return name.toString();
+    }
+
+    /**
+     * @return null if the metrics are within the allowed variability of the baseline, else the differences.
+     */
+    static String compare(File baseline, PerfMetrics metrics) throws IOException {
+        PerfMetrics expected = PerfGoldFilesUtil.fromGoldFileText(Files.toString(baseline, Charsets.UTF_8));
+        return new BaselineComparator().compare(expected, metrics);
+    }
+
+    /**
+     * Allows every benchmark the same variability, as the scores of a JMH run are already averaged.
+     */
+    static final class BaselineComparator extends PerfMetricsComparator {
+        static final int VARIABILITY = Integer.getInteger("aura.benchmarks.variability", 10);
+
+        @Override
+        protected int getAllowedVariability(String metricName) {
+            return metricName.startsWith(METRIC_PREFIX) ? VARIABILITY : super.getAllowedVariability(metricName);
+        }
+    }
+}
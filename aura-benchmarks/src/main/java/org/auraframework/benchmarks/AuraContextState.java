@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import org.auraframework.Aura;
+import org.auraframework.system.AuraContext;
+import org.auraframework.system.AuraContext.Authentication;
+import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.AuraContext.Mode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * An Aura context for the benchmark thread, in PROD mode, kept for the whole run.
+ *
+ * Contexts are per thread, so this is thread scoped, and JMH runs the setup on the benchmark thread. Benchmarks that
+ * need other setup in the context take this as a parameter of their own setup, so that it runs first.
+ */
+@State(Scope.Thread)
+public class AuraContextState {
+    private AuraContext context;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = Aura.getContextService().startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+    }
+
+    @TearDown(Level.Trial)
+    public void endContext() {
+        Aura.getContextService().endContext();
+    }
+
+    public AuraContext getContext() {
+        return context;
+    }
+}
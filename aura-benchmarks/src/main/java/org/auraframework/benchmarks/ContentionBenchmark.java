@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.Aura;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.service.ContextService;
+import org.auraframework.system.AuraContext.Authentication;
+import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.system.SourceListener.SourceMonitorEvent;
+import org.auraframework.throwable.quickfix.QuickFixException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MasterDefRegistryImpl.getDef from many threads, with and without source changes in another namespace.
+ *
+ * Each call starts a new context, so the definition comes from the server's caches. Readers do not take a lock, so
+ * the time of a call should not grow much with the number of threads, nor while a background thread notifies changes
+ * to a definition that the readers do not depend on, every few milliseconds as a busy file watcher would.
+ */
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark {
+    /** How often the source changes are notified, in milliseconds. */
+    private static final long NOTIFY_INTERVAL_MILLIS = 5;
+
+    @State(Scope.Benchmark)
+    public static class SourceChanges {
+        @Param({ "false", "true" })
+        public boolean sourceChanges;
+
+        private DefDescriptor<ComponentDef> target;
+
+        private volatile boolean running;
+
+        private Thread notifier;
+
+        @Setup(Level.Trial)
+        public void start() {
+            target = Aura.getDefinitionService().getDefDescriptor("markup://ui:button", ComponentDef.class);
+            if (!sourceChanges) {
+                return;
+            }
+            final DefDescriptor<ComponentDef> changing = Aura.getDefinitionService().getDefDescriptor(
+                    "markup://benchmark:contentionChanging", ComponentDef.class);
+            running = true;
+            notifier = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (running) {
+                            Aura.getDefinitionService().onSourceChanged(changing, SourceMonitorEvent.CHANGED, null);
+                            Thread.sleep(NOTIFY_INTERVAL_MILLIS);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "benchmark-source-changes");
+            notifier.setDaemon(true);
+            notifier.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws InterruptedException {
+            running = false;
+            if (notifier != null) {
+                notifier.join();
+                notifier = null;
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ComponentDef getDefSingleThread(SourceChanges changes) throws QuickFixException {
+        return getDef(changes.target);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ComponentDef getDef8Threads(SourceChanges changes) throws QuickFixException {
+        return getDef(changes.target);
+    }
+
+    private ComponentDef getDef(DefDescriptor<ComponentDef> descriptor) throws QuickFixException {
+        ContextService contextService = Aura.getContextService();
+        contextService.startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+        try {
+            return Aura.getDefinitionService().getDefinition(descriptor);
+        } finally {
+            contextService.endContext();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.Aura;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.StyleDef;
+import org.auraframework.impl.css.parser.CssPreprocessor;
+import org.auraframework.throwable.quickfix.QuickFixException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The runtime pass of the CSS preprocessor, which is run for every style of an app.css that is not cached.
+ *
+ * The input is what the initial pass kept in the style definition, as for a real app.css.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CssBenchmark {
+    @Param({ "css://ui.button", "css://ui.inputText", "css://ui.modal" })
+    public String name;
+
+    private StyleDef styleDef;
+
+    @Setup(Level.Trial)
+    public void setUp(AuraContextState context) throws QuickFixException {
+        DefDescriptor<StyleDef> descriptor = Aura.getDefinitionService().getDefDescriptor(name, StyleDef.class);
+        styleDef = context.getContext().getDefRegistry().getDef(descriptor);
+    }
+
+    /**
+     * As a style writes its code, with its tokens resolved.
+     */
+    @Benchmark
+    public String getCode() {
+        return styleDef.getCode();
+    }
+
+    /**
+     * The preprocessor alone, without tokens.
+     */
+    @Benchmark
+    public String parseRuntime() throws QuickFixException {
+        return CssPreprocessor.runtime().source(styleDef.getRawCode()).parse().content();
+    }
+}
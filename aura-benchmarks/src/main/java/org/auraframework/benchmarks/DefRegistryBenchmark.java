@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.Aura;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.service.CachingService;
+import org.auraframework.service.ContextService;
+import org.auraframework.system.AuraContext.Authentication;
+import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.throwable.quickfix.QuickFixException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MasterDefRegistryImpl.getDef of components of different sizes.
+ *
+ * Hot is a definition the context has already loaded, which is what most of a request does. Cold is a new context
+ * with the server's definition caches emptied, so the definition and everything it depends on are compiled again,
+ * as after a source change.
+ */
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefRegistryBenchmark {
+    @State(Scope.Thread)
+    public static class Descriptor {
+        @Param({ "markup://ui:button", "markup://ui:inputText", "markup://ui:autocomplete" })
+        public String name;
+
+        private DefDescriptor<ComponentDef> descriptor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            descriptor = Aura.getDefinitionService().getDefDescriptor(name, ComponentDef.class);
+        }
+    }
+
+    /**
+     * A context in which the definition has been loaded.
+     */
+    @State(Scope.Thread)
+    public static class HotContext {
+        @Setup(Level.Trial)
+        public void load(AuraContextState context, Descriptor descriptor) throws QuickFixException {
+            context.getContext().getDefRegistry().getDef(descriptor.descriptor);
+        }
+    }
+
+    /**
+     * A new context for each call, with nothing cached.
+     */
+    @State(Scope.Thread)
+    public static class ColdContext {
+        @Setup(Level.Invocation)
+        public void startContext() {
+            CachingService cachingService = Aura.getCachingService();
+            cachingService.getDefsCache().invalidateAll();
+            cachingService.getExistsCache().invalidateAll();
+            cachingService.getDepsCache().invalidateAll();
+            cachingService.getDescriptorFilterCache().invalidateAll();
+            Aura.getContextService().startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+        }
+
+        @TearDown(Level.Invocation)
+        public void endContext() {
+            ContextService contextService = Aura.getContextService();
+            if (contextService.isEstablished()) {
+                contextService.endContext();
+            }
+        }
+    }
+
+    @Benchmark
+    public ComponentDef getDefHot(HotContext hot, AuraContextState context, Descriptor descriptor)
+            throws QuickFixException {
+        return context.getContext().getDefRegistry().getDef(descriptor.descriptor);
+    }
+
+    @Benchmark
+    public ComponentDef getDefCold(ColdContext context, Descriptor descriptor) throws QuickFixException {
+        return Aura.getContextService().getCurrentContext().getDefRegistry().getDef(descriptor.descriptor);
+    }
+}
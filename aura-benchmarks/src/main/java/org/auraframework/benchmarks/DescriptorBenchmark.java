@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.Aura;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.impl.system.DefDescriptorImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Looking up descriptors that have been seen before, which is most lookups once the server is warm, from one thread
+ * and from several.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DescriptorBenchmark {
+    private static final String[] NAMES = { "markup://ui:button", "markup://ui:inputText", "markup://aura:component",
+            "markup://ui:autocomplete", "markup://aura:application", "markup://ui:outputText",
+            "markup://ui:menu", "markup://aura:iteration" };
+
+    @Benchmark
+    public void getInstance(Blackhole blackhole) {
+        for (String name : NAMES) {
+            blackhole.consume(DefDescriptorImpl.getInstance(name, ComponentDef.class));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void getInstanceConcurrently(Blackhole blackhole) {
+        getInstance(blackhole);
+    }
+
+    /**
+     * Through the definition service, as most callers do.
+     */
+    @Benchmark
+    public void getDefDescriptor(Blackhole blackhole) {
+        for (String name : NAMES) {
+            DefDescriptor<ComponentDef> descriptor = Aura.getDefinitionService().getDefDescriptor(name,
+                    ComponentDef.class);
+            blackhole.consume(descriptor);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.expression.Expression;
+import org.auraframework.expression.PropertyReference;
+import org.auraframework.impl.expression.ExpressionAdapterImpl;
+import org.auraframework.instance.ValueProvider;
+import org.auraframework.throwable.quickfix.AuraValidationException;
+import org.auraframework.throwable.quickfix.QuickFixException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Building and evaluating the kinds of expressions found in markup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+    @Param({ "v.label", "v.count * 2 + v.offset", "v.disabled || !v.visible",
+            "v.label == 'Save' ? 'primary' : 'secondary'", "'Hello, ' + v.firstName + ' ' + v.lastName" })
+    public String expression;
+
+    private static final Map<String, Object> VALUES = ImmutableMap.<String, Object> builder()
+            .put("v.label", "Save")
+            .put("v.count", new BigDecimal(21))
+            .put("v.offset", new BigDecimal(3))
+            .put("v.disabled", Boolean.FALSE)
+            .put("v.visible", Boolean.TRUE)
+            .put("v.firstName", "Ada")
+            .put("v.lastName", "Lovelace")
+            .build();
+
+    private static final ValueProvider VALUE_PROVIDER = new ValueProvider() {
+        @Override
+        public Object getValue(PropertyReference key) {
+            return VALUES.get(key.toString());
+        }
+    };
+
+    private final ExpressionAdapterImpl expressionAdapter = new ExpressionAdapterImpl();
+
+    private Expression built;
+
+    @Setup(Level.Trial)
+    public void setUp() throws AuraValidationException {
+        built = expressionAdapter.buildExpression(expression, null);
+    }
+
+    @Benchmark
+    public Expression build() throws AuraValidationException {
+        return expressionAdapter.buildExpression(expression, null);
+    }
+
+    @Benchmark
+    public Object evaluate() throws QuickFixException {
+        return built.evaluate(VALUE_PROVIDER);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.util.Utf8OutputStreamWriter;
+import org.auraframework.util.json.JsonEncoder;
+import org.auraframework.util.json.JsonSerializationContext;
+import org.auraframework.util.json.JsonStreamReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Writing and reading the JSON of a response: a list of records with strings, some of them not ASCII, numbers,
+ * booleans, dates and nested values, as an action returning records would give.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    private static final int RECORDS = 200;
+
+    private List<Object> records;
+
+    private List<Date> dates;
+
+    private JsonSerializationContext serializationContext;
+
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp(AuraContextState context) {
+        records = Lists.newArrayListWithCapacity(RECORDS);
+        dates = Lists.newArrayListWithCapacity(RECORDS);
+        long time = 1333322872649L;
+        for (int i = 0; i < RECORDS; i++) {
+            Date date = new Date(time + i * 60000L);
+            dates.add(date);
+
+            Map<String, Object> record = Maps.newLinkedHashMap();
+            record.put("id", "a07B0000000EdAC" + i);
+            record.put("name", i % 5 == 0 ? "Zoë's \"quoted\" café 日本" : "Account number " + i);
+            record.put("description", "Line one\nLine two\twith a tab and a </script> tag");
+            record.put("amount", new BigDecimal(i).movePointLeft(2));
+            record.put("count", i);
+            record.put("active", i % 2 == 0);
+            record.put("created", date);
+            record.put("tags", Lists.newArrayList("alpha", "beta", "gamma"));
+            Map<String, Object> owner = Maps.newLinkedHashMap();
+            owner.put("id", "005B0000000hMcd");
+            owner.put("name", "Owner " + (i % 7));
+            record.put("owner", owner);
+            records.add(record);
+        }
+        serializationContext = context.getContext().getJsonSerializationContext();
+        json = JsonEncoder.serialize(records, serializationContext);
+    }
+
+    /**
+     * Into a StringBuilder, as responses used to be built.
+     */
+    @Benchmark
+    public int encodeToStringBuilder() {
+        StringBuilder out = new StringBuilder();
+        JsonEncoder.serialize(records, out, serializationContext);
+        return out.length();
+    }
+
+    /**
+     * As UTF-8 bytes, as responses are written to the servlet stream.
+     */
+    @Benchmark
+    public void encodeToUtf8Writer() throws IOException {
+        Utf8OutputStreamWriter out = new Utf8OutputStreamWriter(ByteStreams.nullOutputStream());
+        JsonEncoder.serialize(records, out, serializationContext);
+        out.release();
+    }
+
+    /**
+     * Through the JDK's encoder, to compare with {@link #encodeToUtf8Writer()}.
+     */
+    @Benchmark
+    public void encodeToOutputStreamWriter() throws IOException {
+        Writer out = new OutputStreamWriter(ByteStreams.nullOutputStream(), Charsets.UTF_8);
+        JsonEncoder.serialize(records, out, serializationContext);
+        out.flush();
+    }
+
+    /**
+     * Dates from several threads at once, as they used to share one formatter.
+     */
+    @Benchmark
+    @Threads(4)
+    public int encodeDatesConcurrently() {
+        StringBuilder out = new StringBuilder();
+        JsonEncoder.serialize(dates, out);
+        return out.length();
+    }
+
+    @Benchmark
+    public List<Object> read() throws IOException {
+        return read(false);
+    }
+
+    /**
+     * With the fast parse mode of action messages.
+     */
+    @Benchmark
+    public List<Object> readFast() throws IOException {
+        return read(true);
+    }
+
+    private List<Object> read(boolean fast) throws IOException {
+        JsonStreamReader reader = new JsonStreamReader(json);
+        reader.setFastParseEnabled(fast);
+        reader.next();
+        return reader.getList();
+    }
+}
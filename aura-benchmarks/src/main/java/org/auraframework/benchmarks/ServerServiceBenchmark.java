@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.Aura;
+import org.auraframework.system.AuraContext;
+import org.auraframework.system.Message;
+import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.Utf8OutputStreamWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * A synthetic action request, read and run by ServerServiceImpl as the servlet does, with the response written to
+ * nowhere.
+ *
+ * The actions alternate between a label and a component definition, so both a small response and a definition
+ * serialization are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerServiceBenchmark {
+    @Param({ "1", "10" })
+    public int actionCount;
+
+    private AuraContext context;
+
+    private String message;
+
+    @Setup(Level.Trial)
+    public void setUp(AuraContextState contextState) {
+        context = contextState.getContext();
+        StringBuilder sb = new StringBuilder("{\"actions\":[");
+        for (int i = 0; i < actionCount; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":\"").append(i).append(";a\",\"callingDescriptor\":\"UNKNOWN\",");
+            if (i % 2 == 0) {
+                sb.append("\"descriptor\":\"aura://LabelController/ACTION$getLabel\",");
+                sb.append("\"params\":{\"section\":\"Related_Lists\",\"name\":\"task_mode_today\"}}");
+            } else {
+                sb.append("\"descriptor\":\"aura://ComponentController/ACTION$getComponentDef\",");
+                sb.append("\"params\":{\"name\":\"markup://ui:button\"}}");
+            }
+        }
+        message = sb.append("]}").toString();
+    }
+
+    /**
+     * Actions hold their results, so the message is read again for every run.
+     */
+    @Benchmark
+    public void run() throws IOException, QuickFixException {
+        Message actions = Aura.getSerializationService().read(new StringReader(message), Message.class);
+        Utf8OutputStreamWriter out = new Utf8OutputStreamWriter(ByteStreams.nullOutputStream());
+        Aura.getServerService().run(actions, context, out, null);
+        out.release();
+    }
+}
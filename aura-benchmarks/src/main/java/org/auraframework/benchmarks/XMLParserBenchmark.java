@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.Aura;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.impl.root.parser.ComponentXMLParser;
+import org.auraframework.system.Parser.Format;
+import org.auraframework.test.source.StringSource;
+import org.auraframework.throwable.quickfix.QuickFixException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing the markup of components from aura-components, from a small one to one of the largest.
+ *
+ * The markup is read once, so that only the parse is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XMLParserBenchmark {
+    @Param({ "markup://ui:button", "markup://ui:inputText", "markup://ui:scroller" })
+    public String name;
+
+    private DefDescriptor<ComponentDef> descriptor;
+
+    private String contents;
+
+    @Setup(Level.Trial)
+    public void setUp(AuraContextState context) {
+        descriptor = Aura.getDefinitionService().getDefDescriptor(name, ComponentDef.class);
+        contents = context.getContext().getDefRegistry().getSource(descriptor).getContents();
+    }
+
+    @Benchmark
+    public ComponentDef parse() throws QuickFixException {
+        StringSource<ComponentDef> source = new StringSource<>(descriptor, contents, name, Format.XML);
+        return new ComponentXMLParser().parse(descriptor, source);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.benchmarks;
+
+import java.io.File;
+
+import org.auraframework.util.test.diff.PerfGoldFilesUtil;
+import org.auraframework.util.test.perf.metrics.PerfMetric;
+import org.auraframework.util.test.perf.metrics.PerfMetrics;
+import org.auraframework.util.test.util.UnitTestCase;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class AuraBenchmarksTest extends UnitTestCase {
+    private static final String NAME = "Benchmark.DefRegistryBenchmark.getDefHot";
+
+    public AuraBenchmarksTest(String name) {
+        super(name);
+    }
+
+    public void testTimeScoreIsSetInFinerUnit() {
+        PerfMetrics metrics = new PerfMetrics();
+
+        AuraBenchmarks.setScore(metrics, NAME, 0.4, "us/op");
+
+        PerfMetric metric = metrics.getMetric(NAME);
+        assertEquals(400, metric.getIntValue());
+        assertEquals("ns/op", metric.getUnits());
+    }
+
+    public void testOtherScoreIsRounded() {
+        PerfMetrics metrics = new PerfMetrics();
+
+        AuraBenchmarks.setScore(metrics, NAME + ".alloc", 1234.6, "B/op");
+
+        PerfMetric metric = metrics.getMetric(NAME + ".alloc");
+        assertEquals(1235, metric.getIntValue());
+        assertEquals("B/op", metric.getUnits());
+    }
+
+    public void testCompareReportsSubMicrosecondRegression() throws Exception {
+        File baseline = writeBaseline(0.4);
+
+        assertNotNull(AuraBenchmarks.compare(baseline, getMetrics(0.6)));
+        assertNull(AuraBenchmarks.compare(baseline, getMetrics(0.41)));
+    }
+
+    private File writeBaseline(double score) throws Exception {
+        File baseline = File.createTempFile("baseline", ".json");
+        baseline.deleteOnExit();
+        Files.write(PerfGoldFilesUtil.toGoldFileText(getMetrics(score), false), baseline, Charsets.UTF_8);
+        return baseline;
+    }
+
+    private PerfMetrics getMetrics(double score) {
+        PerfMetrics metrics = new PerfMetrics();
+        AuraBenchmarks.setScore(metrics, NAME, score, "us/op");
+        return metrics;
+    }
+}
@@ -17,10 +17,14 @@ package org.auraframework.impl;
 
 import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import aQute.bnd.annotation.component.Component;
 
@@ -28,15 +32,30 @@ import org.apache.log4j.Logger;
 import org.auraframework.Aura;
 import org.auraframework.builder.CacheBuilder;
 import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheStatistics;
 import org.auraframework.def.*;
 import org.auraframework.ds.serviceloader.AuraServiceProvider;
 import org.auraframework.impl.cache.CacheImpl;
+import org.auraframework.impl.cache.DescriptorInternTable;
+import org.auraframework.impl.cache.NamespaceIndexedCache;
+import org.auraframework.impl.java.controller.ActionResultCache;
+import org.auraframework.impl.util.json.DefinitionFragmentCache;
 import org.auraframework.service.CachingService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.system.DependencyEntry;
 import org.auraframework.system.SourceListener;
+import org.auraframework.system.SourceListener.SourceMonitorEvent;
+import org.auraframework.util.resource.GeneratedResource;
 
 import com.google.common.base.Optional;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 @Component (provide=AuraServiceProvider.class)
 public class CachingServiceImpl implements CachingService {
@@ -52,60 +71,222 @@ public class CachingServiceImpl implements CachingService {
     /** Default size of descriptor filter caches, in number of entries */
     private final static int FILTER_CACHE_SIZE = 4096;
 
-    /** Default size of string caches, in number of entries */
-    private final static int STRING_CACHE_SIZE = 100;
+    /** Default size of the generated string cache, in bytes */
+    private final static long STRING_CACHE_BYTES = 64L * 1024 * 1024;
+
+    /** Rough per entry overhead of the generated string cache, in bytes, so that small entries are not free */
+    private final static int STRING_CACHE_ENTRY_OVERHEAD = 256;
 
     /** Default size of client lib caches, in number of entries */
     private final static int CLIENT_LIB_CACHE_SIZE = 30;
 
-    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
-    private final WriteLock wLock = rwLock.writeLock();
+    /** Rough per entry overhead of a cache, in bytes, for the size estimates below */
+    private final static int ENTRY_BYTES = 64;
+
+    /** Rough size of a reference held in a collection, in bytes */
+    private final static int REFERENCE_BYTES = 32;
+
+    /**
+     * Rough size of a definition, in bytes. Definitions are not measured, this is only there so that the estimate of
+     * the definition cache moves with the number of entries.
+     */
+    private final static int DEFINITION_BYTES = 2048;
+
+    /** The keys and values of the exists cache are shared, only the entry counts. */
+    private final static Weigher<Object, Object> ENTRY_ESTIMATOR = new Weigher<Object, Object>() {
+        @Override
+        public int weigh(Object key, Object value) {
+            return ENTRY_BYTES;
+        }
+    };
+
+    private final static Weigher<DefDescriptor<?>, Optional<? extends Definition>> DEFINITION_ESTIMATOR =
+            new Weigher<DefDescriptor<?>, Optional<? extends Definition>>() {
+                @Override
+                public int weigh(DefDescriptor<?> key, Optional<? extends Definition> value) {
+                    return ENTRY_BYTES + (value.isPresent() ? DEFINITION_BYTES : 0);
+                }
+            };
+
+    private final static Weigher<String, DependencyEntry> DEPENDENCY_ESTIMATOR =
+            new Weigher<String, DependencyEntry>() {
+                @Override
+                public int weigh(String key, DependencyEntry value) {
+                    int bytes = ENTRY_BYTES + 2 * key.length();
+                    if (value.dependencies != null) {
+                        bytes += REFERENCE_BYTES * value.dependencies.size();
+                    }
+                    if (value.clientLibraries != null) {
+                        bytes += REFERENCE_BYTES * value.clientLibraries.size();
+                    }
+                    return bytes;
+                }
+            };
+
+    private final static Weigher<String, Set<DefDescriptor<?>>> FILTER_ESTIMATOR =
+            new Weigher<String, Set<DefDescriptor<?>>>() {
+                @Override
+                public int weigh(String key, Set<DefDescriptor<?>> value) {
+                    return ENTRY_BYTES + 2 * key.length() + REFERENCE_BYTES * value.size();
+                }
+            };
+
+    private final static Weigher<String, String> STRING_ESTIMATOR = new Weigher<String, String>() {
+        @Override
+        public int weigh(String key, String value) {
+            return ENTRY_BYTES + 2 * key.length() + 2 * value.length();
+        }
+    };
+
+    private final static Weigher<String, Set<String>> STRING_SET_ESTIMATOR = new Weigher<String, Set<String>>() {
+        @Override
+        public int weigh(String key, Set<String> value) {
+            int bytes = ENTRY_BYTES + 2 * key.length();
+            for (String url : value) {
+                bytes += REFERENCE_BYTES + 2 * url.length();
+            }
+            return bytes;
+        }
+    };
+
+    /**
+     * Serializes writers only. Readers never block, see {@link #getNamespaceEpoch(String)}.
+     */
+    private final ReentrantLock wLock = new ReentrantLock();
+
+    /** Bumped on every invalidation, regardless of namespace. */
+    private final AtomicLong globalEpoch = new AtomicLong();
+
+    /** Bumped when all definitions are flushed, this moves every namespace epoch forward at once. */
+    private final AtomicLong flushEpoch = new AtomicLong();
+
+    /** Per namespace epochs, keyed by lower case namespace. */
+    private final ConcurrentMap<String, AtomicLong> namespaceEpochs = Maps.newConcurrentMap();
 
     @Override
     public <K, T> CacheBuilder<K, T> getCacheBuilder() {
         return new CacheImpl.Builder<>();
     }
 
-    private final Cache<DefDescriptor<?>, Boolean> existsCache;
-    private final Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache;
-    private final Cache<String, String> stringsCache;
+    private final NamespaceIndexedCache<Boolean> existsCache;
+    private final NamespaceIndexedCache<Optional<? extends Definition>> defsCache;
+    private final Cache<String, GeneratedResource> stringsCache;
     private final Cache<String, Set<DefDescriptor<?>>> descriptorFilterCache;
     private final Cache<String, DependencyEntry> depsCache;
     private final Cache<String, String> clientLibraryOutputCache;
     private final Cache<String, Set<String>> clientLibraryUrlsCache;
     private final Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> defDescriptorByNameCache;
+    private final Cache<String, String> jsFragmentCache;
+
+    /**
+     * The reverse dependency index.
+     *
+     * For each descriptor, this holds the keys in the dependency and string caches that were computed from it, so that
+     * a source change only evicts what actually depends on the changed definition. Keys are unlinked when their entry
+     * leaves the cache for any reason, see {@link DependentKeyPruner}, so the index never outgrows the caches.
+     *
+     * Both maps are guarded by the reverse map.
+     */
+    private final Map<DefDescriptor<?>, Set<DependentKey>> dependentKeys = Maps.newHashMap();
+
+    /** The forward side of the index: the descriptors each key was registered against. */
+    private final Map<DependentKey, Set<DefDescriptor<?>>> dependencies = Maps.newHashMap();
 
     private static final Logger logger = Logger.getLogger(CachingServiceImpl.class);
 
+    /**
+     * A key in one of our caches, recorded in the reverse dependency index.
+     */
+    private static final class DependentKey {
+        private final Cache<Object, ?> cache;
+        private final Object key;
+
+        @SuppressWarnings("unchecked")
+        private <K> DependentKey(Cache<K, ?> cache, K key) {
+            this.cache = (Cache<Object, ?>) cache;
+            this.key = key;
+        }
+
+        private void invalidate() {
+            cache.invalidate(key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DependentKey)) {
+                return false;
+            }
+            DependentKey other = (DependentKey) o;
+            return cache == other.cache && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(cache) * 31 + key.hashCode();
+        }
+    }
+
+    /**
+     * Unlinks keys from the reverse dependency index when they are evicted, collected or invalidated.
+     *
+     * Replacements are skipped, as keys are registered before the put that replaces them.
+     */
+    private final class DependentKeyPruner<K, T> implements RemovalListener<K, T> {
+        private Cache<K, T> cache;
+
+        private void setCache(Cache<K, T> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public void onRemoval(RemovalNotification<K, T> notification) {
+            K key = notification.getKey();
+            if (notification.getCause() != RemovalCause.REPLACED && key != null && cache != null) {
+                unregisterDependentKey(new DependentKey(cache, key));
+            }
+        }
+    }
+
     public CachingServiceImpl() {
         int size = getCacheSize("aura.cache.existsCacheSize", DEFINITION_CACHE_SIZE);
-        existsCache = this.<DefDescriptor<?>, Boolean> getCacheBuilder()
+        existsCache = new NamespaceIndexedCache<>(new CacheImpl.Builder<DefDescriptor<?>, Boolean>()
+                .setSizeEstimator(ENTRY_ESTIMATOR)
                 .setInitialSize(size)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("existsCache")
-                .setSoftValues(true).build();
+                .setSoftValues(true).build());
 
         size = getCacheSize("aura.cache.defsCacheSize", DEFINITION_CACHE_SIZE);
-        defsCache = this
-                .<DefDescriptor<?>, Optional<? extends Definition>> getCacheBuilder()
+        defsCache = new NamespaceIndexedCache<>(
+                new CacheImpl.Builder<DefDescriptor<?>, Optional<? extends Definition>>()
+                .setSizeEstimator(DEFINITION_ESTIMATOR)
                 .setInitialSize(size)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("defsCache")
-                .setSoftValues(true).build();
-
-        size = getCacheSize("aura.cache.stringsCacheSize", STRING_CACHE_SIZE);
-        stringsCache = this.<String, String> getCacheBuilder()
-                .setInitialSize(size)
-                .setMaximumSize(size)
+                .setSoftValues(true).build());
+
+        // Generated resources are large and vary wildly in size, so this cache is bounded by bytes. The values are
+        // held off heap, so soft values would only hide them from the bound.
+        DependentKeyPruner<String, GeneratedResource> stringsPruner = new DependentKeyPruner<>();
+        stringsCache = new CacheImpl.Builder<String, GeneratedResource>()
+                .setMaximumWeight(getCacheBytes("aura.cache.stringsCacheBytes", STRING_CACHE_BYTES),
+                        new Weigher<String, GeneratedResource>() {
+                            @Override
+                            public int weigh(String key, GeneratedResource value) {
+                                return value.getRetainedLength() + 2 * key.length() + STRING_CACHE_ENTRY_OVERHEAD;
+                            }
+                        })
+                .setRemovalListener(stringsPruner)
                 .setRecordStats(true)
                 .setName("stringsCache")
-                .setSoftValues(true).build();
+                .setSoftValues(false).build();
+        stringsPruner.setCache(stringsCache);
 
         size = getCacheSize("aura.cache.filterCacheSize", FILTER_CACHE_SIZE);
-        descriptorFilterCache = this
-                .<String, Set<DefDescriptor<?>>> getCacheBuilder()
+        descriptorFilterCache = new CacheImpl.Builder<String, Set<DefDescriptor<?>>>()
+                .setSizeEstimator(FILTER_ESTIMATOR)
                 .setInitialSize(size)
                 .setMaximumSize(size)
                 .setRecordStats(true)
@@ -113,15 +294,20 @@ public class CachingServiceImpl implements CachingService {
                 .setSoftValues(true).build();
 
         size = getCacheSize("aura.cache.depsCacheSize", DEPENDENCY_CACHE_SIZE);
-        depsCache = this.<String, DependencyEntry> getCacheBuilder()
+        DependentKeyPruner<String, DependencyEntry> depsPruner = new DependentKeyPruner<>();
+        depsCache = new CacheImpl.Builder<String, DependencyEntry>()
+                .setRemovalListener(depsPruner)
+                .setSizeEstimator(DEPENDENCY_ESTIMATOR)
                 .setInitialSize(size)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("depsCache")
                 .setSoftValues(true).build();
+        depsPruner.setCache(depsCache);
 
         size = getCacheSize("aura.cache.clientLibraryOutputCacheSize", CLIENT_LIB_CACHE_SIZE);
-        clientLibraryOutputCache = this.<String, String> getCacheBuilder()
+        clientLibraryOutputCache = new CacheImpl.Builder<String, String>()
+                .setSizeEstimator(STRING_ESTIMATOR)
                 .setInitialSize(size)
                 .setMaximumSize(size)
                 .setSoftValues(true)
@@ -129,21 +315,27 @@ public class CachingServiceImpl implements CachingService {
                 .setRecordStats(true).build();
 
         size = getCacheSize("aura.cache.clientLibraryUrlsCacheSize", CLIENT_LIB_CACHE_SIZE);
-        clientLibraryUrlsCache = this.<String, Set<String>> getCacheBuilder()
+        clientLibraryUrlsCache = new CacheImpl.Builder<String, Set<String>>()
+                .setSizeEstimator(STRING_SET_ESTIMATOR)
                 .setInitialSize(size)
                 .setMaximumSize(size)
-                 .setSoftValues(true)
+                .setSoftValues(true)
                 .setName("clientLibraryUrlsCache")
                 .setRecordStats(true).build();
 
         size = getCacheSize("aura.cache.defDescByNameCacheSize", 1024 * 20);
-        defDescriptorByNameCache =
-                this.<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> getCacheBuilder()
-                        .setInitialSize(512)
-                        .setMaximumSize(size)
-                        .setConcurrencyLevel(20)
-                        .setName("defDescByNameCache")
-                        .build();
+        defDescriptorByNameCache = new DescriptorInternTable(size);
+
+        // Fragments are keyed by a hash of their source, so they never need to be invalidated, old ones simply age
+        // out.
+        size = getCacheSize("aura.cache.jsFragmentCacheSize", DEFINITION_CACHE_SIZE);
+        jsFragmentCache = new CacheImpl.Builder<String, String>()
+                .setSizeEstimator(STRING_ESTIMATOR)
+                .setInitialSize(size)
+                .setMaximumSize(size)
+                .setSoftValues(true)
+                .setName("jsFragmentCache")
+                .setRecordStats(true).build();
     }
 
     @Override
@@ -157,7 +349,7 @@ public class CachingServiceImpl implements CachingService {
     }
 
     @Override
-    public final Cache<String, String> getStringsCache() {
+    public final Cache<String, GeneratedResource> getStringsCache() {
         return stringsCache;
     }
 
@@ -187,23 +379,177 @@ public class CachingServiceImpl implements CachingService {
     }
 
     @Override
-    public Lock getReadLock() {
-        return rwLock.readLock();
+    public final Cache<String, String> getJsFragmentCache() {
+        return jsFragmentCache;
+    }
+
+    @Override
+    public List<CacheStatistics> getStatistics() {
+        ImmutableList.Builder<CacheStatistics> statistics = ImmutableList.builder();
+        statistics.add(existsCache.getStatistics(), defsCache.getStatistics(),
+                stringsCache.getStatistics(), descriptorFilterCache.getStatistics(), depsCache.getStatistics(),
+                clientLibraryOutputCache.getStatistics(), clientLibraryUrlsCache.getStatistics(),
+                defDescriptorByNameCache.getStatistics(), jsFragmentCache.getStatistics());
+        CacheStatistics actionResults = ActionResultCache.getInstance().getStatistics();
+        if (actionResults != null) {
+            statistics.add(actionResults);
+        }
+        CacheStatistics definitionFragments = DefinitionFragmentCache.getInstance().getStatistics();
+        if (definitionFragments != null) {
+            statistics.add(definitionFragments);
+        }
+        return statistics.build();
+    }
+
+    @Override
+    public List<CacheStatistics> getCounters() {
+        ImmutableList.Builder<CacheStatistics> counters = ImmutableList.builder();
+        counters.add(existsCache.getCounters(), defsCache.getCounters(),
+                stringsCache.getCounters(), descriptorFilterCache.getCounters(), depsCache.getCounters(),
+                clientLibraryOutputCache.getCounters(), clientLibraryUrlsCache.getCounters(),
+                defDescriptorByNameCache.getCounters(), jsFragmentCache.getCounters());
+        CacheStatistics actionResults = ActionResultCache.getInstance().getCounters();
+        if (actionResults != null) {
+            counters.add(actionResults);
+        }
+        CacheStatistics definitionFragments = DefinitionFragmentCache.getInstance().getCounters();
+        if (definitionFragments != null) {
+            counters.add(definitionFragments);
+        }
+        return counters.build();
     }
 
     @Override
     public Lock getWriteLock() {
-        return rwLock.writeLock();
+        return wLock;
+    }
+
+    @Override
+    public long getNamespaceEpoch(String namespace) {
+        AtomicLong epoch = namespaceEpochs.get(getNamespaceKey(namespace));
+        // The sum of two monotonic counters is monotonic, and moves whenever either one does.
+        return flushEpoch.get() + (epoch == null ? 0 : epoch.get());
+    }
+
+    @Override
+    public long getGlobalEpoch() {
+        return globalEpoch.get();
+    }
+
+    /**
+     * Advance the epochs covering a descriptor.
+     *
+     * This must happen before the caches are invalidated, so that a reader that published a value between the
+     * invalidation and its own epoch check will see the change and back its value out.
+     */
+    private void advanceEpochs(DefDescriptor<?> descriptor) {
+        globalEpoch.incrementAndGet();
+        if (descriptor == null) {
+            flushEpoch.incrementAndGet();
+            return;
+        }
+        String key = getNamespaceKey(descriptor.getNamespace());
+        AtomicLong epoch = namespaceEpochs.get(key);
+        if (epoch == null) {
+            AtomicLong created = new AtomicLong();
+            epoch = namespaceEpochs.putIfAbsent(key, created);
+            if (epoch == null) {
+                epoch = created;
+            }
+        }
+        epoch.incrementAndGet();
+    }
+
+    private String getNamespaceKey(String namespace) {
+        return namespace == null ? "" : namespace.toLowerCase();
+    }
+
+    @Override
+    public <K> void registerDependentKey(Cache<K, ?> cache, K key, DependencyEntry de) {
+        if (de.dependencies == null) {
+            return;
+        }
+        DependentKey dependent = new DependentKey(cache, key);
+        Set<DefDescriptor<?>> descriptors = ImmutableSet.<DefDescriptor<?>> copyOf(de.dependencies);
+        synchronized (dependentKeys) {
+            Set<DefDescriptor<?>> previous = dependencies.put(dependent, descriptors);
+            if (previous != null) {
+                // The key is being recomputed, drop the links to what it no longer depends on.
+                unlink(dependent, Sets.difference(previous, descriptors));
+            }
+            for (DefDescriptor<?> descriptor : descriptors) {
+                Set<DependentKey> keys = dependentKeys.get(descriptor);
+                if (keys == null) {
+                    keys = Sets.newHashSet();
+                    dependentKeys.put(descriptor, keys);
+                }
+                keys.add(dependent);
+            }
+        }
+    }
+
+    /**
+     * Remove a key from the index, for every descriptor it was registered against.
+     */
+    private void unregisterDependentKey(DependentKey dependent) {
+        synchronized (dependentKeys) {
+            Set<DefDescriptor<?>> descriptors = dependencies.remove(dependent);
+            if (descriptors != null) {
+                unlink(dependent, descriptors);
+            }
+        }
+    }
+
+    private void unlink(DependentKey dependent, Set<DefDescriptor<?>> descriptors) {
+        for (DefDescriptor<?> descriptor : descriptors) {
+            Set<DependentKey> keys = dependentKeys.get(descriptor);
+            if (keys != null && keys.remove(dependent) && keys.isEmpty()) {
+                dependentKeys.remove(descriptor);
+            }
+        }
+    }
+
+    /**
+     * @return the number of descriptors in the reverse dependency index.
+     */
+    int getDependentDescriptorCount() {
+        synchronized (dependentKeys) {
+            return dependentKeys.size();
+        }
+    }
+
+    /**
+     * Invalidate every key that was computed from a descriptor.
+     *
+     * The keys are unregistered here rather than left to the pruner, as a key may have been registered without its
+     * put ever happening.
+     */
+    private void invalidateDependents(DefDescriptor<?> descriptor) {
+        List<DependentKey> invalid;
+        synchronized (dependentKeys) {
+            Set<DependentKey> keys = dependentKeys.get(descriptor);
+            if (keys == null) {
+                return;
+            }
+            invalid = ImmutableList.copyOf(keys);
+            for (DependentKey key : invalid) {
+                unregisterDependentKey(key);
+            }
+        }
+        for (DependentKey key : invalid) {
+            key.invalidate();
+        }
     }
 
     /**
      * The driver for cache-consistency management in response to source changes. MDR drives the process, will notify
-     * all registered listeners while write blocking, then invalidate it's own caches. If this routine can't acquire the
-     * lock , it will log it as an non-fatal error, as it only results in staleness.
+     * all registered listeners while holding the writer lock, then invalidate it's own caches. Readers are not blocked,
+     * instead the epochs for the affected namespace are advanced first so that in flight readers will not publish
+     * stale values. If this routine can't acquire the lock, it will log it as an non-fatal error, as it only results
+     * in staleness.
      * 
      * @param listeners - collections of listeners to notify of source changes
-     * @param source - DefDescriptor that changed - for granular cache clear (currently not considered here, but other
-     *            listeners may make use of it)
+     * @param source - DefDescriptor that changed - for granular cache clear, null to clear everything
      * @param event - what type of event triggered the change
      */
     @Override
@@ -225,7 +571,9 @@ public class CachingServiceImpl implements CachingService {
                 return;
             }
 
-            // successfully acquired the lock, start clearing caches
+            // successfully acquired the lock, fence readers before clearing caches
+            advanceEpochs(source);
+
             // notify provided listeners, presumably to clear caches
             for (WeakReference<SourceListener> i : listeners) {
                 SourceListener sl = i.get();
@@ -235,7 +583,7 @@ public class CachingServiceImpl implements CachingService {
                 }
             }
             // lastly, clear MDR's static caches
-            invalidateSourceRelatedCaches(source);
+            invalidateSourceRelatedCaches(source, event);
 
         } catch (InterruptedException e) {
         } finally {
@@ -245,62 +593,77 @@ public class CachingServiceImpl implements CachingService {
         }
     }
 
-    private void invalidateSourceRelatedCaches(DefDescriptor<?> descriptor) {
-
-        depsCache.invalidateAll();
-        descriptorFilterCache.invalidateAll();
-        stringsCache.invalidateAll();
-
+    /**
+     * Invalidate the caches affected by a source change.
+     *
+     * Definitions are invalidated by descriptor, and dependency entries and generated strings only if they were
+     * computed from the changed descriptor, using the reverse dependency index. A null descriptor clears everything.
+     * Serialized definitions include the definitions they refer to, so they are always cleared.
+     */
+    private void invalidateSourceRelatedCaches(DefDescriptor<?> descriptor, SourceMonitorEvent event) {
+        DefinitionFragmentCache.getInstance().invalidateAll();
         if (descriptor == null) {
+            synchronized (dependentKeys) {
+                dependentKeys.clear();
+                dependencies.clear();
+            }
+            depsCache.invalidateAll();
+            descriptorFilterCache.invalidateAll();
+            stringsCache.invalidateAll();
             defsCache.invalidateAll();
             existsCache.invalidateAll();
-        } else {
-            DefinitionService ds = Aura.getDefinitionService();
-            DefDescriptor<ComponentDef> cdesc = ds.getDefDescriptor(descriptor,
-                    "markup", ComponentDef.class);
-            DefDescriptor<ApplicationDef> adesc = ds.getDefDescriptor(
-                    descriptor, "markup", ApplicationDef.class);
-
-            defsCache.invalidate(descriptor);
-            existsCache.invalidate(descriptor);
-            defsCache.invalidate(cdesc);
-            existsCache.invalidate(cdesc);
-            defsCache.invalidate(adesc);
-            existsCache.invalidate(adesc);
-
-            switch (descriptor.getDefType()) {
-            case NAMESPACE:
-                // invalidate all DDs with the same namespace if its a namespace DD
-                invalidateScope(descriptor, true, false);
-                break;
-            case INCLUDE:
-                invalidateSourceRelatedCaches(descriptor.getBundle());
-                break;
-            default:
-            }
+            return;
         }
-    }
-
-    private void invalidateScope(DefDescriptor<?> descriptor, boolean clearNamespace, boolean clearName) {
 
-        final Set<DefDescriptor<?>> defsKeySet = defsCache.getKeySet();
-        final String namespace = descriptor.getNamespace();
-        final String name = descriptor.getName();
+        // A change to the contents of a source cannot change the results of a find, but adding or removing one can.
+        if (event != SourceMonitorEvent.CHANGED) {
+            descriptorFilterCache.invalidateAll();
+        }
 
-        for (DefDescriptor<?> dd : defsKeySet) {
-            boolean sameNamespace = namespace.equals(dd.getNamespace());
-            boolean sameName = name.equals(dd.getName());
-            boolean shouldClear = (clearNamespace && clearName) ? (clearNamespace && sameNamespace)
-                    && (clearName && sameName)
-                    : (clearNamespace && sameNamespace)
-                            || (clearName && sameName);
+        DefinitionService ds = Aura.getDefinitionService();
+        DefDescriptor<ComponentDef> cdesc = ds.getDefDescriptor(descriptor,
+                "markup", ComponentDef.class);
+        DefDescriptor<ApplicationDef> adesc = ds.getDefDescriptor(
+                descriptor, "markup", ApplicationDef.class);
+
+        invalidateDependents(descriptor);
+        invalidateDependents(cdesc);
+        invalidateDependents(adesc);
+
+        defsCache.invalidate(descriptor);
+        existsCache.invalidate(descriptor);
+        defsCache.invalidate(cdesc);
+        existsCache.invalidate(cdesc);
+        defsCache.invalidate(adesc);
+        existsCache.invalidate(adesc);
+
+        switch (descriptor.getDefType()) {
+        case NAMESPACE:
+            // invalidate all DDs with the same namespace if its a namespace DD
+            invalidateNamespace(descriptor.getNamespace());
+            break;
+        case INCLUDE:
+            invalidateSourceRelatedCaches(descriptor.getBundle(), event);
+            break;
+        default:
+        }
+    }
 
-            if (shouldClear) {
-                defsCache.invalidate(dd);
-                existsCache.invalidate(dd);
+    /**
+     * Invalidate all definitions in a namespace, along with everything computed from them.
+     */
+    private void invalidateNamespace(String namespace) {
+        List<DefDescriptor<?>> descriptors;
+        synchronized (dependentKeys) {
+            descriptors = ImmutableList.copyOf(dependentKeys.keySet());
+        }
+        for (DefDescriptor<?> dd : descriptors) {
+            if (namespace.equalsIgnoreCase(dd.getNamespace())) {
+                invalidateDependents(dd);
             }
         }
-
+        defsCache.invalidateNamespace(namespace);
+        existsCache.invalidateNamespace(namespace);
     }
 
     /**
@@ -321,4 +684,19 @@ public class CachingServiceImpl implements CachingService {
         }
         return defaultSize;
     }
+
+    /**
+     * Computes a size in bytes for a given cache. The default can be overridden with a system property.
+     */
+    private long getCacheBytes(String propName, long defaultBytes) {
+        String prop = System.getProperty(propName);
+        if (prop != null && !prop.isEmpty()) {
+            try {
+                return Long.parseLong(prop);
+            } catch (NumberFormatException e) {
+                // ne'ermind, use the default
+            }
+        }
+        return defaultBytes;
+    }
 }
@@ -72,6 +72,11 @@ public class ContextAdapterImpl implements ContextAdapter {
         return context;
     }
 
+    @Override
+    public void resume(AuraContext context) {
+        currentContext.set(context);
+    }
+
     protected AuraContext buildSystemContext(AuraContext original) {
         return new AuraContextImpl(original.getMode(),
                 new MasterDefRegistryImpl((MasterDefRegistryImpl)original.getDefRegistry()),
@@ -47,6 +47,11 @@ public class LoggingAdapterImpl implements LoggingAdapter {
         currentContext.set(null);
     }
 
+    @Override
+    public void resume(LoggingContext context) {
+        currentContext.set(context);
+    }
+
     @Override
     public LoggingContext getLoggingContext() {
         return currentContext.get();
@@ -15,17 +15,30 @@
  */
 package org.auraframework.impl;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
 import org.auraframework.Aura;
+import org.auraframework.cache.Cache;
 import org.auraframework.css.TokenOptimizer;
 import org.auraframework.css.StyleContext;
+import org.auraframework.def.ApplicationDef;
 import org.auraframework.def.BaseComponentDef;
 import org.auraframework.def.BaseStyleDef;
 import org.auraframework.def.ComponentDef;
@@ -37,27 +50,38 @@ import org.auraframework.def.EventDef;
 import org.auraframework.def.LibraryDef;
 import org.auraframework.def.SVGDef;
 import org.auraframework.ds.serviceloader.AuraServiceProvider;
+import org.auraframework.impl.cache.HotSetManifest;
+import org.auraframework.impl.css.token.StyleContextImpl;
+import org.auraframework.impl.java.controller.JavaAction;
 import org.auraframework.impl.root.component.ClientComponentClass;
 import org.auraframework.instance.Action;
 import org.auraframework.instance.Event;
+import org.auraframework.service.ContextService;
+import org.auraframework.service.DefinitionService;
 import org.auraframework.service.LoggingService;
 import org.auraframework.service.MetricsService;
 import org.auraframework.service.ServerService;
+import org.auraframework.system.Annotations.ParallelAction;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
 import org.auraframework.system.LoggingContext.KeyValueLogger;
 import org.auraframework.system.MasterDefRegistry;
+import org.auraframework.system.MasterDefRegistry.CachedStreamLoader;
+import org.auraframework.system.MasterDefRegistry.CachedStringLoader;
 import org.auraframework.system.Message;
 import org.auraframework.throwable.AuraExecutionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.javascript.JavascriptProcessingError;
 import org.auraframework.util.javascript.JavascriptWriter;
 import org.auraframework.util.json.JsonEncoder;
+import org.auraframework.util.resource.GeneratedResource;
+import org.auraframework.util.text.Hash;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import aQute.bnd.annotation.component.Component;
 
@@ -66,6 +90,62 @@ public class ServerServiceImpl implements ServerService {
 
     private static final long serialVersionUID = -2779745160285710414L;
 
+    private static final Logger _log = Logger.getLogger(ServerServiceImpl.class);
+
+    /**
+     * The app.js and app.css served by this node, or null if no manifest file is configured.
+     */
+    private static final HotSetManifest hotSet = createHotSet();
+
+    private static final AtomicBoolean warmUpStarted = new AtomicBoolean();
+
+    private static final CountDownLatch warmedUp = new CountDownLatch(1);
+
+    /**
+     * Minify app.js a fragment at a time, see {@link #getDefinitions(Set)}.
+     */
+    private final boolean fragmentMinify;
+
+    /**
+     * Runs the methods of {@link ParallelAction}s, null if aura.actions.parallelThreads is 0. When it is busy, the
+     * methods run on the request thread.
+     */
+    private static final ExecutorService parallelActionPool = createParallelActionPool(Integer.getInteger(
+            "aura.actions.parallelThreads", 8));
+
+    private static ExecutorService createParallelActionPool(int threads) {
+        if (threads <= 0) {
+            return null;
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * 16),
+                new ThreadFactoryBuilder().setNameFormat("AuraParallelAction-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static HotSetManifest createHotSet() {
+        String path = System.getProperty("aura.cache.hotSetManifest");
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        return new HotSetManifest(new File(path), Integer.getInteger("aura.cache.hotSetMaxEntries", 256));
+    }
+
+    public ServerServiceImpl() {
+        this(Boolean.parseBoolean(System.getProperty("aura.js.fragmentMinify", "true")));
+    }
+
+    /**
+     * @param fragmentMinify true to minify app.js a fragment at a time, reusing the fragments that have not changed,
+     *            rather than compiling all of it at once. Only app.js minified a fragment at a time can be streamed
+     *            as it is generated.
+     */
+    public ServerServiceImpl(boolean fragmentMinify) {
+        this.fragmentMinify = fragmentMinify;
+    }
+
     @Override
     public void run(Message message, AuraContext context, Writer out, Map<?,?> extras) throws IOException {
         LoggingService loggingService = Aura.getLoggingService();
@@ -127,7 +207,12 @@ public class ServerServiceImpl implements ServerService {
     private int run(List<Action> actions, JsonEncoder json, int idx) throws IOException {
         LoggingService loggingService = Aura.getLoggingService();
         AuraContext context = Aura.getContextService().getCurrentContext();
-        for (Action action : actions) {
+        Map<Action, Future<Object>> calls = new IdentityHashMap<>();
+        for (int i = 0; i < actions.size(); i++) {
+            Action action = actions.get(i);
+            if (!calls.containsKey(action)) {
+                startParallelActions(actions, i, context, calls);
+            }
             StringBuffer actionAndParams = new StringBuffer(action.getDescriptor().getQualifiedName());
             KeyValueLogger logger = loggingService.getKeyValueLogger(actionAndParams);
             if (logger != null) {
@@ -144,7 +229,11 @@ public class ServerServiceImpl implements ServerService {
                 // DCHASMAN TODO Look into a common base for Action
                 // implementations that we can move the call to
                 // context.setCurrentAction() into!
-                action.run();
+                if (!calls.containsKey(action)) {
+                    action.run();
+                } else if (calls.get(action) != null) {
+                    ((JavaAction) action).completeCall(calls.get(action));
+                }
             } catch (AuraExecutionException x) {
                 Aura.getExceptionAdapter().handleException(x, action);
             } finally {
@@ -171,11 +260,92 @@ public class ServerServiceImpl implements ServerService {
         return idx;
     }
 
+    /**
+     * Start the methods of a run of consecutive {@link ParallelAction}s on the pool, if the run is more than one long.
+     *
+     * A run is only started when the loop reaches its first action, so it never overtakes the actions before it. The
+     * parameters are converted here, on the request thread, with each action current in turn. An action that fails
+     * before its call is mapped to null, it already has its errors.
+     *
+     * @param actions the actions of the request.
+     * @param from the index of the first action of the run.
+     * @param calls the started actions, by identity, to which the run is added.
+     */
+    private void startParallelActions(List<Action> actions, int from, AuraContext context,
+            Map<Action, Future<Object>> calls) {
+        if (parallelActionPool == null) {
+            return;
+        }
+        int to = from;
+        while (to < actions.size() && actions.get(to) instanceof JavaAction
+                && ((JavaAction) actions.get(to)).isParallel()) {
+            to++;
+        }
+        if (to - from < 2) {
+            return;
+        }
+        for (Action action : actions.subList(from, to)) {
+            Action oldAction = context.setCurrentAction(action);
+            try {
+                Callable<Object> call = ((JavaAction) action).prepareCall();
+                calls.put(action, call == null ? null : parallelActionPool.submit(call));
+            } finally {
+                context.setCurrentAction(oldAction);
+            }
+        }
+        Aura.getLoggingService().incrementNumBy(LoggingService.PARALLEL_ACTION_COUNT, Long.valueOf(to - from));
+    }
+
     @Override
     public void writeAppCss(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException {
-        AuraContext context = Aura.getContextService().getCurrentContext();
+        GeneratedResource css = getAppCss(dependencies);
+        if (out != null) {
+            css.writeTo(out);
+        }
+    }
+
+    @Override
+    public GeneratedResource getAppCss(final Set<DefDescriptor<?>> dependencies)
+            throws IOException, QuickFixException {
+        final AuraContext context = Aura.getContextService().getCurrentContext();
         Mode mode = context.getMode();
 
+        // minified or not
+        final boolean minify = !(mode.isTestMode() || mode.isDevMode());
+
+        // app uid
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        final String uid = context.getUid(appDesc);
+
+        final TokenOptimizer tokens = context.getTokenOptimizer();
+        final String key = getAppCssKey(context, minify, uid);
+        context.setPreloading(true);
+
+        CachedStringLoader loader = new CachedStringLoader() {
+            @Override
+            public String load() throws QuickFixException, IOException {
+                Collection<BaseStyleDef> orderedStyleDefs = filterAndLoad(BaseStyleDef.class, dependencies, null);
+                StringBuffer sb = new StringBuffer();
+                Aura.getSerializationService().writeCollection(orderedStyleDefs, BaseStyleDef.class, sb, "CSS");
+                if (!tokens.getDescriptorsUid().isPresent()) {
+                    // css for tokens given on the context cannot be rebuilt without the request.
+                    recordServed(Format.CSS, context);
+                }
+                return sb.toString();
+            }
+        };
+
+        if (tokens.hasDynamicTokens()) {
+            // for now, skip caching css with dynamic var overrides
+            return GeneratedResource.heap(loader.load());
+        }
+        return context.getDefRegistry().getCachedResource(uid, appDesc, key, loader);
+    }
+
+    /**
+     * The key of app.css in the strings cache.
+     */
+    private static String getAppCssKey(AuraContext context, boolean minify, String uid) {
         StyleContext styleContext = context.getStyleContext();
 
         // build cache key
@@ -195,17 +365,13 @@ public class ServerServiceImpl implements ServerService {
         keyBuilder.append("$");
 
         // minified or not
-        final boolean minify = !(mode.isTestMode() || mode.isDevMode());
         keyBuilder.append(minify ? "MIN:" : "DEV:");
 
         // app uid
-        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
-        final String uid = context.getUid(appDesc);
         keyBuilder.append(uid);
 
         // tokens uid (tokens specified directly to the context (not on the app) need to be considered)
-        final TokenOptimizer tokens = context.getTokenOptimizer();
-        Optional<String> tokensUid = tokens.getDescriptorsUid();
+        Optional<String> tokensUid = context.getTokenOptimizer().getDescriptorsUid();
         if (tokensUid.isPresent()) {
             keyBuilder.append(":").append(tokensUid.get());
         }
@@ -217,25 +383,7 @@ public class ServerServiceImpl implements ServerService {
         // now
         // we are skipping the cache, but when we stop doing that then this needs to be addressed
 
-        final String key = keyBuilder.toString();
-        context.setPreloading(true);
-
-        String cached = context.getDefRegistry().getCachedString(uid, appDesc, key);
-        boolean skipCache = tokens.hasDynamicTokens(); // for now, skip caching css with dynamic var overrides
-
-        if (cached == null || skipCache) {
-            Collection<BaseStyleDef> orderedStyleDefs = filterAndLoad(BaseStyleDef.class, dependencies, null);
-            StringBuffer sb = new StringBuffer();
-            Aura.getSerializationService().writeCollection(orderedStyleDefs, BaseStyleDef.class, sb, "CSS");
-            cached = sb.toString();
-
-            if (!skipCache) {
-                context.getDefRegistry().putCachedString(uid, appDesc, key, cached);
-            }
-        }
-        if (out != null) {
-            out.append(cached);
-        }
+        return keyBuilder.toString();
     }
 
     @Override
@@ -255,7 +403,7 @@ public class ServerServiceImpl implements ServerService {
         DefDescriptor<? extends BaseComponentDef> appDesc = context.getLoadingApplicationDescriptor();
 
         // verify the app has access to the svg
-        SVGDef svgDef = svg.getDef();
+        final SVGDef svgDef = svg.getDef();
         context.getDefRegistry().assertAccess(appDesc, svgDef);
 
         // svg uid
@@ -265,128 +413,358 @@ public class ServerServiceImpl implements ServerService {
         final String key = keyBuilder.toString();
         context.setPreloading(true);
 
-        String cached = context.getDefRegistry().getCachedString(uid, svg, key);
+        GeneratedResource cached = context.getDefRegistry().getCachedResource(uid, svg, key,
+                new CachedStringLoader() {
+            @Override
+            public String load() throws QuickFixException, IOException {
+                StringBuffer sb = new StringBuffer();
+                Aura.getSerializationService().write(svgDef, null, SVGDef.class, sb, Format.SVG.name());
+                return sb.toString();
+            }
+        });
+        cached.writeTo(out);
+    }
 
-        if (cached == null) {
-            StringBuffer sb = new StringBuffer();
-            Aura.getSerializationService().write(svgDef, null, SVGDef.class, sb, Format.SVG.name());
-            cached = sb.toString();
-            context.getDefRegistry().putCachedString(uid, svg, key, cached);
+    @Override
+    public void writeDefinitions(Set<DefDescriptor<?>> dependencies, Writer out)
+            throws IOException, QuickFixException {
+        if (out == null) {
+            getDefinitions(dependencies);
+            return;
+        }
+        GeneratedResource js = streamDefinitions(dependencies, out);
+        if (js != null) {
+            js.writeTo(out);
         }
-        out.append(cached);
     }
 
     @Override
-    public void writeDefinitions(Set<DefDescriptor<?>> dependencies, Writer out)
+    public GeneratedResource getDefinitions(final Set<DefDescriptor<?>> dependencies)
             throws IOException, QuickFixException {
-        AuraContext context = Aura.getContextService().getCurrentContext();
+        final AuraContext context = Aura.getContextService().getCurrentContext();
 
         Mode mode = context.getMode();
         final boolean minify = !mode.prettyPrint();
-        final String mKey = minify ? "MIN:" : "DEV:";
-        //
-        // create a temp buffer in case anything bad happens while we're processing this.
-        // don't want to end up with a half a JS init function
-        //
-        // TODO: get rid of this buffering by adding functionality to Json.serialize that will help us
-        // make sure serialized JS is valid, non-error-producing syntax if an exception happens in the
-        // middle of serialization.
-        //
 
         context.setPreloading(true);
         DefDescriptor<?> applicationDescriptor = context.getLoadingApplicationDescriptor();
         final String uid = context.getUid(applicationDescriptor);
-        final String key = "JS:" + mKey + uid;
-        String cached = context.getDefRegistry().getCachedString(uid, applicationDescriptor, key);
+        final String key = getDefinitionsKey(minify, uid);
+        CachedStringLoader loader = new CachedStringLoader() {
+            @Override
+            public String load() throws QuickFixException, IOException {
+                StringBuilder sb = new StringBuilder();
+                generateDefinitions(dependencies, context, minify && fragmentMinify, sb);
+                String cached = sb.toString();
+
+                // only use closure compiler in prod mode, due to compile cost
+                if (minify && !fragmentMinify) {
+                    StringWriter sw = new StringWriter();
+                    List<JavascriptProcessingError> errors = JavascriptWriter.CLOSURE_SIMPLE.compress(cached, sw, key);
+                    if (errors == null || errors.isEmpty()) {
+                        // For now, just use the non-compressed version if we can't get
+                        // the compression to work.
+                        cached = sw.toString();
+                    } else {
+                        // if unable to compress, add error comments to the end.
+                        // ONLY if not production instance
+                        if (!Aura.getConfigAdapter().isProduction()) {
+                            sb.append(commentedJavascriptErrors(errors));
+                        }
+                        cached = sb.toString();
+                    }
+                }
+                recordServed(Format.JS, context);
+                return cached;
+            }
+        };
+        return context.getDefRegistry().getCachedResource(uid, applicationDescriptor, key, loader);
+    }
 
-        // DCHASMAN TODO Remove this temp testing hack before committing the mods!!!!
-        //cached = null;
+    @Override
+    public GeneratedResource streamDefinitions(final Set<DefDescriptor<?>> dependencies, Writer out)
+            throws IOException, QuickFixException {
+        final AuraContext context = Aura.getContextService().getCurrentContext();
 
-        if (cached == null) {
+        Mode mode = context.getMode();
+        final boolean minify = !mode.prettyPrint();
+        if (minify && !fragmentMinify) {
+            // Closure compiles the whole of app.js at once (aura.js.fragmentMinify=false), so there is nothing to
+            // stream until it is done.
+            return getDefinitions(dependencies);
+        }
 
-            Collection<BaseComponentDef> defs = filterAndLoad(BaseComponentDef.class, dependencies, null);
+        context.setPreloading(true);
+        DefDescriptor<?> applicationDescriptor = context.getLoadingApplicationDescriptor();
+        final String uid = context.getUid(applicationDescriptor);
+        final String key = getDefinitionsKey(minify, uid);
+        CachedStreamLoader loader = new CachedStreamLoader() {
+            @Override
+            public void load(Appendable out) throws QuickFixException, IOException {
+                generateDefinitions(dependencies, context, minify, out);
+                recordServed(Format.JS, context);
+            }
+        };
+        return context.getDefRegistry().streamCachedResource(uid, applicationDescriptor, key, loader, out);
+    }
 
-            StringBuilder sb = new StringBuilder();
+    /**
+     * The key of app.js in the strings cache. Streamed and buffered output are the same, so they share a key.
+     */
+    private static String getDefinitionsKey(boolean minify, String uid) {
+        return "JS:" + (minify ? "MIN:" : "DEV:") + uid;
+    }
 
-            // Now write the component shape specific classes
-            BaseComponentDef componentComponentDef = Aura.getDefinitionService().getDefinition("aura:component", ComponentDef.class);
+    @Override
+    public String getResourceTag(Format format) {
+        AuraContext context = Aura.getContextService().getCurrentContext();
+        Mode mode = context.getMode();
+        String uid = context.getUid(context.getLoadingApplicationDescriptor());
+        if (uid == null) {
+            return null;
+        }
+        String key;
+        switch (format) {
+        case CSS:
+            if (context.getTokenOptimizer().hasDynamicTokens()) {
+                return null;
+            }
+            key = getAppCssKey(context, !(mode.isTestMode() || mode.isDevMode()), uid);
+            break;
+        case JS:
+            boolean minify = !mode.prettyPrint();
+            // the two ways of minifying give different output for the same key.
+            key = getDefinitionsKey(minify, uid) + (minify && fragmentMinify ? ":FRAGMENTS" : "");
+            break;
+        case JSON:
+            // the components of the uid, formatted for the mode.
+            key = "JSON:" + mode + ":" + uid;
+            break;
+        default:
+            return null;
+        }
+        // the framework decides how the definitions are written, so it is part of the tag.
+        Hash.StringBuilder hash = new Hash.StringBuilder();
+        hash.addString(Aura.getConfigAdapter().getAuraFrameworkNonce());
+        hash.addString(key);
+        return hash.build().toString();
+    }
 
-            final ClientComponentClass auraComponentCientClass = new ClientComponentClass(componentComponentDef);
-            auraComponentCientClass.writeComponentClass(sb);
+    /**
+     * Generate app.js, a statement at a time.
+     *
+     * Each component class is appended to out as a whole statement. The definitions are then appended section by
+     * section as they are serialized, but only once all of them are loaded, so the output never ends in the middle of
+     * a statement if a definition fails to load part way through.
+     *
+     * @param byFragment true to minify each component class on its own.
+     * @param out where the statements are appended.
+     */
+    private void generateDefinitions(Set<DefDescriptor<?>> dependencies, AuraContext context, boolean byFragment,
+            Appendable out) throws QuickFixException, IOException {
+        Collection<BaseComponentDef> defs = filterAndLoad(BaseComponentDef.class, dependencies, null);
+
+        // Now write the component shape specific classes
+        BaseComponentDef componentComponentDef = Aura.getDefinitionService().getDefinition("aura:component", ComponentDef.class);
+
+        final ClientComponentClass auraComponentCientClass = new ClientComponentClass(componentComponentDef);
+        writeComponentClass(auraComponentCientClass, out, byFragment);
+
+        //String classOutput;
+        ClientComponentClass clientComponentClass;
+        MasterDefRegistry masterDefRegistry = context.getDefRegistry();
+        for (BaseComponentDef def : defs) {
+            if (def != componentComponentDef) {
+                clientComponentClass = new ClientComponentClass(def);
+                writeComponentClass(clientComponentClass, out, byFragment);
+
+                // We've generated this class component, do not output it as part of the component def.
+                masterDefRegistry.setComponentClassLoaded(def.getDescriptor(), true);
+            }
+        }
 
-            //String classOutput;
-            ClientComponentClass clientComponentClass;
-            MasterDefRegistry masterDefRegistry = Aura.getContextService().getCurrentContext().getDefRegistry();
-            for (BaseComponentDef def : defs) {
-                if (def != componentComponentDef) {
-                    clientComponentClass = new ClientComponentClass(def);
-                    clientComponentClass.writeComponentClass(sb);
+        Collection<EventDef> events = filterAndLoad(EventDef.class, dependencies, null);
+        Collection<LibraryDef> libraries = filterAndLoad(LibraryDef.class, dependencies, null);
+        //
+        // Dunno how this got to be this way. The code in the Format adaptor was twisted and stupid,
+        // as it walked the namespaces looking up the same descriptor, with a string.format that had
+        // the namespace but did not use it. This ends up just getting a single controller.
+        //
+        Collection<ControllerDef> controllers = filterAndLoad(ControllerDef.class, dependencies, ACF);
+
+        // The definitions are serialized with references between them, so they are one statement. They are written
+        // as they are serialized rather than minified: the JSON is already compact when minifying, and the code of
+        // library includes is stripped of whitespace and comments when it is parsed.
+        out.append("$A.clientService.initDefs({");
+
+        // append component definitions
+        out.append("componentDefs:");
+        Aura.getSerializationService().writeCollection(defs, BaseComponentDef.class, out, "JSON");
+        out.append(",");
+
+        // append namespaces. for now. *sigh*
+        out.append("namespaces:");
+        JsonEncoder.serialize(Aura.getConfigAdapter().getPrivilegedNamespaces(), out, context.getJsonSerializationContext());
+        out.append(",");
+
+        // append event definitions
+        out.append("eventDefs:");
+        Aura.getSerializationService().writeCollection(events, EventDef.class, out, "JSON");
+        out.append(",");
+
+        // append library definitions
+        out.append("libraryDefs:");
+        Aura.getSerializationService().writeCollection(libraries, LibraryDef.class, out, "JSON");
+        out.append(",");
+
+        // append controller definitions
+        out.append("controllerDefs:");
+        Aura.getSerializationService().writeCollection(controllers, ControllerDef.class, out, "JSON");
+
+        out.append("});\n\n");
+    }
 
-                    // We've generated this class component, do not output it as part of the component def.
-                    masterDefRegistry.setComponentClassLoaded(def.getDescriptor(), true);
-                }
-            }
+    /**
+     * Write the class of a component as one statement, minified on its own if the app is assembled from fragments.
+     */
+    private void writeComponentClass(ClientComponentClass componentClass, Appendable out, boolean byFragment)
+            throws QuickFixException, IOException {
+        StringBuilder fragment = new StringBuilder();
+        componentClass.writeComponentClass(fragment);
+        out.append(byFragment ? minifyFragment(fragment.toString()) : fragment);
+    }
+
+    /**
+     * Minify a fragment of app.js, reusing the result of an earlier run on the same source.
+     *
+     * The key is a hash of the source, so a component class that has not changed is never compiled again, whichever
+     * app or uid it is served in. The class of a component depends on more than the component's own hash (its bundle
+     * and its super component), hashing the source covers all of it.
+     *
+     * @param source the unminified JavaScript.
+     * @return the minified JavaScript.
+     */
+    private String minifyFragment(String source) throws IOException {
+        Hash.StringBuilder hash = new Hash.StringBuilder();
+        hash.addString(source);
+        String fragmentKey = JavascriptWriter.CLOSURE_SIMPLE.name() + ":" + hash.build();
+        Cache<String, String> fragments = Aura.getCachingService().getJsFragmentCache();
+        String minified = fragments.getIfPresent(fragmentKey);
+        if (minified == null) {
+            long start = System.nanoTime();
+            minified = minify(JavascriptWriter.CLOSURE_SIMPLE, fragmentKey, source);
+            fragments.recordLoad(System.nanoTime() - start);
+            fragments.put(fragmentKey, minified);
+        }
+        return minified;
+    }
+
+    /**
+     * Minify some JavaScript, falling back to the source (with the errors in a comment, outside of production) if it
+     * cannot be minified.
+     */
+    private String minify(JavascriptWriter writer, String name, String source) throws IOException {
+        StringWriter sw = new StringWriter();
+        List<JavascriptProcessingError> errors = writer.compress(source, sw, name);
+        if (errors == null || errors.isEmpty()) {
+            return sw.toString();
+        }
+        if (!Aura.getConfigAdapter().isProduction()) {
+            return source + commentedJavascriptErrors(errors);
+        }
+        return source;
+    }
 
-            sb.append("$A.clientService.initDefs({");
-
-            // append component definitions
-            sb.append("componentDefs:");
-            Aura.getSerializationService().writeCollection(defs, BaseComponentDef.class, sb, "JSON");
-            sb.append(",");
-
-            // append namespaces. for now. *sigh*
-            sb.append("namespaces:");
-            JsonEncoder.serialize(Aura.getConfigAdapter().getPrivilegedNamespaces(), sb, context.getJsonSerializationContext());
-            sb.append(",");
-
-            // append event definitions
-            sb.append("eventDefs:");
-            Collection<EventDef> events = filterAndLoad(EventDef.class, dependencies, null);
-            Aura.getSerializationService().writeCollection(events, EventDef.class, sb, "JSON");
-            sb.append(",");
-
-            // append library definitions
-            sb.append("libraryDefs:");
-            Collection<LibraryDef> libraries = filterAndLoad(LibraryDef.class, dependencies, null);
-            Aura.getSerializationService().writeCollection(libraries, LibraryDef.class, sb, "JSON");
-            sb.append(",");
-
-            //
-            // append controller definitions
-            // Dunno how this got to be this way. The code in the Format adaptor was twisted and stupid,
-            // as it walked the namespaces looking up the same descriptor, with a string.format that had
-            // the namespace but did not use it. This ends up just getting a single controller.
-            //
-            sb.append("controllerDefs:");
-            Collection<ControllerDef> controllers = filterAndLoad(ControllerDef.class, dependencies, ACF);
-            Aura.getSerializationService().writeCollection(controllers, ControllerDef.class, sb, "JSON");
-
-            sb.append("});\n\n");
-
-            cached = sb.toString();
-
-            // only use closure compiler in prod mode, due to compile cost
-            if (minify) {
-                StringWriter sw = new StringWriter();
-                List<JavascriptProcessingError> errors = JavascriptWriter.CLOSURE_SIMPLE.compress(cached, sw, key);
-                if (errors == null || errors.isEmpty()) {
-                    // For now, just use the non-compressed version if we can't get
-                    // the compression to work.
-                    cached = sw.toString();
-                } else {
-                    // if unable to compress, add error comments to the end.
-                    // ONLY if not production instance
-                    if (!Aura.getConfigAdapter().isProduction()) {
-                        sb.append(commentedJavascriptErrors(errors));
+    /**
+     * Record a generated app.js or app.css in the hot set, if there is one.
+     */
+    private static void recordServed(Format format, AuraContext context) {
+        DefDescriptor<? extends BaseComponentDef> appDesc = context.getLoadingApplicationDescriptor();
+        if (hotSet == null || appDesc == null || context.getAccess() == null) {
+            return;
+        }
+        String client = null;
+        Set<String> conditions = null;
+        if (format == Format.CSS) {
+            StyleContext styleContext = context.getStyleContext();
+            client = styleContext.getClientType();
+            conditions = styleContext.getExtraTrueConditionsOnly();
+        }
+        hotSet.record(new HotSetManifest.Entry(format, context.getMode(), context.getAccess(), appDesc.getDefType(),
+                appDesc.getQualifiedName(), client, conditions));
+    }
+
+    @Override
+    public void startWarmUp() {
+        if (!warmUpStarted.compareAndSet(false, true)) {
+            return;
+        }
+        final List<HotSetManifest.Entry> entries;
+        if (hotSet == null) {
+            entries = null;
+        } else {
+            entries = hotSet.load();
+        }
+        if (entries == null || entries.isEmpty()) {
+            warmedUp.countDown();
+            return;
+        }
+        Thread warmer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.currentTimeMillis();
+                try {
+                    for (HotSetManifest.Entry entry : entries) {
+                        warmUp(entry);
                     }
-                    cached = sb.toString();
+                } finally {
+                    warmedUp.countDown();
+                    _log.info("Warmed up " + entries.size() + " resources in " + (System.currentTimeMillis() - start)
+                            + "ms");
                 }
             }
-            context.getDefRegistry().putCachedString(uid, applicationDescriptor, key, cached);
-        }
+        }, "aura-warm-up");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
 
-        if (out != null) {
-            out.append(cached);
+    @Override
+    public boolean isWarmedUp() {
+        return warmedUp.getCount() == 0;
+    }
+
+    /**
+     * Build a single resource, the same way a request for it would.
+     */
+    private void warmUp(HotSetManifest.Entry entry) {
+        ContextService contextService = Aura.getContextService();
+        DefinitionService definitionService = Aura.getDefinitionService();
+        Class<? extends BaseComponentDef> defClass = entry.getDefType() == DefType.COMPONENT ? ComponentDef.class
+                : ApplicationDef.class;
+        DefDescriptor<? extends BaseComponentDef> appDesc = definitionService.getDefDescriptor(
+                entry.getApplication(), defClass);
+        AuraContext context = contextService.startContext(entry.getMode(), entry.getFormat(), entry.getAccess(),
+                appDesc);
+        try {
+            if (entry.getClient() != null) {
+                context.setStyleContext(new StyleContextImpl(entry.getClient(), entry.getConditions()));
+            }
+            definitionService.updateLoaded(appDesc);
+            String uid = context.getUid(appDesc);
+            Set<DefDescriptor<?>> dependencies = context.getDefRegistry().getDependencies(uid);
+            if (dependencies == null) {
+                return;
+            }
+            if (entry.getFormat() == Format.CSS) {
+                getAppCss(dependencies);
+            } else {
+                getDefinitions(dependencies);
+            }
+        } catch (Throwable t) {
+            // The application may have changed or gone away since it was recorded, that is not our problem.
+            _log.warn("Unable to warm up " + entry, t);
+        } finally {
+            contextService.endContext();
         }
     }
 
@@ -95,9 +95,8 @@ public class ConfigAdapterImpl implements ConfigAdapter {
     protected final Set<Mode> allModes = EnumSet.allOf(Mode.class);
     private final JavascriptGroup jsGroup;
     private final FileGroup resourcesGroup;
-    private String jsUid = "";
-    private String resourcesUid = "";
-    private String fwUid = "";
+    private final boolean production = Boolean.parseBoolean(System.getProperty("aura.production"));
+    private volatile FrameworkNonce frameworkNonce;
     private final ResourceLoader resourceLoader;
     private final Long buildTimestamp;
     private String auraVersionString;
@@ -229,12 +228,24 @@ public class ConfigAdapterImpl implements ConfigAdapter {
     }
 
     @Override
-    public synchronized void regenerateAuraJS() {
+    public void regenerateAuraJS() {
         /*
          * If we're missing source, jsGroup will be an AuraResourceGroup and isStale() is always false. If we're in
-         * production, we're using the resources too. But if we have source, regenerate from it if it's changed:
+         * production, we're using the resources too, so there is nothing to do and no need to lock.
          */
-        if (!isProduction() && jsGroup != null && (jsGroup.isStale() || lastGenerationHadCompilationErrors)) {
+        if (isProduction() || jsGroup == null) {
+            return;
+        }
+        synchronized (this) {
+            regenerateStaleAuraJS();
+        }
+    }
+
+    /**
+     * If we have source, regenerate from it if it's changed.
+     */
+    private void regenerateStaleAuraJS() {
+        if (jsGroup.isStale() || lastGenerationHadCompilationErrors) {
             try {
                 Logger logger = Logger.getLogger(ConfigAdapterImpl.class);
                 logger.info("Regenerating framework javascript");
@@ -427,7 +438,8 @@ public class ConfigAdapterImpl implements ConfigAdapter {
 
     @Override
     public boolean isProduction() {
-        return Boolean.parseBoolean(System.getProperty("aura.production"));
+        // read once, System.getProperty takes a lock on the system properties.
+        return production;
     }
 
     @Override
@@ -539,6 +551,11 @@ public class ConfigAdapterImpl implements ConfigAdapter {
 
     @Override
     public final String getAuraFrameworkNonce() {
+        FrameworkNonce current = frameworkNonce;
+        if (current != null && isProduction()) {
+            // Nothing is regenerated in production, so the nonce cannot change once it is known.
+            return current.fwUid;
+        }
         regenerateAuraJS();
         try {
             // framework nonce now consists of Aura JS and resources files (CSS and JS)
@@ -548,22 +565,16 @@ public class ConfigAdapterImpl implements ConfigAdapter {
             /*
              * don't want to makeHash every time so store results and return appropriately
              *
-             * Be VERY careful here.
-             *
-             * because fwUid is set along with jsUid and resourcesUid, there is a race condition
-             * whereby the condition can fail (i.e. both js & resources match), but fwUid is not
-             * yet set. This is very bad, as it causes an empty fwUid, which breaks everyone with
-             * a COOS
+             * The hashes and the uid they make are published together in one immutable holder, so that no caller
+             * can see new hashes with an old (or empty) uid. Two callers that see a change at once both compute the
+             * same uid, so there is no need to lock.
              */
-            synchronized (this) {
-                if (!jsHash.equals(this.jsUid) || !resourcesHash.equals(this.resourcesUid)) {
-                    this.jsUid = jsHash;
-                    this.resourcesUid = resourcesHash;
-                    this.fwUid = makeHash(this.jsUid, this.resourcesUid);
-                }
+            if (current == null || !current.jsUid.equals(jsHash) || !current.resourcesUid.equals(resourcesHash)) {
+                current = new FrameworkNonce(jsHash, resourcesHash, makeHash(jsHash, resourcesHash));
+                frameworkNonce = current;
             }
 
-            return this.fwUid;
+            return current.fwUid;
 
         } catch (IOException e) {
             throw new AuraRuntimeException("Can't read framework files", e);
@@ -628,4 +639,19 @@ public class ConfigAdapterImpl implements ConfigAdapter {
         }
         return new DefaultContentSecurityPolicy(inlineStyle);
     }
+
+    /**
+     * The framework nonce along with the hashes that it was made from.
+     */
+    private static final class FrameworkNonce {
+        private final String jsUid;
+        private final String resourcesUid;
+        private final String fwUid;
+
+        private FrameworkNonce(String jsUid, String resourcesUid, String fwUid) {
+            this.jsUid = jsUid;
+            this.resourcesUid = resourcesUid;
+            this.fwUid = fwUid;
+        }
+    }
 }
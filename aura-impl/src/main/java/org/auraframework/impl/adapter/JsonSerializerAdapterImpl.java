@@ -24,6 +24,10 @@ import org.auraframework.adapter.JsonSerializerAdapter;
 import org.auraframework.ds.serviceloader.AuraServiceProvider;
 import org.auraframework.impl.context.AuraContextImpl;
 import org.auraframework.impl.java.controller.JavaAction;
+import org.auraframework.impl.javascript.controller.JavascriptControllerDef;
+import org.auraframework.impl.root.event.EventDefImpl;
+import org.auraframework.impl.root.library.LibraryDefImpl;
+import org.auraframework.impl.util.json.DefinitionFragmentCache;
 import org.auraframework.instance.Action;
 import org.auraframework.instance.ActionWithKeyOverride;
 import org.auraframework.system.AuraContext.Mode;
@@ -51,9 +55,13 @@ public class JsonSerializerAdapterImpl implements JsonSerializerAdapter {
         Map<String, JsonSerializer<?>> m = Maps.newLinkedHashMap();
         m.putAll(JsonSerializers.MAPPY_FASTY);
         m.put(AuraContextImpl.class.getName(), AuraContextImpl.FULL_SERIALIZER);
-        m.put(JavaAction.class.getName(), Action.SERIALIZER);
+        m.put(JavaAction.class.getName(), JavaAction.SERIALIZER);
         m.put(ActionWithKeyOverride.class.getName(), Action.SERIALIZER);
         m.put(BigDecimal.class.getName(), JsonSerializers.BIGDECIMAL);
+        // Definitions that serialize the same way in every context are written from cached JSON.
+        m.put(EventDefImpl.class.getName(), DefinitionFragmentCache.SERIALIZER);
+        m.put(LibraryDefImpl.class.getName(), DefinitionFragmentCache.SERIALIZER);
+        m.put(JavascriptControllerDef.class.getName(), DefinitionFragmentCache.SERIALIZER);
         return m;
     }
 
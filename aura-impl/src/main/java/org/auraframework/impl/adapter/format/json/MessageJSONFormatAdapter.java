@@ -30,8 +30,10 @@ import org.auraframework.instance.Action;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.Message;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.json.JsonConstant;
 import org.auraframework.util.json.JsonEncoder;
-import org.auraframework.util.json.JsonReader;
+import org.auraframework.util.json.JsonStreamReader;
+import org.auraframework.util.json.JsonStreamReader.JsonParseException;
 
 import com.google.common.collect.Lists;
 
@@ -43,43 +45,87 @@ import aQute.bnd.annotation.component.Component;
 @Component(provide = AuraServiceProvider.class)
 public class MessageJSONFormatAdapter extends JSONFormatAdapter<Message> {
 
+    /** The largest message that will be read, in characters. */
+    private static final int MAX_MESSAGE_LENGTH = Integer.getInteger("aura.message.maxLength", 1000000);
+
     @Override
     public Class<Message> getType() {
         return Message.class;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Read a message, building each action as soon as it has been parsed.
+     *
+     * Only one action is held as a parsed map at a time, so a large message is not held in memory several times
+     * over. The message is limited to aura.message.maxLength characters.
+     *
+     * The message is read in fast parse mode, so the keys repeated by every action are shared, and integer
+     * parameters arrive as Integer or Long rather than BigDecimal.
+     */
     @Override
     public Message read(Reader in) throws IOException, QuickFixException {
-        Map<?, ?> message = (Map<?, ?>) new JsonReader().read(in);
-
-        List<?> actions = (List<?>) message.get("actions");
+        JsonStreamReader reader = new JsonStreamReader(in);
+        reader.setRecursiveReadEnabled(false);
+        reader.setMaxLength(MAX_MESSAGE_LENGTH);
+        reader.setFastParseEnabled(true);
         List<Action> actionList = Lists.newArrayList();
-        if (actions != null) {
-            for (Object action : actions) {
-                Map<?, ?> map = (Map<?, ?>) action;
-
-                // FIXME: ints are getting translated into BigDecimals here.
-                Map<String, Object> params = (Map<String, Object>) map.get("params");
-
-                Action instance = (Action) Aura.getInstanceService().getInstance((String) map.get("descriptor"),
-                        ActionDef.class, params);
-                instance.setId((String) map.get("id"));
-                String cd = (String) map.get("callingDescriptor");
-                if (cd != null && !cd.equals("UNKNOWN")) {
-                    instance.setCallingDescriptor(cd);
-                }
-                String v = (String) map.get("version");
-                if (v != null) {
-                    instance.setCallerVersion(v);
+
+        expect(reader, reader.next(), JsonConstant.OBJECT_START);
+        JsonConstant token = reader.next();
+        while (token != JsonConstant.OBJECT_END) {
+            expect(reader, token, JsonConstant.STRING);
+            String key = reader.getString();
+            expect(reader, reader.next(), JsonConstant.OBJECT_SEPARATOR);
+            token = reader.next();
+            if (key.equals("actions") && token == JsonConstant.ARRAY_START) {
+                token = reader.next();
+                while (token != JsonConstant.ARRAY_END) {
+                    expect(reader, token, JsonConstant.OBJECT_START);
+                    actionList.add(readAction(reader.getObject()));
+                    token = reader.next();
+                    if (token == JsonConstant.ENTRY_SEPARATOR) {
+                        token = reader.next();
+                    }
                 }
-                actionList.add(instance);
+            } else if (token == JsonConstant.OBJECT_START) {
+                reader.getObject();
+            } else if (token == JsonConstant.ARRAY_START) {
+                reader.getList();
+            }
+            token = reader.next();
+            if (token == JsonConstant.ENTRY_SEPARATOR) {
+                token = reader.next();
             }
         }
 
         return new Message(actionList);
     }
 
+    @SuppressWarnings("unchecked")
+    private Action readAction(Map<?, ?> map) throws QuickFixException {
+        Map<String, Object> params = (Map<String, Object>) map.get("params");
+
+        Action instance = (Action) Aura.getInstanceService().getInstance((String) map.get("descriptor"),
+                ActionDef.class, params);
+        instance.setId((String) map.get("id"));
+        String cd = (String) map.get("callingDescriptor");
+        if (cd != null && !cd.equals("UNKNOWN")) {
+            instance.setCallingDescriptor(cd);
+        }
+        String v = (String) map.get("version");
+        if (v != null) {
+            instance.setCallerVersion(v);
+        }
+        return instance;
+    }
+
+    private void expect(JsonStreamReader reader, JsonConstant token, JsonConstant expected) {
+        if (token != expected) {
+            throw new JsonParseException(String.format("Invalid message, expected %s but found %s at line %d",
+                    expected, token, reader.getLineNum()));
+        }
+    }
+
     @Override
     public void write(Message value, Map<String, Object> attributes, Appendable out) throws IOException {
         AuraContext c = Aura.getContextService().getCurrentContext();
@@ -17,6 +17,10 @@
  */
 package org.auraframework.impl.admin;
 
+import java.util.List;
+
+import org.auraframework.Aura;
+import org.auraframework.cache.CacheStatistics;
 import org.auraframework.impl.AuraImpl;
 import org.auraframework.impl.system.MasterDefRegistryImpl;
 import org.auraframework.system.Annotations.AuraEnabled;
@@ -38,4 +42,12 @@ public class AdminController {
             r.clear();
         }
     }
+
+    /**
+     * Get the live statistics of the framework caches, serialized as a JSON array.
+     */
+    @AuraEnabled
+    public static List<CacheStatistics> getCacheStatistics() {
+        return Aura.getCachingService().getStatistics();
+    }
 }
@@ -16,10 +16,12 @@
 package org.auraframework.impl.cache;
 
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.Set;
 
 import org.auraframework.adapter.LoggingAdapter;
 import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheStatistics;
 import org.auraframework.impl.AuraImpl;
 import org.auraframework.system.LoggingContext;
 
@@ -27,6 +29,7 @@ import com.google.common.cache.CacheStats;
 import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 
 public class CacheImpl<K, T> implements Cache<K, T> {
 
@@ -53,8 +56,12 @@ public class CacheImpl<K, T> implements Cache<K, T> {
         /** Log the entire stats once a day, regardless of evictions. */
         private long lastFull = System.currentTimeMillis();
 
-        EvictionListener(String name) {
+        /** The listener of the owner of the cache, if any. */
+        private final RemovalListener<K, T> delegate;
+
+        EvictionListener(String name, RemovalListener<K, T> delegate) {
             this.name = name == null ? UNNAMED : name;
+            this.delegate = delegate;
         }
 
         void setCache(com.google.common.cache.Cache<K, T> cache) {
@@ -63,6 +70,9 @@ public class CacheImpl<K, T> implements Cache<K, T> {
 
         @Override
         public void onRemoval(RemovalNotification<K, T> notification) {
+            if (delegate != null) {
+                delegate.onRemoval(notification);
+            }
             LoggingAdapter adapter = AuraImpl.getLoggingAdapter();
             boolean dayHasPassed = (System.currentTimeMillis() >= lastFull + ONE_DAY);
 
@@ -107,8 +117,17 @@ public class CacheImpl<K, T> implements Cache<K, T> {
 
     private com.google.common.cache.Cache<K, T> cache;
 
+    private final String name;
+
+    /** Estimates the retained bytes of an entry, for statistics only. May be null. */
+    private final Weigher<? super K, ? super T> sizeEstimator;
+
+    private final LoadTimeHistogram loads = new LoadTimeHistogram();
+
     CacheImpl(com.google.common.cache.Cache<K, T> cache) {
         this.cache = cache;
+        this.name = EvictionListener.UNNAMED;
+        this.sizeEstimator = null;
     }
 
     public CacheImpl(Builder<K, T> builder) {
@@ -117,9 +136,14 @@ public class CacheImpl<K, T> implements Cache<K, T> {
 
         com.google.common.cache.CacheBuilder<Object, Object> cb = com.google.common.cache.CacheBuilder
                 .newBuilder().initialCapacity(builder.initialCapacity)
-                .maximumSize(builder.maximumSize)
                 .concurrencyLevel(builder.concurrencyLevel);
 
+        if (builder.weigher != null) {
+            cb.maximumWeight(builder.maximumWeight).weigher(builder.weigher);
+        } else {
+            cb = cb.maximumSize(builder.maximumSize);
+        }
+
         if (builder.recordStats) {
             cb = cb.recordStats();
         }
@@ -128,10 +152,12 @@ public class CacheImpl<K, T> implements Cache<K, T> {
             cb = cb.softValues();
         }
 
-        EvictionListener<K, T> listener = new EvictionListener<>(builder.name);
+        EvictionListener<K, T> listener = new EvictionListener<>(builder.name, builder.removalListener);
         cb.removalListener(listener);
         cache = cb.build();
         listener.setCache(cache);
+        name = builder.name == null ? EvictionListener.UNNAMED : builder.name;
+        sizeEstimator = builder.sizeEstimator != null ? builder.sizeEstimator : builder.weigher;
     }
 
     @Override
@@ -194,6 +220,43 @@ public class CacheImpl<K, T> implements Cache<K, T> {
         return cache;
     }
 
+    @Override
+    public void recordLoad(long nanos) {
+        loads.record(nanos);
+    }
+
+    /**
+     * Get the statistics of the cache.
+     *
+     * Hits, misses and evictions are only counted if the cache was built to record stats. The retained bytes are only
+     * estimated if the cache has a weigher or a size estimator, and are summed over every entry.
+     */
+    @Override
+    public CacheStatistics getStatistics() {
+        long bytes = -1;
+        if (sizeEstimator != null) {
+            bytes = 0;
+            for (Map.Entry<K, T> entry : cache.asMap().entrySet()) {
+                bytes += sizeEstimator.weigh(entry.getKey(), entry.getValue());
+            }
+        }
+        return getStatistics(bytes);
+    }
+
+    /**
+     * Get the counters of the cache, which are kept as it is used, so they are read without walking the entries.
+     */
+    @Override
+    public CacheStatistics getCounters() {
+        return getStatistics(-1);
+    }
+
+    private CacheStatistics getStatistics(long bytes) {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(name, cache.size(), stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                loads.getCount(), loads.getTotalNanos(), loads.getBuckets(), bytes);
+    }
+
     public static class Builder<K, T> implements
     org.auraframework.builder.CacheBuilder<K, T> {
         // builder defaults
@@ -203,6 +266,10 @@ public class CacheImpl<K, T> implements Cache<K, T> {
         boolean recordStats = false;
         boolean softValues = true;
         boolean useSecondaryStorage = false;
+        long maximumWeight;
+        Weigher<? super K, ? super T> weigher;
+        Weigher<? super K, ? super T> sizeEstimator;
+        RemovalListener<K, T> removalListener;
         String name;
 
         public Builder() {
@@ -221,6 +288,47 @@ public class CacheImpl<K, T> implements Cache<K, T> {
             return this;
         };
 
+        /**
+         * Bound the cache by total weight instead of by number of entries.
+         *
+         * This replaces the maximum size.
+         *
+         * @param maximumWeight the maximum total weight of the entries.
+         * @param weigher the weigher for an entry.
+         * @return the same Builder with this property set
+         */
+        public Builder<K, T> setMaximumWeight(long maximumWeight, Weigher<? super K, ? super T> weigher) {
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * Estimate the retained bytes of each entry for the cache statistics, without bounding the cache by it.
+         *
+         * A cache bounded by weight uses its weigher if this is not set.
+         *
+         * @param sizeEstimator the estimate for an entry, in bytes.
+         * @return the same Builder with this property set
+         */
+        public Builder<K, T> setSizeEstimator(Weigher<? super K, ? super T> sizeEstimator) {
+            this.sizeEstimator = sizeEstimator;
+            return this;
+        }
+
+        /**
+         * Be told of every entry removed from the cache, whatever the cause.
+         *
+         * The listener is called on the thread that caused the removal, after the cache has released its locks.
+         *
+         * @param removalListener the listener.
+         * @return the same Builder with this property set
+         */
+        public Builder<K, T> setRemovalListener(RemovalListener<K, T> removalListener) {
+            this.removalListener = removalListener;
+            return this;
+        }
+
         @Override
         public Builder<K, T> setUseSecondaryStorage(boolean useSecondaryStorage) {
             this.useSecondaryStorage = useSecondaryStorage;
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheStatistics;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DescriptorKey;
+import org.auraframework.def.Definition;
+
+import com.google.common.collect.Sets;
+
+/**
+ * The interning table for descriptors, keyed by name, definition class and bundle.
+ *
+ * Descriptors are looked up constantly, so a lookup that finds its descriptor neither locks nor allocates, and in
+ * particular does not build a {@link DescriptorKey}. The table is a fixed array of buckets, each holding an immutable
+ * chain of entries. Readers simply walk the chain of a bucket, writers replace the head of the chain with a
+ * compare-and-set, copying the chain when an entry is replaced or removed.
+ *
+ * The table is bounded. When it holds more than the maximum number of entries, whole buckets are dropped in turn until
+ * it is back under the limit. A dropped descriptor is simply built again on its next lookup.
+ *
+ * The {@link Cache} methods are kept so that the table can stand in for the cache that it replaced, they take a
+ * {@link DescriptorKey} and are not allocation free.
+ *
+ * Lookups are not counted, as a shared counter would cost more than the lookup itself. The statistics hold the size,
+ * the evictions and the loads recorded by the caller.
+ */
+public class DescriptorInternTable implements Cache<DescriptorKey, DefDescriptor<? extends Definition>> {
+    /** Rough size of an entry and its descriptor, not counting the name. */
+    private static final int ENTRY_BYTES = 160;
+
+    private final AtomicReferenceArray<Entry> buckets;
+
+    private final int mask;
+
+    private final int maximumSize;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicInteger evictionHand = new AtomicInteger();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final LoadTimeHistogram loads = new LoadTimeHistogram();
+
+    /**
+     * Create a table.
+     *
+     * @param maximumSize the number of entries above which entries are dropped.
+     */
+    public DescriptorInternTable(int maximumSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+        this.buckets = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Look up a descriptor.
+     *
+     * @param name the name that the descriptor was requested by.
+     * @param clazz the definition class.
+     * @param bundle the bundle of the descriptor, or null.
+     * @return the descriptor, or null if it is not in the table.
+     */
+    public DefDescriptor<? extends Definition> get(String name, Class<? extends Definition> clazz,
+            DefDescriptor<?> bundle) {
+        int hash = hash(name, clazz, bundle);
+        for (Entry e = buckets.get(hash & mask); e != null; e = e.next) {
+            if (e.matches(hash, name, clazz, bundle)) {
+                return e.value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add a descriptor, unless there is already one for the name.
+     *
+     * @return the descriptor that was already in the table, or null if the given one was added.
+     */
+    public DefDescriptor<? extends Definition> putIfAbsent(String name, Class<? extends Definition> clazz,
+            DefDescriptor<?> bundle, DefDescriptor<? extends Definition> value) {
+        int hash = hash(name, clazz, bundle);
+        int index = hash & mask;
+        while (true) {
+            Entry head = buckets.get(index);
+            for (Entry e = head; e != null; e = e.next) {
+                if (e.matches(hash, name, clazz, bundle)) {
+                    return e.value;
+                }
+            }
+            if (buckets.compareAndSet(index, head, new Entry(hash, name, clazz, bundle, value, head))) {
+                added();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Add or replace a descriptor.
+     */
+    public void put(String name, Class<? extends Definition> clazz, DefDescriptor<?> bundle,
+            DefDescriptor<? extends Definition> value) {
+        int hash = hash(name, clazz, bundle);
+        int index = hash & mask;
+        while (true) {
+            Entry head = buckets.get(index);
+            Entry rest = without(head, hash, name, clazz, bundle);
+            if (buckets.compareAndSet(index, head, new Entry(hash, name, clazz, bundle, value, rest))) {
+                if (rest == head) {
+                    added();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove a descriptor.
+     */
+    public void remove(String name, Class<? extends Definition> clazz, DefDescriptor<?> bundle) {
+        int hash = hash(name, clazz, bundle);
+        int index = hash & mask;
+        while (true) {
+            Entry head = buckets.get(index);
+            Entry rest = without(head, hash, name, clazz, bundle);
+            if (rest == head) {
+                return;
+            }
+            if (buckets.compareAndSet(index, head, rest)) {
+                size.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the number of descriptors in the table.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public DefDescriptor<? extends Definition> getIfPresent(DescriptorKey key) {
+        return get(key.getName(), key.getClazz(), key.getBundle());
+    }
+
+    @Override
+    public void put(DescriptorKey key, DefDescriptor<? extends Definition> data) {
+        put(key.getName(), key.getClazz(), key.getBundle(), data);
+    }
+
+    @Override
+    public Set<DescriptorKey> getKeySet() {
+        Set<DescriptorKey> keys = Sets.newHashSet();
+        for (int i = 0; i < buckets.length(); i++) {
+            for (Entry e = buckets.get(i); e != null; e = e.next) {
+                keys.add(new DescriptorKey(e.name, e.clazz, e.bundle));
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public void invalidate(DescriptorKey key) {
+        remove(key.getName(), key.getClazz(), key.getBundle());
+    }
+
+    @Override
+    public void invalidate(Iterable<DescriptorKey> keys) {
+        for (DescriptorKey key : keys) {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (int i = 0; i < buckets.length(); i++) {
+            dropBucket(i);
+        }
+    }
+
+    /**
+     * Invalidate the descriptors whose name starts with the given string.
+     */
+    @Override
+    public void invalidatePartial(String partial) {
+        if (partial == null || partial.length() == 0) {
+            invalidateAll();
+            return;
+        }
+        for (int i = 0; i < buckets.length(); i++) {
+            for (Entry e = buckets.get(i); e != null; e = e.next) {
+                if (e.name.startsWith(partial)) {
+                    remove(e.name, e.clazz, e.bundle);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Object getPrivateUnderlyingCache() {
+        return this;
+    }
+
+    @Override
+    public void recordLoad(long nanos) {
+        loads.record(nanos);
+    }
+
+    @Override
+    public CacheStatistics getStatistics() {
+        long bytes = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            for (Entry e = buckets.get(i); e != null; e = e.next) {
+                bytes += ENTRY_BYTES + 2 * e.name.length();
+            }
+        }
+        return getStatistics(bytes);
+    }
+
+    @Override
+    public CacheStatistics getCounters() {
+        return getStatistics(-1);
+    }
+
+    private CacheStatistics getStatistics(long bytes) {
+        return new CacheStatistics("defDescriptorByNameCache", size(), -1, -1, evictions.get(), loads.getCount(),
+                loads.getTotalNanos(), loads.getBuckets(), bytes);
+    }
+
+    private void added() {
+        if (size.incrementAndGet() <= maximumSize) {
+            return;
+        }
+        // Drop buckets until we are back under the limit, giving up after a full sweep in case other threads keep
+        // adding.
+        for (int i = 0; i < buckets.length() && size.get() > maximumSize; i++) {
+            evictions.addAndGet(dropBucket(evictionHand.getAndIncrement() & mask));
+        }
+    }
+
+    /**
+     * @return the number of entries dropped.
+     */
+    private int dropBucket(int index) {
+        Entry head = buckets.getAndSet(index, null);
+        int count = 0;
+        for (Entry e = head; e != null; e = e.next) {
+            count++;
+        }
+        if (count > 0) {
+            size.addAndGet(-count);
+        }
+        return count;
+    }
+
+    /**
+     * Copy a chain without the given key.
+     *
+     * @return the chain itself if the key is not in it.
+     */
+    private static Entry without(Entry head, int hash, String name, Class<? extends Definition> clazz,
+            DefDescriptor<?> bundle) {
+        Entry found = null;
+        for (Entry e = head; e != null; e = e.next) {
+            if (e.matches(hash, name, clazz, bundle)) {
+                found = e;
+                break;
+            }
+        }
+        if (found == null) {
+            return head;
+        }
+        Entry rest = found.next;
+        for (Entry e = head; e != found; e = e.next) {
+            rest = new Entry(e.hash, e.name, e.clazz, e.bundle, e.value, rest);
+        }
+        return rest;
+    }
+
+    private static int hash(String name, Class<? extends Definition> clazz, DefDescriptor<?> bundle) {
+        int h = name.hashCode() * 31 + clazz.hashCode();
+        if (bundle != null) {
+            h = h * 31 + bundle.hashCode();
+        }
+        // spread the high bits down, as the table index only uses the low ones.
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    private static final class Entry {
+        private final int hash;
+
+        private final String name;
+
+        private final Class<? extends Definition> clazz;
+
+        private final DefDescriptor<?> bundle;
+
+        private final DefDescriptor<? extends Definition> value;
+
+        private final Entry next;
+
+        private Entry(int hash, String name, Class<? extends Definition> clazz, DefDescriptor<?> bundle,
+                DefDescriptor<? extends Definition> value, Entry next) {
+            this.hash = hash;
+            this.name = name;
+            this.clazz = clazz;
+            this.bundle = bundle;
+            this.value = value;
+            this.next = next;
+        }
+
+        private boolean matches(int otherHash, String otherName, Class<? extends Definition> otherClazz,
+                DefDescriptor<?> otherBundle) {
+            return hash == otherHash && clazz == otherClazz && name.equals(otherName)
+                    && (bundle == otherBundle || bundle != null && bundle.equals(otherBundle));
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.system.AuraContext.Authentication;
+import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.AuraContext.Mode;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The set of generated application resources that a node has actually served, kept in a file so that the next start
+ * of the node can build them before it takes traffic.
+ *
+ * Each entry is one app.js or app.css, identified by everything that goes into its cache key that can be rebuilt
+ * outside of a request: the application, the mode, the authentication, and for CSS the client type and style
+ * conditions. The file is rewritten shortly after a new entry is recorded, on a background thread so that the request
+ * that served the resource does not wait for it, and entries recorded close together are written at once. A new
+ * entry only happens the first time that a resource is served, so the cost is paid a few times per deploy. The number
+ * of entries is bounded: when a new entry does not fit, the one that was served least recently is dropped, so entries
+ * loaded from an earlier run make way for the ones that are still being served.
+ *
+ * The file has one tab separated entry per line, so that it can be inspected and edited by hand.
+ */
+public class HotSetManifest {
+    private static final Logger _log = Logger.getLogger(HotSetManifest.class);
+
+    private static final Joiner TAB_JOINER = Joiner.on('\t');
+
+    private static final Splitter TAB_SPLITTER = Splitter.on('\t');
+
+    private static final Joiner CONDITION_JOINER = Joiner.on(',');
+
+    private static final Splitter CONDITION_SPLITTER = Splitter.on(',').omitEmptyStrings();
+
+    /** How long after a new entry the file is written, in milliseconds. */
+    private static final long FLUSH_DELAY_MILLIS = Long.getLong("aura.cache.hotSetFlushMillis", 1000);
+
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("AuraHotSetFlush-%d").setDaemon(true).build());
+
+    private final File file;
+
+    private final int maximumEntries;
+
+    private final Set<Entry> entries = Collections.synchronizedSet(Sets.<Entry> newLinkedHashSet());
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Create a manifest.
+     *
+     * @param file the file to keep the manifest in, null to only keep it in memory.
+     * @param maximumEntries the largest number of entries that will be recorded.
+     */
+    public HotSetManifest(File file, int maximumEntries) {
+        this.file = file;
+        this.maximumEntries = maximumEntries;
+    }
+
+    /**
+     * Record a served resource, scheduling a write of the manifest if the resource is new.
+     *
+     * A new entry that does not fit replaces the entry that was served least recently.
+     *
+     * @return true if the entry was new.
+     */
+    public boolean record(Entry entry) {
+        synchronized (entries) {
+            boolean known = entries.remove(entry);
+            entries.add(entry);
+            if (known) {
+                return false;
+            }
+            trim();
+        }
+        if (file != null && dirty.compareAndSet(false, true)) {
+            flusher.schedule(flushTask, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Write the manifest now if it has entries that are not yet in the file.
+     */
+    public void flush() {
+        if (dirty.getAndSet(false)) {
+            save();
+        }
+    }
+
+    /**
+     * @return a copy of the entries, the one served least recently first.
+     */
+    public List<Entry> getEntries() {
+        synchronized (entries) {
+            return ImmutableList.copyOf(entries);
+        }
+    }
+
+    /**
+     * Load the entries from the file, adding them to the ones in memory.
+     *
+     * The entries from the file are taken to have been served before the ones in memory, so they are the first to be
+     * dropped if there are too many.
+     *
+     * Lines that cannot be parsed (e.g. for an application that has been renamed to a value that no longer exists)
+     * are skipped.
+     *
+     * @return the entries that were read.
+     */
+    public List<Entry> load() {
+        List<Entry> loaded = Lists.newArrayList();
+        if (file == null || !file.canRead()) {
+            return loaded;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    loaded.add(Entry.parse(line));
+                } catch (IllegalArgumentException iae) {
+                    _log.warn("Ignoring bad hot set entry: " + line);
+                }
+            }
+        } catch (IOException ioe) {
+            _log.error("Unable to read hot set manifest " + file, ioe);
+        }
+        synchronized (entries) {
+            Set<Entry> recorded = Sets.newLinkedHashSet(entries);
+            entries.clear();
+            entries.addAll(loaded);
+            entries.removeAll(recorded);
+            entries.addAll(recorded);
+            trim();
+        }
+        return loaded;
+    }
+
+    /**
+     * Drop the entries that were served least recently until the rest fit, holding the lock on the entries.
+     */
+    private void trim() {
+        Iterator<Entry> iterator = entries.iterator();
+        while (entries.size() > maximumEntries) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Write the entries to the file, through a temporary file so that a reader never sees half of it.
+     */
+    private synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+                for (Entry entry : getEntries()) {
+                    out.write(entry.line);
+                    out.write('\n');
+                }
+            }
+            if (!temp.renameTo(file)) {
+                // Some platforms will not rename over an existing file.
+                file.delete();
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Unable to rename " + temp + " to " + file);
+                }
+            }
+        } catch (IOException ioe) {
+            _log.error("Unable to write hot set manifest " + file, ioe);
+        }
+    }
+
+    /**
+     * A single generated resource.
+     */
+    public static final class Entry {
+        private final Format format;
+        private final Mode mode;
+        private final Authentication access;
+        private final DefType defType;
+        private final String application;
+        private final String client;
+        private final List<String> conditions;
+        private final String line;
+
+        /**
+         * Create an entry.
+         *
+         * @param format JS or CSS.
+         * @param mode the mode that the resource was served in.
+         * @param access the authentication of the request.
+         * @param defType the type of the application descriptor (APPLICATION or COMPONENT).
+         * @param application the qualified name of the application.
+         * @param client the client type of the style context, only used for CSS.
+         * @param conditions the extra true conditions of the style context, only used for CSS.
+         */
+        public Entry(Format format, Mode mode, Authentication access, DefType defType, String application,
+                String client, Iterable<String> conditions) {
+            if (format == null || mode == null || access == null || defType == null || application == null) {
+                throw new IllegalArgumentException("Incomplete hot set entry");
+            }
+            this.format = format;
+            this.mode = mode;
+            this.access = access;
+            this.defType = defType;
+            this.application = application;
+            if (format == Format.CSS && client != null) {
+                this.client = client;
+                this.conditions = conditions == null ? ImmutableList.<String> of() : ImmutableList.copyOf(conditions);
+            } else {
+                this.client = null;
+                this.conditions = ImmutableList.of();
+            }
+            this.line = TAB_JOINER.join(format, mode, access, defType, application, this.client == null ? ""
+                    : this.client, CONDITION_JOINER.join(this.conditions));
+        }
+
+        public Format getFormat() {
+            return format;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public Authentication getAccess() {
+            return access;
+        }
+
+        public DefType getDefType() {
+            return defType;
+        }
+
+        public String getApplication() {
+            return application;
+        }
+
+        /**
+         * @return the client type of the style context, or null if there is none.
+         */
+        public String getClient() {
+            return client;
+        }
+
+        public List<String> getConditions() {
+            return conditions;
+        }
+
+        private static Entry parse(String line) {
+            List<String> fields = Lists.newArrayList(TAB_SPLITTER.split(line));
+            if (fields.size() != 7) {
+                throw new IllegalArgumentException("Expected 7 fields in " + line);
+            }
+            String client = fields.get(5);
+            return new Entry(Format.valueOf(fields.get(0)), Mode.valueOf(fields.get(1)),
+                    Authentication.valueOf(fields.get(2)), DefType.valueOf(fields.get(3)), fields.get(4),
+                    client.isEmpty() ? null : client, CONDITION_SPLITTER.split(fields.get(6)));
+        }
+
+        @Override
+        public int hashCode() {
+            return line.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            return line.equals(((Entry) obj).line);
+        }
+
+        @Override
+        public String toString() {
+            return line;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheStatistics;
+import org.auraframework.def.DefDescriptor;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A descriptor keyed cache that keeps an index of its keys by namespace.
+ *
+ * This allows a whole namespace to be invalidated without walking the key set of the underlying cache. The index is
+ * updated before a value is put, so a concurrent namespace invalidation will always see the key. Keys that are
+ * evicted from the underlying cache stay in the index until their namespace is invalidated, which is harmless, as
+ * invalidating a missing key does nothing.
+ */
+public class NamespaceIndexedCache<T> implements Cache<DefDescriptor<?>, T> {
+    private final Cache<DefDescriptor<?>, T> cache;
+
+    private final ConcurrentMap<String, Set<DefDescriptor<?>>> keysByNamespace = Maps.newConcurrentMap();
+
+    public NamespaceIndexedCache(Cache<DefDescriptor<?>, T> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public T getIfPresent(DefDescriptor<?> key) {
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    public void put(DefDescriptor<?> key, T data) {
+        getNamespaceKeys(key.getNamespace()).add(key);
+        cache.put(key, data);
+    }
+
+    @Override
+    public Set<DefDescriptor<?>> getKeySet() {
+        return cache.getKeySet();
+    }
+
+    @Override
+    public void invalidate(DefDescriptor<?> key) {
+        cache.invalidate(key);
+        Set<DefDescriptor<?>> keys = keysByNamespace.get(getNamespaceKey(key.getNamespace()));
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    @Override
+    public void invalidate(Iterable<DefDescriptor<?>> keys) {
+        for (DefDescriptor<?> key : keys) {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        keysByNamespace.clear();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void invalidatePartial(String partial) {
+        cache.invalidatePartial(partial);
+    }
+
+    /**
+     * Invalidate every key in a namespace.
+     *
+     * @param namespace the namespace to invalidate (case insensitive).
+     */
+    public void invalidateNamespace(String namespace) {
+        Set<DefDescriptor<?>> keys = keysByNamespace.remove(getNamespaceKey(namespace));
+        if (keys != null) {
+            cache.invalidate(keys);
+        }
+    }
+
+    /**
+     * Get the keys that have been put for a namespace.
+     *
+     * @param namespace the namespace (case insensitive).
+     * @return an unmodifiable view of the keys, some of which may already have been evicted.
+     */
+    public Set<DefDescriptor<?>> getNamespaceKeySet(String namespace) {
+        Set<DefDescriptor<?>> keys = keysByNamespace.get(getNamespaceKey(namespace));
+        if (keys == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public Object getPrivateUnderlyingCache() {
+        return cache.getPrivateUnderlyingCache();
+    }
+
+    @Override
+    public void recordLoad(long nanos) {
+        cache.recordLoad(nanos);
+    }
+
+    @Override
+    public CacheStatistics getStatistics() {
+        return cache.getStatistics();
+    }
+
+    @Override
+    public CacheStatistics getCounters() {
+        return cache.getCounters();
+    }
+
+    private Set<DefDescriptor<?>> getNamespaceKeys(String namespace) {
+        String nsKey = getNamespaceKey(namespace);
+        Set<DefDescriptor<?>> keys = keysByNamespace.get(nsKey);
+        if (keys == null) {
+            Set<DefDescriptor<?>> created = Sets.newSetFromMap(Maps.<DefDescriptor<?>, Boolean> newConcurrentMap());
+            keys = keysByNamespace.putIfAbsent(nsKey, created);
+            if (keys == null) {
+                keys = created;
+            }
+        }
+        return keys;
+    }
+
+    private String getNamespaceKey(String namespace) {
+        return namespace == null ? "" : namespace.toLowerCase();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Coalesces concurrent computations of the same key.
+ *
+ * The first thread to join a key becomes the leader, and must compute the value and then call
+ * {@link Call#complete(Object)}, normally in a finally block. Any other thread that joins the key while the leader is
+ * running gets a follower call, and waits for the value of the leader instead of computing it again.
+ *
+ * A follower gets null back if the leader failed, published a null, or took longer than the timeout. In that case the
+ * follower should simply compute the value itself. This keeps a failing or stuck leader from ever blocking more than
+ * the timeout, and makes the coalescing a pure optimization.
+ *
+ * A thread that joins a key that it is already leading (because the computation recursed) is never made to wait on
+ * itself, it gets back a follower call that returns null immediately.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, Flight<V>> flights = Maps.newConcurrentMap();
+
+    private final long timeoutMillis;
+
+    private final AtomicLong leaderCount = new AtomicLong();
+
+    private final AtomicLong waitCount = new AtomicLong();
+
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    /**
+     * Create a set of flights.
+     *
+     * @param timeoutMillis the longest time that a follower will wait for a leader.
+     */
+    public SingleFlight(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Join the flight for a key, starting it if there is none.
+     *
+     * @param key the key being computed.
+     * @return a call, which is the leader if there was no flight for the key.
+     */
+    public Call<K, V> join(K key) {
+        Flight<V> flight = flights.get(key);
+        if (flight == null) {
+            Flight<V> created = new Flight<>();
+            flight = flights.putIfAbsent(key, created);
+            if (flight == null) {
+                leaderCount.incrementAndGet();
+                return new Call<>(this, key, created, true);
+            }
+        }
+        if (flight.leader == Thread.currentThread()) {
+            return new Call<>(this, key, null, false);
+        }
+        return new Call<>(this, key, flight, false);
+    }
+
+    /**
+     * @return the number of keys currently being computed.
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    /**
+     * @return the number of computations that were started.
+     */
+    public long getLeaderCount() {
+        return leaderCount.get();
+    }
+
+    /**
+     * @return the number of times a thread waited on another thread's computation.
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * @return the total time spent by followers waiting, in nanoseconds.
+     */
+    public long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    /**
+     * @return the number of waits that gave up because the leader took too long.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    private static class Flight<V> {
+        private final Thread leader = Thread.currentThread();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile V value;
+    }
+
+    /**
+     * A single thread's part in a flight.
+     */
+    public static class Call<K, V> {
+        private final SingleFlight<K, V> owner;
+
+        private final K key;
+
+        private final Flight<V> flight;
+
+        private final boolean leader;
+
+        private Call(SingleFlight<K, V> owner, K key, Flight<V> flight, boolean leader) {
+            this.owner = owner;
+            this.key = key;
+            this.flight = flight;
+            this.leader = leader;
+        }
+
+        /**
+         * @return true if this thread must compute the value.
+         */
+        public boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * Wait for the leader to finish.
+         *
+         * @return the value computed by the leader, or null if the caller must compute it.
+         */
+        public V await() {
+            if (leader || flight == null) {
+                return null;
+            }
+            long start = System.nanoTime();
+            owner.waitCount.incrementAndGet();
+            try {
+                if (!flight.done.await(owner.timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    owner.timeoutCount.incrementAndGet();
+                    return null;
+                }
+                return flight.value;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return null;
+            } finally {
+                owner.waitNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Finish the flight, releasing all of the followers.
+         *
+         * This does nothing for a follower, so it is safe to call unconditionally.
+         *
+         * @param value the value for the followers, null if the computation failed.
+         */
+        public void complete(V value) {
+            if (!leader) {
+                return;
+            }
+            flight.value = value;
+            owner.flights.remove(key, flight);
+            flight.done.countDown();
+        }
+    }
+}
@@ -174,7 +174,7 @@ public class ClientLibraryServiceImpl implements ClientLibraryService {
         Set<String> urls = urlsCache.getIfPresent(key);
 
         if (urls == null) {
-
+            long start = System.nanoTime();
             List<ClientLibraryDef> clientLibs = getClientLibraries(context, type);
             urls = Sets.newLinkedHashSet();
 
@@ -201,6 +201,7 @@ public class ClientLibraryServiceImpl implements ClientLibraryService {
                 urls.add(getResourcesPath(context, type));
             }
 
+            urlsCache.recordLoad(System.nanoTime() - start);
             urlsCache.put(key, urls);
         }
 
@@ -233,6 +234,7 @@ public class ClientLibraryServiceImpl implements ClientLibraryService {
 
         if (code == null) {
             // no cache yet
+            long start = System.nanoTime();
             List<ClientLibraryDef> clientLibs = getClientLibraries(context, type);
             Set<Combinable> combinables = Sets.newLinkedHashSet();
             StringBuilder sb = new StringBuilder();
@@ -252,6 +254,7 @@ public class ClientLibraryServiceImpl implements ClientLibraryService {
             }
 
             code = sb.toString();
+            outputCache.recordLoad(System.nanoTime() - start);
             outputCache.put(key, code);
         }
 
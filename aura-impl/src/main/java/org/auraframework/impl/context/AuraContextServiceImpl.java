@@ -40,8 +40,10 @@ import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
 import org.auraframework.system.DefRegistry;
+import org.auraframework.system.LoggingContext;
 import org.auraframework.system.MasterDefRegistry;
 import org.auraframework.system.SourceLoader;
+import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.NoContextException;
 import org.auraframework.util.ServiceLocator;
 
@@ -123,6 +125,42 @@ public class AuraContextServiceImpl implements ContextService {
         }
     }
 
+    @Override
+    public SuspendedContext suspendContext() {
+        assertEstablished();
+        AuraContext context = AuraImpl.getContextAdapter().getCurrentContext();
+        LoggingContext loggingContext = AuraImpl.getLoggingAdapter().getLoggingContext();
+        endContext();
+        return new SuspendedContextImpl(context, loggingContext);
+    }
+
+    @Override
+    public void resumeContext(SuspendedContext suspended) {
+        if (isEstablished()) {
+            throw new AuraRuntimeException("Cannot resume a context over an established one");
+        }
+        SuspendedContextImpl impl = (SuspendedContextImpl) suspended;
+        AuraImpl.getContextAdapter().resume(impl.context);
+        if (impl.loggingContext != null) {
+            AuraImpl.getLoggingAdapter().resume(impl.loggingContext);
+        }
+    }
+
+    private static class SuspendedContextImpl implements SuspendedContext {
+        private final AuraContext context;
+        private final LoggingContext loggingContext;
+
+        private SuspendedContextImpl(AuraContext context, LoggingContext loggingContext) {
+            this.context = context;
+            this.loggingContext = loggingContext;
+        }
+
+        @Override
+        public AuraContext getContext() {
+            return context;
+        }
+    }
+
     @Override
     public AuraContext pushSystemContext() {
         assertEstablished();
@@ -16,6 +16,10 @@
 package org.auraframework.impl.context;
 
 import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -49,6 +53,7 @@ import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.util.ServiceLocator;
 
 import com.google.common.collect.*;
+import com.google.common.io.ByteStreams;
 
 @Component (provide=AuraServiceProvider.class)
 public class AuraRegistryProviderImpl implements RegistryAdapter, SourceListener {
@@ -99,16 +104,15 @@ public class AuraRegistryProviderImpl implements RegistryAdapter, SourceListener
     }
 
     /**
-     * Get an input stream from a file name.
+     * Map a registries file into memory.
      *
-     * @param path the path to open.
+     * @param file the file to map.
+     * @return the mapped bytes, or null if the file cannot be read.
      */
-    private InputStream getFileInputStream(String path) {
-        File file = new File(path);
-        FileInputStream fis = null;
-
-        try {
-            fis = new FileInputStream(file);
+    private ByteBuffer mapFile(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
         } catch (Throwable t) {
             // don't die.
             // This can occur because the file is unreadable, or doesn't exist. We only
@@ -117,26 +121,58 @@ public class AuraRegistryProviderImpl implements RegistryAdapter, SourceListener
                 _log.error("Unable to open registries file", t);
             }
         }
-        return fis;
+        return null;
     }
 
-    private DefRegistry<?>[] getStaticRegistries(ComponentLocationAdapter location) {
-        InputStream ris = null;
-
+    /**
+     * Get the bytes of the registries file for a location.
+     *
+     * Files are mapped, so that the definitions which are never used are never read onto the heap, anything else
+     * (e.g. a registries file inside a jar) is read in full.
+     */
+    private ByteBuffer getRegistriesBuffer(ComponentLocationAdapter location) {
         String pkg = location.getComponentSourcePackage();
         if (pkg != null) {
-            ris = location.getClass().getResourceAsStream(pkg + "/.registries");
-        } else {
-            File compSource = location.getComponentSourceDir();
-            if (compSource != null && compSource.canRead()) {
-                ris = getFileInputStream(compSource + "/.registries");
+            URL url = location.getClass().getResource(pkg + "/.registries");
+            if (url == null) {
+                return null;
+            }
+            if ("file".equals(url.getProtocol())) {
+                try {
+                    return mapFile(new File(url.toURI()));
+                } catch (URISyntaxException use) {
+                    // fall through and read it as a stream.
+                }
+            }
+            try (InputStream ris = url.openStream()) {
+                return ByteBuffer.wrap(ByteStreams.toByteArray(ris));
+            } catch (IOException ioe) {
+                _log.error("Unable to open registries file", ioe);
+                return null;
             }
         }
-        if (ris != null) {
-            ObjectInputStream ois = null;
+        File compSource = location.getComponentSourceDir();
+        if (compSource != null && compSource.canRead()) {
+            File file = new File(compSource, ".registries");
+            if (file.exists()) {
+                return mapFile(file);
+            }
+        }
+        return null;
+    }
 
-            try {
-                ois = new ObjectInputStream(ris);
+    private DefRegistry<?>[] getStaticRegistries(ComponentLocationAdapter location) {
+        ByteBuffer buffer = getRegistriesBuffer(location);
+
+        if (buffer == null) {
+            return null;
+        }
+        try {
+            if (StaticRegistryFile.isRegistryFile(buffer)) {
+                return StaticRegistryFile.read(buffer);
+            }
+            // A registries file from before the indexed format, which is simply a serialized list.
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(toArray(buffer)))) {
                 Object o = ois.readObject();
                 if (o instanceof List) {
                     @SuppressWarnings("unchecked")
@@ -144,28 +180,22 @@ public class AuraRegistryProviderImpl implements RegistryAdapter, SourceListener
                     return l.toArray(new DefRegistry<?> [l.size()]);
                 }
                 return (DefRegistry[]) ois.readObject();
-            } catch (Exception e) {
-                // Do not fail here, just act as if we don't have a registries file.
-                // You'd have to create a bad registries file...
-                _log.error("Unable to read registries file", e);
-            } finally {
-                try {
-                    ris.close();
-                } catch (IOException e) {
-                    throw new AuraRuntimeException(e);
-                }
-                if (ois != null) {
-                    try {
-                        ois.close();
-                    } catch (IOException e) {
-                        throw new AuraRuntimeException(e);
-                    }
-                }
             }
+        } catch (Exception e) {
+            // Do not fail here, just act as if we don't have a registries file.
+            // You'd have to create a bad registries file...
+            _log.error("Unable to read registries file", e);
         }
         return null;
     }
 
+    private static byte[] toArray(ByteBuffer buffer) {
+        ByteBuffer source = buffer.duplicate();
+        byte[] bytes = new byte[source.remaining()];
+        source.get(bytes);
+        return bytes;
+    }
+
     private SourceLocationInfo createSourceLocationInfo(ComponentLocationAdapter location) {
         DefRegistry<?>[] staticRegs = getStaticRegistries(location);
         String pkg = location.getComponentSourcePackage();
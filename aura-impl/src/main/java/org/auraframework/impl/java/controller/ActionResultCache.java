@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.java.controller;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.cache.CacheStatistics;
+import org.auraframework.impl.cache.CacheImpl;
+import org.auraframework.system.AuraContext;
+import org.auraframework.system.Annotations.CacheableAction;
+import org.auraframework.util.javascript.Literal;
+import org.auraframework.util.json.JsonEncoder;
+import org.auraframework.util.json.JsonSerializationContext;
+
+import com.google.common.cache.Weigher;
+
+/**
+ * The results of {@link CacheableAction}s, with their JSON.
+ *
+ * The cache is bounded by the length of the keys and JSON (aura.actions.resultCacheBytes, 0 turns it off). Each
+ * entry also carries the time at which it expires, as that varies by action, and an expired entry is dropped when it
+ * is next looked up.
+ */
+public class ActionResultCache {
+    /** Rough per entry overhead, in bytes, so that small results are not free */
+    private final static int ENTRY_OVERHEAD = 256;
+
+    private static final ActionResultCache INSTANCE = new ActionResultCache(Long.getLong(
+            "aura.actions.resultCacheBytes", 16L * 1024 * 1024));
+
+    public static ActionResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final CacheImpl<String, Result> cache;
+
+    ActionResultCache(long maximumBytes) {
+        if (maximumBytes <= 0) {
+            cache = null;
+            return;
+        }
+        cache = new CacheImpl.Builder<String, Result>()
+                .setMaximumWeight(maximumBytes, new Weigher<String, Result>() {
+                    @Override
+                    public int weigh(String key, Result value) {
+                        return 2 * key.length() + 2 * value.length + ENTRY_OVERHEAD;
+                    }
+                })
+                .setRecordStats(true)
+                .setName("actionResultCache")
+                .setSoftValues(false).build();
+    }
+
+    /**
+     * Get the key of a call.
+     *
+     * The mode and authentication of the request are part of the key, so a result is never shared between an
+     * authenticated and an unauthenticated caller, or between modes that serialize differently.
+     *
+     * @param actionDef the action.
+     * @param scope the scope of the caller.
+     * @param args the converted parameters of the call.
+     * @param context the context of the request.
+     * @return the key, or null if the call can't be cached (the cache is off, or a parameter can't be serialized).
+     */
+    public String getKey(JavaActionDef actionDef, String scope, Object[] args, AuraContext context) {
+        if (cache == null || scope == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(64);
+        key.append(actionDef.getDescriptor().getQualifiedName());
+        key.append(context.getJsonSerializationContext().format() ? "$F:" : "$C:");
+        key.append(context.getMode()).append(':').append(context.getAccess()).append(':');
+        key.append(scope.length()).append(':').append(scope);
+        try {
+            JsonEncoder.serialize(Arrays.asList(args), key);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return key.toString();
+    }
+
+    /**
+     * Get a result that has not expired.
+     *
+     * @param key the key from {@link #getKey}.
+     * @return the result, or null.
+     */
+    public Result get(String key) {
+        Result result = cache.getIfPresent(key);
+        if (result != null && result.expires - System.nanoTime() <= 0) {
+            cache.invalidate(key);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Keep the result of a call, along with its JSON.
+     *
+     * The JSON is written without references, as it is inserted into responses that have their own.
+     *
+     * @param key the key from {@link #getKey}.
+     * @param expireSeconds the number of seconds to keep the result.
+     * @param value the return value of the call.
+     * @param jsonContext the serialization context of the request.
+     * @return the result, or null if the value can't be serialized.
+     */
+    public Result put(String key, int expireSeconds, Object value, JsonSerializationContext jsonContext) {
+        long start = System.nanoTime();
+        String json;
+        if (value == null) {
+            json = "null";
+        } else {
+            jsonContext.pushRefSupport(false);
+            try {
+                json = JsonEncoder.serialize(value, jsonContext);
+            } catch (RuntimeException e) {
+                // Leave it to the response to report.
+                return null;
+            } finally {
+                jsonContext.popRefSupport();
+            }
+        }
+        long now = System.nanoTime();
+        Result result = new Result(value, json, now + TimeUnit.SECONDS.toNanos(expireSeconds));
+        cache.put(key, result);
+        cache.recordLoad(now - start);
+        return result;
+    }
+
+    /**
+     * @return the statistics of the cache, or null if it is off.
+     */
+    public CacheStatistics getStatistics() {
+        return cache == null ? null : cache.getStatistics();
+    }
+
+    /**
+     * @return the counters of the cache, or null if it is off.
+     */
+    public CacheStatistics getCounters() {
+        return cache == null ? null : cache.getCounters();
+    }
+
+    /**
+     * A cached result.
+     */
+    public static final class Result {
+        private final Object value;
+        private final Literal json;
+        private final int length;
+        private final long expires;
+
+        private Result(Object value, String json, long expires) {
+            this.value = value;
+            this.json = new Literal(json);
+            this.length = json.length();
+            this.expires = expires;
+        }
+
+        /**
+         * @return the return value, which is shared and must not be changed.
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * @return the serialized return value.
+         */
+        public Literal getJson() {
+            return json;
+        }
+    }
+}
@@ -17,15 +17,21 @@ package org.auraframework.impl.java.controller;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.auraframework.Aura;
 import org.auraframework.def.ControllerDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.ValueDef;
 import org.auraframework.instance.AbstractActionImpl;
+import org.auraframework.instance.Action;
 import org.auraframework.service.LoggingService;
+import org.auraframework.system.Annotations.CacheableAction;
 import org.auraframework.system.Location;
 import org.auraframework.throwable.AuraExecutionException;
 import org.auraframework.throwable.AuraHandledException;
@@ -33,6 +39,7 @@ import org.auraframework.throwable.AuraUnhandledException;
 import org.auraframework.throwable.quickfix.InvalidDefinitionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.Json;
+import org.auraframework.util.json.JsonSerializationContext;
 
 import com.google.common.collect.Lists;
 
@@ -40,6 +47,17 @@ import com.google.common.collect.Lists;
  * A server side java based action.
  */
 public class JavaAction extends AbstractActionImpl<JavaActionDef> {
+    /**
+     * Writes the JSON of a cached result, rather than serializing its value again.
+     */
+    public static final Action.Serializer SERIALIZER = new Action.Serializer() {
+        @Override
+        protected Object getSerializableReturnValue(Action action) {
+            ActionResultCache.Result result = ((JavaAction) action).cachedResult;
+            return result != null ? result.getJson() : action.getReturnValue();
+        }
+    };
+
     /**
      * The constructor for an action.
      *
@@ -115,16 +133,8 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
 
     @Override
     public void run() {
-        if (this.actionDef == null) {
-            addException(
-                    new InvalidDefinitionException("No action found", new Location(
-                            this.controllerDescriptor.getQualifiedName(), 0)), State.ERROR, true, false);
-            return;
-        }
-        this.state = State.RUNNING;
-
-        Object[] args = getArgs();
-        if (args == null) {
+        Callable<Object> call = prepareCall();
+        if (call == null) {
             return;
         }
 
@@ -133,8 +143,9 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
         loggingService.startTimer("java");
         try {
             loggingService.incrementNum("JavaCallCount");
-            this.returnValue = this.actionDef.getMethod().invoke(bean, args);
+            this.returnValue = call.call();
             this.state = State.SUCCESS;
+            cacheResult();
         } catch (InvocationTargetException e) {
             // something bad happened in the body of the action itself
             // getCause() unwraps the InvocationTargetException, gives us the
@@ -153,6 +164,115 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
         }
     }
 
+    /**
+     * @return true if the method can run at the same time as the other actions in its request.
+     */
+    public boolean isParallel() {
+        return actionDef != null && actionDef.isParallel();
+    }
+
+    /**
+     * Run the action up to the call of its method, which is returned so that it can be called on another thread.
+     *
+     * The call does not need a context, everything that does (e.g. converting the parameters) is done here. A
+     * {@link CacheableAction} that finds its result in the cache finishes here, without a call.
+     *
+     * @return the call of the method, or null if the action has already finished or failed.
+     */
+    public Callable<Object> prepareCall() {
+        if (this.actionDef == null) {
+            addException(
+                    new InvalidDefinitionException("No action found", new Location(
+                            this.controllerDescriptor.getQualifiedName(), 0)), State.ERROR, true, false);
+            return null;
+        }
+        this.state = State.RUNNING;
+
+        final Object[] args = getArgs();
+        if (args == null) {
+            return null;
+        }
+        if (getCachedResult(args)) {
+            return null;
+        }
+        final Method method = this.actionDef.getMethod();
+        return new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return method.invoke(bean, args);
+            }
+        };
+    }
+
+    /**
+     * Look for the result of a cacheable action, finishing the action if it is found.
+     *
+     * @return true if the action has its result.
+     */
+    private boolean getCachedResult(Object[] args) {
+        if (!this.actionDef.isCacheable()) {
+            return false;
+        }
+        ActionResultCache cache = ActionResultCache.getInstance();
+        this.cacheKey = cache.getKey(this.actionDef, this.actionDef.getCacheScope().getScope(this), args,
+                Aura.getContextService().getCurrentContext());
+        if (this.cacheKey == null) {
+            return false;
+        }
+        ActionResultCache.Result result = cache.get(this.cacheKey);
+        if (result == null) {
+            return false;
+        }
+        Aura.getLoggingService().incrementNum("JavaCacheHitCount");
+        this.cachedResult = result;
+        this.returnValue = result.getValue();
+        this.state = State.SUCCESS;
+        return true;
+    }
+
+    /**
+     * Keep the result of a cacheable action that has just succeeded.
+     */
+    private void cacheResult() {
+        if (this.cacheKey == null) {
+            return;
+        }
+        JsonSerializationContext jsonContext = Aura.getContextService().getCurrentContext()
+                .getJsonSerializationContext();
+        this.cachedResult = ActionResultCache.getInstance().put(this.cacheKey,
+                this.actionDef.getCacheExpireSeconds(), this.returnValue, jsonContext);
+    }
+
+    /**
+     * Finish the action with the outcome of a call from {@link #prepareCall()}, waiting for it if needed.
+     *
+     * @param call the call, running or done.
+     */
+    public void completeCall(Future<Object> call) {
+        LoggingService loggingService = Aura.getLoggingService();
+        loggingService.stopTimer(LoggingService.TIMER_AURA);
+        loggingService.startTimer("java");
+        try {
+            loggingService.incrementNum("JavaCallCount");
+            this.returnValue = call.get();
+            this.state = State.SUCCESS;
+            cacheResult();
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof InvocationTargetException) {
+                addException(cause.getCause(), State.ERROR, true, true);
+            } else {
+                addException(cause, State.ERROR, true, false);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            addException(ie, State.ERROR, true, false);
+        } finally {
+            loggingService.stopTimer("java");
+            loggingService.startTimer(LoggingService.TIMER_AURA);
+        }
+    }
+
     @Override
     public Object getReturnValue() {
         return returnValue;
@@ -168,6 +288,8 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
     }
 
     private Object returnValue;
+    private String cacheKey;
+    private ActionResultCache.Result cachedResult;
     private final List<Object> errors = Lists.newArrayList();
     private final Object bean;
 }
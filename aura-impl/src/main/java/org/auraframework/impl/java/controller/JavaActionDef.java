@@ -25,6 +25,8 @@ import org.auraframework.def.TypeDef;
 import org.auraframework.def.ValueDef;
 import org.auraframework.impl.system.DefinitionImpl;
 import org.auraframework.impl.util.AuraUtil;
+import org.auraframework.instance.ActionResultScope;
+import org.auraframework.system.Annotations.CacheableAction;
 import org.auraframework.util.json.Json;
 
 /**
@@ -39,6 +41,9 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
     private final Method method;
     private final boolean background;
     private final boolean caboose;
+    private final boolean parallel;
+    private final int cacheExpireSeconds;
+    private final ActionResultScope cacheScope;
 
     protected JavaActionDef(Builder builder) {
         super(builder);
@@ -49,6 +54,9 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         this.method = builder.method;
         this.background = builder.background;
         this.caboose = builder.caboose;
+        this.parallel = builder.parallel;
+        this.cacheExpireSeconds = builder.cacheExpireSeconds;
+        this.cacheScope = builder.cacheScope;
     }
 
     @Override
@@ -92,6 +100,34 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
     	return caboose;
     }
 
+    /**
+     * @return true if the method can run at the same time as the other actions in its request.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @return true if results of the method can be shared between calls, see {@link CacheableAction}.
+     */
+    public boolean isCacheable() {
+        return cacheScope != null;
+    }
+
+    /**
+     * @return the number of seconds that a result is kept.
+     */
+    public int getCacheExpireSeconds() {
+        return cacheExpireSeconds;
+    }
+
+    /**
+     * @return who can share a result, null if the action is not cacheable.
+     */
+    public ActionResultScope getCacheScope() {
+        return cacheScope;
+    }
+
     @Override
     public void serialize(Json json) throws IOException {
         json.writeMapBegin();
@@ -118,6 +154,9 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         private Method method;
         private boolean background = false;
         private boolean caboose = false;
+        private boolean parallel = false;
+        private int cacheExpireSeconds = 0;
+        private ActionResultScope cacheScope;
 
         @Override
         public JavaActionDef build() {
@@ -171,5 +210,20 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
 	public void setCaboose(boolean caboose) {
 	    this.caboose = caboose;
 	}
+
+	public void setParallel(boolean parallel) {
+	    this.parallel = parallel;
+	}
+
+	/**
+	 * Let results of the method be shared between calls.
+	 *
+	 * @param expireSeconds the number of seconds that a result is kept.
+	 * @param scope who can share a result.
+	 */
+	public void setCacheable(int expireSeconds, ActionResultScope scope) {
+	    this.cacheExpireSeconds = expireSeconds;
+	    this.cacheScope = scope;
+	}
     }
 }
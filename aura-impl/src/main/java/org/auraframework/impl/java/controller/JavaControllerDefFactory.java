@@ -34,11 +34,14 @@ import org.auraframework.impl.java.model.JavaValueDef;
 import org.auraframework.impl.java.type.JavaTypeDef;
 import org.auraframework.impl.system.DefDescriptorImpl;
 import org.auraframework.impl.system.SubDefDescriptorImpl;
+import org.auraframework.instance.ActionResultScope;
 import org.auraframework.system.Annotations.AuraEnabled;
 import org.auraframework.system.Annotations.BackgroundAction;
 import org.auraframework.system.Annotations.CabooseAction;
+import org.auraframework.system.Annotations.CacheableAction;
 import org.auraframework.system.Annotations.Controller;
 import org.auraframework.system.Annotations.Key;
+import org.auraframework.system.Annotations.ParallelAction;
 import org.auraframework.system.DefFactory;
 import org.auraframework.system.Location;
 import org.auraframework.system.SourceLoader;
@@ -173,6 +176,22 @@ public class JavaControllerDefFactory extends BaseJavaDefFactory<ControllerDef>
         
     	actionBuilder.setBackground(method.isAnnotationPresent(BackgroundAction.class));
     	actionBuilder.setCaboose(method.isAnnotationPresent(CabooseAction.class));
+    	actionBuilder.setParallel(method.isAnnotationPresent(ParallelAction.class));
+
+        CacheableAction cacheable = method.getAnnotation(CacheableAction.class);
+        if (cacheable != null) {
+            if (cacheable.expireSeconds() <= 0) {
+                throwControllerError("expireSeconds must be positive on @CacheableAction ", controllerClass, method);
+            }
+            ActionResultScope scope;
+            try {
+                scope = cacheable.scope().newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new InvalidDefinitionException("Unable to create the result scope " + cacheable.scope().getName()
+                        + " of " + name, new Location(controllerClass.getName() + "." + name, 0), e);
+            }
+            actionBuilder.setCacheable(cacheable.expireSeconds(), scope);
+        }
         
         return actionBuilder.build();
     }
@@ -19,6 +19,7 @@ import java.io.IOException;
 
 import aQute.bnd.annotation.component.Component;
 import org.auraframework.Aura;
+import org.auraframework.cache.CacheStatistics;
 import org.auraframework.ds.serviceloader.AuraServiceProvider;
 import org.auraframework.service.LoggingService;
 import org.auraframework.service.MetricsService;
@@ -48,6 +49,14 @@ public class MetricsServiceImpl implements MetricsService  {
             json.writeArrayBegin();
             loggingService.serializeActions(json);
             json.writeArrayEnd();
+
+            // caches, only the counters, the retained bytes are left to AdminController.getCacheStatistics
+            json.writeMapKey("caches");
+            json.writeArrayBegin();
+            for (CacheStatistics counters : Aura.getCachingService().getCounters()) {
+                json.writeArrayEntry(counters);
+            }
+            json.writeArrayEnd();
             json.writeMapEnd();
 
         } catch (IOException e) {
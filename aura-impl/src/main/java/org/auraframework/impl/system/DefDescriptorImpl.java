@@ -23,6 +23,7 @@ import javax.annotation.Nonnull;
 import org.auraframework.Aura;
 import org.auraframework.cache.Cache;
 import org.auraframework.def.*;
+import org.auraframework.impl.cache.DescriptorInternTable;
 import org.auraframework.impl.type.AuraStaticTypeDefRegistry;
 import org.auraframework.impl.util.*;
 import org.auraframework.impl.util.TypeParser.Type;
@@ -322,11 +323,15 @@ public class DefDescriptorImpl<T extends Definition> implements DefDescriptor<T>
             throw new AuraRuntimeException("descriptor is null");
         }
 
-        DescriptorKey dk = new DescriptorKey(name, defClass, bundle);
-
         Cache<DescriptorKey, DefDescriptor<? extends Definition>> cache =
                 cSrv.getDefDescriptorByNameCache();
 
+        if (cache instanceof DescriptorInternTable) {
+            return intern((DescriptorInternTable) cache, name, defClass, bundle);
+        }
+
+        DescriptorKey dk = new DescriptorKey(name, defClass, bundle);
+
         @SuppressWarnings("unchecked")
         DefDescriptor<E> result = (DefDescriptor<E>) cache.getIfPresent(dk);
         if (result == null) {
@@ -355,6 +360,33 @@ public class DefDescriptorImpl<T extends Definition> implements DefDescriptor<T>
         return result;
     }
 
+    /**
+     * Look up a descriptor in the interning table, without allocating anything if it is there.
+     *
+     * Both the requested name and the qualified name map to the same instance, and the first instance to be added
+     * wins if two threads build the same descriptor.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Definition> DefDescriptor<E> intern(DescriptorInternTable table, String name,
+            Class<E> defClass, DefDescriptor<?> bundle) {
+        DefDescriptor<E> result = (DefDescriptor<E>) table.get(name, defClass, bundle);
+        if (result != null) {
+            return result;
+        }
+        long start = System.nanoTime();
+        result = buildInstance(name, defClass, bundle);
+        table.recordLoad(System.nanoTime() - start);
+        if (!name.equals(result.getQualifiedName())) {
+            DefDescriptor<E> existing = (DefDescriptor<E>) table.putIfAbsent(result.getQualifiedName(), defClass,
+                    result.getBundle(), result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        DefDescriptor<E> existing = (DefDescriptor<E>) table.putIfAbsent(name, defClass, bundle, result);
+        return existing != null ? existing : result;
+    }
+
     /**
      * FIXME: this method is ambiguous about wanting a qualified, simple, or descriptor name.
      *
@@ -15,7 +15,18 @@
  */
 package org.auraframework.impl.system;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
 
 import javax.annotation.CheckForNull;
@@ -24,9 +35,12 @@ import javax.annotation.Nonnull;
 import org.apache.log4j.Logger;
 import org.auraframework.Aura;
 import org.auraframework.adapter.ConfigAdapter;
+import org.auraframework.adapter.ContextAdapter;
 import org.auraframework.cache.Cache;
 import org.auraframework.def.*;
 import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.impl.AuraImpl;
+import org.auraframework.impl.cache.SingleFlight;
 import org.auraframework.impl.controller.AuraStaticControllerDefRegistry;
 import org.auraframework.service.CachingService;
 import org.auraframework.service.LoggingService;
@@ -35,11 +49,14 @@ import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.NoAccessException;
 import org.auraframework.throwable.quickfix.DefinitionNotFoundException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.AsyncWriter;
 import org.auraframework.util.text.GlobMatcher;
+import org.auraframework.util.resource.GeneratedResource;
 import org.auraframework.util.text.Hash;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.*;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Overall Master definition registry implementation, there be dragons here.
@@ -48,6 +65,11 @@ import com.google.common.collect.*;
  * what is effectively a thread local cache. This means that once something is pulled into the local thread, it will not
  * change.
  *
+ * Readers of the global caches never lock. Instead, every value that we compute and publish to a global cache is
+ * fenced by an invalidation epoch from the {@link CachingService}, captured before the value was loaded. If a source
+ * change invalidates the namespace while we are compiling, the value is simply not published (or is backed out), and
+ * the next request will compile it again.
+ *
  */
 public class MasterDefRegistryImpl implements MasterDefRegistry {
     private static final Logger logger = Logger.getLogger(MasterDefRegistryImpl.class);
@@ -75,13 +97,58 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             );
     private final static int ACCESS_CHECK_CACHE_SIZE = 4096;
 
-    private final Lock rLock;
+    /**
+     * The pool used to fetch, parse and validate definitions in parallel while compiling.
+     *
+     * This is null, meaning a serial compile, unless the system property aura.compile.parallelism is set to a
+     * positive pool size.
+     */
+    private static volatile ForkJoinPool compilePool = createCompilePool(Integer.getInteger(
+            "aura.compile.parallelism", 0));
+
+    /**
+     * The longest time that a request will wait for another request compiling the same thing, before it gives up and
+     * compiles it itself.
+     */
+    private static final long COALESCE_TIMEOUT_MILLIS = Long.getLong("aura.cache.coalesceTimeoutMillis", 60000);
+
+    /**
+     * Compiles in flight, keyed like the unqualified entries of the depsCache.
+     *
+     * The value handed to waiting requests is only a signal, they pick up the result from the depsCache, since the
+     * definitions have to be built into their own registry.
+     */
+    private static final SingleFlight<String, DependencyEntry> compileFlights = new SingleFlight<>(
+            COALESCE_TIMEOUT_MILLIS);
+
+    /**
+     * Cached strings in flight, keyed like the stringsCache.
+     */
+    private static final SingleFlight<String, GeneratedResource> stringFlights = new SingleFlight<>(
+            COALESCE_TIMEOUT_MILLIS);
+
+    /**
+     * Passes a streamed resource on to the client of the request building it, see {@link #streamCachedResource}.
+     */
+    private static final ExecutorService clientWriterPool = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("AuraClientWriter-%d").setDaemon(true).build());
+
+    /**
+     * Name indexes of the registries that can enumerate their contents, used to reject descriptors that do not exist.
+     *
+     * The registries are shared between requests until the sources change, so the indexes are kept here, weakly, and
+     * go away with their registry.
+     */
+    private static final ConcurrentMap<DefRegistry<?>, RegistryNameIndex> nameIndexes = new MapMaker().weakKeys()
+            .makeMap();
+
+    private final CachingService cachingService;
     private final Lock wLock;
 
     private final Cache<DefDescriptor<?>, Boolean> existsCache;
     private final Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache;
     private final Cache<String, DependencyEntry> depsCache;
-    private final Cache<String, String> stringsCache;
+    private final Cache<String, GeneratedResource> stringsCache;
     private final Cache<String, Set<DefDescriptor<?>>> descriptorFilterCache;
     private final Cache<String, String> accessCheckCache;
 
@@ -118,7 +185,7 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
 
         this.delegateRegistries = delegate;
         this.original = original;
-        this.rLock = acs.getReadLock();
+        this.cachingService = acs;
         this.wLock = acs.getWriteLock();
         this.existsCache = acs.getExistsCache();
         this.defsCache = acs.getDefsCache();
@@ -215,66 +282,64 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             // If we have somthing that is non-constant, we'll have to muck with caches and do some funky
             // running around.
             //
-            rLock.lock();
-            try {
-                //
-                // We _never_ cache non-constant namespaces. We'd like to make them illegal, but for the moment
-                // we will make them undesirable.
-                //
-                boolean cacheable = shouldCache(matcher) && namespaceMatcher.isConstant();
-                for (DefRegistry<?> reg : delegateRegistries.getRegistries(matcher)) {
-                    if (reg.hasFind()) {
-                        //
-                        // Now we walk then entire set of registries, and check to see if our namespace
-                        // matches them. In the case of a constant namespace, this is easy, otherwise
-                        // we have to do a double walk.
-                        //
-                        // We could theoretically do the cache lookup first, but that seems overly complicated
-                        //
-                        Set<String> namespaces = reg.getNamespaces();
-                        boolean nsm = namespaces.contains("*");
-                        if (!nsm) {
-                            if (namespace != null) {
-                                nsm = namespaces.contains(namespace);
-                            } else {
-                                for (String ns : namespaces) {
-                                    if (namespaceMatcher.match(ns)) {
-                                        nsm = true;
-                                    }
+            long epoch = cachingService.getGlobalEpoch();
+            //
+            // We _never_ cache non-constant namespaces. We'd like to make them illegal, but for the moment
+            // we will make them undesirable.
+            //
+            boolean cacheable = shouldCache(matcher) && namespaceMatcher.isConstant();
+            for (DefRegistry<?> reg : delegateRegistries.getRegistries(matcher)) {
+                if (reg.hasFind()) {
+                    //
+                    // Now we walk then entire set of registries, and check to see if our namespace
+                    // matches them. In the case of a constant namespace, this is easy, otherwise
+                    // we have to do a double walk.
+                    //
+                    // We could theoretically do the cache lookup first, but that seems overly complicated
+                    //
+                    Set<String> namespaces = reg.getNamespaces();
+                    boolean nsm = namespaces.contains("*");
+                    if (!nsm) {
+                        if (namespace != null) {
+                            nsm = namespaces.contains(namespace);
+                        } else {
+                            for (String ns : namespaces) {
+                                if (namespaceMatcher.match(ns)) {
+                                    nsm = true;
                                 }
                             }
                         }
-                        //
-                        // Only look up results if we have a match.
-                        //
-                        if (nsm) {
-                            Set<DefDescriptor<?>> registryResults = null;
-
-                            if (cacheable && reg.isCacheable()) {
-                                // cache results per registry
-                                String cacheKey = filterKey + "|" + reg.toString();
-                                registryResults = descriptorFilterCache.getIfPresent(cacheKey);
-                                if (registryResults == null) {
-                                    registryResults = reg.find(matcher);
-                                    descriptorFilterCache.put(cacheKey, registryResults);
-                                }
-                            } else {
+                    }
+                    //
+                    // Only look up results if we have a match.
+                    //
+                    if (nsm) {
+                        Set<DefDescriptor<?>> registryResults = null;
+
+                        if (cacheable && reg.isCacheable()) {
+                            // cache results per registry
+                            String cacheKey = filterKey + "|" + reg.toString();
+                            registryResults = descriptorFilterCache.getIfPresent(cacheKey);
+                            if (registryResults == null) {
+                                long start = System.nanoTime();
                                 registryResults = reg.find(matcher);
+                                descriptorFilterCache.recordLoad(System.nanoTime() - start);
+                                putIfCurrent(descriptorFilterCache, cacheKey, registryResults, epoch);
                             }
-
-                            matched.addAll(registryResults);
+                        } else {
+                            registryResults = reg.find(matcher);
                         }
+
+                        matched.addAll(registryResults);
                     }
                 }
-                if (localDescs != null) {
-                    for (DefDescriptor<? extends Definition> desc : localDescs) {
-                        if (matcher.matchDescriptor(desc)) {
-                            matched.add(desc);
-                        }
+            }
+            if (localDescs != null) {
+                for (DefDescriptor<? extends Definition> desc : localDescs) {
+                    if (matcher.matchDescriptor(desc)) {
+                        matched.add(desc);
                     }
                 }
-            } finally {
-                rLock.unlock();
             }
         }
 
@@ -338,31 +403,21 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             default:
                 break;
             }
-            rLock.lock();
-            try {
-                for (String namespace : delegateRegistries.getAllNamespaces()) {
-                    String qualifiedName = String.format(qualifiedNamePattern,
-                            matcher.getPrefix() != null ? matcher.getPrefix() : "*", namespace,
-                                    matcher.getName() != null ? matcher.getName() : "*");
-                    @SuppressWarnings("unchecked")
-                    DefDescriptor<D> namespacedMatcher = (DefDescriptor<D>) DefDescriptorImpl.getInstance(
-                            qualifiedName,
-                            matcher.getDefType().getPrimaryInterface());
-                    DefRegistry<D> registry = getRegistryFor(namespacedMatcher);
-                    if (registry != null) {
-                        matched.addAll(registry.find(namespacedMatcher));
-                    }
+            for (String namespace : delegateRegistries.getAllNamespaces()) {
+                String qualifiedName = String.format(qualifiedNamePattern,
+                        matcher.getPrefix() != null ? matcher.getPrefix() : "*", namespace,
+                                matcher.getName() != null ? matcher.getName() : "*");
+                @SuppressWarnings("unchecked")
+                DefDescriptor<D> namespacedMatcher = (DefDescriptor<D>) DefDescriptorImpl.getInstance(
+                        qualifiedName,
+                        matcher.getDefType().getPrimaryInterface());
+                DefRegistry<D> registry = getRegistryFor(namespacedMatcher);
+                if (registry != null) {
+                    matched.addAll(registry.find(namespacedMatcher));
                 }
-            } finally {
-                rLock.unlock();
             }
         } else {
-            rLock.lock();
-            try {
-                matched = getRegistryFor(matcher).find(matcher);
-            } finally {
-                rLock.unlock();
-            }
+            matched = getRegistryFor(matcher).find(matcher);
         }
         if (localDescs != null) {
             DescriptorFilter filter = new DescriptorFilter(matcher.getQualifiedName());
@@ -423,6 +478,11 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
          */
         public boolean validated = false;
 
+        /**
+         * The namespace epoch captured before we fetched the def, used to fence publishing to the defs cache.
+         */
+        public long epoch = 0;
+
         @Override
         public String toString() {
             StringBuffer sb = new StringBuffer();
@@ -463,9 +523,15 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
     private static class CompileContext {
         public final AuraContext context = Aura.getContextService().getCurrentContext();
         public final LoggingService loggingService = Aura.getLoggingService();
+        public final long globalEpoch = Aura.getCachingService().getGlobalEpoch();
         public final Map<DefDescriptor<? extends Definition>, CompilingDef<?>> compiled = Maps.newHashMap();
         public final List<ClientLibraryDef> clientLibs;
         public final DefDescriptor<? extends Definition> topLevel;
+
+        /**
+         * Definitions built ahead of the tree walk by the compile pool, keyed by the requested descriptor.
+         */
+        public Map<DefDescriptor<?>, CompilingDef<?>> prefetched;
         public final boolean compiling;
         public int level;
 
@@ -582,6 +648,7 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         if (!registry.isStatic()) {
             if (registry.isCacheable() && shouldCache(compiling.descriptor)) {
                 compiling.cacheable = true;
+                compiling.epoch = cachingService.getNamespaceEpoch(compiling.descriptor.getNamespace());
 
                 @SuppressWarnings("unchecked")
                 Optional<D> opt = (Optional<D>) defsCache.getIfPresent(compiling.descriptor);
@@ -610,12 +677,33 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             }
         }
 
+        //
+        // If the compile pool already built it, take that. It has been validated on the pool, and keeps the
+        // epoch captured before it was fetched.
+        //
+        if (currentCC.prefetched != null) {
+            @SuppressWarnings("unchecked")
+            CompilingDef<D> prefetched = (CompilingDef<D>) currentCC.prefetched.remove(compiling.descriptor);
+            if (prefetched != null) {
+                compiling.def = prefetched.def;
+                compiling.descriptor = prefetched.descriptor;
+                compiling.epoch = prefetched.epoch;
+                currentCC.loggingService.incrementNum(LoggingService.DEF_COUNT);
+                compiling.built = true;
+                return true;
+            }
+        }
+
         //
         // The last case. This is our first compile or the def is uncacheable.
         // In this case, we make sure that the initial validation is called, and put
         // the def in the 'built' set.
         //
+        long start = System.nanoTime();
         compiling.def = registry.getDef(compiling.descriptor);
+        if (compiling.cacheable) {
+            defsCache.recordLoad(System.nanoTime() - start);
+        }
         if (compiling.def == null) {
             return false;
         }
@@ -750,7 +838,8 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
                 defs.put(cd.descriptor, cd.def);
                 if (cd.built) {
                     if (cd.cacheable) { // false for non-privileged namespaces, or non-cacheable registries
-                        defsCache.put(cd.descriptor, Optional.of(cd.def));
+                        putIfCurrent(defsCache, cd.descriptor, Optional.of(cd.def), cd.descriptor.getNamespace(),
+                                cd.epoch);
                     }
                     cd.def.markValid();
                 }
@@ -830,6 +919,165 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         }
     }
 
+    /**
+     * Fetch, parse and validate the dependency tree of a definition on the compile pool.
+     *
+     * This walks the tree breadth first, handing each level to the pool in chunks. Nothing here is authoritative, it
+     * only fills in {@link CompileContext#prefetched}, which the serial tree walk in {@link #getHelper} consumes, so
+     * the levels, the dependency order and the uid are computed exactly as they are for a serial compile. Failures
+     * are ignored here, they will be reported when the serial walk reaches the definition.
+     *
+     * @param descriptor the top level descriptor being compiled.
+     * @param cc the compile context to fill.
+     * @param pool the compile pool.
+     */
+    private void prefetch(@Nonnull DefDescriptor<?> descriptor, @Nonnull CompileContext cc,
+            @Nonnull ForkJoinPool pool) {
+        Map<DefDescriptor<?>, CompilingDef<?>> prefetched = new ConcurrentHashMap<>();
+        Set<DefDescriptor<?>> seen = Sets.newHashSet();
+        List<DefDescriptor<?>> frontier = Lists.newArrayList();
+        int parallelism = pool.getParallelism();
+
+        seen.add(descriptor);
+        frontier.add(descriptor);
+        cc.prefetched = prefetched;
+        while (!frontier.isEmpty()) {
+            List<Callable<Set<DefDescriptor<?>>>> tasks = Lists.newArrayList();
+            int chunkSize = (frontier.size() + parallelism - 1) / parallelism;
+            for (List<DefDescriptor<?>> chunk : Lists.partition(frontier, chunkSize)) {
+                tasks.add(new PrefetchTask(chunk, cc, prefetched));
+            }
+            frontier = Lists.newArrayList();
+            try {
+                for (Future<Set<DefDescriptor<?>>> result : pool.invokeAll(tasks)) {
+                    for (DefDescriptor<?> dep : result.get()) {
+                        if (seen.add(dep)) {
+                            frontier.add(dep);
+                        }
+                    }
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ee) {
+                // the tasks do not throw, but if they do, the serial walk will simply do the rest.
+                logger.warn("Parallel compile of " + descriptor + " failed", ee.getCause());
+                return;
+            }
+        }
+    }
+
+    /**
+     * A chunk of one level of the dependency tree, fetched on the compile pool.
+     *
+     * Each task runs in its own context, built like a system context on a shadowing registry, so that parsers and
+     * validation can use the definition service without touching the state of the compiling registry.
+     */
+    private class PrefetchTask implements Callable<Set<DefDescriptor<?>>> {
+        private final List<DefDescriptor<?>> descriptors;
+        private final AuraContext original;
+        private final Map<DefDescriptor<? extends Definition>, CompilingDef<?>> compiled;
+        private final Map<DefDescriptor<?>, CompilingDef<?>> prefetched;
+
+        public PrefetchTask(List<DefDescriptor<?>> descriptors, CompileContext cc,
+                Map<DefDescriptor<?>, CompilingDef<?>> prefetched) {
+            this.descriptors = descriptors;
+            this.original = cc.context;
+            this.compiled = cc.compiled;
+            this.prefetched = prefetched;
+        }
+
+        @Override
+        public Set<DefDescriptor<?>> call() {
+            Set<DefDescriptor<?>> deps = Sets.newHashSet();
+            ContextAdapter contextAdapter = AuraImpl.getContextAdapter();
+            AuraContext context = contextAdapter.establish(original.getMode(),
+                    new MasterDefRegistryImpl(MasterDefRegistryImpl.this), original.getDefaultPrefixes(),
+                    original.getFormat(), original.getAccess(), original.getJsonSerializationContext(),
+                    original.getGlobalProviders(), original.getApplicationDescriptor());
+            try {
+                for (DefDescriptor<?> descriptor : descriptors) {
+                    try {
+                        prefetchDef(descriptor, context, deps);
+                    } catch (QuickFixException | RuntimeException e) {
+                        // leave it for the serial walk to report.
+                    }
+                }
+            } finally {
+                contextAdapter.release();
+            }
+            return deps;
+        }
+
+        private <D extends Definition> void prefetchDef(DefDescriptor<D> descriptor, AuraContext context,
+                Set<DefDescriptor<?>> deps) throws QuickFixException {
+            D def = null;
+            CompilingDef<?> existing = compiled.get(descriptor);
+
+            if (existing != null && existing.def != null) {
+                return;
+            }
+            if (hasLocalDef(descriptor)) {
+                def = getLocalDef(descriptor);
+            } else {
+                DefRegistry<D> registry = getRegistryFor(descriptor);
+                if (registry == null) {
+                    return;
+                }
+                boolean cacheable = !registry.isStatic() && registry.isCacheable() && shouldCache(descriptor);
+                long epoch = 0;
+                Optional<D> opt = null;
+                if (cacheable) {
+                    epoch = cachingService.getNamespaceEpoch(descriptor.getNamespace());
+                    @SuppressWarnings("unchecked")
+                    Optional<D> cached = (Optional<D>) defsCache.getIfPresent(descriptor);
+                    opt = cached;
+                }
+                if (opt != null) {
+                    def = opt.orNull();
+                } else {
+                    long start = System.nanoTime();
+                    def = registry.getDef(descriptor);
+                    if (cacheable) {
+                        defsCache.recordLoad(System.nanoTime() - start);
+                    }
+                    if (def == null) {
+                        return;
+                    }
+                    @SuppressWarnings("unchecked")
+                    DefDescriptor<D> canonical = (DefDescriptor<D>) def.getDescriptor();
+                    context.pushCallingDescriptor(canonical);
+                    try {
+                        def.validateDefinition();
+                    } finally {
+                        context.popCallingDescriptor();
+                    }
+                    CompilingDef<D> cd = new CompilingDef<>(canonical);
+                    cd.def = def;
+                    cd.built = true;
+                    cd.epoch = epoch;
+                    prefetched.put(descriptor, cd);
+                }
+            }
+            if (def != null) {
+                def.appendDependencies(deps);
+            }
+        }
+    }
+
+    /**
+     * Create the compile pool.
+     *
+     * @param parallelism the size of the pool, zero or less means compile serially.
+     * @return the pool, or null for a serial compile.
+     */
+    private static ForkJoinPool createCompilePool(int parallelism) {
+        if (parallelism <= 0) {
+            return null;
+        }
+        return new ForkJoinPool(parallelism);
+    }
+
     /**
      * Internal routine to compile and return a DependencyEntry.
      *
@@ -862,10 +1110,16 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
                     + " trying to build " + descriptor);
         }
 
+        long start = System.nanoTime();
         try {
             List<ClientLibraryDef> clientLibs = Lists.newArrayList();
             CompileContext cc = new CompileContext(descriptor, clientLibs);
             cc.addMap(AuraStaticControllerDefRegistry.INSTANCE.getAll());
+            // Shadowing registries (including the ones used on the compile pool) always compile serially.
+            ForkJoinPool pool = compilePool;
+            if (pool != null && original == null) {
+                prefetch(descriptor, cc, pool);
+            }
             Definition def = compileDef(descriptor, cc);
             DependencyEntry de;
             String uid;
@@ -933,12 +1187,13 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
 
             de = new DependencyEntry(uid, Collections.unmodifiableSet(deps), clientLibs);
             if (shouldCache(descriptor)) {
+                depsCache.recordLoad(System.nanoTime() - start);
                 // put UID-qualified descriptor key for dependency
-                depsCache.put(makeGlobalKey(de.uid, descriptor), de);
+                putDependentIfCurrent(depsCache, makeGlobalKey(de.uid, descriptor), de, de, cc.globalEpoch);
 
                 // put unqualified descriptor key for dependency
                 if (cc.shouldCacheDependencies) {
-                    depsCache.put(makeNonUidGlobalKey(descriptor), de);
+                    putDependentIfCurrent(depsCache, makeNonUidGlobalKey(descriptor), de, de, cc.globalEpoch);
                 }
             }
             // See localDependencies comment
@@ -952,6 +1207,73 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         }
     }
 
+    /**
+     * Compile a descriptor, unless another request is already compiling it.
+     *
+     * If another request is compiling the same descriptor, we wait for it, and then pick the entry up from the global
+     * cache. If that fails for any reason (the other compile failed, was fenced out by a source change, or took too
+     * long), we simply compile it ourselves. Note that in the latter case the definitions are not local, and must be
+     * built from the entry. A prefetch task always compiles directly, see {@link #isPrefetching()}.
+     *
+     * @param descriptor the descriptor to compile.
+     * @return the dependency entry, or null if the definition was not found.
+     * @throws QuickFixException if the definition failed to compile.
+     */
+    @CheckForNull
+    private <T extends Definition> DependencyEntry coalescedCompileDE(@Nonnull DefDescriptor<T> descriptor)
+            throws QuickFixException {
+        if (currentCC != null || !shouldCache(descriptor) || isPrefetching()) {
+            return compileDE(descriptor);
+        }
+        SingleFlight.Call<String, DependencyEntry> call = compileFlights.join(makeNonUidGlobalKey(descriptor));
+        if (!call.isLeader()) {
+            if (awaitFlight(call) != null) {
+                DependencyEntry de = getDE(null, descriptor);
+                if (de != null) {
+                    return de;
+                }
+            }
+            return compileDE(descriptor);
+        }
+        DependencyEntry de = null;
+        try {
+            // the previous leader may have finished between our cache check and the join.
+            de = getDE(null, descriptor);
+            if (de == null) {
+                de = compileDE(descriptor);
+            }
+            return de;
+        } finally {
+            call.complete(de);
+        }
+    }
+
+    /**
+     * Check if this thread is running a {@link PrefetchTask}.
+     *
+     * A prefetch task must never wait on a compile flight. The request that started it is blocked in
+     * {@link #prefetch} until it finishes, and may well be the leader of that flight, so both would sit out the
+     * coalesce timeout.
+     */
+    private static boolean isPrefetching() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == compilePool;
+    }
+
+    /**
+     * Wait on a flight led by another request, logging the wait.
+     */
+    private <V> V awaitFlight(SingleFlight.Call<String, V> call) {
+        LoggingService loggingService = Aura.getLoggingService();
+        loggingService.incrementNum(LoggingService.COALESCED_WAIT_COUNT);
+        loggingService.startTimer(LoggingService.TIMER_COALESCED_WAIT);
+        try {
+            return call.await();
+        } finally {
+            loggingService.stopTimer(LoggingService.TIMER_COALESCED_WAIT);
+        }
+    }
+
     /**
      * Get a dependency entry for a given uid.
      *
@@ -1082,14 +1404,14 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         }
 
         //
-        // Always check for a local def before locking.
+        // Always check for a local def first.
         //
         if (hasLocalDef(descriptor)) {
             return getLocalDef(descriptor);
         }
         //
         // If our current context is not null, we want to recurse in to properly include the defs when we
-        // are compiling. Note that in this case, we already own the lock, so it can be outside the locking below.
+        // are compiling. Note that in this case, the compile context already holds the epochs that fence it.
         // When we are 'building' instead of 'compiling' we should already have the def somewhere, so we just
         // fill it in and continue. If no def is present, we explode.
         //
@@ -1113,45 +1435,43 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             //
             return compileDef(descriptor, currentCC);
         }
-        rLock.lock();
-        try {
-            DependencyEntry de = getDE(null, descriptor);
-            if (de == null) {
-                for (DependencyEntry det : localDependencies.values()) {
-                    if (det.dependencies != null && det.dependencies.contains(descriptor)) {
-                        de = det;
-                        break;
-                    }
+        DependencyEntry de = getDE(null, descriptor);
+        if (de == null) {
+            for (DependencyEntry det : localDependencies.values()) {
+                if (det.dependencies != null && det.dependencies.contains(descriptor)) {
+                    de = det;
+                    break;
                 }
+            }
 
-                if (de == null) {
-                    compileDE(descriptor);
+            if (de == null) {
+                de = coalescedCompileDE(descriptor);
 
+                // If we compiled it ourselves, the def is already local.
+                if (de == null || defs.containsKey(descriptor)) {
                     @SuppressWarnings("unchecked")
                     D def = (D) defs.get(descriptor);
                     return def;
                 }
             }
+        }
 
-            //
-            // found an entry.
-            // In this case, throw a QFE if we have one.
-            //
-            if (de.qfe != null) {
-                throw de.qfe;
-            }
+        //
+        // found an entry.
+        // In this case, throw a QFE if we have one.
+        //
+        if (de.qfe != null) {
+            throw de.qfe;
+        }
 
-            //
-            // Now we need to actually do the build..
-            //
-            buildDE(de, descriptor);
+        //
+        // Now we need to actually do the build..
+        //
+        buildDE(de, descriptor);
 
-            @SuppressWarnings("unchecked")
-            D def = (D) defs.get(descriptor);
-            return def;
-        } finally {
-            rLock.unlock();
-        }
+        @SuppressWarnings("unchecked")
+        D def = (D) defs.get(descriptor);
+        return def;
     }
 
     /**
@@ -1172,7 +1492,7 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         }
 
         //
-        // Always check for a local def before locking.
+        // Always check for a local def first.
         //
         if (hasLocalDef(descriptor)) {
             return getLocalDef(descriptor);
@@ -1230,6 +1550,7 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             return false;
         }
         cacheable = reg.isCacheable() && shouldCache(descriptor);
+        long epoch = cachingService.getNamespaceEpoch(descriptor.getNamespace());
         if (cacheable) {
             //
             // Try our various caches.
@@ -1238,31 +1559,31 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             if (val != null && val.booleanValue()) {
                 return true;
             }
-        }
-        rLock.lock();
-        try {
-            if (cacheable) {
-                Optional<?> opt = defsCache.getIfPresent(descriptor);
-                if (opt != null) {
-                    //
-                    // We cache here.
-                    //
-                    if (opt.isPresent()) {
-                        existsCache.put(descriptor, Boolean.TRUE);
-                        return true;
-                    } else {
-                        existsCache.put(descriptor, Boolean.FALSE);
-                        return false;
-                    }
+            Optional<?> opt = defsCache.getIfPresent(descriptor);
+            if (opt != null) {
+                //
+                // We cache here.
+                //
+                if (opt.isPresent()) {
+                    putIfCurrent(existsCache, descriptor, Boolean.TRUE, descriptor.getNamespace(), epoch);
+                    return true;
+                } else {
+                    putIfCurrent(existsCache, descriptor, Boolean.FALSE, descriptor.getNamespace(), epoch);
+                    return false;
                 }
             }
+        }
+        if (cacheable && !getNameIndex(reg).mightExist(descriptor, epoch)) {
+            // Known to be missing, there is no need to remember that in the exists cache.
+            regExists = false;
+        } else {
+            long start = System.nanoTime();
             regExists = reg.exists(descriptor);
             if (cacheable) {
+                existsCache.recordLoad(System.nanoTime() - start);
                 Boolean cacheVal = Boolean.valueOf(regExists);
-                existsCache.put(descriptor, cacheVal);
+                putIfCurrent(existsCache, descriptor, cacheVal, descriptor.getNamespace(), epoch);
             }
-        } finally {
-            rLock.unlock();
         }
         if (regExists == false) {
             // Cache negatives to avoid excessive lookups.
@@ -1271,6 +1592,21 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         return regExists;
     }
 
+    /**
+     * Get the name index for a registry, creating it if needed.
+     */
+    private RegistryNameIndex getNameIndex(DefRegistry<?> reg) {
+        RegistryNameIndex index = nameIndexes.get(reg);
+        if (index == null) {
+            RegistryNameIndex created = new RegistryNameIndex(reg);
+            index = nameIndexes.putIfAbsent(reg, created);
+            if (index == null) {
+                index = created;
+            }
+        }
+        return index;
+    }
+
     /**
      * This figures out based on prefix what registry this component is for, it could return null if the prefix is not
      * found.
@@ -1469,7 +1805,10 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             DependencyEntry de = localDependencies.get(uid);
 
             if (de != null) {
-                return stringsCache.getIfPresent(getKey(de, descriptor, key));
+                GeneratedResource resource = stringsCache.getIfPresent(getKey(de, descriptor, key));
+                if (resource != null) {
+                    return resource.toString();
+                }
             }
         }
         return null;
@@ -1481,11 +1820,145 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             DependencyEntry de = localDependencies.get(uid);
 
             if (de != null) {
-                stringsCache.put(getKey(de, descriptor, key), value);
+                putCachedResource(de, getKey(de, descriptor, key), GeneratedResource.direct(value),
+                        cachingService.getGlobalEpoch());
             }
         }
     }
 
+    @Override
+    public GeneratedResource getCachedResource(String uid, DefDescriptor<?> descriptor, String key,
+            CachedStringLoader loader) throws QuickFixException, IOException {
+        DependencyEntry de = shouldCache(descriptor) ? localDependencies.get(uid) : null;
+        if (de == null) {
+            return GeneratedResource.heap(loader.load());
+        }
+        long epoch = cachingService.getGlobalEpoch();
+        String stringKey = getKey(de, descriptor, key);
+        GeneratedResource resource = stringsCache.getIfPresent(stringKey);
+        if (resource != null) {
+            return resource;
+        }
+        SingleFlight.Call<String, GeneratedResource> call = stringFlights.join(stringKey);
+        if (!call.isLeader()) {
+            resource = awaitFlight(call);
+            if (resource != null) {
+                return resource;
+            }
+            resource = loadResource(loader);
+            putCachedResource(de, stringKey, resource, epoch);
+            return resource;
+        }
+        try {
+            // the previous leader may have finished between our cache check and the join.
+            resource = stringsCache.getIfPresent(stringKey);
+            if (resource == null) {
+                resource = loadResource(loader);
+                putCachedResource(de, stringKey, resource, epoch);
+            }
+            return resource;
+        } finally {
+            call.complete(resource);
+        }
+    }
+
+    /**
+     * Get a cached resource, or build it while streaming it to the client.
+     *
+     * The request that builds a resource streams it to its client through an {@link AsyncWriter}, so the build, which
+     * other requests may be waiting on, never waits for the client. The resource is published as soon as it is built,
+     * and only then does the request wait for its own client to catch up.
+     */
+    @Override
+    public GeneratedResource streamCachedResource(String uid, DefDescriptor<?> descriptor, String key,
+            CachedStreamLoader loader, Writer out) throws QuickFixException, IOException {
+        DependencyEntry de = shouldCache(descriptor) ? localDependencies.get(uid) : null;
+        if (de == null) {
+            loader.load(new GeneratedResource.Builder(out, false));
+            return null;
+        }
+        long epoch = cachingService.getGlobalEpoch();
+        String stringKey = getKey(de, descriptor, key);
+        GeneratedResource resource = stringsCache.getIfPresent(stringKey);
+        if (resource != null) {
+            return resource;
+        }
+        SingleFlight.Call<String, GeneratedResource> call = stringFlights.join(stringKey);
+        if (!call.isLeader()) {
+            resource = awaitFlight(call);
+            if (resource != null) {
+                return resource;
+            }
+            try (Writer client = new AsyncWriter(out, clientWriterPool)) {
+                putCachedResource(de, stringKey, buildResource(loader, client), epoch);
+            }
+            return null;
+        }
+        // the previous leader may have finished between our cache check and the join.
+        resource = stringsCache.getIfPresent(stringKey);
+        if (resource != null) {
+            call.complete(resource);
+            return resource;
+        }
+        try (Writer client = new AsyncWriter(out, clientWriterPool)) {
+            try {
+                resource = buildResource(loader, client);
+                putCachedResource(de, stringKey, resource, epoch);
+            } finally {
+                call.complete(resource);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Build a resource for the cache from a stream loader, writing each fragment to the client as it is generated.
+     */
+    private GeneratedResource buildResource(CachedStreamLoader loader, Writer client) throws QuickFixException,
+            IOException {
+        long start = System.nanoTime();
+        GeneratedResource.Builder builder = new GeneratedResource.Builder(client, true);
+        loader.load(builder);
+        GeneratedResource resource = builder.build();
+        stringsCache.recordLoad(System.nanoTime() - start);
+        return resource;
+    }
+
+    /**
+     * Build a resource for the cache. Cached resources are served over HTTP, so the gzip encoding is computed here,
+     * once, rather than on every response.
+     */
+    private GeneratedResource loadResource(CachedStringLoader loader) throws QuickFixException, IOException {
+        long start = System.nanoTime();
+        GeneratedResource resource = GeneratedResource.compressed(loader.load());
+        stringsCache.recordLoad(System.nanoTime() - start);
+        return resource;
+    }
+
+    /**
+     * Publish a resource to the strings cache, unless a source change since the epoch was captured may have made it
+     * stale.
+     *
+     * @param epoch the global epoch captured before the resource was generated.
+     */
+    private void putCachedResource(DependencyEntry de, String stringKey, GeneratedResource resource, long epoch) {
+        putDependentIfCurrent(stringsCache, stringKey, resource, de, epoch);
+    }
+
+    /**
+     * @return the coalescing statistics for compiles.
+     */
+    public static SingleFlight<String, DependencyEntry> getCompileFlights() {
+        return compileFlights;
+    }
+
+    /**
+     * @return the coalescing statistics for cached strings.
+     */
+    public static SingleFlight<String, GeneratedResource> getStringFlights() {
+        return stringFlights;
+    }
+
     /**
      * Get the UID.
      *
@@ -1509,30 +1982,23 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             return null;
         }
 
-        DependencyEntry de = null;
-
-        rLock.lock();
-        try {
-            de = getDE(uid, descriptor);
-            if (de == null) {
-                try {
-                    de = compileDE(descriptor);
-                    //
-                    // If we can't find our descriptor, we just give back a null.
-                    if (de == null) {
-                        return null;
-                    }
-                } catch (QuickFixException qfe) {
-                    // try to pick it up from the cache.
-                    de = getDE(null, descriptor);
-                    // this should never happen.
-                    if (de == null) {
-                        throw new AuraRuntimeException("unexpected null on QFE");
-                    }
+        DependencyEntry de = getDE(uid, descriptor);
+        if (de == null) {
+            try {
+                de = coalescedCompileDE(descriptor);
+                //
+                // If we can't find our descriptor, we just give back a null.
+                if (de == null) {
+                    return null;
+                }
+            } catch (QuickFixException qfe) {
+                // try to pick it up from the cache.
+                de = getDE(null, descriptor);
+                // this should never happen.
+                if (de == null) {
+                    throw new AuraRuntimeException("unexpected null on QFE");
                 }
             }
-        } finally {
-            rLock.unlock();
         }
         if (de.qfe != null) {
             throw de.qfe;
@@ -1540,6 +2006,61 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         return de.uid;
     }
 
+    /**
+     * Publish a value to a global cache, fenced by the epoch of a namespace.
+     *
+     * If the namespace was invalidated after we captured the epoch, the value may have been computed from stale
+     * source, so we drop it. Since the invalidation advances the epoch before it clears the caches, checking again
+     * after the put catches an invalidation that raced with us.
+     *
+     * @param cache the global cache.
+     * @param key the key to put.
+     * @param value the value to put.
+     * @param namespace the namespace covering the value.
+     * @param epoch the namespace epoch captured before the value was loaded.
+     */
+    private <K, V> void putIfCurrent(Cache<K, V> cache, K key, V value, String namespace, long epoch) {
+        if (cachingService.getNamespaceEpoch(namespace) != epoch) {
+            return;
+        }
+        cache.put(key, value);
+        if (cachingService.getNamespaceEpoch(namespace) != epoch) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Publish a value that spans namespaces to a global cache, fenced by the global epoch.
+     *
+     * @see #putIfCurrent(Cache, Object, Object, String, long)
+     */
+    private <K, V> void putIfCurrent(Cache<K, V> cache, K key, V value, long globalEpoch) {
+        if (cachingService.getGlobalEpoch() != globalEpoch) {
+            return;
+        }
+        cache.put(key, value);
+        if (cachingService.getGlobalEpoch() != globalEpoch) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Publish a value computed from a dependency entry to a global cache, fenced by the global epoch.
+     *
+     * The key is registered in the reverse dependency index before the put, so that a source change to any of the
+     * dependencies will find and invalidate it.
+     *
+     * @see #putIfCurrent(Cache, Object, Object, long)
+     */
+    private <V> void putDependentIfCurrent(Cache<String, V> cache, String key, V value, DependencyEntry de,
+            long globalEpoch) {
+        if (cachingService.getGlobalEpoch() != globalEpoch) {
+            return;
+        }
+        cachingService.registerDependentKey(cache, key, de);
+        putIfCurrent(cache, key, value, globalEpoch);
+    }
+
     /** Creates a key for the localDependencies, using DefType and FQN. */
     private String makeLocalKey(@Nonnull DefDescriptor<?> descriptor) {
         return descriptor.getDefType().toString() + ":" + descriptor.getQualifiedName().toLowerCase();
@@ -1626,28 +2147,4 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         }
         return false;
     }
-
-
-    // TODO - W-2105858 - re-enable with either the private implementation of the Cache used, or
-    // a least-common-denominator implementation
-
-    // public static Collection<Optional<? extends Definition>> getCachedDefs() {
-    // return defsCache.asMap().values();
-    // }
-    //
-    // public static CacheStats getDefsCacheStats() {
-    // return defsCache.stats();
-    // }
-    //
-    // public static CacheStats getExistsCacheStats() {
-    // return existsCache.stats();
-    // }
-    //
-    // public static CacheStats getStringsCacheStats() {
-    // return stringsCache.stats();
-    // }
-    //
-    // public static CacheStats getDescriptorFilterCacheStats() {
-    // return descriptorFilterCache.stats();
-    // }
 }
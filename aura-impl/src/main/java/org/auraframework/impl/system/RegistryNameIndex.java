@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.DescriptorFilter;
+import org.auraframework.system.DefRegistry;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Maps;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.PrimitiveSink;
+
+/**
+ * A per namespace index of the names in a registry, used to answer negative existence checks.
+ *
+ * Most existence checks that fail are for the optional parts of a bundle (a renderer, helper, provider, style...) that
+ * is probed for every component. Without an index each of these goes through to the source loader, and usually to
+ * the file system. The index holds a Bloom filter of every descriptor that the registry can find in a namespace, so
+ * that a name that is not in the filter can be rejected immediately, without remembering anything about it.
+ *
+ * The index only answers for the bundle part types, for which the find of a registry is known to be complete, and
+ * only for registries that support find. Anything else 'might exist', and the registry must be asked. A filter is
+ * built the first time that a namespace is probed, and rebuilt whenever the namespace epoch moves, which happens on
+ * any source change in the namespace.
+ */
+public class RegistryNameIndex {
+    /**
+     * The types that the index answers for.
+     */
+    public static final Set<DefType> INDEXED_TYPES = Collections.unmodifiableSet(EnumSet.of(DefType.CONTROLLER,
+            DefType.RENDERER, DefType.HELPER, DefType.PROVIDER, DefType.MODEL, DefType.STYLE));
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /** The smallest number of names to size a filter for, so that a nearly empty namespace still gets a usable one. */
+    private static final int MINIMUM_EXPECTED = 64;
+
+    /**
+     * Feeds the lower case qualified name, descriptors are matched without regard to case.
+     */
+    private static final Funnel<DefDescriptor<?>> DESCRIPTOR_FUNNEL = new Funnel<DefDescriptor<?>>() {
+        @Override
+        public void funnel(DefDescriptor<?> descriptor, PrimitiveSink into) {
+            String name = descriptor.getQualifiedName();
+            int length = name.length();
+            for (int i = 0; i < length; i++) {
+                into.putChar(Character.toLowerCase(name.charAt(i)));
+            }
+        }
+    };
+
+    /** The filter of a namespace that cannot be indexed, everything in it might exist. */
+    private static final NamespaceFilter UNINDEXED = new NamespaceFilter(Long.MIN_VALUE, null);
+
+    private final DefRegistry<?> registry;
+
+    /** The indexed types served by the registry, as a filter type string, or null if there are none. */
+    private final String types;
+
+    private final ConcurrentMap<String, NamespaceFilter> filters = Maps.newConcurrentMap();
+
+    public RegistryNameIndex(DefRegistry<?> registry) {
+        this.registry = registry;
+        Set<DefType> served = EnumSet.noneOf(DefType.class);
+        if (registry.hasFind() && registry.getDefTypes() != null) {
+            for (DefType type : registry.getDefTypes()) {
+                if (INDEXED_TYPES.contains(type)) {
+                    served.add(type);
+                }
+            }
+        }
+        this.types = served.isEmpty() ? null : Joiner.on(',').join(served);
+    }
+
+    /**
+     * Check if a descriptor might be in the registry.
+     *
+     * @param descriptor the descriptor to check.
+     * @param epoch the current epoch of the namespace of the descriptor.
+     * @return false only if the descriptor is certainly not in the registry.
+     */
+    public boolean mightExist(DefDescriptor<?> descriptor, long epoch) {
+        String namespace = descriptor.getNamespace();
+        if (types == null || namespace == null || !INDEXED_TYPES.contains(descriptor.getDefType())) {
+            return true;
+        }
+        String key = namespace.toLowerCase();
+        NamespaceFilter filter = filters.get(key);
+        if (filter == null || (filter.epoch != epoch && filter != UNINDEXED)) {
+            filter = build(namespace, epoch);
+            filters.put(key, filter);
+        }
+        return filter.names == null || filter.names.mightContain(descriptor);
+    }
+
+    private NamespaceFilter build(String namespace, long epoch) {
+        Set<DefDescriptor<?>> found;
+        try {
+            found = registry.find(new DescriptorFilter("*://" + namespace + ":*", types));
+        } catch (RuntimeException re) {
+            // Some registries cannot enumerate every namespace, never answer for those.
+            return UNINDEXED;
+        }
+        if (found == null) {
+            return UNINDEXED;
+        }
+        BloomFilter<DefDescriptor<?>> names = BloomFilter.create(DESCRIPTOR_FUNNEL,
+                Math.max(MINIMUM_EXPECTED, found.size()), FALSE_POSITIVE_RATE);
+        for (DefDescriptor<?> descriptor : found) {
+            names.put(descriptor);
+        }
+        return new NamespaceFilter(epoch, names);
+    }
+
+    private static class NamespaceFilter {
+        private final long epoch;
+
+        private final BloomFilter<DefDescriptor<?>> names;
+
+        private NamespaceFilter(long epoch, BloomFilter<DefDescriptor<?>> names) {
+            this.epoch = epoch;
+            this.names = names;
+        }
+    }
+}
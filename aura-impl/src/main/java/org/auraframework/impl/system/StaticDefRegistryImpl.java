@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
@@ -31,6 +32,9 @@ import com.google.common.collect.Maps;
 
 /**
  * Immutable DefRegistry implementation, backed by a prepopulated map.
+ *
+ * A registry read from a precompiled registries file is instead backed by the records of that file, and each definition
+ * is only deserialized the first time that it is fetched, see {@link StaticRegistryFile}.
  */
 public class StaticDefRegistryImpl<T extends Definition> extends DefRegistryImpl<T> {
 
@@ -39,6 +43,11 @@ public class StaticDefRegistryImpl<T extends Definition> extends DefRegistryImpl
     private static final String WILD = "*";
     private transient SourceFactory sourceFactory = null;
 
+    /**
+     * The records that definitions are loaded from, or null if all of the definitions are in {@link #defs}.
+     */
+    private final transient StaticRegistryFile.Records records;
+
     public StaticDefRegistryImpl(Set<DefType> defTypes, Set<String> prefixes, Set<String> namespaces, Collection<T> defs) {
         this(defTypes, prefixes, namespaces, Maps.<DefDescriptor<T>, T> newHashMapWithExpectedSize(defs.size()));
         for (T def : defs) {
@@ -52,11 +61,45 @@ public class StaticDefRegistryImpl<T extends Definition> extends DefRegistryImpl
             Map<DefDescriptor<T>, T> defs) {
         super(defTypes, prefixes, namespaces);
         this.defs = defs;
+        this.records = null;
+    }
+
+    /**
+     * Create a registry that loads its definitions lazily from a registries file.
+     */
+    StaticDefRegistryImpl(Set<DefType> defTypes, Set<String> prefixes, Set<String> namespaces,
+            StaticRegistryFile.Records records) {
+        super(defTypes, prefixes, namespaces);
+        this.defs = Maps.newConcurrentMap();
+        this.records = records;
     }
 
     @Override
     public T getDef(DefDescriptor<T> descriptor) {
-        return defs.get(descriptor);
+        T def = defs.get(descriptor);
+        if (def == null && records != null) {
+            @SuppressWarnings("unchecked")
+            T loaded = (T) records.load(descriptor);
+            if (loaded != null) {
+                // Two threads may load the same record, the first one wins so there is only ever one instance.
+                def = ((ConcurrentMap<DefDescriptor<T>, T>) defs).putIfAbsent(descriptor, loaded);
+                if (def == null) {
+                    def = loaded;
+                }
+            }
+        }
+        return def;
+    }
+
+    /**
+     * @return the descriptors of all of the definitions in this registry, loaded or not.
+     */
+    @SuppressWarnings("unchecked")
+    private Set<DefDescriptor<T>> getDescriptors() {
+        if (records != null) {
+            return (Set<DefDescriptor<T>>) (Set<?>) records.getDescriptors();
+        }
+        return defs.keySet();
     }
 
     public void setSourceFactory(SourceFactory sourceFactory) {
@@ -74,7 +117,7 @@ public class StaticDefRegistryImpl<T extends Definition> extends DefRegistryImpl
         String prefix = matcher.getPrefix();
         DefType defType = matcher.getDefType();
         Set<DefDescriptor<T>> ret = new HashSet<>();
-        for (DefDescriptor<T> key : defs.keySet()) {
+        for (DefDescriptor<T> key : getDescriptors()) {
 
             if (defType == key.getDefType() && key.getPrefix().equalsIgnoreCase(prefix)
                     && (namespace.equalsIgnoreCase(WILD) || namespace.equalsIgnoreCase(key.getNamespace()))) {
@@ -89,7 +132,7 @@ public class StaticDefRegistryImpl<T extends Definition> extends DefRegistryImpl
     public Set<DefDescriptor<?>> find(DescriptorFilter matcher) {
         Set<DefDescriptor<?>> ret = new HashSet<>();
 
-        for (DefDescriptor<T> key : defs.keySet()) {
+        for (DefDescriptor<T> key : getDescriptors()) {
             if (matcher.matchDescriptor(key)) {
                 ret.add(key);
             }
@@ -104,6 +147,9 @@ public class StaticDefRegistryImpl<T extends Definition> extends DefRegistryImpl
 
     @Override
     public boolean exists(DefDescriptor<T> descriptor) {
+        if (records != null) {
+            return records.contains(descriptor);
+        }
         return defs.containsKey(descriptor);
     }
 
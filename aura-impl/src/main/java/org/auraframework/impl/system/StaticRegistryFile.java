@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.Definition;
+import org.auraframework.system.DefRegistry;
+import org.auraframework.throwable.AuraRuntimeException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * The on-disk format of precompiled static registries (the '.registries' file).
+ *
+ * The file starts with an index of every registry and the descriptors that it holds, followed by one record per
+ * definition. Reading the file only decodes the index, each definition is deserialized from its record the first time
+ * that it is fetched, so definitions that an application never uses cost nothing but their bytes, which are normally
+ * memory mapped.
+ *
+ * <pre>
+ * int magic, int version
+ * int registry count
+ * per registry:
+ *     string set def types, string set prefixes, string set namespaces
+ *     int definition count
+ *     per definition: descriptor, int record offset, int record length
+ * records, each a java serialized definition, with offsets relative to the end of the index
+ * </pre>
+ *
+ * Descriptors are written as qualified name, def type and bundle, and are rebuilt through
+ * {@link DefDescriptorImpl#getInstance(String, Class, DefDescriptor)}, so they are shared with the rest of the system.
+ * Any other kind of descriptor is java serialized inline.
+ */
+public final class StaticRegistryFile {
+    /** 'AREG' */
+    private static final int MAGIC = 0x41524547;
+
+    private static final int VERSION = 1;
+
+    private static final byte DESCRIPTOR_NAMED = 0;
+
+    private static final byte DESCRIPTOR_SERIALIZED = 1;
+
+    private StaticRegistryFile() {
+    }
+
+    /**
+     * Write a set of static registries.
+     *
+     * @param registries the registries to write, all definitions must be loaded.
+     * @param out the stream to write into, it is not closed.
+     * @throws IOException if a definition cannot be serialized, or the stream fails.
+     */
+    public static void write(Collection<? extends StaticDefRegistryImpl<?>> registries, OutputStream out)
+            throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBytes);
+
+        index.writeInt(MAGIC);
+        index.writeInt(VERSION);
+        index.writeInt(registries.size());
+        for (StaticDefRegistryImpl<?> registry : registries) {
+            Set<String> defTypes = Sets.newHashSet();
+            for (DefType defType : registry.getDefTypes()) {
+                defTypes.add(defType.name());
+            }
+            writeStrings(index, defTypes);
+            writeStrings(index, registry.getPrefixes());
+            writeStrings(index, registry.getNamespaces());
+            index.writeInt(registry.defs.size());
+            for (Map.Entry<? extends DefDescriptor<?>, ? extends Definition> entry : registry.defs.entrySet()) {
+                int offset = records.size();
+                ObjectOutputStream record = new ObjectOutputStream(records);
+                record.writeObject(entry.getValue());
+                record.flush();
+                writeDescriptor(index, entry.getKey());
+                index.writeInt(offset);
+                index.writeInt(records.size() - offset);
+            }
+        }
+        index.flush();
+        indexBytes.writeTo(out);
+        records.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * @return true if the buffer holds a file in this format (as opposed to a legacy java serialized one).
+     */
+    public static boolean isRegistryFile(ByteBuffer buffer) {
+        return buffer.remaining() >= 8 && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Read the registries from a buffer.
+     *
+     * Only the index is decoded, definitions are deserialized on demand. The buffer must not be modified afterwards.
+     *
+     * @param buffer the buffer, usually a mapped file.
+     * @return the registries.
+     * @throws IOException if the buffer is not a readable registry file.
+     */
+    public static DefRegistry<?>[] read(ByteBuffer buffer) throws IOException {
+        ByteBuffer source = buffer.duplicate();
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(source));
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a registries file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported registries file version " + version);
+        }
+        int count = in.readInt();
+        List<PendingRegistry> pending = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            pending.add(readRegistry(in));
+        }
+
+        // records start right after the index.
+        ByteBuffer recordBuffer = source.slice();
+        DefRegistry<?>[] registries = new DefRegistry<?>[count];
+        for (int i = 0; i < count; i++) {
+            PendingRegistry p = pending.get(i);
+            registries[i] = new StaticDefRegistryImpl<>(p.defTypes, p.prefixes, p.namespaces, new Records(
+                    recordBuffer, p.records));
+        }
+        return registries;
+    }
+
+    /**
+     * The definition records of a single registry.
+     */
+    static final class Records {
+        private final ByteBuffer buffer;
+
+        private final Map<DefDescriptor<?>, long[]> index;
+
+        private Records(ByteBuffer buffer, Map<DefDescriptor<?>, long[]> index) {
+            this.buffer = buffer;
+            this.index = index;
+        }
+
+        Set<DefDescriptor<?>> getDescriptors() {
+            return Collections.unmodifiableSet(index.keySet());
+        }
+
+        boolean contains(DefDescriptor<?> descriptor) {
+            return index.containsKey(descriptor);
+        }
+
+        /**
+         * Deserialize a definition.
+         *
+         * @return the definition, or null if it is not in this registry.
+         */
+        Definition load(DefDescriptor<?> descriptor) {
+            long[] location = index.get(descriptor);
+            if (location == null) {
+                return null;
+            }
+            ByteBuffer record = buffer.duplicate();
+            record.position((int) location[0]);
+            record.limit((int) (location[0] + location[1]));
+            try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(record))) {
+                return (Definition) in.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new AuraRuntimeException("Unable to read " + descriptor + " from registries file", e);
+            }
+        }
+    }
+
+    private static class PendingRegistry {
+        private Set<DefType> defTypes;
+        private Set<String> prefixes;
+        private Set<String> namespaces;
+        private Map<DefDescriptor<?>, long[]> records;
+    }
+
+    private static PendingRegistry readRegistry(DataInputStream in) throws IOException {
+        PendingRegistry p = new PendingRegistry();
+        p.defTypes = EnumSet.noneOf(DefType.class);
+        for (String defType : readStrings(in)) {
+            p.defTypes.add(DefType.valueOf(defType));
+        }
+        p.prefixes = readStrings(in);
+        p.namespaces = readStrings(in);
+        int size = in.readInt();
+        p.records = Maps.newHashMapWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            DefDescriptor<?> descriptor = readDescriptor(in);
+            long offset = in.readInt();
+            long length = in.readInt();
+            p.records.put(descriptor, new long[] { offset, length });
+        }
+        return p;
+    }
+
+    private static void writeStrings(DataOutputStream out, Set<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Set<String> strings = Sets.newHashSetWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    private static void writeDescriptor(DataOutputStream out, DefDescriptor<?> descriptor) throws IOException {
+        if (descriptor.getClass() == DefDescriptorImpl.class) {
+            out.writeByte(DESCRIPTOR_NAMED);
+            out.writeUTF(descriptor.getQualifiedName());
+            out.writeUTF(descriptor.getDefType().name());
+            DefDescriptor<?> bundle = descriptor.getBundle();
+            out.writeBoolean(bundle != null);
+            if (bundle != null) {
+                writeDescriptor(out, bundle);
+            }
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(descriptor);
+            }
+            out.writeByte(DESCRIPTOR_SERIALIZED);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    private static DefDescriptor<?> readDescriptor(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        if (kind == DESCRIPTOR_NAMED) {
+            String qualifiedName = in.readUTF();
+            DefType defType = DefType.valueOf(in.readUTF());
+            DefDescriptor<?> bundle = null;
+            if (in.readBoolean()) {
+                bundle = readDescriptor(in);
+            }
+            return DefDescriptorImpl.getInstance(qualifiedName, defType.getPrimaryInterface(), bundle);
+        } else if (kind == DESCRIPTOR_SERIALIZED) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteBufferInputStream(ByteBuffer.wrap(bytes)))) {
+                return (DefDescriptor<?>) ois.readObject();
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException("Unable to read descriptor", cnfe);
+            }
+        }
+        throw new IOException("Unknown descriptor kind " + kind);
+    }
+
+    /**
+     * An input stream over a byte buffer, which advances the position of the buffer.
+     */
+    static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
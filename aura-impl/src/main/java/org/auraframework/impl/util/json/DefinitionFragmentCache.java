@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.util.json;
+
+import java.io.IOException;
+
+import org.auraframework.Aura;
+import org.auraframework.cache.CacheStatistics;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.Definition;
+import org.auraframework.impl.cache.CacheImpl;
+import org.auraframework.util.json.Json;
+import org.auraframework.util.json.JsonEncoder;
+import org.auraframework.util.json.JsonFragment;
+import org.auraframework.util.json.JsonSerializable;
+import org.auraframework.util.json.JsonSerializationContext;
+import org.auraframework.util.json.JsonSerializers;
+import org.auraframework.util.json.JsonSerializers.OldSerializer;
+
+import com.google.common.cache.Weigher;
+
+/**
+ * The serialized JSON of definitions, so that a definition is serialized once rather than for every response.
+ *
+ * Only definitions whose serialization depends on nothing but themselves and the definitions they include are
+ * cached, see {@link #SERIALIZER}. Entries are keyed by the hash of the definition's source and the flavor of the
+ * serialization (mode, references and null values), and formatted output is never cached. As a definition may
+ * include others, e.g. the super event of an event, everything is dropped when any source changes.
+ *
+ * The cache is bounded by the length of the JSON (aura.cache.definitionFragmentCacheBytes, 0 turns it off).
+ */
+public class DefinitionFragmentCache {
+    /** Rough per entry overhead, in bytes, so that small definitions are not free */
+    private final static int ENTRY_OVERHEAD = 256;
+
+    private static final DefinitionFragmentCache INSTANCE = new DefinitionFragmentCache(Long.getLong(
+            "aura.cache.definitionFragmentCacheBytes", 16L * 1024 * 1024));
+
+    public static DefinitionFragmentCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The serializer for the definitions that can be cached, see JsonSerializerAdapterImpl.
+     */
+    public static final FragmentSerializer SERIALIZER = new FragmentSerializer();
+
+    private final CacheImpl<String, JsonFragment> cache;
+
+    DefinitionFragmentCache(long maximumBytes) {
+        if (maximumBytes <= 0) {
+            cache = null;
+            return;
+        }
+        cache = new CacheImpl.Builder<String, JsonFragment>()
+                .setMaximumWeight(maximumBytes, new Weigher<String, JsonFragment>() {
+                    @Override
+                    public int weigh(String key, JsonFragment value) {
+                        return 2 * key.length() + 2 * value.getLength() + ENTRY_OVERHEAD;
+                    }
+                })
+                .setRecordStats(true)
+                .setName("definitionFragmentCache")
+                .setSoftValues(false).build();
+    }
+
+    /**
+     * Write a definition, from the cache if it has been written in the same flavor before.
+     *
+     * @param json the output.
+     * @param def the definition.
+     */
+    void write(Json json, Definition def) throws IOException {
+        String key = getKey(json, def);
+        if (key == null) {
+            ((JsonSerializable) def).serialize(json);
+            return;
+        }
+        JsonEncoder encoder = (JsonEncoder) json;
+        JsonFragment fragment = cache.getIfPresent(key);
+        if (fragment == null) {
+            long start = System.nanoTime();
+            // Serialize the definition itself, the definitions within it still come through here.
+            fragment = encoder.captureFragment(JsonSerializers.OLD, (JsonSerializable) def);
+            cache.put(key, fragment);
+            cache.recordLoad(System.nanoTime() - start);
+        }
+        encoder.writeFragment(fragment);
+    }
+
+    /**
+     * @return the key of a definition, or null if it can't be cached here.
+     */
+    private String getKey(Json json, Definition def) {
+        if (cache == null || !(json instanceof JsonEncoder)) {
+            return null;
+        }
+        JsonSerializationContext context = json.getSerializationContext();
+        String ownHash = def.getOwnHash();
+        if (context.format() || ownHash == null || !Aura.getContextService().isEstablished()) {
+            return null;
+        }
+        DefDescriptor<?> descriptor = def.getDescriptor();
+        StringBuilder key = new StringBuilder(descriptor.getQualifiedName().length() + ownHash.length() + 32);
+        key.append(descriptor.getDefType()).append(':');
+        key.append(descriptor.getQualifiedName()).append(':');
+        key.append(ownHash).append(':');
+        key.append(Aura.getContextService().getCurrentContext().getMode());
+        key.append(context.refSupport() ? ":R" : ":N");
+        key.append(context.isNullValueEnabled() ? "V" : "");
+        return key.toString();
+    }
+
+    /**
+     * Drop everything, as a definition may have changed.
+     */
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * @return the statistics of the cache, or null if it is off.
+     */
+    public CacheStatistics getStatistics() {
+        return cache == null ? null : cache.getStatistics();
+    }
+
+    /**
+     * @return the counters of the cache, or null if it is off.
+     */
+    public CacheStatistics getCounters() {
+        return cache == null ? null : cache.getCounters();
+    }
+
+    /**
+     * The usual serializer for definitions, writing through the cache. The reference type and scope still come from
+     * the Serialization annotation.
+     */
+    public static class FragmentSerializer extends OldSerializer {
+        @Override
+        public void serialize(Json json, JsonSerializable value) throws IOException {
+            INSTANCE.write(json, (Definition) value);
+        }
+    }
+}
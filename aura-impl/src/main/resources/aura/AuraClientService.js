@@ -1749,17 +1749,20 @@ AuraClientService.prototype.send = function(auraXHR, actions, method, options) {
 
     var processed = false;
     var qs;
+    var body;
     try {
-        var params = {
-            "message"      : $A.util.json.encode({ "actions" : actionsToSend }),
-            "aura.context" : context.encodeForServer(method === "POST")
-        };
         if (method === "GET") {
-            params["aura.access"] = "UNAUTHENTICATED";
+            qs = this.buildParams({
+                "message"      : $A.util.json.encode({ "actions" : actionsToSend }),
+                "aura.context" : context.encodeForServer(false),
+                "aura.access"  : "UNAUTHENTICATED"
+            });
         } else {
-            params["aura.token"] = this._token;
+            // The context and token go in the body ahead of the actions, so that the token is never part of a URL.
+            body = "{\"context\":" + context.encodeForServer(true)
+                + ",\"token\":" + $A.util.json.encode(this._token || null)
+                + ",\"actions\":" + $A.util.json.encode(actionsToSend) + "}";
         }
-        qs = this.buildParams(params);
     } catch (e) {
         for (i = 0; i < actions.length; i++) {
             action = actions[i];
@@ -1773,7 +1776,7 @@ AuraClientService.prototype.send = function(auraXHR, actions, method, options) {
         url = url + "?" + qs;
     }
 
-    auraXHR.length = qs.length;
+    auraXHR.length = body ? body.length : qs.length;
     auraXHR.request = this.createXHR();
     auraXHR.request["open"](method, url, true);
     if ("withCredentials" in auraXHR.request) {
@@ -1807,9 +1810,9 @@ AuraClientService.prototype.send = function(auraXHR, actions, method, options) {
 
     // Delete all this jiffy nonsense start of 200 release
 
-    if (qs && method === "POST") {
-        auraXHR.request.setRequestHeader('Content-Type', 'application/x-www-form-urlencoded; charset=ISO-8859-13');
-        auraXHR.request["send"](qs);
+    if (body) {
+        auraXHR.request.setRequestHeader('Content-Type', 'application/json; charset=UTF-8');
+        auraXHR.request["send"](body);
     } else {
         auraXHR.request["send"]();
     }
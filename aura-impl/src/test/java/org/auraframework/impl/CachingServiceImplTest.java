@@ -21,6 +21,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
 import org.apache.log4j.AppenderSkeleton;
@@ -31,17 +33,20 @@ import org.apache.log4j.WriterAppender;
 import org.apache.log4j.spi.LoggingEvent;
 import org.auraframework.cache.Cache;
 import org.auraframework.def.ApplicationDef;
+import org.auraframework.def.ClientLibraryDef;
 import org.auraframework.def.ComponentDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
 import org.auraframework.def.Definition;
 import org.auraframework.def.HelperDef;
+import org.auraframework.def.NamespaceDef;
 import org.auraframework.def.StyleDef;
 import org.auraframework.impl.system.DefDescriptorImpl;
 import org.auraframework.service.CachingService;
 import org.auraframework.system.DependencyEntry;
 import org.auraframework.system.SourceListener;
 import org.auraframework.system.SourceListener.SourceMonitorEvent;
+import org.auraframework.util.resource.GeneratedResource;
 import org.mockito.Mockito;
 
 import com.google.common.base.Function;
@@ -78,7 +83,7 @@ public class CachingServiceImplTest extends AuraImplTestCase {
 		}
 	}
 
-	public void testNotifyDependentSourceChange_LogsErrorIfWriteLockLocked() {
+	public void testNotifyDependentSourceChange_LogsErrorIfWriteLockLocked() throws Exception {
 		// capture logger output
 		StringWriter writer = new StringWriter();
 		Logger logger = Logger.getLogger(CachingServiceImpl.class);
@@ -86,38 +91,91 @@ public class CachingServiceImplTest extends AuraImplTestCase {
 		List<LoggingEvent> events = Lists.newLinkedList();
 		logger.addAppender(new Log4jCaptureAppender(events));
 
-		// grab the lock
-		CachingServiceImpl service = new CachingServiceImpl();
-		Lock lock = service.getReadLock();
+		// grab the lock from another writer
+		final CachingServiceImpl service = new CachingServiceImpl();
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		Thread holder = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Lock lock = service.getWriteLock();
+				lock.lock();
+				try {
+					locked.countDown();
+					done.await();
+				} catch (InterruptedException e) {
+				} finally {
+					lock.unlock();
+				}
+			}
+		});
+		holder.start();
 		try {
-			lock.lock();
+			assertTrue("Lock holder never started", locked.await(10, TimeUnit.SECONDS));
 
 			// try to notify
 			service.notifyDependentSourceChange(null, null, null, null);
-			long start = System.nanoTime();
-			do {
-				if (!events.isEmpty()) {
-					assertEquals("Unexpected number of events", 1,
-							events.size());
-					LoggingEvent event = events.get(0);
-					assertEquals("Unexpected logging level", Level.ERROR,
-							event.getLevel());
-					assertEquals(
-							"Couldn't acquire cache clear lock in a reasonable time.  Cache may be stale until next clear.",
-							event.getMessage());
-					return;
-				}
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-				}
-			} while (System.nanoTime() - start < 10000000000L); // 10 secs from now
-			fail("Timed out waiting for error event due to unobtainable lock");
+			assertEquals("Unexpected number of events", 1, events.size());
+			LoggingEvent event = events.get(0);
+			assertEquals("Unexpected logging level", Level.ERROR,
+					event.getLevel());
+			assertEquals(
+					"Couldn't acquire cache clear lock in a reasonable time.  Cache may be stale until next clear.",
+					event.getMessage());
 		} finally {
-			lock.unlock();
+			done.countDown();
+			holder.join();
 		}
 	}
 
+	public void testNotifyDependentSourceChange_AdvancesEpochOfChangedNamespaceOnly() {
+		DefDescriptor<?> source = DefDescriptorImpl.getInstance(
+				"markup://changed:descriptor", ComponentDef.class);
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		long changed = service.getNamespaceEpoch("changed");
+		long other = service.getNamespaceEpoch("other");
+		long global = service.getGlobalEpoch();
+
+		service.notifyDependentSourceChange(
+				Collections.<WeakReference<SourceListener>> emptySet(), source,
+				SourceMonitorEvent.CHANGED, null);
+
+		assertTrue("Epoch of changed namespace not advanced",
+				service.getNamespaceEpoch("changed") > changed);
+		assertEquals("Epoch of other namespace should not move", other,
+				service.getNamespaceEpoch("other"));
+		assertTrue("Global epoch not advanced", service.getGlobalEpoch() > global);
+	}
+
+	public void testNotifyDependentSourceChange_AdvancesAllEpochsIfDescriptorNull() {
+		CachingServiceImpl service = new CachingServiceImpl();
+		long some = service.getNamespaceEpoch("some");
+		long other = service.getNamespaceEpoch("other");
+		long global = service.getGlobalEpoch();
+
+		service.notifyDependentSourceChange(
+				Collections.<WeakReference<SourceListener>> emptySet(), null,
+				null, null);
+
+		assertTrue("Namespace epoch not advanced", service.getNamespaceEpoch("some") > some);
+		assertTrue("Namespace epoch not advanced", service.getNamespaceEpoch("other") > other);
+		assertTrue("Global epoch not advanced", service.getGlobalEpoch() > global);
+	}
+
+	public void testGetNamespaceEpoch_IgnoresCase() {
+		DefDescriptor<?> source = DefDescriptorImpl.getInstance(
+				"markup://someNamespace:descriptor", ComponentDef.class);
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		service.notifyDependentSourceChange(
+				Collections.<WeakReference<SourceListener>> emptySet(), source,
+				SourceMonitorEvent.CHANGED, null);
+
+		assertEquals(service.getNamespaceEpoch("someNamespace"),
+				service.getNamespaceEpoch("somenamespace"));
+	}
+
 	public void testNotifyDependentSourceChange_NotifiesListeners() {
 		DefDescriptor<?> source = DefDescriptorImpl.getInstance(
 				getAuraTestingUtil().getNonce("some:descriptor"),
@@ -238,14 +296,44 @@ public class CachingServiceImplTest extends AuraImplTestCase {
 
 		CachingServiceImpl service = new CachingServiceImpl();
 		testNotifyDependentSourceChange_InvalidatesAllCachedValues(service,
-				service.getStringsCache(), new Function<String, String>() {
+				service.getStringsCache(), new Function<String, GeneratedResource>() {
 					@Override
-					public String apply(String key) {
-						return "";
+					public GeneratedResource apply(String key) {
+						return GeneratedResource.heap("");
 					}
 				}, keys);
 	}
 
+	public void testStringsCacheIsBoundedByBytes() {
+		String previous = System.setProperty("aura.cache.stringsCacheBytes", String.valueOf(1024 * 1024));
+		CachingServiceImpl service;
+		try {
+			service = new CachingServiceImpl();
+		} finally {
+			if (previous == null) {
+				System.clearProperty("aura.cache.stringsCacheBytes");
+			} else {
+				System.setProperty("aura.cache.stringsCacheBytes", previous);
+			}
+		}
+		Cache<String, GeneratedResource> stringsCache = service.getStringsCache();
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < 10 * 1024; i++) {
+			value.append('x');
+		}
+
+		for (int i = 0; i < 200; i++) {
+			stringsCache.put("key" + i, GeneratedResource.direct(value.toString()));
+		}
+
+		long bytes = 0;
+		for (String key : stringsCache.getKeySet()) {
+			bytes += stringsCache.getIfPresent(key).length();
+		}
+		assertTrue("Cache should have evicted by size, holds " + bytes + " bytes", bytes <= 1024 * 1024);
+		assertFalse("Cache should not be empty", stringsCache.getKeySet().isEmpty());
+	}
+
 	public void testNotifyDependentSourceChange_InvalidatesAllCachedDefinitionsIfDescriptorNull() {
 		Set<DefDescriptor<?>> keys = Sets.newHashSet();
 		keys.add(DefDescriptorImpl.getInstance(
@@ -362,4 +450,209 @@ public class CachingServiceImplTest extends AuraImplTestCase {
 					}
 				}, keys);
 	}
+
+	private DependencyEntry createDependencyEntry(String uid, DefDescriptor<?>... dependencies) {
+		Set<DefDescriptor<? extends Definition>> deps = Sets.newLinkedHashSet();
+		for (DefDescriptor<?> dependency : dependencies) {
+			deps.add(dependency);
+		}
+		return new DependencyEntry(uid, deps, Lists.<ClientLibraryDef> newArrayList());
+	}
+
+	public void testNotifyDependentSourceChange_InvalidatesOnlyDependentEntries() {
+		DefDescriptor<?> source = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:changed"),
+				ComponentDef.class);
+		DefDescriptor<?> unrelated = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:unrelated"),
+				ComponentDef.class);
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		Cache<String, DependencyEntry> depsCache = service.getDepsCache();
+		Cache<String, GeneratedResource> stringsCache = service.getStringsCache();
+
+		DependencyEntry dependent = createDependencyEntry("dependentUid", source, unrelated);
+		DependencyEntry independent = createDependencyEntry("independentUid", unrelated);
+		service.registerDependentKey(depsCache, "dependent", dependent);
+		depsCache.put("dependent", dependent);
+		service.registerDependentKey(depsCache, "independent", independent);
+		depsCache.put("independent", independent);
+		service.registerDependentKey(stringsCache, "dependentString", dependent);
+		stringsCache.put("dependentString", GeneratedResource.heap("js"));
+		service.registerDependentKey(stringsCache, "independentString", independent);
+		stringsCache.put("independentString", GeneratedResource.heap("js"));
+
+		service.notifyDependentSourceChange(
+				Collections.<WeakReference<SourceListener>> emptySet(), source,
+				SourceMonitorEvent.CHANGED, null);
+
+		assertNull(depsCache.getIfPresent("dependent"));
+		assertNotNull(depsCache.getIfPresent("independent"));
+		assertNull(stringsCache.getIfPresent("dependentString"));
+		assertNotNull(stringsCache.getIfPresent("independentString"));
+	}
+
+	public void testNotifyDependentSourceChange_InvalidatesEntriesDependentOnBundle() {
+		DefDescriptor<ComponentDef> bundle = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:bundle"),
+				ComponentDef.class);
+		DefDescriptor<?> source = DefDescriptorImpl.getAssociateDescriptor(bundle,
+				HelperDef.class, DefDescriptor.JAVASCRIPT_PREFIX);
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		Cache<String, DependencyEntry> depsCache = service.getDepsCache();
+		DependencyEntry dependent = createDependencyEntry("dependentUid", bundle);
+		service.registerDependentKey(depsCache, "dependent", dependent);
+		depsCache.put("dependent", dependent);
+
+		service.notifyDependentSourceChange(
+				Collections.<WeakReference<SourceListener>> emptySet(), source,
+				SourceMonitorEvent.CREATED, null);
+
+		assertNull(depsCache.getIfPresent("dependent"));
+	}
+
+	public void testNotifyDependentSourceChange_KeepsDescriptorFiltersOnChange() {
+		DefDescriptor<?> source = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:changed"),
+				ComponentDef.class);
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		Cache<String, Set<DefDescriptor<?>>> cache = service.getDescriptorFilterCache();
+		cache.put("markup://some:*", Collections.<DefDescriptor<?>> emptySet());
+
+		service.notifyDependentSourceChange(
+				Collections.<WeakReference<SourceListener>> emptySet(), source,
+				SourceMonitorEvent.CHANGED, null);
+		assertNotNull(cache.getIfPresent("markup://some:*"));
+
+		service.notifyDependentSourceChange(
+				Collections.<WeakReference<SourceListener>> emptySet(), source,
+				SourceMonitorEvent.DELETED, null);
+		assertNull(cache.getIfPresent("markup://some:*"));
+	}
+
+	public void testNotifyDependentSourceChange_InvalidatesNamespace() {
+		String namespace = getAuraTestingUtil().getNonce("ns");
+		DefDescriptor<?> source = DefDescriptorImpl.getInstance("markup://" + namespace, NamespaceDef.class);
+		DefDescriptor<?> inNamespace = DefDescriptorImpl.getInstance(
+				"markup://" + namespace + ":cmp", ComponentDef.class);
+		DefDescriptor<?> otherNamespace = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://other:cmp"), ComponentDef.class);
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = service.getDefsCache();
+		Cache<String, DependencyEntry> depsCache = service.getDepsCache();
+		defsCache.put(inNamespace, mockDefinitionFunction.apply(inNamespace));
+		defsCache.put(otherNamespace, mockDefinitionFunction.apply(otherNamespace));
+		DependencyEntry dependent = createDependencyEntry("dependentUid", inNamespace);
+		service.registerDependentKey(depsCache, "dependent", dependent);
+		depsCache.put("dependent", dependent);
+
+		service.notifyDependentSourceChange(
+				Collections.<WeakReference<SourceListener>> emptySet(), source,
+				SourceMonitorEvent.CHANGED, null);
+
+		assertNull(defsCache.getIfPresent(inNamespace));
+		assertNotNull(defsCache.getIfPresent(otherNamespace));
+		assertNull(depsCache.getIfPresent("dependent"));
+	}
+
+	public void testRegisterDependentKey_PrunedWhenEntryIsRemoved() {
+		DefDescriptor<?> first = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:first"),
+				ComponentDef.class);
+		DefDescriptor<?> second = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:second"),
+				ComponentDef.class);
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		Cache<String, DependencyEntry> depsCache = service.getDepsCache();
+		DependencyEntry dependent = createDependencyEntry("dependentUid", first, second);
+		service.registerDependentKey(depsCache, "dependent", dependent);
+		depsCache.put("dependent", dependent);
+		assertEquals(2, service.getDependentDescriptorCount());
+
+		depsCache.invalidate("dependent");
+
+		assertEquals(0, service.getDependentDescriptorCount());
+	}
+
+	public void testRegisterDependentKey_PrunedWhenEntryIsEvicted() {
+		DefDescriptor<?> first = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:first"),
+				ComponentDef.class);
+		DefDescriptor<?> second = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:second"),
+				ComponentDef.class);
+
+		String previous = System.getProperty("aura.cache.depsCacheSize");
+		System.setProperty("aura.cache.depsCacheSize", "1");
+		CachingServiceImpl service;
+		try {
+			service = new CachingServiceImpl();
+		} finally {
+			if (previous == null) {
+				System.clearProperty("aura.cache.depsCacheSize");
+			} else {
+				System.setProperty("aura.cache.depsCacheSize", previous);
+			}
+		}
+		Cache<String, DependencyEntry> depsCache = service.getDepsCache();
+		DependencyEntry firstEntry = createDependencyEntry("firstUid", first);
+		DependencyEntry secondEntry = createDependencyEntry("secondUid", second);
+		service.registerDependentKey(depsCache, "first", firstEntry);
+		depsCache.put("first", firstEntry);
+		service.registerDependentKey(depsCache, "second", secondEntry);
+		depsCache.put("second", secondEntry);
+
+		assertNull(depsCache.getIfPresent("first"));
+		assertEquals(1, service.getDependentDescriptorCount());
+	}
+
+	public void testNotifyDependentSourceChange_UnlinksKeysFromOtherDependencies() {
+		DefDescriptor<?> source = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:changed"),
+				ComponentDef.class);
+		DefDescriptor<?> unrelated = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:unrelated"),
+				ComponentDef.class);
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		Cache<String, DependencyEntry> depsCache = service.getDepsCache();
+		DependencyEntry dependent = createDependencyEntry("dependentUid", source, unrelated);
+		service.registerDependentKey(depsCache, "dependent", dependent);
+		depsCache.put("dependent", dependent);
+
+		service.notifyDependentSourceChange(
+				Collections.<WeakReference<SourceListener>> emptySet(), source,
+				SourceMonitorEvent.CHANGED, null);
+
+		assertNull(depsCache.getIfPresent("dependent"));
+		assertEquals(0, service.getDependentDescriptorCount());
+	}
+
+	public void testRegisterDependentKey_ReregisteringDropsOldDependencies() {
+		DefDescriptor<?> first = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:first"),
+				ComponentDef.class);
+		DefDescriptor<?> second = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:second"),
+				ComponentDef.class);
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		Cache<String, DependencyEntry> depsCache = service.getDepsCache();
+		DependencyEntry before = createDependencyEntry("beforeUid", first);
+		service.registerDependentKey(depsCache, "dependent", before);
+		depsCache.put("dependent", before);
+		DependencyEntry after = createDependencyEntry("afterUid", second);
+		service.registerDependentKey(depsCache, "dependent", after);
+		depsCache.put("dependent", after);
+
+		assertEquals(1, service.getDependentDescriptorCount());
+		service.notifyDependentSourceChange(
+				Collections.<WeakReference<SourceListener>> emptySet(), first,
+				SourceMonitorEvent.CHANGED, null);
+		assertSame(after, depsCache.getIfPresent("dependent"));
+	}
 }
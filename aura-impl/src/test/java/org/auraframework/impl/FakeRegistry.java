@@ -15,6 +15,8 @@
  */
 package org.auraframework.impl;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -27,6 +29,7 @@ import org.auraframework.system.MasterDefRegistry;
 import org.auraframework.system.Source;
 import org.auraframework.throwable.ClientOutOfSyncException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.resource.GeneratedResource;
 
 import com.google.common.collect.Maps;
 
@@ -125,6 +128,19 @@ public class FakeRegistry implements MasterDefRegistry {
     public void putCachedString(String uid, DefDescriptor<?> descriptor, String key, String value) {
     }
 
+    @Override
+    public GeneratedResource getCachedResource(String uid, DefDescriptor<?> descriptor, String key,
+            CachedStringLoader loader) throws QuickFixException, IOException {
+        return GeneratedResource.heap(loader.load());
+    }
+
+    @Override
+    public GeneratedResource streamCachedResource(String uid, DefDescriptor<?> descriptor, String key,
+            CachedStreamLoader loader, Writer out) throws QuickFixException, IOException {
+        loader.load(new GeneratedResource.Builder(out, false));
+        return null;
+    }
+
     @Override
     public List<ClientLibraryDef> getClientLibraries(String uid) {
         return null;
@@ -26,6 +26,11 @@ import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.auraframework.impl.javascript.AuraJavascriptGroup;
 import org.auraframework.impl.source.AuraResourcesHashingGroup;
@@ -206,6 +211,58 @@ public class ConfigAdapterImplTest extends UnitTestCase {
         assertEquals("Framework uid is not correct", uid, "BJTaoiCDxoAF4Wbh0iC9lA");
     }
 
+    /**
+     * In production the nonce is computed once, and later calls neither recompute it nor take the adapter's monitor,
+     * so they cannot contend with each other or with a regeneration.
+     */
+    public void testFrameworkUidInProductionTakesNoLock() throws Exception {
+        final AuraJavascriptGroup jsGroup = mock(AuraJavascriptGroup.class);
+        Hash jsHash = mock(Hash.class);
+        when(jsHash.toString()).thenReturn("jsGroup");
+        when(jsGroup.getGroupHash()).thenReturn(jsHash);
+
+        final AuraResourcesHashingGroup resourcesGroup = mock(AuraResourcesHashingGroup.class);
+        Hash resourcesHash = mock(Hash.class);
+        when(resourcesHash.toString()).thenReturn("resourcesGroup");
+        when(resourcesGroup.getGroupHash()).thenReturn(resourcesHash);
+
+        final ConfigAdapterImpl configAdapter = new ConfigAdapterImpl() {
+            @Override
+            protected AuraJavascriptGroup newAuraJavascriptGroup() throws IOException {
+                return jsGroup;
+            }
+
+            @Override
+            protected FileGroup newAuraResourcesHashingGroup() throws IOException {
+                return resourcesGroup;
+            }
+
+            @Override
+            public boolean isProduction() {
+                return true;
+            }
+        };
+        assertEquals("9YifBh-oLwXkDGW3d3qyDQ", configAdapter.getAuraFrameworkNonce());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            synchronized (configAdapter) {
+                Future<String> uid = executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        configAdapter.regenerateAuraJS();
+                        return configAdapter.getAuraFrameworkNonce();
+                    }
+                });
+                assertEquals("9YifBh-oLwXkDGW3d3qyDQ", uid.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(jsGroup, Mockito.times(1)).getGroupHash();
+        verify(jsGroup, Mockito.never()).isStale();
+    }
+
     public void testIsPrivilegedNamespacesWithBadArguments() {
         ConfigAdapterImpl impl = new ConfigAdapterImpl();
         assertFalse("null should not be a privileged namespace", impl.isPrivilegedNamespace(null));
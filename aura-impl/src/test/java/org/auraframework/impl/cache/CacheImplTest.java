@@ -18,12 +18,16 @@ package org.auraframework.impl.cache;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheStatistics;
 import org.auraframework.util.test.util.UnitTestCase;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 
+import com.google.common.cache.Weigher;
+
 public class CacheImplTest extends UnitTestCase {
 
 	private <K, T> com.google.common.cache.Cache<K, T> getMockCache() {
@@ -169,4 +173,70 @@ public class CacheImplTest extends UnitTestCase {
 		Mockito.verify(backingCache, Mockito.never()).invalidate(
 				Mockito.anyCollection());
 	}
+
+	public void testGetStatistics() {
+		Cache<String, String> cache = new CacheImpl.Builder<String, String>()
+				.setName("someCache").setRecordStats(true).setSoftValues(false)
+				.setSizeEstimator(new Weigher<String, String>() {
+					@Override
+					public int weigh(String key, String value) {
+						return value.length();
+					}
+				}).build();
+		cache.put("key", "value");
+		cache.getIfPresent("key");
+		cache.getIfPresent("missing");
+		cache.recordLoad(500000L);
+		cache.recordLoad(3000000L);
+
+		CacheStatistics stats = cache.getStatistics();
+		assertEquals("someCache", stats.getName());
+		assertEquals(1, stats.getSize());
+		assertEquals(1, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(0.5, stats.getHitRate());
+		assertEquals(2, stats.getLoadCount());
+		assertEquals(3500000L, stats.getTotalLoadNanos());
+		long[] histogram = stats.getLoadHistogram();
+		assertEquals(1, histogram[0]);
+		assertEquals(1, histogram[2]);
+		assertEquals(5, stats.getEstimatedBytes());
+	}
+
+	public void testGetStatisticsWithoutEstimator() {
+		Cache<String, String> cache = new CacheImpl.Builder<String, String>().setName("someCache").build();
+		cache.put("key", "value");
+
+		CacheStatistics stats = cache.getStatistics();
+		assertEquals(1, stats.getSize());
+		assertEquals(-1, stats.getEstimatedBytes());
+		assertEquals(0, stats.getLoadCount());
+	}
+
+	public void testGetCountersDoesNotEstimateBytes() {
+		final AtomicInteger weighed = new AtomicInteger();
+		Cache<String, String> cache = new CacheImpl.Builder<String, String>()
+				.setName("someCache").setRecordStats(true).setSoftValues(false)
+				.setSizeEstimator(new Weigher<String, String>() {
+					@Override
+					public int weigh(String key, String value) {
+						weighed.incrementAndGet();
+						return value.length();
+					}
+				}).build();
+		cache.put("key", "value");
+		cache.getIfPresent("key");
+		cache.getIfPresent("missing");
+		cache.recordLoad(500000L);
+
+		CacheStatistics counters = cache.getCounters();
+		assertEquals("someCache", counters.getName());
+		assertEquals(1, counters.getSize());
+		assertEquals(1, counters.getHitCount());
+		assertEquals(1, counters.getMissCount());
+		assertEquals(1, counters.getLoadCount());
+		assertEquals(1, counters.getLoadHistogram()[0]);
+		assertEquals(-1, counters.getEstimatedBytes());
+		assertEquals(0, weighed.get());
+	}
 }
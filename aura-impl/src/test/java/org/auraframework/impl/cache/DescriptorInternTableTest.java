@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.def.ApplicationDef;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DescriptorKey;
+import org.auraframework.def.Definition;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Lists;
+
+public class DescriptorInternTableTest extends UnitTestCase {
+
+	private DefDescriptor<? extends Definition> getDescriptor() {
+		return Mockito.mock(DefDescriptor.class);
+	}
+
+	public void testGetReturnsPutValue() {
+		DescriptorInternTable table = new DescriptorInternTable(100);
+		DefDescriptor<? extends Definition> cmp = getDescriptor();
+
+		table.put("markup://some:thing", ComponentDef.class, null, cmp);
+
+		assertSame(cmp, table.get("markup://some:thing", ComponentDef.class, null));
+		assertSame(cmp, table.getIfPresent(new DescriptorKey("markup://some:thing", ComponentDef.class)));
+		assertNull(table.get("markup://some:thing", ApplicationDef.class, null));
+		assertNull(table.get("markup://some:Thing", ComponentDef.class, null));
+		assertEquals(1, table.size());
+	}
+
+	public void testBundleIsPartOfKey() {
+		DescriptorInternTable table = new DescriptorInternTable(100);
+		DefDescriptor<? extends Definition> bundle = getDescriptor();
+		DefDescriptor<? extends Definition> inBundle = getDescriptor();
+		DefDescriptor<? extends Definition> bare = getDescriptor();
+
+		table.put("js://some.thing", ComponentDef.class, bundle, inBundle);
+		table.put("js://some.thing", ComponentDef.class, null, bare);
+
+		assertSame(inBundle, table.get("js://some.thing", ComponentDef.class, bundle));
+		assertSame(bare, table.get("js://some.thing", ComponentDef.class, null));
+	}
+
+	public void testPutIfAbsentKeepsFirst() {
+		DescriptorInternTable table = new DescriptorInternTable(100);
+		DefDescriptor<? extends Definition> first = getDescriptor();
+		DefDescriptor<? extends Definition> second = getDescriptor();
+
+		assertNull(table.putIfAbsent("markup://some:thing", ComponentDef.class, null, first));
+		assertSame(first, table.putIfAbsent("markup://some:thing", ComponentDef.class, null, second));
+		assertSame(first, table.get("markup://some:thing", ComponentDef.class, null));
+		assertEquals(1, table.size());
+	}
+
+	public void testPutReplaces() {
+		DescriptorInternTable table = new DescriptorInternTable(100);
+		DefDescriptor<? extends Definition> first = getDescriptor();
+		DefDescriptor<? extends Definition> second = getDescriptor();
+
+		table.put("markup://some:thing", ComponentDef.class, null, first);
+		table.put("markup://some:thing", ComponentDef.class, null, second);
+
+		assertSame(second, table.get("markup://some:thing", ComponentDef.class, null));
+		assertEquals(1, table.size());
+	}
+
+	public void testInvalidate() {
+		DescriptorInternTable table = new DescriptorInternTable(100);
+		table.put("markup://some:thing", ComponentDef.class, null, getDescriptor());
+		table.put("markup://some:other", ComponentDef.class, null, getDescriptor());
+		table.put("markup://else:thing", ComponentDef.class, null, getDescriptor());
+
+		table.invalidate(new DescriptorKey("markup://some:other", ComponentDef.class));
+		assertNull(table.get("markup://some:other", ComponentDef.class, null));
+		assertEquals(2, table.size());
+
+		table.invalidatePartial("markup://some:");
+		assertNull(table.get("markup://some:thing", ComponentDef.class, null));
+		assertNotNull(table.get("markup://else:thing", ComponentDef.class, null));
+		assertEquals(1, table.getKeySet().size());
+
+		table.invalidateAll();
+		assertEquals(0, table.size());
+		assertTrue(table.getKeySet().isEmpty());
+	}
+
+	public void testSizeIsBounded() {
+		DescriptorInternTable table = new DescriptorInternTable(64);
+
+		for (int i = 0; i < 1000; i++) {
+			table.put("markup://some:thing" + i, ComponentDef.class, null, getDescriptor());
+		}
+
+		assertTrue("Expected at most 64 entries, got " + table.size(), table.size() <= 64);
+		assertEquals(table.size(), table.getKeySet().size());
+		assertEquals(1000 - table.size(), table.getStatistics().getEvictionCount());
+	}
+
+	public void testConcurrentPutIfAbsentHasOneWinner() throws Exception {
+		final DescriptorInternTable table = new DescriptorInternTable(1000);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<DefDescriptor<? extends Definition>>> results = Lists.newArrayList();
+			for (int i = 0; i < 8; i++) {
+				final DefDescriptor<? extends Definition> mine = getDescriptor();
+				results.add(executor.submit(new Callable<DefDescriptor<? extends Definition>>() {
+					@Override
+					public DefDescriptor<? extends Definition> call() throws Exception {
+						start.await();
+						DefDescriptor<? extends Definition> existing = table.putIfAbsent("markup://some:thing",
+								ComponentDef.class, null, mine);
+						return existing != null ? existing : mine;
+					}
+				}));
+			}
+			start.countDown();
+
+			DefDescriptor<? extends Definition> winner = table.get("markup://some:thing", ComponentDef.class, null);
+			for (Future<DefDescriptor<? extends Definition>> result : results) {
+				DefDescriptor<? extends Definition> value = result.get(10, TimeUnit.SECONDS);
+				if (winner == null) {
+					winner = value;
+				}
+				assertSame(winner, value);
+			}
+			assertEquals(1, table.size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
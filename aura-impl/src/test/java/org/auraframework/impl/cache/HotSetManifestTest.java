@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.system.AuraContext.Authentication;
+import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.util.test.util.UnitTestCase;
+
+import com.google.common.collect.ImmutableList;
+
+public class HotSetManifestTest extends UnitTestCase {
+	private File file;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		file = File.createTempFile("hotSet", ".txt");
+		file.delete();
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		file.delete();
+		super.tearDown();
+	}
+
+	private HotSetManifest.Entry getCssEntry(String app, String client, String... conditions) {
+		return new HotSetManifest.Entry(Format.CSS, Mode.PROD, Authentication.AUTHENTICATED, DefType.APPLICATION,
+				app, client, ImmutableList.copyOf(conditions));
+	}
+
+	public void testRecordedEntriesSurviveReload() {
+		HotSetManifest manifest = new HotSetManifest(file, 10);
+		HotSetManifest.Entry css = getCssEntry("markup://some:app", "webkit", "isDesktop", "isTouch");
+		HotSetManifest.Entry js = new HotSetManifest.Entry(Format.JS, Mode.PROD, Authentication.UNAUTHENTICATED,
+				DefType.COMPONENT, "markup://some:cmp", null, null);
+
+		assertTrue(manifest.record(css));
+		assertTrue(manifest.record(js));
+		assertFalse("Recording twice should not add an entry", manifest.record(css));
+		manifest.flush();
+
+		List<HotSetManifest.Entry> loaded = new HotSetManifest(file, 10).load();
+		assertEquals(ImmutableList.of(js, css), loaded);
+		HotSetManifest.Entry reloaded = loaded.get(1);
+		assertEquals("webkit", reloaded.getClient());
+		assertEquals(ImmutableList.of("isDesktop", "isTouch"), reloaded.getConditions());
+		assertNull(loaded.get(0).getClient());
+		assertEquals(DefType.COMPONENT, loaded.get(0).getDefType());
+	}
+
+	public void testStyleContextIsIgnoredForJs() {
+		HotSetManifest.Entry js = new HotSetManifest.Entry(Format.JS, Mode.PROD, Authentication.AUTHENTICATED,
+				DefType.APPLICATION, "markup://some:app", "webkit", ImmutableList.of("isDesktop"));
+
+		assertNull(js.getClient());
+		assertTrue(js.getConditions().isEmpty());
+		assertEquals(new HotSetManifest.Entry(Format.JS, Mode.PROD, Authentication.AUTHENTICATED,
+				DefType.APPLICATION, "markup://some:app", "gecko", null), js);
+	}
+
+	public void testEntriesAreBounded() {
+		HotSetManifest manifest = new HotSetManifest(file, 2);
+		HotSetManifest.Entry one = getCssEntry("markup://some:one", "webkit");
+		HotSetManifest.Entry two = getCssEntry("markup://some:two", "webkit");
+		HotSetManifest.Entry three = getCssEntry("markup://some:three", "webkit");
+
+		assertTrue(manifest.record(one));
+		assertTrue(manifest.record(two));
+		assertTrue(manifest.record(three));
+
+		assertEquals("The oldest entry should make room", ImmutableList.of(two, three), manifest.getEntries());
+	}
+
+	public void testEntryServedAgainIsKept() {
+		HotSetManifest manifest = new HotSetManifest(file, 2);
+		HotSetManifest.Entry one = getCssEntry("markup://some:one", "webkit");
+		HotSetManifest.Entry two = getCssEntry("markup://some:two", "webkit");
+		HotSetManifest.Entry three = getCssEntry("markup://some:three", "webkit");
+
+		manifest.record(one);
+		manifest.record(two);
+		assertFalse(manifest.record(one));
+		assertTrue(manifest.record(three));
+
+		assertEquals(ImmutableList.of(one, three), manifest.getEntries());
+	}
+
+	public void testFullManifestFromFileAcceptsNewEntries() {
+		HotSetManifest.Entry one = getCssEntry("markup://some:one", "webkit");
+		HotSetManifest.Entry two = getCssEntry("markup://some:two", "webkit");
+		HotSetManifest.Entry three = getCssEntry("markup://some:three", "webkit");
+		HotSetManifest previous = new HotSetManifest(file, 2);
+		previous.record(one);
+		previous.record(two);
+		previous.flush();
+
+		HotSetManifest manifest = new HotSetManifest(file, 2);
+		assertEquals(ImmutableList.of(one, two), manifest.load());
+		assertTrue("A full manifest should still accept new entries", manifest.record(three));
+		manifest.flush();
+
+		assertEquals(ImmutableList.of(two, three), manifest.getEntries());
+		assertEquals(ImmutableList.of(two, three), new HotSetManifest(file, 2).load());
+	}
+
+	public void testLoadKeepsEntriesRecordedSinceStart() {
+		HotSetManifest.Entry one = getCssEntry("markup://some:one", "webkit");
+		HotSetManifest.Entry two = getCssEntry("markup://some:two", "webkit");
+		HotSetManifest.Entry three = getCssEntry("markup://some:three", "webkit");
+		HotSetManifest previous = new HotSetManifest(file, 2);
+		previous.record(one);
+		previous.record(two);
+		previous.flush();
+
+		HotSetManifest manifest = new HotSetManifest(file, 2);
+		manifest.record(three);
+		manifest.load();
+
+		assertEquals(ImmutableList.of(two, three), manifest.getEntries());
+	}
+
+	public void testRecordDoesNotWriteOnTheCallingThread() {
+		HotSetManifest manifest = new HotSetManifest(file, 10);
+
+		assertTrue(manifest.record(getCssEntry("markup://some:app", "webkit")));
+		assertFalse("The manifest should be written later", file.exists());
+
+		manifest.flush();
+		assertTrue(file.exists());
+	}
+
+	public void testBadLinesAreSkipped() throws Exception {
+		HotSetManifest.Entry good = getCssEntry("markup://some:app", "webkit");
+		HotSetManifest manifest = new HotSetManifest(file, 10);
+		manifest.record(good);
+		manifest.flush();
+		String contents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		Files.write(file.toPath(), ("garbage\nJS\tNOPE\tAUTHENTICATED\tAPPLICATION\tmarkup://some:app\t\t\n" + contents)
+				.getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(ImmutableList.of(good), new HotSetManifest(file, 10).load());
+	}
+
+	public void testMissingFileLoadsNothing() {
+		assertTrue(new HotSetManifest(file, 10).load().isEmpty());
+		assertTrue(new HotSetManifest(null, 10).load().isEmpty());
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.mockito.Mockito;
+
+public class NamespaceIndexedCacheTest extends UnitTestCase {
+
+	private NamespaceIndexedCache<String> getCache() {
+		return new NamespaceIndexedCache<>(new CacheImpl.Builder<DefDescriptor<?>, String>().build());
+	}
+
+	private DefDescriptor<?> getDescriptor(String namespace) {
+		DefDescriptor<?> descriptor = Mockito.mock(DefDescriptor.class);
+		Mockito.doReturn(namespace).when(descriptor).getNamespace();
+		return descriptor;
+	}
+
+	public void testInvalidateNamespace() {
+		NamespaceIndexedCache<String> cache = getCache();
+		DefDescriptor<?> first = getDescriptor("some");
+		DefDescriptor<?> second = getDescriptor("Some");
+		DefDescriptor<?> other = getDescriptor("other");
+		cache.put(first, "first");
+		cache.put(second, "second");
+		cache.put(other, "other");
+
+		cache.invalidateNamespace("SOME");
+
+		assertNull(cache.getIfPresent(first));
+		assertNull(cache.getIfPresent(second));
+		assertEquals("other", cache.getIfPresent(other));
+		assertTrue(cache.getNamespaceKeySet("some").isEmpty());
+		assertEquals(1, cache.getNamespaceKeySet("other").size());
+	}
+
+	public void testInvalidateRemovesFromIndex() {
+		NamespaceIndexedCache<String> cache = getCache();
+		DefDescriptor<?> first = getDescriptor("some");
+		cache.put(first, "first");
+
+		cache.invalidate(first);
+
+		assertNull(cache.getIfPresent(first));
+		assertTrue(cache.getNamespaceKeySet("some").isEmpty());
+	}
+
+	public void testInvalidateAllClearsIndex() {
+		NamespaceIndexedCache<String> cache = getCache();
+		DefDescriptor<?> first = getDescriptor("some");
+		cache.put(first, "first");
+
+		cache.invalidateAll();
+
+		assertNull(cache.getIfPresent(first));
+		assertTrue(cache.getNamespaceKeySet("some").isEmpty());
+	}
+
+	public void testNullNamespace() {
+		NamespaceIndexedCache<String> cache = getCache();
+		DefDescriptor<?> first = getDescriptor(null);
+		cache.put(first, "first");
+
+		cache.invalidateNamespace(null);
+
+		assertNull(cache.getIfPresent(first));
+	}
+}
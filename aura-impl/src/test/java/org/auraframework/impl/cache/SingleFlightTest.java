@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.util.test.util.UnitTestCase;
+
+public class SingleFlightTest extends UnitTestCase {
+
+	public void testFirstJoinLeads() {
+		SingleFlight<String, String> flights = new SingleFlight<>(1000);
+
+		SingleFlight.Call<String, String> call = flights.join("key");
+
+		assertTrue(call.isLeader());
+		assertEquals(1, flights.getInFlightCount());
+		call.complete("value");
+		assertEquals(0, flights.getInFlightCount());
+		assertTrue(flights.join("key").isLeader());
+		assertEquals(2, flights.getLeaderCount());
+	}
+
+	public void testFollowerGetsLeaderValue() throws Exception {
+		final SingleFlight<String, String> flights = new SingleFlight<>(10000);
+		SingleFlight.Call<String, String> leader = flights.join("key");
+		final CountDownLatch joined = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> follower = executor.submit(new Callable<String>() {
+				@Override
+				public String call() {
+					SingleFlight.Call<String, String> call = flights.join("key");
+					joined.countDown();
+					assertFalse(call.isLeader());
+					return call.await();
+				}
+			});
+			assertTrue(joined.await(10, TimeUnit.SECONDS));
+			leader.complete("value");
+
+			assertEquals("value", follower.get(10, TimeUnit.SECONDS));
+			assertEquals(1, flights.getWaitCount());
+			assertEquals(0, flights.getTimeoutCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public void testFollowerGetsNullIfLeaderFails() throws Exception {
+		final SingleFlight<String, String> flights = new SingleFlight<>(10000);
+		SingleFlight.Call<String, String> leader = flights.join("key");
+		final CountDownLatch joined = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> follower = executor.submit(new Callable<String>() {
+				@Override
+				public String call() {
+					SingleFlight.Call<String, String> call = flights.join("key");
+					joined.countDown();
+					return call.await();
+				}
+			});
+			assertTrue(joined.await(10, TimeUnit.SECONDS));
+			leader.complete(null);
+
+			assertNull(follower.get(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public void testFollowerTimesOut() throws Exception {
+		final SingleFlight<String, String> flights = new SingleFlight<>(10);
+		SingleFlight.Call<String, String> leader = flights.join("key");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> follower = executor.submit(new Callable<String>() {
+				@Override
+				public String call() {
+					return flights.join("key").await();
+				}
+			});
+
+			assertNull(follower.get(10, TimeUnit.SECONDS));
+			assertEquals(1, flights.getTimeoutCount());
+		} finally {
+			leader.complete("value");
+			executor.shutdownNow();
+		}
+	}
+
+	public void testReentrantJoinDoesNotWait() {
+		SingleFlight<String, String> flights = new SingleFlight<>(60000);
+		SingleFlight.Call<String, String> leader = flights.join("key");
+
+		SingleFlight.Call<String, String> nested = flights.join("key");
+
+		assertFalse(nested.isLeader());
+		assertNull(nested.await());
+		nested.complete("ignored");
+		assertEquals(1, flights.getInFlightCount());
+		leader.complete("value");
+		assertEquals(0, flights.getInFlightCount());
+	}
+}
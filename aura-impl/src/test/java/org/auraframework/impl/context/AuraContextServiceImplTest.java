@@ -16,12 +16,15 @@
 package org.auraframework.impl.context;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.auraframework.Aura;
 import org.auraframework.adapter.ContextAdapter;
 import org.auraframework.impl.AuraImpl;
 import org.auraframework.impl.AuraImplTestCase;
 import org.auraframework.service.ContextService;
+import org.auraframework.service.ContextService.SuspendedContext;
+import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.GlobalValue;
@@ -53,6 +56,49 @@ public class AuraContextServiceImplTest extends AuraImplTestCase {
         assertFalse(p.isEstablished());
     }
 
+    public void testSuspendedContextResumesOnAnotherThread() throws Exception {
+        final ContextService contextService = Aura.getContextService();
+        final ContextAdapter p = AuraImpl.getContextAdapter();
+        AuraContext context = contextService.startContext(Mode.DEV, Format.JSON, Authentication.AUTHENTICATED);
+
+        final SuspendedContext suspended = contextService.suspendContext();
+        assertFalse(p.isEstablished());
+        assertSame(context, suspended.getContext());
+
+        final AtomicReference<AuraContext> resumed = new AtomicReference<>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                contextService.resumeContext(suspended);
+                try {
+                    resumed.set(p.getCurrentContext());
+                } finally {
+                    contextService.endContext();
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertSame(context, resumed.get());
+        assertFalse(p.isEstablished());
+    }
+
+    public void testResumeOverEstablishedContextFails() {
+        ContextService contextService = Aura.getContextService();
+        contextService.startContext(Mode.DEV, Format.JSON, Authentication.AUTHENTICATED);
+        SuspendedContext suspended = contextService.suspendContext();
+        contextService.startContext(Mode.DEV, Format.JSON, Authentication.AUTHENTICATED);
+        try {
+            contextService.resumeContext(suspended);
+            fail("shouldn't be able to resume over an established context");
+        } catch (Throwable t) {
+            assertExceptionMessageStartsWith(t, AuraRuntimeException.class, "Cannot resume a context");
+        } finally {
+            contextService.endContext();
+        }
+    }
+
     private void unregisterGlobal(String name) {
         try {
             Map<String, GlobalValue> values = AuraPrivateAccessor.get(AuraContextImpl.class, "allowedGlobalValues");
@@ -56,6 +56,11 @@ public class TestLoggingAdapterImpl extends LoggingAdapterImpl implements TestLo
     	super.release();
     }
     
+    @Override
+    public void resume(LoggingContext context) {
+        currentContext.set(context);
+    }
+
     @Override
     public List<Map<String, Object>> getLogs() {
         return logs;
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.DescriptorFilter;
+import org.auraframework.system.DefRegistry;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Sets;
+
+public class RegistryNameIndexTest extends UnitTestCase {
+
+    private DefDescriptor<?> getDescriptor(String qualifiedName, String namespace, DefType defType) {
+        DefDescriptor<?> descriptor = Mockito.mock(DefDescriptor.class);
+        Mockito.doReturn(qualifiedName).when(descriptor).getQualifiedName();
+        Mockito.doReturn(namespace).when(descriptor).getNamespace();
+        Mockito.doReturn(defType).when(descriptor).getDefType();
+        return descriptor;
+    }
+
+    private DefRegistry<?> getRegistry(boolean hasFind, Set<DefType> defTypes, Set<DefDescriptor<?>> contents) {
+        DefRegistry<?> registry = Mockito.mock(DefRegistry.class);
+        Mockito.doReturn(hasFind).when(registry).hasFind();
+        Mockito.doReturn(defTypes).when(registry).getDefTypes();
+        Mockito.doReturn(contents).when(registry).find(Matchers.any(DescriptorFilter.class));
+        return registry;
+    }
+
+    public void testRejectsMissingNames() {
+        DefDescriptor<?> present = getDescriptor("js://ns.present", "ns", DefType.RENDERER);
+        DefRegistry<?> registry = getRegistry(true, EnumSet.of(DefType.RENDERER, DefType.HELPER),
+                Sets.<DefDescriptor<?>> newHashSet(present));
+        RegistryNameIndex index = new RegistryNameIndex(registry);
+
+        assertTrue(index.mightExist(present, 0));
+        assertTrue(index.mightExist(getDescriptor("js://NS.Present", "NS", DefType.RENDERER), 0));
+        assertFalse(index.mightExist(getDescriptor("js://ns.missing", "ns", DefType.RENDERER), 0));
+        assertFalse(index.mightExist(getDescriptor("js://ns.missing", "ns", DefType.HELPER), 0));
+    }
+
+    public void testBuildsOncePerNamespaceEpoch() {
+        DefRegistry<?> registry = getRegistry(true, EnumSet.of(DefType.HELPER), Sets.<DefDescriptor<?>> newHashSet());
+        RegistryNameIndex index = new RegistryNameIndex(registry);
+        DefDescriptor<?> missing = getDescriptor("js://ns.missing", "ns", DefType.HELPER);
+
+        index.mightExist(missing, 1);
+        index.mightExist(missing, 1);
+        Mockito.verify(registry, Mockito.times(1)).find(Matchers.any(DescriptorFilter.class));
+
+        index.mightExist(missing, 2);
+        Mockito.verify(registry, Mockito.times(2)).find(Matchers.any(DescriptorFilter.class));
+    }
+
+    public void testRebuildSeesNewNames() {
+        DefDescriptor<?> added = getDescriptor("js://ns.added", "ns", DefType.HELPER);
+        Set<DefDescriptor<?>> contents = Sets.newHashSet();
+        RegistryNameIndex index = new RegistryNameIndex(getRegistry(true, EnumSet.of(DefType.HELPER), contents));
+
+        assertFalse(index.mightExist(added, 1));
+        contents.add(added);
+        assertFalse("Should not rebuild within an epoch", index.mightExist(added, 1));
+        assertTrue(index.mightExist(added, 2));
+    }
+
+    public void testUnindexedTypesMightExist() {
+        DefRegistry<?> registry = getRegistry(true, EnumSet.of(DefType.COMPONENT, DefType.HELPER),
+                Sets.<DefDescriptor<?>> newHashSet());
+        RegistryNameIndex index = new RegistryNameIndex(registry);
+
+        assertTrue(index.mightExist(getDescriptor("markup://ns:missing", "ns", DefType.COMPONENT), 0));
+    }
+
+    public void testRegistryWithoutFindMightContainAnything() {
+        DefRegistry<?> registry = getRegistry(false, EnumSet.of(DefType.HELPER), Sets.<DefDescriptor<?>> newHashSet());
+        RegistryNameIndex index = new RegistryNameIndex(registry);
+
+        assertTrue(index.mightExist(getDescriptor("js://ns.missing", "ns", DefType.HELPER), 0));
+        Mockito.verify(registry, Mockito.never()).find(Matchers.any(DescriptorFilter.class));
+    }
+
+    public void testFailedFindMightContainAnything() {
+        DefRegistry<?> registry = getRegistry(true, EnumSet.of(DefType.HELPER), null);
+        Mockito.doThrow(new UnsupportedOperationException()).when(registry)
+                .find(Matchers.any(DescriptorFilter.class));
+        RegistryNameIndex index = new RegistryNameIndex(registry);
+
+        assertTrue(index.mightExist(getDescriptor("js://ns.missing", "ns", DefType.HELPER), 0));
+        assertTrue(index.mightExist(getDescriptor("js://ns.missing", "ns", DefType.HELPER), 1));
+        Mockito.verify(registry, Mockito.times(1)).find(Matchers.any(DescriptorFilter.class));
+    }
+}
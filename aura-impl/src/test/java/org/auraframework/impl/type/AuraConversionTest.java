@@ -225,6 +225,22 @@ public class AuraConversionTest extends AuraImplTestCase {
                 new Integer(Integer.MIN_VALUE), }, true);
     }
 
+    /**
+     * Integer to Long, as integers are parsed as Integer in fast parse mode.
+     */
+    public void testIntegerToLong() throws Exception {
+        runPassPairs(Long.class, new Object[] { new Integer(1234), new Long(1234), new Integer(Integer.MIN_VALUE),
+                new Long(Integer.MIN_VALUE), }, true);
+    }
+
+    /**
+     * Integer and Long to BigDecimal.
+     */
+    public void testIntegralToBigDecimal() throws Exception {
+        runPassPairs(BigDecimal.class, new Object[] { new Integer(-1234), new BigDecimal(-1234),
+                new Long(Long.MAX_VALUE), new BigDecimal(Long.MAX_VALUE), }, true);
+    }
+
     /**
      * ArrayList to Integer array.
      * 
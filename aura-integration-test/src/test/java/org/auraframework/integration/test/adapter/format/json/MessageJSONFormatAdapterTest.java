@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.integration.test.adapter.format.json;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.auraframework.impl.AuraImplTestCase;
+import org.auraframework.impl.adapter.format.json.MessageJSONFormatAdapter;
+import org.auraframework.instance.Action;
+import org.auraframework.system.Message;
+import org.auraframework.util.json.JsonStreamReader.JsonParseException;
+
+/**
+ * Tests for MessageJSONFormatAdapter.
+ */
+public class MessageJSONFormatAdapterTest extends AuraImplTestCase {
+    private static final String SUM = "java://org.auraframework.integration.test.java.controller.TestControllerOnlyForJavaControllerTest/ACTION$parallelSum";
+
+    public MessageJSONFormatAdapterTest(String name) {
+        super(name);
+    }
+
+    private Message read(String json) throws Exception {
+        return new MessageJSONFormatAdapter().read(new StringReader(json));
+    }
+
+    public void testReadActions() throws Exception {
+        Message message = read("{\"ignored\":{\"a\":[1,2]},\"actions\":["
+                + "{\"id\":\"1;a\",\"descriptor\":\"" + SUM + "\",\"params\":{\"a\":1,\"b\":2},"
+                + "\"callingDescriptor\":\"UNKNOWN\",\"version\":\"1.0\"},"
+                + "{\"id\":\"2;a\",\"descriptor\":\"" + SUM + "\",\"params\":{\"a\":3,\"b\":4}}"
+                + "],\"other\":null}");
+
+        List<Action> actions = message.getActions();
+        assertEquals(2, actions.size());
+        assertEquals("1;a", actions.get(0).getId());
+        assertEquals("1.0", actions.get(0).getCallerVersion());
+        assertNull(actions.get(0).getCallingDescriptor());
+        assertEquals("2;a", actions.get(1).getId());
+    }
+
+    public void testReadWithoutActions() throws Exception {
+        assertTrue(read("{}").getActions().isEmpty());
+        assertTrue(read("{\"actions\":[]}").getActions().isEmpty());
+    }
+
+    public void testReadTruncatedMessage() throws Exception {
+        try {
+            read("{\"actions\":[{\"id\":\"1;a\",\"descriptor\":\"" + SUM + "\"}");
+            fail("Expected a truncated message to be rejected");
+        } catch (JsonParseException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Invalid message"));
+        }
+    }
+}
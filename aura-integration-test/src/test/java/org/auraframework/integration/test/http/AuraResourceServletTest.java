@@ -696,6 +696,29 @@ public class AuraResourceServletTest extends AuraTestCase {
         }
     }
 
+    public void testAcceptsGzip() {
+        assertTrue(AuraBaseServlet.acceptsGzip("gzip"));
+        assertTrue(AuraBaseServlet.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(AuraBaseServlet.acceptsGzip("x-gzip"));
+        assertTrue(AuraBaseServlet.acceptsGzip("*"));
+        assertFalse(AuraBaseServlet.acceptsGzip(null));
+        assertFalse(AuraBaseServlet.acceptsGzip(""));
+        assertFalse(AuraBaseServlet.acceptsGzip("identity"));
+        assertFalse(AuraBaseServlet.acceptsGzip("gzip;q=0"));
+        assertFalse(AuraBaseServlet.acceptsGzip("*, gzip;q=0.0"));
+        assertFalse(AuraBaseServlet.acceptsGzip("*;q=0"));
+    }
+
+    public void testMatchesETag() {
+        assertTrue(AuraBaseServlet.matchesETag("\"abc\"", "\"abc\""));
+        assertTrue(AuraBaseServlet.matchesETag("\"xyz\", W/\"abc\"", "\"abc\""));
+        assertTrue(AuraBaseServlet.matchesETag("*", "\"abc\""));
+        assertFalse(AuraBaseServlet.matchesETag(null, "\"abc\""));
+        assertFalse(AuraBaseServlet.matchesETag("", "\"abc\""));
+        assertFalse(AuraBaseServlet.matchesETag("\"abcd\"", "\"abc\""));
+        assertFalse(AuraBaseServlet.matchesETag("abc", "\"abc\""));
+    }
+
     private static class MyDummyHttpServletResponse extends DummyHttpServletResponse {
         StringWriter stringWriter = new StringWriter();
         PrintWriter writer = new PrintWriter(stringWriter);
@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.FutureTask;
 
 import org.auraframework.Aura;
 import org.auraframework.cache.Cache;
@@ -41,6 +42,9 @@ import org.auraframework.instance.Action.State;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.system.Annotations.AuraEnabled;
 import org.auraframework.system.Annotations.Controller;
+import org.auraframework.system.AuraContext.Authentication;
+import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.AuraContext.Mode;
 import org.auraframework.system.Location;
 import org.auraframework.system.LoggingContext.KeyValueLogger;
 import org.auraframework.system.Message;
@@ -51,6 +55,8 @@ import org.auraframework.throwable.NoAccessException;
 import org.auraframework.throwable.quickfix.DefinitionNotFoundException;
 import org.auraframework.throwable.quickfix.InvalidDefinitionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.json.JsonEncoder;
+import org.auraframework.util.json.JsonSerializationContext;
 import org.auraframework.util.test.annotation.ThreadHostileTest;
 import org.auraframework.util.test.annotation.UnAdaptableTest;
 import org.mockito.Mockito;
@@ -383,6 +389,120 @@ public class JavaControllerTest extends AuraImplTestCase {
                 ((JavaActionDef) actionDef).isBackground());
     }
 
+    public void testJavaActionDefIsParallelWithAnnotation() throws Exception {
+        ControllerDef controller = getJavaController("java://org.auraframework.integration.test.java.controller.TestControllerOnlyForJavaControllerTest");
+        assertTrue("ActionDefs should be parallel with ParallelAction annotation",
+                ((JavaActionDef) controller.getActionDefs().get("parallelSum")).isParallel());
+        assertFalse("ActionDefs should not be parallel without ParallelAction annotation",
+                ((JavaActionDef) controller.getActionDefs().get("customErrorParam")).isParallel());
+    }
+
+    /**
+     * A prepared call runs without the action, which is finished with its outcome.
+     */
+    public void testPreparedCallCompletesAction() throws Exception {
+        ControllerDef controller = getJavaController("java://org.auraframework.integration.test.java.controller.TestControllerOnlyForJavaControllerTest");
+        Map<String, Object> args = Maps.newHashMap();
+        args.put("a", 1);
+        args.put("b", 2);
+        JavaAction action = (JavaAction) controller.createAction("parallelSum", args);
+
+        FutureTask<Object> call = new FutureTask<>(action.prepareCall());
+        assertEquals(State.RUNNING, action.getState());
+        call.run();
+        action.completeCall(call);
+
+        assertEquals(State.SUCCESS, action.getState());
+        assertEquals(3, action.getReturnValue());
+    }
+
+    public void testPreparedCallFailureIsActionError() throws Exception {
+        ControllerDef controller = getJavaController("java://org.auraframework.integration.test.java.controller.TestControllerOnlyForJavaControllerTest");
+        JavaAction action = (JavaAction) controller.createAction("parallelThrow", null);
+
+        FutureTask<Object> call = new FutureTask<>(action.prepareCall());
+        call.run();
+        action.completeCall(call);
+
+        assertEquals(State.ERROR, action.getState());
+        assertEquals(1, action.getErrors().size());
+        checkExceptionContains((Exception) action.getErrors().get(0), AuraUnhandledException.class,
+                "java.lang.IllegalStateException: parallel failure");
+    }
+
+    public void testPreparedCallWithBadParameterIsNotRun() throws Exception {
+        ControllerDef controller = getJavaController("java://org.auraframework.integration.test.java.controller.TestControllerOnlyForJavaControllerTest");
+        Map<String, Object> args = Maps.newHashMap();
+        args.put("a", "not a number");
+        JavaAction action = (JavaAction) controller.createAction("parallelSum", args);
+
+        assertNull(action.prepareCall());
+        assertEquals(State.ERROR, action.getState());
+        assertEquals(1, action.getErrors().size());
+    }
+
+    private JavaAction runCachedEcho(ControllerDef controller, String name, String value) throws Exception {
+        JavaAction action = (JavaAction) controller.createAction(name, Collections.singletonMap("value",
+                (Object) value));
+        action.run();
+        assertEquals(State.SUCCESS, action.getState());
+        assertEquals(value, action.getReturnValue());
+        return action;
+    }
+
+    /**
+     * A cacheable action with the same parameters is answered from the cache, and writes the same JSON.
+     */
+    public void testCacheableActionReusesResult() throws Exception {
+        ControllerDef controller = getJavaController("java://org.auraframework.integration.test.java.controller.TestControllerOnlyForJavaControllerTest");
+        assertTrue(((JavaActionDef) controller.getActionDefs().get("cachedEcho")).isCacheable());
+        assertFalse(((JavaActionDef) controller.getActionDefs().get("parallelSum")).isCacheable());
+        String value = getName() + System.nanoTime();
+        int calls = TestControllerOnlyForJavaControllerTest.cachedCalls.get();
+
+        JavaAction first = runCachedEcho(controller, "cachedEcho", value);
+        JavaAction second = runCachedEcho(controller, "cachedEcho", value);
+        assertEquals("The second call should not have run the method", calls + 1,
+                TestControllerOnlyForJavaControllerTest.cachedCalls.get());
+        JsonSerializationContext jsonContext = Aura.getContextService().getCurrentContext()
+                .getJsonSerializationContext();
+        assertEquals(JsonEncoder.serialize(first, jsonContext), JsonEncoder.serialize(second, jsonContext));
+        assertTrue(JsonEncoder.serialize(second, jsonContext).contains("\"" + value + "\""));
+
+        runCachedEcho(controller, "cachedEcho", value + "-other");
+        assertEquals("Other parameters should run the method", calls + 2,
+                TestControllerOnlyForJavaControllerTest.cachedCalls.get());
+    }
+
+    /**
+     * A result is not shared between an authenticated and an unauthenticated caller.
+     */
+    public void testCacheableActionIsNotSharedAcrossAuthentication() throws Exception {
+        ControllerDef controller = getJavaController("java://org.auraframework.integration.test.java.controller.TestControllerOnlyForJavaControllerTest");
+        String value = getName() + System.nanoTime();
+        int calls = TestControllerOnlyForJavaControllerTest.cachedCalls.get();
+
+        runCachedEcho(controller, "cachedEcho", value);
+        Aura.getContextService().endContext();
+        Aura.getContextService().startContext(Mode.UTEST, Format.JSON, Authentication.UNAUTHENTICATED);
+        runCachedEcho(controller, "cachedEcho", value);
+        assertEquals("An unauthenticated call should run the method", calls + 2,
+                TestControllerOnlyForJavaControllerTest.cachedCalls.get());
+    }
+
+    /**
+     * A scope of null keeps a call out of the cache.
+     */
+    public void testCacheableActionWithoutScopeIsNotCached() throws Exception {
+        ControllerDef controller = getJavaController("java://org.auraframework.integration.test.java.controller.TestControllerOnlyForJavaControllerTest");
+        String value = getName() + System.nanoTime();
+        int calls = TestControllerOnlyForJavaControllerTest.cachedCalls.get();
+
+        runCachedEcho(controller, "uncachedEcho", value);
+        runCachedEcho(controller, "uncachedEcho", value);
+        assertEquals(calls + 2, TestControllerOnlyForJavaControllerTest.cachedCalls.get());
+    }
+
     public void testSerialize() throws Exception {
         ControllerDef controller = getJavaController("java://org.auraframework.impl.java.controller.ParallelActionTestController");
         serializeAndGoldFile(controller);
@@ -16,10 +16,16 @@
 
 package org.auraframework.integration.test.java.controller;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.auraframework.instance.Action;
+import org.auraframework.instance.ActionResultScope;
 import org.auraframework.integration.test.java.controller.JavaControllerTest.JavaValueDefExt;
 import org.auraframework.system.Annotations.AuraEnabled;
+import org.auraframework.system.Annotations.CacheableAction;
 import org.auraframework.system.Annotations.Controller;
 import org.auraframework.system.Annotations.Key;
+import org.auraframework.system.Annotations.ParallelAction;
 
 @Controller
 public class TestControllerOnlyForJavaControllerTest {
@@ -29,4 +35,39 @@ public class TestControllerOnlyForJavaControllerTest {
  	     return "something";
     }
 
+	@AuraEnabled
+	@ParallelAction
+	public static Integer parallelSum(@Key("a") Integer a, @Key("b") Integer b) {
+		return a + b;
+	}
+
+	@AuraEnabled
+	@ParallelAction
+	public static Integer parallelThrow() {
+		throw new IllegalStateException("parallel failure");
+	}
+
+	public static final AtomicInteger cachedCalls = new AtomicInteger();
+
+	@AuraEnabled
+	@CacheableAction(expireSeconds = 600, scope = ActionResultScope.Shared.class)
+	public static String cachedEcho(@Key("value") String value) {
+		cachedCalls.incrementAndGet();
+		return value;
+	}
+
+	public static class UncachedScope implements ActionResultScope {
+		@Override
+		public String getScope(Action action) {
+			return null;
+		}
+	}
+
+	@AuraEnabled
+	@CacheableAction(scope = UncachedScope.class)
+	public static String uncachedEcho(@Key("value") String value) {
+		cachedCalls.incrementAndGet();
+		return value;
+	}
+
 }
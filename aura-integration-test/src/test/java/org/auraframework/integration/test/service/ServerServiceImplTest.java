@@ -27,15 +27,21 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.auraframework.Aura;
+import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheStatistics;
 import org.auraframework.def.ActionDef;
 import org.auraframework.def.ApplicationDef;
+import org.auraframework.def.BaseComponentDef;
 import org.auraframework.def.ComponentDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.Definition;
 import org.auraframework.def.DefinitionAccess;
+import org.auraframework.def.HelperDef;
 import org.auraframework.def.TypeDef;
 import org.auraframework.def.ValueDef;
 import org.auraframework.impl.AuraImplTestCase;
+import org.auraframework.impl.ServerServiceImpl;
+import org.auraframework.impl.root.component.ClientComponentClass;
 import org.auraframework.instance.AbstractActionImpl;
 import org.auraframework.instance.Action;
 import org.auraframework.instance.ActionDelegate;
@@ -50,6 +56,7 @@ import org.auraframework.system.Message;
 import org.auraframework.system.SubDefDescriptor;
 import org.auraframework.throwable.AuraExecutionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.javascript.JavascriptWriter;
 import org.auraframework.util.json.Json;
 import org.auraframework.util.json.JsonReader;
 
@@ -492,6 +499,56 @@ public class ServerServiceImplTest extends AuraImplTestCase {
         assertEquals("Component CSS repeated", 1, count);
     }
 
+    private String getResourceTag(DefDescriptor<ApplicationDef> appDesc, Mode mode, Format format) throws Exception {
+        AuraContext context = Aura.getContextService().startContext(mode, format, Authentication.AUTHENTICATED,
+                appDesc);
+        try {
+            context.addLoaded(appDesc, context.getDefRegistry().getUid(null, appDesc));
+            return Aura.getServerService().getResourceTag(format);
+        } finally {
+            Aura.getContextService().endContext();
+        }
+    }
+
+    /**
+     * The tag of a resource is stable, and differs between the formats and modes that give different content.
+     */
+    public void testResourceTag() throws Exception {
+        DefDescriptor<ApplicationDef> appDesc = Aura.getDefinitionService()
+                .getDefDescriptor("preloadTest:test_SimpleApplication", ApplicationDef.class);
+
+        String js = getResourceTag(appDesc, Mode.PROD, Format.JS);
+        assertNotNull(js);
+        assertEquals(js, getResourceTag(appDesc, Mode.PROD, Format.JS));
+        assertFalse(js.equals(getResourceTag(appDesc, Mode.DEV, Format.JS)));
+        assertFalse(js.equals(getResourceTag(appDesc, Mode.PROD, Format.CSS)));
+    }
+
+    /**
+     * Component JSON has a tag of its own, which differs between modes.
+     */
+    public void testResourceTagForJson() throws Exception {
+        DefDescriptor<ApplicationDef> appDesc = Aura.getDefinitionService()
+                .getDefDescriptor("preloadTest:test_SimpleApplication", ApplicationDef.class);
+
+        String json = getResourceTag(appDesc, Mode.PROD, Format.JSON);
+        assertNotNull(json);
+        assertEquals(json, getResourceTag(appDesc, Mode.PROD, Format.JSON));
+        assertFalse(json.equals(getResourceTag(appDesc, Mode.DEV, Format.JSON)));
+        assertFalse(json.equals(getResourceTag(appDesc, Mode.PROD, Format.JS)));
+    }
+
+    /**
+     * Without the uid of the application there is nothing to tag.
+     */
+    public void testResourceTagWithoutUid() throws Exception {
+        DefDescriptor<ApplicationDef> appDesc = Aura.getDefinitionService()
+                .getDefDescriptor("preloadTest:test_SimpleApplication", ApplicationDef.class);
+        Aura.getContextService().startContext(Mode.PROD, Format.JS, Authentication.AUTHENTICATED, appDesc);
+
+        assertNull(Aura.getServerService().getResourceTag(Format.JS));
+    }
+
     /**
      * Verify that the css writer writes in the order given.
      */
@@ -733,6 +790,106 @@ public class ServerServiceImplTest extends AuraImplTestCase {
         }
     }
 
+    /**
+     * When app.js is minified a fragment at a time, each component class is exactly the class minified on its own,
+     * and the classes are followed by the definitions.
+     */
+    public void testFragmentMinifiedDefinitionsMatchEachFragmentMinified() throws Exception {
+        DefDescriptor<ComponentDef> cmpDesc = addSourceAutoCleanup(ComponentDef.class, "<aura:component/>");
+        DefDescriptor<ApplicationDef> appDesc = addSourceAutoCleanup(ApplicationDef.class,
+                String.format("<aura:application><%s/></aura:application>", cmpDesc.getDescriptorName()));
+        AuraContext context = Aura.getContextService().startContext(Mode.PROD, Format.JS,
+                Authentication.AUTHENTICATED, appDesc);
+        String uid = context.getDefRegistry().getUid(null, appDesc);
+        context.addLoaded(appDesc, uid);
+        Set<DefDescriptor<?>> dependencies = context.getDefRegistry().getDependencies(uid);
+
+        StringWriter output = new StringWriter();
+        new ServerServiceImpl(true).writeDefinitions(dependencies, output);
+        String js = output.toString();
+
+        String initDefs = "$A.clientService.initDefs(";
+        int defsStart = js.indexOf(initDefs);
+        assertTrue("No definitions in " + js, defsStart > 0);
+        assertEquals("Definitions written more than once", defsStart, js.lastIndexOf(initDefs));
+        String classes = js.substring(0, defsStart);
+
+        Set<DefDescriptor<?>> componentDescs = Sets.newLinkedHashSet();
+        componentDescs.add(Aura.getDefinitionService().getDefDescriptor("aura:component", ComponentDef.class));
+        for (DefDescriptor<?> dependency : dependencies) {
+            if (BaseComponentDef.class.isAssignableFrom(dependency.getDefType().getPrimaryInterface())) {
+                componentDescs.add(dependency);
+            }
+        }
+        int length = 0;
+        for (DefDescriptor<?> componentDesc : componentDescs) {
+            StringBuilder source = new StringBuilder();
+            new ClientComponentClass((BaseComponentDef) componentDesc.getDef()).writeComponentClass(source);
+            StringWriter minified = new StringWriter();
+            JavascriptWriter.CLOSURE_SIMPLE.compress(source.toString(), minified, componentDesc.getQualifiedName());
+            assertTrue("Class of " + componentDesc + " is not minified on its own in " + classes,
+                    classes.contains(minified.toString()));
+            length += minified.toString().length();
+        }
+        assertEquals("Unexpected output between the component classes", length, classes.length());
+    }
+
+    /**
+     * A component class that has not changed is taken from the fragment cache, whichever app it is served in.
+     */
+    public void testFragmentMinifyReusesUnchangedClasses() throws Exception {
+        DefDescriptor<ComponentDef> cmpDesc = addSourceAutoCleanup(ComponentDef.class, "<aura:component/>");
+        String markup = String.format("<aura:application><%s/></aura:application>", cmpDesc.getDescriptorName());
+        getFragmentMinifiedDefinitions(addSourceAutoCleanup(ApplicationDef.class, markup));
+
+        Cache<String, String> fragments = Aura.getCachingService().getJsFragmentCache();
+        CacheStatistics before = fragments.getStatistics();
+        getFragmentMinifiedDefinitions(addSourceAutoCleanup(ApplicationDef.class, markup));
+        CacheStatistics after = fragments.getStatistics();
+
+        // only the class of the new app is compiled, aura:component and the shared component are reused.
+        assertEquals(1, after.getLoadCount() - before.getLoadCount());
+        assertTrue("Expected the unchanged classes to be cache hits",
+                after.getHitCount() - before.getHitCount() >= 2);
+    }
+
+    /**
+     * Changing a component only compiles the class of that component again.
+     */
+    public void testFragmentMinifyRecompilesOnlyChangedClass() throws Exception {
+        DefDescriptor<HelperDef> helperDesc = addSourceAutoCleanup(HelperDef.class,
+                "({greet:function(){return 'helloFromHelper';}})");
+        DefDescriptor<ComponentDef> cmpDesc = addSourceAutoCleanup(ComponentDef.class,
+                String.format("<aura:component helper='%s'/>", helperDesc.getQualifiedName()));
+        DefDescriptor<ApplicationDef> appDesc = addSourceAutoCleanup(ApplicationDef.class,
+                String.format("<aura:application><%s/></aura:application>", cmpDesc.getDescriptorName()));
+        assertTrue(getFragmentMinifiedDefinitions(appDesc).contains("helloFromHelper"));
+
+        updateStringSource(helperDesc, "({greet:function(){return 'goodbyeFromHelper';}})");
+        Cache<String, String> fragments = Aura.getCachingService().getJsFragmentCache();
+        CacheStatistics before = fragments.getStatistics();
+        String js = getFragmentMinifiedDefinitions(appDesc);
+        CacheStatistics after = fragments.getStatistics();
+
+        assertTrue("Changed helper not in " + js, js.contains("goodbyeFromHelper"));
+        assertEquals(1, after.getLoadCount() - before.getLoadCount());
+    }
+
+    private String getFragmentMinifiedDefinitions(DefDescriptor<ApplicationDef> appDesc) throws Exception {
+        AuraContext context = Aura.getContextService().startContext(Mode.PROD, Format.JS,
+                Authentication.AUTHENTICATED, appDesc);
+        try {
+            String uid = context.getDefRegistry().getUid(null, appDesc);
+            context.addLoaded(appDesc, uid);
+            Set<DefDescriptor<?>> dependencies = context.getDefRegistry().getDependencies(uid);
+            StringWriter output = new StringWriter();
+            new ServerServiceImpl(true).writeDefinitions(dependencies, output);
+            return output.toString();
+        } finally {
+            Aura.getContextService().endContext();
+        }
+    }
+
     private String getDefinitionsOutput(String source, AuraContext.Mode mode)
             throws Exception {
         DefDescriptor<ApplicationDef> appDesc = addSourceAutoCleanup(
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.integration.test.system;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.auraframework.Aura;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.impl.AuraImplTestCase;
+import org.auraframework.system.AuraContext.Authentication;
+import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.system.Source;
+import org.auraframework.util.test.annotation.ThreadHostileTest;
+
+import com.google.common.collect.Lists;
+
+/**
+ * getDef from many threads while the source of a definition changes.
+ *
+ * Readers do not take a lock, so a reader that compiled the old source may finish after the change was notified. The
+ * caches must not keep that result. The throughput under contention is measured by ContentionBenchmark in
+ * aura-benchmarks.
+ */
+@ThreadHostileTest("Fires source change notifications, which clear caches.")
+public class MasterDefRegistryImplContentionTest extends AuraImplTestCase {
+    private static final int READERS = 8;
+
+    private static final int CHANGES = 20;
+
+    public MasterDefRegistryImplContentionTest(String name) {
+        super(name, false);
+    }
+
+    public void testNoStaleDefAfterSourceChange() throws Exception {
+        final DefDescriptor<ComponentDef> changing = addSourceAutoCleanup(ComponentDef.class,
+                "<aura:component><aura:attribute name='v0' type='String'/></aura:component>");
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = Lists.newArrayList();
+
+        for (int i = 0; i < READERS; i++) {
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (running.get()) {
+                            getDefinition(changing);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            }, "contention-reader-" + i);
+            readers.add(reader);
+            reader.start();
+        }
+
+        try {
+            for (int i = 1; i <= CHANGES; i++) {
+                String attribute = "v" + i;
+                Aura.getContextService().startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+                try {
+                    Source<ComponentDef> source = Aura.getContextService().getCurrentContext().getDefRegistry()
+                            .getSource(changing);
+                    // notifies the change before it returns.
+                    source.addOrUpdate(String.format(
+                            "<aura:component><aura:attribute name='%s' type='String'/></aura:component>", attribute));
+                } finally {
+                    Aura.getContextService().endContext();
+                }
+                assertNotNull("Stale definition after change " + i,
+                        getDefinition(changing).getAttributeDef(attribute));
+            }
+        } finally {
+            running.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    /**
+     * Get a definition in a new context, so that it comes from the shared caches.
+     */
+    private ComponentDef getDefinition(DefDescriptor<ComponentDef> descriptor) throws Exception {
+        Aura.getContextService().startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+        try {
+            return Aura.getDefinitionService().getDefinition(descriptor);
+        } finally {
+            Aura.getContextService().endContext();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.integration.test.system;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.log4j.Logger;
+import org.auraframework.Aura;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.impl.AuraImplTestCase;
+import org.auraframework.impl.system.MasterDefRegistryImpl;
+import org.auraframework.system.AuraContext.Authentication;
+import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.system.MasterDefRegistry;
+import org.auraframework.util.test.annotation.ThreadHostileTest;
+import org.auraframework.util.test.util.AuraPrivateAccessor;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compare a parallel compile against the serial one.
+ *
+ * The parallel compile must produce the same uid and the same level ordered dependencies. The cold compile times of
+ * both are logged.
+ */
+@ThreadHostileTest("Clears all caches and swaps the compile pool.")
+public class MasterDefRegistryImplParallelCompileTest extends AuraImplTestCase {
+    private static final Logger logger = Logger.getLogger(MasterDefRegistryImplParallelCompileTest.class);
+
+    private Field compilePoolField;
+
+    private Object originalPool;
+
+    public MasterDefRegistryImplParallelCompileTest(String name) {
+        super(name, false);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        compilePoolField = MasterDefRegistryImpl.class.getDeclaredField("compilePool");
+        originalPool = AuraPrivateAccessor.get(MasterDefRegistryImpl.class, compilePoolField);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        AuraPrivateAccessor.set(MasterDefRegistryImpl.class, compilePoolField, originalPool);
+        super.tearDown();
+    }
+
+    public void testParallelCompileMatchesSerial() throws Exception {
+        DefDescriptor<ComponentDef> desc = Aura.getDefinitionService().getDefDescriptor("ui:dataGrid",
+                ComponentDef.class);
+        ForkJoinPool pool = new ForkJoinPool(8);
+
+        try {
+            AuraPrivateAccessor.set(MasterDefRegistryImpl.class, compilePoolField, null);
+            ColdCompile serial = compileCold(desc);
+
+            AuraPrivateAccessor.set(MasterDefRegistryImpl.class, compilePoolField, pool);
+            ColdCompile parallel = compileCold(desc);
+
+            logger.info(String.format("Cold compile of %s: serial %d ms, parallel (%d threads) %d ms", desc,
+                    serial.millis, pool.getParallelism(), parallel.millis));
+            assertEquals("Parallel compile must produce the same uid", serial.uid, parallel.uid);
+            assertEquals("Parallel compile must produce the same dependency order", serial.dependencies,
+                    parallel.dependencies);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static class ColdCompile {
+        private String uid;
+        private List<DefDescriptor<?>> dependencies;
+        private long millis;
+    }
+
+    private ColdCompile compileCold(DefDescriptor<ComponentDef> desc) throws Exception {
+        ColdCompile result = new ColdCompile();
+
+        Aura.getDefinitionService().onSourceChanged(null, null, null);
+        Aura.getContextService().startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+        try {
+            MasterDefRegistry mdr = Aura.getContextService().getCurrentContext().getDefRegistry();
+            long start = System.nanoTime();
+            result.uid = mdr.getUid(null, desc);
+            result.millis = (System.nanoTime() - start) / 1000000;
+            result.dependencies = Lists.newArrayList(mdr.getDependencies(result.uid));
+        } finally {
+            Aura.getContextService().endContext();
+        }
+        return result;
+    }
+}
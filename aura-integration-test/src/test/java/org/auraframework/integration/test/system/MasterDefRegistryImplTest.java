@@ -51,6 +51,7 @@ import org.auraframework.throwable.NoAccessException;
 import org.auraframework.throwable.quickfix.*;
 import org.auraframework.util.ServiceLoader;
 import org.auraframework.util.json.Json;
+import org.auraframework.util.resource.GeneratedResource;
 import org.auraframework.util.test.annotation.ThreadHostileTest;
 import org.auraframework.util.test.annotation.UnAdaptableTest;
 import org.auraframework.util.test.util.AuraPrivateAccessor;
@@ -344,6 +345,29 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
         assertEquals("value", masterDefReg.getCachedString(uid, houseboat, "test1"));
     }
 
+    public void testStringCacheLoader() throws Exception {
+        String namespace = "testStringCacheLoader" + getAuraTestingUtil().getNonce();
+        DefDescriptor<ApplicationDef> houseboat = addSourceAutoCleanup(ApplicationDef.class,
+                String.format(baseApplicationTag, "", ""), String.format("%s:houseboat", namespace));
+        MasterDefRegistryImplOverride masterDefReg = getDefRegistry(false);
+        String uid = masterDefReg.getUid(null, houseboat);
+        final int[] loads = new int[1];
+        MasterDefRegistry.CachedStringLoader loader = new MasterDefRegistry.CachedStringLoader() {
+            @Override
+            public String load() {
+                loads[0] += 1;
+                return "value";
+            }
+        };
+
+        GeneratedResource resource = masterDefReg.getCachedResource(uid, houseboat, "test1", loader);
+        assertEquals("value", resource.toString());
+        assertTrue("Cached resources should be off heap", resource.isDirect());
+        assertSame(resource, masterDefReg.getCachedResource(uid, houseboat, "test1", loader));
+        assertEquals("Loader should only run on a miss", 1, loads[0]);
+        assertEquals("value", masterDefReg.getCachedString(uid, houseboat, "test1"));
+    }
+
     public void testNonPrivilegedStringCache() throws Exception {
         String namespace = "testNonPrivilegedStringCache" + getAuraTestingUtil().getNonce();
 
@@ -1660,20 +1684,17 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
     private static class FakeRegistry implements DefRegistry<TypeDef> {
         public DefDescriptor<TypeDef> desc;
         public TypeDef def;
-        private final Lock rLock;
         private final Lock wLock;
 
-        public FakeRegistry(Lock rLock, Lock wLock) {
+        public FakeRegistry(Lock wLock) {
             this.desc = Aura.getDefinitionService().getDefDescriptor("java://fake.type", TypeDef.class);
             this.def = new FakeTypeDef(desc);
-            this.rLock = rLock;
             this.wLock = wLock;
         }
 
         @Override
         public TypeDef getDef(DefDescriptor<TypeDef> descriptor) throws QuickFixException {
-            Mockito.verify(rLock, Mockito.times(1)).lock();
-            Mockito.verify(rLock, Mockito.never()).unlock();
+            Mockito.verify(wLock, Mockito.never()).lock();
             if (descriptor.equals(desc)) {
                 return def;
             }
@@ -1687,8 +1708,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
 
         @Override
         public Set<DefDescriptor<TypeDef>> find(DefDescriptor<TypeDef> matcher) {
-            Mockito.verify(rLock, Mockito.times(1)).lock();
-            Mockito.verify(rLock, Mockito.never()).unlock();
+            Mockito.verify(wLock, Mockito.never()).lock();
             Set<DefDescriptor<TypeDef>> found = Sets.newHashSet();
             found.add(desc);
             return found;
@@ -1696,8 +1716,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
 
         @Override
         public Set<DefDescriptor<?>> find(DescriptorFilter matcher) {
-            Mockito.verify(rLock, Mockito.times(1)).lock();
-            Mockito.verify(rLock, Mockito.never()).unlock();
+            Mockito.verify(wLock, Mockito.never()).lock();
             Set<DefDescriptor<?>> found = Sets.newHashSet();
             found.add(desc);
             return found;
@@ -1711,8 +1730,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
 
         @Override
         public boolean exists(DefDescriptor<TypeDef> descriptor) {
-            Mockito.verify(rLock, Mockito.times(1)).lock();
-            Mockito.verify(rLock, Mockito.never()).unlock();
+            Mockito.verify(wLock, Mockito.never()).lock();
             return desc.equals(descriptor);
         }
 
@@ -1763,23 +1781,20 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
      * A private class to hold all the info for a lock test.
      *
      * This sets up the mocks so that we can test locking, if it is instantiated, you _must_ call clear() in a finally
-     * block. The locking is not real here, so have a care.
+     * block. The locking is not real here, so have a care. Readers never lock, only writers take the write lock.
      */
     private static class LockTestInfo {
         public final MasterDefRegistryImpl mdr;
         public final FakeRegistry reg;
-        public final Lock rLock;
         public final Lock wLock;
 
         public LockTestInfo() {
             ServiceLoader sl = ServiceLocatorMocker.spyOnServiceLocator();
-            this.rLock = Mockito.mock(Lock.class, "rLock");
             this.wLock = Mockito.mock(Lock.class, "wLock");
             CachingService acs = Mockito.spy(sl.get(CachingService.class));
             Mockito.stub(sl.get(CachingService.class)).toReturn(acs);
-            Mockito.stub(acs.getReadLock()).toReturn(rLock);
             Mockito.stub(acs.getWriteLock()).toReturn(wLock);
-            this.reg = new FakeRegistry(rLock, wLock);
+            this.reg = new FakeRegistry(wLock);
             this.mdr = new MasterDefRegistryImpl(reg);
         }
 
@@ -1791,7 +1806,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
     /**
      * Test getDef to ensure locking is minimized.
      *
-     * This asserts that within an MDR we only lock once for any number of getDef calls for a single def.
+     * This asserts that within an MDR we never lock for getDef calls.
      */
     public void testGetDefLocking() throws Exception {
         LockTestInfo lti = null;
@@ -1799,11 +1814,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
         lti = new LockTestInfo();
         try {
             assertEquals(lti.reg.def, lti.mdr.getDef(lti.reg.desc));
-            Mockito.verify(lti.rLock, Mockito.times(1)).lock();
-            Mockito.verify(lti.rLock, Mockito.times(1)).unlock();
             assertEquals(lti.reg.def, lti.mdr.getDef(lti.reg.desc));
-            Mockito.verify(lti.rLock, Mockito.times(1)).lock();
-            Mockito.verify(lti.rLock, Mockito.times(1)).unlock();
             Mockito.verify(lti.wLock, Mockito.never()).lock();
             Mockito.verify(lti.wLock, Mockito.never()).unlock();
         } finally {
@@ -1824,8 +1835,6 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
             lti.mdr.save(lti.reg.def);
             Mockito.verify(lti.wLock, Mockito.times(1)).lock();
             Mockito.verify(lti.wLock, Mockito.times(1)).unlock();
-            Mockito.verify(lti.rLock, Mockito.never()).lock();
-            Mockito.verify(lti.rLock, Mockito.never()).unlock();
         } finally {
             lti.clear();
         }
@@ -1834,7 +1843,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
     /**
      * Test find(desc) to ensure locking is minimized.
      *
-     * This asserts that within an MDR we only lock once for a call to find.
+     * This asserts that within an MDR we never lock for a call to find.
      */
     public void testFindDescLocking() throws Exception {
         LockTestInfo lti = null;
@@ -1842,8 +1851,6 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
         lti = new LockTestInfo();
         try {
             lti.mdr.find(lti.reg.desc);
-            Mockito.verify(lti.rLock, Mockito.times(1)).lock();
-            Mockito.verify(lti.rLock, Mockito.times(1)).unlock();
             Mockito.verify(lti.wLock, Mockito.never()).lock();
             Mockito.verify(lti.wLock, Mockito.never()).unlock();
         } finally {
@@ -1854,7 +1861,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
     /**
      * Test find(matcher) to ensure locking is minimized.
      *
-     * This asserts that within an MDR we only lock once for a call to find.
+     * This asserts that within an MDR we never lock for a call to find.
      */
     public void testFindMatcherLocking() throws Exception {
         LockTestInfo lti = null;
@@ -1862,12 +1869,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
         lti = new LockTestInfo();
         try {
             lti.mdr.find(new DescriptorFilter("bah:hum*"));
-            Mockito.verify(lti.rLock, Mockito.times(1)).lock();
-            Mockito.verify(lti.rLock, Mockito.times(1)).unlock();
             lti.mdr.find(new DescriptorFilter("bah:hum*"));
-            // we always lock, so we cannot check for a single lock here.
-            Mockito.verify(lti.rLock, Mockito.times(2)).lock();
-            Mockito.verify(lti.rLock, Mockito.times(2)).unlock();
             Mockito.verify(lti.wLock, Mockito.never()).lock();
             Mockito.verify(lti.wLock, Mockito.never()).unlock();
         } finally {
@@ -1878,7 +1880,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
     /**
      * Test exists to ensure locking is minimized.
      *
-     * This asserts that within an MDR we only lock once for any number of calls to exists.
+     * This asserts that within an MDR we never lock for calls to exists.
      */
     public void testExistsLocking() throws Exception {
         LockTestInfo lti = null;
@@ -1886,11 +1888,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
         lti = new LockTestInfo();
         try {
             lti.mdr.exists(lti.reg.desc);
-            Mockito.verify(lti.rLock, Mockito.times(1)).lock();
-            Mockito.verify(lti.rLock, Mockito.times(1)).unlock();
             lti.mdr.exists(lti.reg.desc);
-            Mockito.verify(lti.rLock, Mockito.times(1)).lock();
-            Mockito.verify(lti.rLock, Mockito.times(1)).unlock();
             Mockito.verify(lti.wLock, Mockito.never()).lock();
             Mockito.verify(lti.wLock, Mockito.never()).unlock();
         } finally {
@@ -1901,7 +1899,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
     /**
      * Test getUid for locking.
      *
-     * getUid always takes the lock, maybe we should avoid this?
+     * getUid never takes a lock, cache writes are fenced by epochs instead.
      */
     public void testGetUidLocking() throws Exception {
         LockTestInfo lti = null;
@@ -1909,12 +1907,7 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
         lti = new LockTestInfo();
         try {
             lti.mdr.getUid(null, lti.reg.desc);
-            Mockito.verify(lti.rLock, Mockito.times(1)).lock();
-            Mockito.verify(lti.rLock, Mockito.times(1)).unlock();
             lti.mdr.getUid(null, lti.reg.desc);
-            // We lock every time here. Probably should not.
-            Mockito.verify(lti.rLock, Mockito.times(2)).lock();
-            Mockito.verify(lti.rLock, Mockito.times(2)).unlock();
             Mockito.verify(lti.wLock, Mockito.never()).lock();
             Mockito.verify(lti.wLock, Mockito.never()).unlock();
         } finally {
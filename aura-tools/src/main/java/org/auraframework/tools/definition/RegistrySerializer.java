@@ -19,7 +19,6 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
@@ -35,10 +34,10 @@ import org.auraframework.def.DescriptorFilter;
 import org.auraframework.def.NamespaceDef;
 import org.auraframework.impl.source.file.FileSourceLoader;
 import org.auraframework.impl.system.StaticDefRegistryImpl;
+import org.auraframework.impl.system.StaticRegistryFile;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
-import org.auraframework.system.DefRegistry;
 import org.auraframework.system.MasterDefRegistry;
 import org.auraframework.throwable.quickfix.QuickFixException;
 
@@ -54,8 +53,9 @@ import javax.annotation.Nonnull;
  * This requires a components directory, an output directory, and optionally can take
  * a set of namespaces to exclude.
  *
- * Note that the output file is a binary object file that is a set of registries,
- * one per namespace, that contain all of the defs that are in the namespaces.
+ * Note that the output file is a binary file that is a set of registries,
+ * one per namespace, that contain all of the defs that are in the namespaces,
+ * see {@link StaticRegistryFile} for the format.
  */
 public class RegistrySerializer {
     private static final Log log = LogFactory.getLog(RegistrySerializer.class);
@@ -209,16 +209,14 @@ public class RegistrySerializer {
      * @throws RegistrySerializerException if there is an error.
      */
     public void write(@Nonnull Set<String> namespaces, @Nonnull OutputStream out) {
-        List<DefRegistry<Definition>> regs = Lists.newArrayList();
+        List<StaticDefRegistryImpl<Definition>> regs = Lists.newArrayList();
         for (String name : namespaces) {
             regs.add(getRegistry(name));
         }
 
-        ObjectOutputStream objectOut = null;
         try {
             try {
-                objectOut = new ObjectOutputStream(out);
-                objectOut.writeObject(regs);
+                StaticRegistryFile.write(regs, out);
             } finally {
                 out.close();
             }
@@ -236,7 +234,7 @@ public class RegistrySerializer {
      *
      * @param namespace the namespace for which we want to retrieve a static registry.
      */
-    private DefRegistry<Definition> getRegistry(@Nonnull String namespace) {
+    private StaticDefRegistryImpl<Definition> getRegistry(@Nonnull String namespace) {
         Set<String> prefixes = Sets.newHashSet();
         Set<DefType> types = Sets.newHashSet();
         Set<DefDescriptor<?>> descriptors;
@@ -15,16 +15,21 @@
  */
 package org.auraframework.tools.definition;
 
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
 import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.impl.system.StaticRegistryFile;
+import org.auraframework.system.DefRegistry;
 import org.auraframework.tools.definition.RegistrySerializer.RegistrySerializerException;
 import org.auraframework.tools.definition.RegistrySerializer.RegistrySerializerLogger;
 import org.auraframework.util.test.util.UnitTestCase;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 public class RegistrySerializerTest extends UnitTestCase {
     AuraComponentTestBuilder actb;
@@ -93,6 +98,29 @@ public class RegistrySerializerTest extends UnitTestCase {
         assertEquals("Error logs should be empty", 0, logger.getErrorLogEntries().size());
     }
 
+    @SuppressWarnings("unchecked")
+    public void testOutputIsIndexedRegistryFile() throws Exception {
+        TestLogger logger = new TestLogger();
+        Path compPath = actb.getComponentsPath();
+        String ns = actb.getNewNamespace();
+        DefDescriptor<ComponentDef> cmp = actb.getNewObject(ns, ComponentDef.class, "<aura:component />");
+        actb.installComponentLocationAdapter();
+        RegistrySerializer rs = new RegistrySerializer(compPath.toFile(), compPath.toFile(), null, logger);
+        rs.execute();
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(compPath.resolve(".registries")));
+        assertTrue("Expected an indexed registries file", StaticRegistryFile.isRegistryFile(buffer));
+        DefRegistry<?>[] registries = StaticRegistryFile.read(buffer);
+        assertEquals(1, registries.length);
+        DefRegistry<ComponentDef> registry = (DefRegistry<ComponentDef>) registries[0];
+        assertEquals(Sets.newHashSet(ns), registry.getNamespaces());
+        assertTrue(registry.exists(cmp));
+        assertEquals(Sets.newHashSet(cmp), registry.find(cmp));
+        ComponentDef def = registry.getDef(cmp);
+        assertEquals(cmp, def.getDescriptor());
+        assertSame("Definitions should only be loaded once", def, registry.getDef(cmp));
+    }
+
     public void testOutputInvalid() throws Exception {
         TestLogger logger = new TestLogger();
         Path compPath = actb.getComponentsPath();
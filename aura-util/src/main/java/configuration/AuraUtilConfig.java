@@ -29,7 +29,10 @@ import org.auraframework.util.type.converter.BigDecimalToIntegerConverter;
 import org.auraframework.util.type.converter.BigDecimalToLongConverter;
 import org.auraframework.util.type.converter.BigDecimalToStringConverter;
 import org.auraframework.util.type.converter.BooleanToStringConverter;
+import org.auraframework.util.type.converter.IntegerToBigDecimalConverter;
+import org.auraframework.util.type.converter.IntegerToLongConverter;
 import org.auraframework.util.type.converter.IntegerToStringConverter;
+import org.auraframework.util.type.converter.LongToBigDecimalConverter;
 import org.auraframework.util.type.converter.LongToDateConverter;
 import org.auraframework.util.type.converter.LongToIntegerConverter;
 import org.auraframework.util.type.converter.LongToStringConverter;
@@ -102,11 +105,26 @@ public class AuraUtilConfig {
         return new BooleanToStringConverter();
     }
 
+    @Impl
+    public static Converter<?, ?> auraUtilIntegerToBigDecimalConverter() {
+        return new IntegerToBigDecimalConverter();
+    }
+
+    @Impl
+    public static Converter<?, ?> auraUtilIntegerToLongConverter() {
+        return new IntegerToLongConverter();
+    }
+
     @Impl
     public static Converter<?, ?> auraUtilIntegerToStringConverter() {
         return new IntegerToStringConverter();
     }
 
+    @Impl
+    public static Converter<?, ?> auraUtilLongToBigDecimalConverter() {
+        return new LongToBigDecimalConverter();
+    }
+
     @Impl
     public static Converter<?, ?> auraUtilLongToDateConverter() {
         return new LongToDateConverter();
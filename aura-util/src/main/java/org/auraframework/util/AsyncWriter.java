@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A writer that passes what is written on to another writer from an executor, in order.
+ *
+ * A write never waits for the other writer, so a thread that generates output for other requests as well can send it
+ * to a slow client along the way. What has been written is held until it has been passed on. If the other writer
+ * fails, the rest of the output is dropped, and the failure is thrown by {@link #close()}.
+ *
+ * Only one thread writes to an AsyncWriter, and it must be closed, which waits until everything has been passed on.
+ * Closing does not close the other writer, it only flushes it.
+ */
+public class AsyncWriter extends Writer {
+    /** Marks the end of the output, compared by identity. */
+    private static final String END = new String();
+
+    private final Writer out;
+
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+
+    private final FutureTask<Void> drain;
+
+    /** Only touched by the drain, and read after it is done. */
+    private IOException failure;
+
+    private boolean closed;
+
+    /**
+     * @param out the writer to pass the output on to.
+     * @param executor runs the task that passes the output on, for as long as the writer is open.
+     */
+    public AsyncWriter(Writer out, Executor executor) {
+        this.out = out;
+        this.drain = new FutureTask<>(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, null);
+        executor.execute(drain);
+    }
+
+    private void drain() {
+        String chunk;
+        try {
+            while ((chunk = queue.take()) != END) {
+                if (failure == null) {
+                    try {
+                        out.write(chunk);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure == null) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Interrupted while passing output on");
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        write(new String(cbuf, off, len));
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        write(str.substring(off, off + len));
+    }
+
+    @Override
+    public void write(String str) throws IOException {
+        if (closed) {
+            throw new IOException("Writer closed");
+        }
+        if (!str.isEmpty()) {
+            queue.add(str);
+        }
+    }
+
+    /**
+     * Does nothing, the other writer is flushed when this is closed.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * End the output, and wait until all of it has been passed on.
+     *
+     * @throws IOException if the other writer failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            queue.add(END);
+        }
+        try {
+            drain.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for output to be passed on");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to pass output on", e.getCause());
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A Writer that encodes characters as UTF-8 straight into a byte buffer, which is written to the wrapped
+ * OutputStream when it fills.<br>
+ * <br>
+ * Java's OutputStreamWriter goes through a CharsetEncoder and a char buffer, and its append of a range of a
+ * CharSequence copies the range into a new String. This writer encodes each character in place, with a fast path
+ * for ASCII, and appends ranges without copying them, which is what the JSON encoder does for every string it
+ * escapes.<br>
+ * <br>
+ * The byte buffers are pooled (aura.utf8Writer.poolSize, the number kept), so a writer should be given back with
+ * {@link #release()}, or {@link #close()}, when it is done. A writer that is dropped simply leaves its buffer to the
+ * garbage collector.<br>
+ * <br>
+ * Unpaired surrogates are written as '?', as OutputStreamWriter does.
+ */
+@NotThreadSafe
+public class Utf8OutputStreamWriter extends Writer {
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final BlockingQueue<byte[]> pool = new ArrayBlockingQueue<>(Math.max(1,
+            Integer.getInteger("aura.utf8Writer.poolSize", 64)));
+
+    private final OutputStream out;
+
+    private byte[] buffer;
+
+    private int count;
+
+    /** The high surrogate of a pair that has not been completed yet, or 0. */
+    private char highSurrogate;
+
+    /**
+     * Create a writer with a buffer from the pool.
+     *
+     * @param out the stream to write the bytes to.
+     */
+    public Utf8OutputStreamWriter(OutputStream out) {
+        this.out = out;
+        byte[] pooled = pool.poll();
+        this.buffer = pooled != null ? pooled : new byte[BUFFER_SIZE];
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            char c = cbuf[i];
+            if (c < 0x80 && highSurrogate == 0) {
+                if (count == buffer.length) {
+                    flushBuffer();
+                }
+                buffer[count++] = (byte) c;
+            } else {
+                writeChar(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        appendRange(str, off, off + len);
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+        if (csq == null) {
+            csq = "null";
+        }
+        appendRange(csq, 0, csq.length());
+        return this;
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) {
+            csq = "null";
+        }
+        if (start < 0 || start > end || end > csq.length()) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + csq.length());
+        }
+        appendRange(csq, start, end);
+        return this;
+    }
+
+    @Override
+    public Writer append(char c) throws IOException {
+        ensureOpen();
+        writeChar(c);
+        return this;
+    }
+
+    private void appendRange(CharSequence csq, int start, int end) throws IOException {
+        ensureOpen();
+        for (int i = start; i < end; i++) {
+            char c = csq.charAt(i);
+            if (c < 0x80 && highSurrogate == 0) {
+                if (count == buffer.length) {
+                    flushBuffer();
+                }
+                buffer[count++] = (byte) c;
+            } else {
+                writeChar(c);
+            }
+        }
+    }
+
+    private void writeChar(char c) throws IOException {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                if (buffer.length - count < 4) {
+                    flushBuffer();
+                }
+                buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+                return;
+            }
+            writeChar('?');
+        }
+        if (c < 0x80) {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) c;
+        } else if (c < 0x800) {
+            if (buffer.length - count < 2) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) (0xc0 | (c >> 6));
+            buffer[count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            writeChar('?');
+        } else {
+            if (buffer.length - count < 3) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) (0xe0 | (c >> 12));
+            buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buffer[count++] = (byte) (0x80 | (c & 0x3f));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (buffer == null) {
+            throw new IOException("Writer has been released");
+        }
+    }
+
+    /**
+     * Write out the buffered bytes, and flush the stream.
+     *
+     * A high surrogate that has not been completed yet is kept, as its pair may still follow.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Write out the buffered bytes and give the buffer back to the pool, leaving the stream open.
+     *
+     * This is for a stream that is owned by someone else, e.g. a servlet response. The writer can't be used after
+     * this, but it can be released or closed again.
+     */
+    public void release() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                writeChar('?');
+            }
+            flushBuffer();
+            out.flush();
+        } finally {
+            count = 0;
+            pool.offer(buffer);
+            buffer = null;
+        }
+    }
+
+    /**
+     * Release the writer, and close the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            release();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.date;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Writes dates in ISO-8601, in GMT, straight to an Appendable.<br>
+ * <br>
+ * SimpleDateFormat can't be shared between threads, and Joda builds a DateTime and a String for every date. This
+ * works the fields out of the epoch milliseconds and appends them, so it neither locks nor allocates. The text of
+ * recently written seconds is kept in a small cache (aura.json.dateCacheSize entries, 0 turns it off), as the dates
+ * in a response tend to be close together.<br>
+ * <br>
+ * Dates before 1583 or after 9999 are left to the usual formatters, as SimpleDateFormat switches to the Julian
+ * calendar before that, and the year needs a sign or more than four digits outside it.
+ */
+@ThreadSafe
+public final class ISO8601DateWriter {
+    /** 1583-01-01T00:00:00Z */
+    private static final long MIN_MILLIS = -12212553600000L;
+
+    /** 10000-01-01T00:00:00Z */
+    private static final long MAX_MILLIS = 253402300800000L;
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    /** The length of yyyy-MM-dd'T'HH:mm:ss */
+    private static final int SECOND_LENGTH = 19;
+
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+
+    /**
+     * Recently written seconds, by the low bits of the second. Entries are immutable, so a thread that sees a stale
+     * or missing entry simply formats the second again.
+     */
+    private static final Second[] cache;
+    static {
+        int size = Integer.getInteger("aura.json.dateCacheSize", 256);
+        cache = size > 0 ? new Second[Integer.highestOneBit(size)] : null;
+    }
+
+    private ISO8601DateWriter() {
+    }
+
+    /**
+     * Write a date as yyyy-MM-dd'T'HH:mm:ss'Z', as JsonEncoder has always written dates.
+     *
+     * @param millis the milliseconds since the epoch.
+     * @param out where to write the date.
+     */
+    public static void writeDateTime(long millis, Appendable out) throws IOException {
+        if (millis < MIN_MILLIS || millis >= MAX_MILLIS) {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+            format.setTimeZone(GMT);
+            out.append(format.format(new Date(millis)));
+            return;
+        }
+        writeSecond(floorDiv(millis, 1000), out);
+        out.append('Z');
+    }
+
+    /**
+     * Write a date as yyyy-MM-dd'T'HH:mm:ss.SSS'Z', as {@link DateService#getDateTimeISO8601Converter()} formats
+     * dates.
+     *
+     * @param millis the milliseconds since the epoch.
+     * @param out where to write the date.
+     */
+    public static void writeDateTimeMillis(long millis, Appendable out) throws IOException {
+        if (millis < MIN_MILLIS || millis >= MAX_MILLIS) {
+            out.append(DateServiceImpl.get().getDateTimeISO8601Converter().format(new Date(millis)));
+            return;
+        }
+        long second = floorDiv(millis, 1000);
+        writeSecond(second, out);
+        int fraction = (int) (millis - second * 1000);
+        out.append('.');
+        out.append((char) ('0' + fraction / 100));
+        appendTwoDigits(fraction % 100, out);
+        out.append('Z');
+    }
+
+    private static void writeSecond(long second, Appendable out) throws IOException {
+        if (cache == null) {
+            appendSecond(second, out);
+            return;
+        }
+        int slot = (int) second & (cache.length - 1);
+        Second entry = cache[slot];
+        if (entry == null || entry.second != second) {
+            StringBuilder text = new StringBuilder(SECOND_LENGTH);
+            appendSecond(second, text);
+            entry = new Second(second, text.toString());
+            cache[slot] = entry;
+        }
+        out.append(entry.text);
+    }
+
+    /**
+     * Append yyyy-MM-dd'T'HH:mm:ss for a second since the epoch, in the proleptic Gregorian calendar.
+     */
+    private static void appendSecond(long second, Appendable out) throws IOException {
+        long days = floorDiv(second, SECONDS_PER_DAY);
+        int secondOfDay = (int) (second - days * SECONDS_PER_DAY);
+
+        // Shift the epoch to 0000-03-01, so that leap days fall at the end of the year, and count in 400 year eras.
+        long shifted = days + 719468;
+        long era = floorDiv(shifted, 146097);
+        int dayOfEra = (int) (shifted - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = (int) (era * 400) + yearOfEra + (month <= 2 ? 1 : 0);
+
+        appendTwoDigits(year / 100, out);
+        appendTwoDigits(year % 100, out);
+        out.append('-');
+        appendTwoDigits(month, out);
+        out.append('-');
+        appendTwoDigits(day, out);
+        out.append('T');
+        appendTwoDigits(secondOfDay / 3600, out);
+        out.append(':');
+        appendTwoDigits(secondOfDay / 60 % 60, out);
+        out.append(':');
+        appendTwoDigits(secondOfDay % 60, out);
+    }
+
+    private static void appendTwoDigits(int value, Appendable out) throws IOException {
+        out.append((char) ('0' + value / 10));
+        out.append((char) ('0' + value % 10));
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+
+    private static final class Second {
+        private final long second;
+        private final String text;
+
+        private Second(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+}
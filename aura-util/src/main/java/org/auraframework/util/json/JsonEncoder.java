@@ -21,7 +21,6 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.math.BigDecimal;
-import java.text.SimpleDateFormat;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -31,12 +30,12 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.TimeZone;
 
 import javax.annotation.Nonnull;
 
 import org.auraframework.util.AuraTextUtil;
 import org.auraframework.util.UncloseableOutputStream;
+import org.auraframework.util.date.ISO8601DateWriter;
 import org.auraframework.util.json.Serialization.ReferenceScope;
 import org.auraframework.util.json.Serialization.ReferenceType;
 
@@ -126,6 +125,9 @@ public class JsonEncoder implements Json {
     private CountingOutputStream currentBinaryStream;
     private long currentBinaryStreamLength;
 
+    /** Set while capturing a fragment, see {@link #captureFragment}. */
+    private JsonFragment.Recorder recorder;
+
     /**
      * Create a Json Serialization context object that maintains information
      * about one run. This Object is NOT thread-safe. It should only be used by
@@ -589,23 +591,92 @@ public class JsonEncoder implements Json {
         }
         ReferenceType rt = serializationContext.refSupport() ? serializer.getReferenceType(value) : ReferenceType.NONE;
         if (rt != ReferenceType.NONE) {
-            Integer refId;
-            if ((refId = getRefId(serializer.getReferenceScope(value), value)) != null) {
-                // Output a simple reference
-                writeMapBegin();
-                writeMapEntry(ApplicationKey.SERIAL_REFID.toString(), refId);
-                writeMapEnd();
+            writeReference(serializer.getReferenceScope(value), value, serializer, null);
+        } else {
+            serializer.serialize(this, value);
+        }
+    }
+
+    /**
+     * Write a value that is serialized by reference, from either its serializer or a fragment.
+     *
+     * While capturing, only the serialization itself is written, the references are left to the recorder.
+     */
+    private void writeReference(ReferenceScope rs, Object value, JsonSerializer<Object> serializer,
+            JsonFragment content) throws IOException {
+        Integer refId;
+        if ((refId = getRefId(rs, value)) != null) {
+            if (recorder != null) {
+                recorder.reference(value);
+                return;
+            }
+            // Output a simple reference
+            writeMapBegin();
+            writeMapEntry(ApplicationKey.SERIAL_REFID.toString(), refId);
+            writeMapEnd();
+        } else {
+            refId = addReference(rs, value);
+            if (recorder != null) {
+                recorder.begin(value, rs);
             } else {
-                refId = addReference(serializer.getReferenceScope(value), value);
                 // Now manually output this 2-element map to avoid loop
                 writeMapBegin();
                 writeMapEntry(ApplicationKey.SERIAL_ID.toString(), refId);
                 writeMapKey(ApplicationKey.VALUE.toString());
+            }
+            if (content != null) {
+                writeFragment(content);
+            } else {
                 serializer.serialize(this, value);
+            }
+            if (recorder != null) {
+                recorder.end();
+            } else {
                 writeMapEnd();
             }
-        } else {
-            serializer.serialize(this, value);
+        }
+    }
+
+    /**
+     * Serialize a value into a fragment that can be written into this or any other encoder with the same
+     * serialization context later on.
+     *
+     * The value is serialized on its own, as if nothing had been written before, so the fragment does not depend on
+     * the state of this encoder, and nothing is written to it. Any reference wrapper around the value is left to the
+     * caller, as it is for a serializer.
+     *
+     * @param serializer the serializer of the value.
+     * @param value the value to serialize.
+     * @return the fragment.
+     * @throws JsonException if the output is formatted, as a formatted fragment would depend on its depth.
+     */
+    public <T> JsonFragment captureFragment(JsonSerializer<T> serializer, T value) throws IOException {
+        if (isFormatting()) {
+            throw new JsonException("Fragments can't be captured with formatting on");
+        }
+        StringBuilder sb = new StringBuilder(256);
+        JsonEncoder capture = new JsonEncoder(sb, null, serializationContext);
+        capture.recorder = new JsonFragment.Recorder(sb);
+        serializer.serialize(capture, value);
+        return capture.recorder.finish();
+    }
+
+    /**
+     * Write a fragment from {@link #captureFragment} in place of serializing its value.
+     *
+     * The objects within the fragment are written as references if this encoder has already written them, and in
+     * full otherwise, just as serializing the value again would.
+     *
+     * @param fragment the fragment.
+     */
+    public void writeFragment(JsonFragment fragment) throws IOException {
+        for (Object part : fragment.getParts()) {
+            if (part instanceof String) {
+                out.append((String) part);
+            } else {
+                JsonFragment.Reference reference = (JsonFragment.Reference) part;
+                writeReference(reference.getScope(), reference.getValue(), null, reference.getContent());
+            }
         }
     }
 
@@ -629,7 +700,7 @@ public class JsonEncoder implements Json {
     @Override
     public void writeString(Object value) throws IOException {
         out.append('"');
-        out.append(AuraTextUtil.escapeForJSONString(value.toString()));
+        AuraTextUtil.escapeForJSONString(value.toString(), out);
         out.append('"');
     }
 
@@ -644,18 +715,10 @@ public class JsonEncoder implements Json {
     public void writeDate(Date value) throws IOException {
         out.append('"');
         // Use the ISO DateTime format to write the date.
-        synchronized (ISO8601FORMAT) {
-            out.append(ISO8601FORMAT.format(value));
-        }
+        ISO8601DateWriter.writeDateTime(value.getTime(), out);
         out.append('"');
     }
 
-    private static final SimpleDateFormat ISO8601FORMAT;
-    static {
-        ISO8601FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-        ISO8601FORMAT.setTimeZone(TimeZone.getTimeZone("GMT"));
-    }
-
     /**
      * Write a map in a predictable order
      * 
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.auraframework.util.json.Serialization.ReferenceScope;
+
+/**
+ * The serialized JSON of a value, captured with {@link JsonEncoder#captureFragment} so that it can be written again
+ * with {@link JsonEncoder#writeFragment}.<br>
+ * <br>
+ * With reference support on, the ids of referenced objects depend on everything that was written before, so the
+ * objects are kept rather than their ids. A fragment is text, and the objects between the text, each with the
+ * fragment of its own serialization. When it is written, each object is written as a reference if the encoder already
+ * has it, and in full otherwise, so the result is what serializing the value would have produced.<br>
+ * <br>
+ * Fragments are only valid for unformatted output, as formatted output is indented by depth.
+ */
+@Immutable
+public final class JsonFragment {
+    private final Object[] parts;
+
+    private final int length;
+
+    private JsonFragment(Object[] parts, int length) {
+        this.parts = parts;
+        this.length = length;
+    }
+
+    /**
+     * @return the number of characters of text held by the fragment, including the objects within it. With references
+     *         the written length differs, as the encoder writes the reference ids around the objects.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the text, and the {@link Reference}s between it.
+     */
+    Object[] getParts() {
+        return parts;
+    }
+
+    /**
+     * An object within a fragment. The same instance is used for every place the object occurs.
+     */
+    static final class Reference {
+        private final Object value;
+        private final ReferenceScope scope;
+        private JsonFragment content;
+
+        private Reference(Object value, ReferenceScope scope) {
+            this.value = value;
+            this.scope = scope;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        ReferenceScope getScope() {
+            return scope;
+        }
+
+        /**
+         * @return the serialization of the object.
+         */
+        JsonFragment getContent() {
+            return content;
+        }
+    }
+
+    /**
+     * Splits the output of a capturing encoder into text and references as it is written.
+     */
+    static final class Recorder {
+        private final StringBuilder out;
+        private final Map<Object, Reference> references = new IdentityHashMap<>();
+        private final ArrayDeque<Level> levels = new ArrayDeque<>();
+        private int mark;
+
+        Recorder(StringBuilder out) {
+            this.out = out;
+            this.mark = out.length();
+            levels.push(new Level(null, mark));
+        }
+
+        /**
+         * The encoder is about to write the serialization of a new object.
+         */
+        void begin(Object value, ReferenceScope scope) {
+            flushText();
+            Reference reference = new Reference(value, scope);
+            references.put(value, reference);
+            levels.peek().parts.add(reference);
+            levels.push(new Level(reference, mark));
+        }
+
+        /**
+         * The encoder has written the serialization of the object from the last {@link #begin}.
+         */
+        void end() {
+            flushText();
+            Level level = levels.pop();
+            level.reference.content = level.toFragment(mark);
+        }
+
+        /**
+         * The encoder is writing a reference to an object it has already written.
+         */
+        void reference(Object value) {
+            flushText();
+            levels.peek().parts.add(references.get(value));
+        }
+
+        JsonFragment finish() {
+            flushText();
+            if (levels.size() != 1) {
+                throw new JsonEncoder.JsonException("Unbalanced references in fragment");
+            }
+            return levels.pop().toFragment(mark);
+        }
+
+        private void flushText() {
+            int end = out.length();
+            if (end > mark) {
+                levels.peek().parts.add(out.substring(mark, end));
+                mark = end;
+            }
+        }
+
+        private static final class Level {
+            private final Reference reference;
+            private final int start;
+            private final List<Object> parts = new ArrayList<>();
+
+            private Level(Reference reference, int start) {
+                this.reference = reference;
+                this.start = start;
+            }
+
+            private JsonFragment toFragment(int end) {
+                return new JsonFragment(parts.toArray(), end - start);
+            }
+        }
+    }
+}
@@ -35,6 +35,7 @@ import java.util.TreeSet;
 import org.auraframework.util.date.DateOnly;
 import org.auraframework.util.date.DateService;
 import org.auraframework.util.date.DateServiceImpl;
+import org.auraframework.util.date.ISO8601DateWriter;
 import org.auraframework.util.javascript.Literal;
 import org.auraframework.util.json.Serialization.ReferenceScope;
 import org.auraframework.util.json.Serialization.ReferenceType;
@@ -195,9 +196,17 @@ public class JsonSerializers {
 
         @Override
         public void serialize(Json json, Date value) throws IOException {
-            DateService dateService = DateServiceImpl.get();
-            String ret = dateService.getDateTimeISO8601Converter().format(value);
-            json.writeString(ret);
+            write(json, value.getTime());
+        }
+
+        /**
+         * Write a date in the format of {@link DateService#getDateTimeISO8601Converter()}.
+         */
+        void write(Json json, long millis) throws IOException {
+            Appendable out = json.getAppendable();
+            out.append('"');
+            ISO8601DateWriter.writeDateTimeMillis(millis, out);
+            out.append('"');
         }
 
     }
@@ -217,7 +226,7 @@ public class JsonSerializers {
 
         @Override
         public void serialize(Json json, Calendar value) throws IOException {
-            json.writeValue(value.getTime());
+            DATE.write(json, value.getTimeInMillis());
         }
 
     }
@@ -41,7 +41,6 @@ import static org.auraframework.util.json.JsonConstant.WHITESPACE;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PushbackReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigDecimal;
@@ -55,7 +54,6 @@ import org.auraframework.util.Utf8InputStreamReader;
 import org.auraframework.util.json.JsonHandler.JsonValidationException;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
 import javax.annotation.Nonnull;
 
@@ -93,7 +91,7 @@ import javax.annotation.Nonnull;
  * default json->java mappings:<br>
  * json object(map) ==> java.util.HashMap<String, Object><br>
  * json String ==> java.lang.String<br>
- * json Number ==> java.math.BigDecimal<br>
+ * json Number ==> java.math.BigDecimal (Integer or Long for integers in fast parse mode)<br>
  * json boolean ==> boolean<br>
  * json null ==> null<br>
  * json array ==> java.util.ArrayList&lt;Object&gt;<br>
@@ -104,28 +102,48 @@ import javax.annotation.Nonnull;
  * pass in your own implementation of JsonHandlerProvider, and then your
  * JsonHandlers will be used. This allows you to skip the intermediate step of
  * parsing into Maps and Lists, and lets you put the primitives directly into
- * your objects as they are parsed.
+ * your objects as they are parsed.<br>
+ * <br>
+ * For large inputs, such as the messages of action requests, see
+ * {@link #setFastParseEnabled(boolean)}.
  */
 public class JsonStreamReader {
 
     private static final int MAX_LENGTH = 1000000;
     private static JsonHandlerProvider defaultProvider = new JsonHandlerProviderImpl();
-    private static Map<Character, Character> escapes = Maps.newHashMapWithExpectedSize(13);
+
+    /** The size of the chunks read from the reader in fast parse mode. */
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    /** The number of keys remembered in fast parse mode, a power of two. */
+    private static final int SYMBOL_TABLE_SIZE = 256;
+
+    /** Keys longer than this are not worth remembering. */
+    private static final int MAX_SYMBOL_LENGTH = 64;
+
+    /** The tokens of the ASCII characters, so that the common case needs no lookup. */
+    private static final JsonConstant[] asciiTokens = new JsonConstant[128];
     static {
-        escapes.put('"', '"');
-        escapes.put('\\', '\\');
-        escapes.put('/', '/');
-        escapes.put('b', '\b');
-        escapes.put('f', '\f');
-        escapes.put('n', '\n');
-        escapes.put('r', '\r');
-        escapes.put('t', '\t');
-        escapes.put('\'', '\'');
-        escapes.put('0', '\0');
-        escapes.put('v', '\u000B');
+        for (char c = 0; c < asciiTokens.length; c++) {
+            asciiTokens[c] = JsonConstant.valueOf(c);
+        }
     }
 
-    private final PushbackReader reader;
+    private final Reader reader;
+
+    /** Characters that were read one too many, read again before the reader. */
+    private final char[] pushback = new char[2];
+    private int pushbackCount = 0;
+
+    /** Characters read ahead from the reader in fast parse mode, or null. */
+    private char[] readBuffer;
+    private int readPos = 0;
+    private int readLimit = 0;
+
+    /** Strings, literals and numbers are read into this, rather than into a new builder for each token. */
+    private final StringBuilder tokenBuffer = new StringBuilder(64);
+    private boolean fastParse = false;
+    private String[] symbols;
 
     private JsonConstant currentToken;
     private Object current;
@@ -139,6 +157,7 @@ public class JsonStreamReader {
     private final DataInputStream binaryInput;
     private boolean recursiveRead = true;
     private boolean lengthLimitsEnabled = true;
+    private int maxLength = MAX_LENGTH;
 
     public JsonStreamReader(Reader reader, JsonHandlerProvider provider) {
         this(reader, null, provider);
@@ -148,7 +167,7 @@ public class JsonStreamReader {
         if (reader == null) {
             throw new JsonParseException("Reader cannot be null");
         }
-        this.reader = new PushbackReader(reader, 2);
+        this.reader = reader;
         this.binaryInput = binaryInput == null ? null
                 : (binaryInput instanceof DataInputStream ? (DataInputStream) binaryInput : new DataInputStream(
                         binaryInput));
@@ -213,6 +232,50 @@ public class JsonStreamReader {
         lengthLimitsEnabled = false;
     }
 
+    /**
+     * Set the number of characters that can be read before the input is rejected as too long, in place of the
+     * default of 1,000,000.
+     *
+     * @param maxLength the largest number of characters to read.
+     */
+    public void setMaxLength(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns whether or not fast parse mode is enabled.
+     *
+     * @see #setFastParseEnabled(boolean)
+     */
+    public boolean isFastParseEnabled() {
+        return this.fastParse;
+    }
+
+    /**
+     * Enables or disables fast parse mode, which is meant for large inputs that are read once.<br>
+     * <br>
+     * In fast parse mode:<br>
+     * -The reader is read in chunks, rather than a character at a time, unless this JsonStreamReader was created with
+     * {@link #JsonStreamReader(InputStream)}. The reader should not be used by anyone else after this.<br>
+     * -Keys of objects are looked up in a small table of the keys this JsonStreamReader has already read, so that
+     * the same key is the same String every time it occurs.<br>
+     * -Integers are returned as Integer, or Long if they don't fit, and only other numbers as BigDecimal. Whitespace
+     * ends a number.<br>
+     * <br>
+     * The handlers see the same calls in either mode, only the types of the numbers differ.
+     */
+    public void setFastParseEnabled(boolean fastParse) {
+        this.fastParse = fastParse;
+        if (fastParse) {
+            if (readBuffer == null && binaryInput == null) {
+                readBuffer = new char[READ_BUFFER_SIZE];
+            }
+            if (symbols == null) {
+                symbols = new String[SYMBOL_TABLE_SIZE];
+            }
+        }
+    }
+
     private static StringReader createStringReader(String string) {
         if (string == null) {
             throw new JsonParseException("String cannot be null");
@@ -306,6 +369,9 @@ public class JsonStreamReader {
 
     public BigDecimal getNumber() {
         assertCurrentToken(NUMBER);
+        if (current instanceof Integer || current instanceof Long) {
+            return BigDecimal.valueOf(((Number) current).longValue());
+        }
         return (BigDecimal) current;
     }
 
@@ -398,7 +464,7 @@ public class JsonStreamReader {
 
         // Read and dispatch the next character
         char c = readChar();
-        JsonConstant token = JsonConstant.valueOf(c);
+        JsonConstant token = tokenOf(c);
         switch (token) {
         case OBJECT_START:
             if (hint == FUNCTION_BODY) {
@@ -431,7 +497,7 @@ public class JsonStreamReader {
         case LITERAL_START:
             unreadChar(c);
             if (hint == STRING || Character.isJavaIdentifierStart(c)) {
-                String result = readLiteralString();
+                String result = readLiteralString(hint == STRING);
                 token = null;
                 // FIXME: we should probably check for more key words here.
                 if (result.equals("true")) {
@@ -477,7 +543,7 @@ public class JsonStreamReader {
             break;
         case QUOTE_SINGLE:
         case QUOTE_DOUBLE:
-            current = readString(token, false);
+            current = readString(token, false, hint == STRING);
             token = STRING;
             break;
         case BINARY_STREAM: {
@@ -559,11 +625,11 @@ public class JsonStreamReader {
             c = readChar();
         } while (Character.isWhitespace(c));
 
-        if (JsonConstant.valueOf(c) == COMMENT_DELIM) {
+        if (c == '/') {
             // Peek one more to see if this is a comment or not.
             c = readChar();
             unreadChar(c);
-            if (JsonConstant.valueOf(c) == COMMENT_DELIM || JsonConstant.valueOf(c) == MULTICOMMENT_DELIM) {
+            if (c == '/' || c == '*') {
                 current = readComment();
                 readWhitespaceAndComments();
             } else {
@@ -689,14 +755,17 @@ public class JsonStreamReader {
         return token;
     }
 
-    private String readString(JsonConstant delim, boolean keepEscapers) throws IOException, JsonEndOfStreamException {
-        StringBuilder sb = new StringBuilder();
+    private String readString(JsonConstant delim, boolean keepEscapers, boolean isKey) throws IOException,
+            JsonEndOfStreamException {
+        StringBuilder sb = tokenBuffer;
+        sb.setLength(0);
+        char delimChar = delim.getToken();
         boolean isEscaped = false;
         markPosition(1);
         try {
             while (true) {
                 char c = readChar();
-                if (c == delim.getToken()) {
+                if (c == delimChar) {
                     if (!isEscaped) {
                         // We consume the delimiter and call it a day.
                         break;
@@ -720,7 +789,30 @@ public class JsonStreamReader {
         } catch (JsonEndOfStreamException e) {
             throw new JsonStreamParseException("Unterminated string", sb.toString(), getLineNum(), getColNum());
         }
-        return sb.toString();
+        return isKey ? toSymbol(sb) : sb.toString();
+    }
+
+    /**
+     * Get a key as a String, reusing the String from an earlier occurrence of the key in fast parse mode.
+     *
+     * The table is direct mapped, a key that collides with another simply replaces it.
+     */
+    private String toSymbol(StringBuilder sb) {
+        int length = sb.length();
+        if (!fastParse || length > MAX_SYMBOL_LENGTH) {
+            return sb.toString();
+        }
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + sb.charAt(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (SYMBOL_TABLE_SIZE - 1);
+        String symbol = symbols[slot];
+        if (symbol == null || symbol.hashCode() != hash || !symbol.contentEquals(sb)) {
+            symbol = sb.toString();
+            symbols[slot] = symbol;
+        }
+        return symbol;
     }
 
     /**
@@ -825,7 +917,7 @@ public class JsonStreamReader {
         JsonConstant token;
         LOOP: while (true) {
             c = readChar();
-            token = JsonConstant.valueOf(c);
+            token = tokenOf(c);
             switch (token) {
             case OBJECT_START:
                 stack.push(token);
@@ -844,7 +936,7 @@ public class JsonStreamReader {
             case QUOTE_DOUBLE:
             case QUOTE_SINGLE:
                 sb.append(c);
-                sb.append(readString(token, true));
+                sb.append(readString(token, true, false));
                 break;
             case COMMENT_DELIM:
                 char delim = readChar();
@@ -862,15 +954,34 @@ public class JsonStreamReader {
     }
 
     private Number readNumber() throws IOException, JsonEndOfStreamException {
-        StringBuilder sb = new StringBuilder();
-        while (hasNext()) {
-            char c = readChar();
-            JsonConstant token = JsonConstant.valueOf(c);
-            if ((!token.equals(LITERAL_START))) {
-                unreadChar(c);
-                break;
-            } else {
-                sb.append(c);
+        StringBuilder sb = tokenBuffer;
+        sb.setLength(0);
+        if (fastParse) {
+            try {
+                while (true) {
+                    char c = readChar();
+                    if (!isLiteralChar(c)) {
+                        unreadChar(c);
+                        break;
+                    }
+                    sb.append(c);
+                }
+            } catch (JsonEndOfStreamException eof) {
+                // ignore, the number ends with the stream.
+            }
+            Number integral = readIntegral(sb);
+            if (integral != null) {
+                return integral;
+            }
+        } else {
+            while (hasNext()) {
+                char c = readChar();
+                if (!isLiteralChar(c)) {
+                    unreadChar(c);
+                    break;
+                } else {
+                    sb.append(c);
+                }
             }
         }
         BigDecimal ret;
@@ -884,7 +995,7 @@ public class JsonStreamReader {
                     return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
                 }
             }
-            ret = new BigDecimal(sb.toString());
+            ret = new BigDecimal(s);
 
         } catch (NumberFormatException e) {
             throw new JsonStreamParseException("Could not parse a number", sb.toString(), getLineNum(), getColNum(), e);
@@ -892,20 +1003,62 @@ public class JsonStreamReader {
         return ret;
     }
 
+    /**
+     * Parse an integer that fits in a long without going through a String and
+     * a BigDecimal.
+     *
+     * @return an Integer, or a Long if it doesn't fit, or null if this is not
+     *         a plain integer in the range of a long.
+     */
+    private static Number readIntegral(StringBuilder sb) {
+        int length = sb.length();
+        boolean negative = length > 0 && sb.charAt(0) == '-';
+        int start = negative ? 1 : 0;
+        if (start == length || length - start > 19) {
+            return null;
+        }
+        // Accumulate negatively, as Long.parseLong does, so that Long.MIN_VALUE fits.
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            char c = sb.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            int digit = c - '0';
+            if (value < limit / 10) {
+                return null;
+            }
+            value *= 10;
+            if (value < limit + digit) {
+                return null;
+            }
+            value -= digit;
+        }
+        if (!negative) {
+            value = -value;
+        }
+        if ((int) value == value) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
     /**
      * Literal Strings can only be used as keys in maps, so the entry separator
      * and whitespace chars are treated as the delimiters.
      *
+     * @param isKey true if this is the key of an object.
      * @return
      * @throws IOException
      */
-    private String readLiteralString() throws IOException, JsonEndOfStreamException {
-        StringBuilder sb = new StringBuilder();
+    private String readLiteralString(boolean isKey) throws IOException, JsonEndOfStreamException {
+        StringBuilder sb = tokenBuffer;
+        sb.setLength(0);
         try {
             while (true) {
                 char c = readChar();
-                JsonConstant token = JsonConstant.valueOf(c);
-                if (token != LITERAL_START) {
+                if (!isLiteralChar(c)) {
                     unreadChar(c);
                     break;
                 } else if (c == '\\') {
@@ -916,11 +1069,40 @@ public class JsonStreamReader {
         } catch (JsonEndOfStreamException eof) {
             // ignore, just return what we have.
         }
-        return sb.toString();
+        return isKey ? toSymbol(sb) : sb.toString();
+    }
+
+    private static JsonConstant tokenOf(char c) {
+        return c < asciiTokens.length ? asciiTokens[c] : JsonConstant.valueOf(c);
+    }
+
+    private static boolean isLiteralChar(char c) {
+        return tokenOf(c) == LITERAL_START;
+    }
+
+    private int read() throws IOException {
+        if (pushbackCount > 0) {
+            return pushback[--pushbackCount];
+        }
+        if (readBuffer == null) {
+            return reader.read();
+        }
+        if (readPos == readLimit) {
+            int count;
+            do {
+                count = reader.read(readBuffer, 0, readBuffer.length);
+            } while (count == 0);
+            if (count < 0) {
+                return -1;
+            }
+            readPos = 0;
+            readLimit = count;
+        }
+        return readBuffer[readPos++];
     }
 
     private char readChar() throws IOException, JsonEndOfStreamException {
-        int i = reader.read();
+        int i = read();
 
         if (i == -1) {
             throw new JsonEndOfStreamException("End of stream unexpectedly reached.");
@@ -933,7 +1115,7 @@ public class JsonStreamReader {
         // we are streaming in, and memory use is supposed to be O(1) with
         // respect to the stream length by callers
         // that are using streaming
-        if (charNum > MAX_LENGTH && lengthLimitsEnabled) {
+        if (charNum > maxLength && lengthLimitsEnabled) {
             throw new JsonStreamParseException("Input too long.");
         }
 
@@ -951,7 +1133,10 @@ public class JsonStreamReader {
     }
 
     private void unreadChar(char c) throws IOException {
-        reader.unread(c);
+        if (pushbackCount == pushback.length) {
+            throw new IOException("Pushback buffer overflow");
+        }
+        pushback[pushbackCount++] = c;
         charNum--;
         if (c == '\n') {
             colNum = prevColNum;
@@ -964,17 +1149,31 @@ public class JsonStreamReader {
     private char readEscapedChar() throws IOException, JsonEndOfStreamException {
         char c = readChar();
 
-        if (c == 'u') {
-            c = readUnicodeEscapedChar();
-        } else {
-            Character esc = escapes.get(c);
-            if (esc == null) {
-                throw new JsonStreamParseException(String.format("Unknown escape sequence : \\%c", c));
-            } else {
-                c = esc;
-            }
+        switch (c) {
+        case 'u':
+            return readUnicodeEscapedChar();
+        case '"':
+        case '\\':
+        case '/':
+        case '\'':
+            return c;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case '0':
+            return '\0';
+        case 'v':
+            return '\u000B';
+        default:
+            throw new JsonStreamParseException(String.format("Unknown escape sequence : \\%c", c));
         }
-        return c;
     }
 
     private char readUnicodeEscapedChar() throws IOException, JsonEndOfStreamException {
@@ -982,17 +1181,22 @@ public class JsonStreamReader {
         // Read the next 4 hex digits.
         int line = lineNum;
         int col = colNum;
-        StringBuilder sb = new StringBuilder(4);
+        char[] hex = new char[4];
+        int value = 0;
         for (int i = 0; i < 4; i++) {
-            sb.append(readChar());
-        }
-        char c;
-        try {
-            c = (char) Integer.parseInt(sb.toString(), 16);
-        } catch (NumberFormatException e) {
-            throw new JsonStreamParseException(e.getMessage(), sb.toString(), line, col, e);
+            hex[i] = readChar();
+            int digit = Character.digit(hex[i], 16);
+            if (digit < 0) {
+                // Read the rest, so that the error shows all four.
+                for (i++; i < 4; i++) {
+                    hex[i] = readChar();
+                }
+                String orig = new String(hex);
+                throw new JsonStreamParseException("For input string: \"" + orig + "\"", orig, line, col);
+            }
+            value = (value << 4) | digit;
         }
-        return c;
+        return (char) value;
     }
 
     public void close() throws IOException {
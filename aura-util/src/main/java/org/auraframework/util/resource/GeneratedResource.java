@@ -0,0 +1,419 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The UTF-8 bytes of a generated resource, such as the app.js or app.css of an application.
+ *
+ * Resources that are cached are encoded once into a direct buffer, so that they stay off the heap, and are written to
+ * an output stream as bytes, without being decoded or re-encoded on every request. The buffer is never modified after
+ * construction, and every read works on a duplicate, so a resource can be shared freely between threads.
+ *
+ * A cached resource that is served over HTTP can also carry its gzip encoding, computed once when the resource is
+ * built, so that it does not have to be compressed again on every response.
+ */
+public final class GeneratedResource {
+    /** The size of the heap chunks used to copy the bytes to an output stream. */
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final ThreadLocal<byte[]> chunks = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[CHUNK_SIZE];
+        }
+    };
+
+    private final ByteBuffer bytes;
+
+    /**
+     * The buffer that the bytes were given in, if it is backed by an array, so that they can be written straight from
+     * the array. The bytes themselves are a read only view, which hides the array. Never handed out.
+     */
+    private final ByteBuffer heap;
+
+    /** The gzip encoding of the bytes, or null if it was not computed. */
+    private final GeneratedResource gzipped;
+
+    private GeneratedResource(ByteBuffer bytes, GeneratedResource gzipped) {
+        this.bytes = bytes.asReadOnlyBuffer();
+        this.heap = bytes.hasArray() ? bytes.duplicate() : null;
+        this.gzipped = gzipped;
+    }
+
+    /**
+     * Encode a string into a resource held off the heap, for caching.
+     *
+     * @param value the string to encode.
+     * @return the resource.
+     */
+    public static GeneratedResource direct(String value) {
+        return new GeneratedResource(encodeDirect(value), null);
+    }
+
+    /**
+     * Encode a string into a resource held off the heap, along with its gzip encoding, for caching a resource that is
+     * served over HTTP.
+     *
+     * @param value the string to encode.
+     * @return the resource, with {@link #getGzipped()} set.
+     */
+    public static GeneratedResource compressed(String value) {
+        return withGzip(encodeDirect(value));
+    }
+
+    /**
+     * Wrap bytes that were read rather than generated, such as a static file, for caching.
+     *
+     * The bytes are not copied, so the caller must not change them afterwards. They need not be text, in which case
+     * {@link #toString()} means nothing.
+     *
+     * @param value the bytes, e.g. a heap buffer or a mapped file, from its position to its limit.
+     * @param compress true to compute the gzip encoding too.
+     * @return the resource, with {@link #getGzipped()} set if compress was true.
+     */
+    public static GeneratedResource wrap(ByteBuffer value, boolean compress) {
+        ByteBuffer plain = value.slice();
+        return compress ? withGzip(plain) : new GeneratedResource(plain, null);
+    }
+
+    private static GeneratedResource withGzip(ByteBuffer plain) {
+        ByteBuffer gzip = gzip(plain.duplicate());
+        ByteBuffer direct = ByteBuffer.allocateDirect(gzip.remaining());
+        direct.put(gzip);
+        direct.flip();
+        return new GeneratedResource(plain, new GeneratedResource(direct, null));
+    }
+
+    private static CharsetEncoder newEncoder() {
+        return StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private static ByteBuffer encodeDirect(String value) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(utf8Length(value));
+        CharsetEncoder encoder = newEncoder();
+        CoderResult result = encoder.encode(CharBuffer.wrap(value), buffer, true);
+        if (result.isUnderflow()) {
+            result = encoder.flush(buffer);
+        }
+        if (!result.isUnderflow()) {
+            // cannot happen, the buffer is sized exactly.
+            throw new IllegalStateException("Unable to encode resource: " + result);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Compress some bytes, returning a heap buffer over the result.
+     */
+    private static ByteBuffer gzip(ByteBuffer source) {
+        ExposedByteArrayOutputStream out = new ExposedByteArrayOutputStream(Math.max(64, source.remaining() / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, CHUNK_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            byte[] chunk = chunks.get();
+            while (source.hasRemaining()) {
+                int length = Math.min(chunk.length, source.remaining());
+                source.get(chunk, 0, length);
+                gzip.write(chunk, 0, length);
+            }
+        } catch (IOException ioe) {
+            // cannot happen, we are writing to memory.
+            throw new IllegalStateException(ioe);
+        }
+        return out.toByteBuffer();
+    }
+
+    /**
+     * Wrap a string in a resource on the heap, for resources that are not cached.
+     *
+     * @param value the string to encode.
+     * @return the resource.
+     */
+    public static GeneratedResource heap(String value) {
+        return new GeneratedResource(ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    /**
+     * @return the number of bytes in the resource.
+     */
+    public int length() {
+        return bytes.limit();
+    }
+
+    /**
+     * @return the gzip encoding of the resource, or null if it was not computed.
+     */
+    public GeneratedResource getGzipped() {
+        return gzipped;
+    }
+
+    /**
+     * @return the number of bytes held by the resource, including its gzip encoding.
+     */
+    public int getRetainedLength() {
+        return gzipped == null ? length() : length() + gzipped.length();
+    }
+
+    /**
+     * @return true if the bytes are held off the heap.
+     */
+    public boolean isDirect() {
+        return bytes.isDirect();
+    }
+
+    /**
+     * @return a read only view of the bytes, positioned at the start.
+     */
+    public ByteBuffer asByteBuffer() {
+        return bytes.duplicate();
+    }
+
+    /**
+     * Write the bytes to a stream.
+     *
+     * Heap bytes are written straight from their array. Direct bytes are copied out through a small per thread chunk,
+     * so the resource is never copied whole onto the heap.
+     *
+     * @param out the stream to write to.
+     * @throws IOException if the stream throws.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (heap != null) {
+            out.write(heap.array(), heap.arrayOffset() + heap.position(), heap.remaining());
+            return;
+        }
+        ByteBuffer source = bytes.duplicate();
+        byte[] chunk = chunks.get();
+        while (source.hasRemaining()) {
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    /**
+     * Write the resource to a character stream, decoding it.
+     *
+     * Prefer {@link #writeTo(OutputStream)} when the output is bytes.
+     *
+     * @param out the writer to write to.
+     * @throws IOException if the writer throws.
+     */
+    public void writeTo(Writer out) throws IOException {
+        out.write(toString());
+    }
+
+    /**
+     * Decode the resource.
+     */
+    @Override
+    public String toString() {
+        try {
+            return StandardCharsets.UTF_8.newDecoder().decode(bytes.duplicate()).toString();
+        } catch (CharacterCodingException cce) {
+            // we encoded it ourselves, so this cannot happen.
+            throw new IllegalStateException(cce);
+        }
+    }
+
+    /**
+     * Count the UTF-8 bytes of a string, treating unpaired surrogates like the encoder does (one replacement byte).
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        int size = value.length();
+        for (int i = 0; i < size; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i += 1;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Builds a resource from fragments as they are generated, passing each one on to a writer as it arrives.
+     *
+     * This lets a resource be streamed to a response or kept for the cache, or both. Each fragment is encoded as it
+     * is appended into heap blocks that are only scratch space, so the resource is never held whole as a string, and
+     * {@link #build()} makes the single off heap copy that is kept. Fragments should be complete units of output (e.g.
+     * whole JavaScript statements), so that the output ends cleanly if generation fails between two of them.
+     *
+     * A builder is used by a single thread.
+     */
+    public static final class Builder implements Appendable {
+        private static final int BLOCK_SIZE = 65536;
+
+        private final Writer out;
+
+        private final boolean keep;
+
+        private final List<ByteBuffer> blocks = new ArrayList<>();
+
+        private final CharsetEncoder encoder = newEncoder();
+
+        /** The high surrogate at the end of the last append, waiting for the low surrogate of the next, if any. */
+        private CharBuffer pending;
+
+        /**
+         * Create a builder.
+         *
+         * @param out the writer that fragments are passed on to, or null.
+         * @param keep true if the fragments should be kept to {@link #build()} a resource.
+         */
+        public Builder(Writer out, boolean keep) {
+            this.out = out;
+            this.keep = keep;
+        }
+
+        /**
+         * Append a complete fragment, writing it out and keeping it.
+         */
+        @Override
+        public Builder append(CharSequence fragment) throws IOException {
+            if (fragment == null || fragment.length() == 0) {
+                return this;
+            }
+            if (out != null) {
+                out.append(fragment);
+            }
+            if (keep) {
+                encode(fragment);
+            }
+            return this;
+        }
+
+        @Override
+        public Builder append(CharSequence csq, int start, int end) throws IOException {
+            return append(csq == null ? "null".subSequence(start, end) : csq.subSequence(start, end));
+        }
+
+        @Override
+        public Builder append(char c) throws IOException {
+            return append(String.valueOf(c));
+        }
+
+        /**
+         * Encode a fragment as more of the same input, so that a surrogate pair split between two appends is still
+         * encoded as one character. The encoder leaves such a high surrogate unread, it is kept for the next append.
+         */
+        private void encode(CharSequence fragment) {
+            CharBuffer in;
+            if (pending == null) {
+                in = CharBuffer.wrap(fragment);
+            } else {
+                in = CharBuffer.allocate(pending.remaining() + fragment.length());
+                in.put(pending).append(fragment).flip();
+                pending = null;
+            }
+            encode(in, false);
+            if (in.hasRemaining()) {
+                pending = in;
+            }
+        }
+
+        private void encode(CharBuffer in, boolean endOfInput) {
+            while (encoder.encode(in, block(), endOfInput).isOverflow()) {
+                addBlock();
+            }
+        }
+
+        private ByteBuffer block() {
+            if (blocks.isEmpty()) {
+                return addBlock();
+            }
+            return blocks.get(blocks.size() - 1);
+        }
+
+        private ByteBuffer addBlock() {
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+            blocks.add(block);
+            return block;
+        }
+
+        /**
+         * Build the resource from the fragments, along with its gzip encoding.
+         *
+         * @return the resource.
+         * @throws IllegalStateException if the builder does not keep its fragments.
+         */
+        public GeneratedResource build() {
+            if (!keep) {
+                throw new IllegalStateException("The fragments were not kept");
+            }
+            // end the input, replacing a high surrogate that was never paired.
+            encode(pending == null ? CharBuffer.allocate(0) : pending, true);
+            pending = null;
+            while (encoder.flush(block()).isOverflow()) {
+                addBlock();
+            }
+            int length = 0;
+            for (ByteBuffer block : blocks) {
+                length += block.position();
+            }
+            ByteBuffer plain = ByteBuffer.allocateDirect(length);
+            for (ByteBuffer block : blocks) {
+                plain.put(block.array(), 0, block.position());
+            }
+            blocks.clear();
+            plain.flip();
+            return withGzip(plain);
+        }
+    }
+
+    /**
+     * Avoids copying the compressed bytes out of the stream.
+     */
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        private ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
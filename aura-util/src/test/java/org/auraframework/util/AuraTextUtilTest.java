@@ -15,6 +15,8 @@
  */
 package org.auraframework.util;
 
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -191,6 +193,26 @@ public class AuraTextUtilTest extends UnitTestCase {
         }
     }
 
+    /**
+     * Escaping onto an appendable must give exactly what the string version does.
+     */
+    public void testEscapeForJSONStringAppendable() throws Exception {
+        List<String> inputs = new ArrayList<>(Arrays.asList("", "!", "!-", "!--", "a!-b", "*", "*/", "**/", "/*x*/",
+                "<!--x-->", "\u2028\u2029\u0000\t", "tail\\", "\ud83d\ude00<");
+        for (StringPair p : JSON_STRING_PAIRS) {
+            inputs.add(p.input);
+        }
+        for (String input : inputs) {
+            StringBuilder sb = new StringBuilder("x");
+            AuraTextUtil.escapeForJSONString(input, sb);
+            assertEquals(input, "x" + AuraTextUtil.escapeForJSONString(input), sb.toString());
+
+            StringWriter sw = new StringWriter();
+            AuraTextUtil.escapeForJSONString(input, sw);
+            assertEquals(input, AuraTextUtil.escapeForJSONString(input), sw.toString());
+        }
+    }
+
     private static class SplitMatch {
         public final String input;
         public final String delimiter;
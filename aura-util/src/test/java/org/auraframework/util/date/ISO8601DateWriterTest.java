@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.date;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.auraframework.util.test.util.UnitTestCase;
+
+public class ISO8601DateWriterTest extends UnitTestCase {
+    private static final long[] MILLIS = { 0L, 1L, 999L, 1000L, -1L, -1000L, -1001L, 1333322872649L,
+            951782400000L, // 2000-02-29
+            4107542399999L, // 2100-02-28T23:59:59.999
+            -12212553600000L, // 1583-01-01, the first date written here
+            -12212553600001L, // and the last one that is not
+            253402300799999L, // 9999-12-31T23:59:59.999
+            253402300800000L, // 10000-01-01
+            -62135769600000L, // 0001-01-01
+            Long.MIN_VALUE / 2, Long.MAX_VALUE / 2 };
+
+    private static String format(String pattern, long millis) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(millis));
+    }
+
+    private static String writeDateTime(long millis) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        ISO8601DateWriter.writeDateTime(millis, sb);
+        return sb.toString();
+    }
+
+    private static String writeDateTimeMillis(long millis) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        ISO8601DateWriter.writeDateTimeMillis(millis, sb);
+        return sb.toString();
+    }
+
+    public void testWriteDateTime() throws Exception {
+        for (long millis : MILLIS) {
+            assertEquals("Date(" + millis + ")", format("yyyy-MM-dd'T'HH:mm:ss'Z'", millis), writeDateTime(millis));
+        }
+        assertEquals("2012-04-01T23:27:52Z", writeDateTime(1333322872649L));
+    }
+
+    public void testWriteDateTimeMillis() throws Exception {
+        DateConverter converter = DateServiceImpl.get().getDateTimeISO8601Converter();
+        for (long millis : MILLIS) {
+            assertEquals("Date(" + millis + ")", converter.format(new Date(millis)), writeDateTimeMillis(millis));
+        }
+        assertEquals("2012-04-01T23:27:52.649Z", writeDateTimeMillis(1333322872649L));
+        assertEquals("1969-12-31T23:59:59.999Z", writeDateTimeMillis(-1L));
+    }
+
+    /**
+     * Seconds that share a slot in the cache must not be mixed up.
+     */
+    public void testWriteDateTimeRandom() throws Exception {
+        DateConverter converter = DateServiceImpl.get().getDateTimeISO8601Converter();
+        Random random = new Random(42);
+        long base = 1333322872649L;
+        for (int i = 0; i < 10000; i++) {
+            long millis = i % 2 == 0 ? base + random.nextInt(1024 * 1000) : base + random.nextLong() % (400L << 40);
+            assertEquals("Date(" + millis + ")", format("yyyy-MM-dd'T'HH:mm:ss'Z'", millis), writeDateTime(millis));
+            assertEquals("Date(" + millis + ")", converter.format(new Date(millis)), writeDateTimeMillis(millis));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.io;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.auraframework.util.AsyncWriter;
+import org.auraframework.util.test.util.UnitTestCase;
+
+/**
+ * Test cases for the AsyncWriter
+ */
+public class AsyncWriterTest extends UnitTestCase {
+
+    private ExecutorService executor;
+
+    public AsyncWriterTest(String name) {
+        super(name);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        super.tearDown();
+    }
+
+    public void testPassesOutputOnInOrder() throws Exception {
+        StringWriter out = new StringWriter();
+        StringBuilder expected = new StringBuilder();
+        Writer writer = new AsyncWriter(out, executor);
+
+        for (int i = 0; i < 1000; i++) {
+            writer.append(i + ";");
+            expected.append(i + ";");
+        }
+        writer.write(new char[] { 'a', 'b', 'c' }, 1, 2);
+        expected.append("bc");
+        writer.close();
+
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    public void testWritesDoNotWaitForSlowWriter() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        StringWriter out = new StringWriter();
+        Writer slow = new FilterWriter(out) {
+            @Override
+            public void write(String str, int off, int len) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.write(str, off, len);
+            }
+        };
+        Writer writer = new AsyncWriter(slow, executor);
+
+        writer.append("a;").append("b;");
+        assertEquals("", out.toString());
+        release.countDown();
+        writer.close();
+
+        assertEquals("a;b;", out.toString());
+    }
+
+    public void testCloseThrowsFailureOfWriter() throws Exception {
+        final IOException failure = new IOException("client gone");
+        final StringWriter written = new StringWriter();
+        Writer failing = new FilterWriter(written) {
+            @Override
+            public void write(String str, int off, int len) throws IOException {
+                if (written.getBuffer().length() > 0) {
+                    throw failure;
+                }
+                super.write(str, off, len);
+            }
+        };
+        Writer writer = new AsyncWriter(failing, executor);
+
+        writer.append("a;").append("b;").append("c;");
+        try {
+            writer.close();
+            fail("Should throw the failure of the writer");
+        } catch (IOException expected) {
+            assertSame(failure, expected);
+        }
+        assertEquals("a;", written.toString());
+    }
+
+    public void testCloseDoesNotCloseWriter() throws Exception {
+        final CountDownLatch closed = new CountDownLatch(1);
+        Writer out = new FilterWriter(new StringWriter()) {
+            @Override
+            public void close() throws IOException {
+                closed.countDown();
+                super.close();
+            }
+        };
+        Writer writer = new AsyncWriter(out, executor);
+
+        writer.append("a;");
+        writer.close();
+
+        assertEquals(1, closed.getCount());
+        try {
+            writer.append("b;");
+            fail("Should not write after close");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.auraframework.util.Utf8OutputStreamWriter;
+import org.auraframework.util.test.util.UnitTestCase;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Test cases for the Utf8OutputStreamWriter
+ */
+public class Utf8OutputStreamWriterTest extends UnitTestCase {
+
+    public Utf8OutputStreamWriterTest(String name) {
+        super(name);
+    }
+
+    private static final String MIXED = "abc éß €  😀 中文";
+
+    public void testMatchesStringEncoding() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Utf8OutputStreamWriter writer = new Utf8OutputStreamWriter(baos);
+        writer.write(MIXED);
+        writer.append(MIXED, 4, MIXED.length());
+        writer.write(MIXED.toCharArray(), 0, 6);
+        writer.append('!');
+        writer.release();
+
+        String expected = MIXED + MIXED.substring(4) + MIXED.substring(0, 6) + "!";
+        assertTrue(Arrays.equals(expected.getBytes(Charsets.UTF_8), baos.toByteArray()));
+    }
+
+    /**
+     * Characters and surrogate pairs that span buffers are written whole.
+     */
+    public void testLongOutput() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append(MIXED);
+        }
+        String expected = sb.toString();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Utf8OutputStreamWriter writer = new Utf8OutputStreamWriter(baos);
+        for (int i = 0; i < expected.length(); i++) {
+            writer.write(expected.charAt(i));
+        }
+        writer.release();
+
+        assertEquals(expected, new String(baos.toByteArray(), Charsets.UTF_8));
+    }
+
+    public void testUnpairedSurrogates() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Utf8OutputStreamWriter writer = new Utf8OutputStreamWriter(baos);
+        writer.write("a\ude00b\ud83dc\ud83d");
+        writer.release();
+
+        assertEquals("a?b?c?", new String(baos.toByteArray(), Charsets.UTF_8));
+    }
+
+    /**
+     * A pair split over two writes is still a pair.
+     */
+    public void testSurrogatePairAcrossWrites() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Utf8OutputStreamWriter writer = new Utf8OutputStreamWriter(baos);
+        writer.write("\ud83d");
+        writer.flush();
+        writer.write("\ude00");
+        writer.release();
+
+        assertEquals("😀", new String(baos.toByteArray(), Charsets.UTF_8));
+    }
+
+    public void testReleaseLeavesStreamOpen() throws Exception {
+        final boolean[] closed = { false };
+        ByteArrayOutputStream baos = new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+            }
+        };
+        Utf8OutputStreamWriter writer = new Utf8OutputStreamWriter(baos);
+        writer.write("abc");
+        writer.release();
+        assertFalse(closed[0]);
+        assertEquals("abc", baos.toString("UTF-8"));
+        try {
+            writer.write("def");
+            fail("A released writer should not be writable");
+        } catch (IOException expected) {
+        }
+        writer.close();
+        assertTrue(closed[0]);
+    }
+}
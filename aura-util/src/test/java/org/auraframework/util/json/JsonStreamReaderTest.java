@@ -1012,6 +1012,83 @@ public class JsonStreamReaderTest extends UnitTestCase {
         reader.disableLengthLimitsBecauseIAmStreamingAndMyMemoryUseIsNotProportionalToTheStreamLength();
     }
 
+    public void testMaxLength() throws Exception {
+        JsonStreamReader reader = new JsonStreamReader("['hello, world']");
+        reader.setMaxLength(8);
+        try {
+            reader.next();
+            fail("Expected the input to be too long");
+        } catch (JsonStreamParseException expected) {
+            assertTrue(expected.getMessage().startsWith("Input too long."));
+        }
+
+        reader = new JsonStreamReader("['hello, world']");
+        reader.setMaxLength(16);
+        reader.next();
+        assertEquals(Lists.newArrayList("hello, world"), reader.getList());
+    }
+
+    public void testFastParseNumbers() throws Exception {
+        jsonStreamReader = new JsonStreamReader("[1, -30, 0, 2147483648, -9223372036854775807, 12345678901234567890,"
+                + " 1.5, +2, 1e3, -Infinity]");
+        jsonStreamReader.setFastParseEnabled(true);
+        jsonStreamReader.next();
+        List<Object> expected = Arrays.<Object> asList(1, -30, 0, 2147483648L, -9223372036854775807L,
+                new BigDecimal("12345678901234567890"), new BigDecimal("1.5"), new BigDecimal(2), new BigDecimal("1e3"),
+                Double.NEGATIVE_INFINITY);
+        assertEquals(expected, jsonStreamReader.getList());
+
+        jsonStreamReader = new JsonStreamReader("42");
+        jsonStreamReader.setFastParseEnabled(true);
+        jsonStreamReader.next();
+        assertEquals(42, jsonStreamReader.getValue());
+        assertEquals(new BigDecimal(42), jsonStreamReader.getNumber());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testFastParseSharesKeys() throws Exception {
+        jsonStreamReader = new JsonStreamReader(
+                "[{\"descriptor\":\"a\",params:{}},{'descriptor':\"descriptor\",params:{}}]");
+        jsonStreamReader.setFastParseEnabled(true);
+        jsonStreamReader.next();
+        List<Object> list = jsonStreamReader.getList();
+        Map<String, Object> first = (Map<String, Object>) list.get(0);
+        Map<String, Object> second = (Map<String, Object>) list.get(1);
+        assertEquals("descriptor", second.get("descriptor"));
+
+        List<String> firstKeys = Lists.newArrayList(first.keySet());
+        List<String> secondKeys = Lists.newArrayList(second.keySet());
+        Collections.sort(firstKeys);
+        Collections.sort(secondKeys);
+        assertEquals(Arrays.asList("descriptor", "params"), firstKeys);
+        assertSame(firstKeys.get(0), secondKeys.get(0));
+        assertSame(firstKeys.get(1), secondKeys.get(1));
+        // Values are not shared.
+        assertNotSame(secondKeys.get(0), second.get("descriptor"));
+    }
+
+    public void testFastParseReadsAcrossChunks() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            if (i > 0) {
+                json.append(",");
+            }
+            json.append("{\"key\":\"value\\u00e9").append(i).append("\"}");
+            Map<String, Object> map = new HashMap<>();
+            map.put("key", "value\u00e9" + i);
+            expected.add(map);
+        }
+        json.append("]");
+
+        jsonStreamReader = new JsonStreamReader(json.toString());
+        jsonStreamReader.setFastParseEnabled(true);
+        jsonStreamReader.setMaxLength(json.length());
+        assertEquals(JsonConstant.ARRAY, jsonStreamReader.next());
+        assertEquals(expected, jsonStreamReader.getList());
+        assertFalse(jsonStreamReader.hasNext());
+    }
+
     /**
      * A convenience method to verify the functioning of JsonStreamReader. All
      * this method does is accepts a String, creates a stream with this and
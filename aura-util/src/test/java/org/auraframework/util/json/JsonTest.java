@@ -30,6 +30,7 @@ import java.util.TreeMap;
 import java.util.UUID;
 
 import org.auraframework.util.Utf8InputStreamReader;
+import org.auraframework.util.json.Serialization.ReferenceType;
 import org.auraframework.util.test.util.UnitTestCase;
 
 import com.google.common.base.Charsets;
@@ -164,6 +165,73 @@ public class JsonTest extends UnitTestCase {
                 JsonEncoder.serialize(objArray2, false, true));
     }
 
+    @Serialization(referenceType = ReferenceType.IDENTITY)
+    private static class FragmentNode implements JsonSerializable {
+        private final String name;
+        private final List<FragmentNode> children;
+
+        private FragmentNode(String name, FragmentNode... children) {
+            this.name = name;
+            this.children = Lists.newArrayList(children);
+        }
+
+        @Override
+        public void serialize(Json json) throws IOException {
+            json.writeMapBegin();
+            json.writeMapEntry("name", name);
+            json.writeMapEntry("children", children);
+            json.writeMapEnd();
+        }
+    }
+
+    /**
+     * Writing a fragment must give what serializing the value would have, whatever the encoder has written before.
+     */
+    public void testWriteFragment() throws IOException {
+        FragmentNode shared = new FragmentNode("shared");
+        FragmentNode first = new FragmentNode("first", shared, shared);
+        FragmentNode second = new FragmentNode("second", shared, first);
+        List<FragmentNode> nodes = Lists.newArrayList(second, first);
+
+        for (boolean refSupport : new boolean[] { true, false }) {
+            JsonEncoder capture = new JsonEncoder(new StringBuilder(), false, refSupport);
+            JsonFragment fragment = capture.captureFragment(
+                    capture.getSerializationContext().getSerializer(nodes), nodes);
+            if (!refSupport) {
+                assertEquals(JsonEncoder.serialize(nodes, false, false).length(), fragment.getLength());
+            }
+            assertEquals("capturing should not write to the encoder", "", capture.getAppendable().toString());
+
+            for (FragmentNode prefix : new FragmentNode[] { null, shared, first, second }) {
+                List<Object> whole = new ArrayList<>();
+                if (prefix != null) {
+                    whole.add(prefix);
+                }
+                whole.add(nodes);
+
+                JsonEncoder json = new JsonEncoder(new StringBuilder(), false, refSupport);
+                json.writeArrayBegin();
+                if (prefix != null) {
+                    json.writeArrayEntry(prefix);
+                }
+                json.writeComma();
+                json.writeFragment(fragment);
+                json.writeArrayEnd();
+                assertEquals("refSupport " + refSupport + ", after " + (prefix == null ? null : prefix.name),
+                        JsonEncoder.serialize(whole, false, refSupport), json.getAppendable().toString());
+            }
+        }
+    }
+
+    public void testCaptureFragmentFormatted() throws IOException {
+        JsonEncoder json = new JsonEncoder(new StringBuilder(), true, false);
+        try {
+            json.captureFragment(json.getSerializationContext().getSerializer("value"), "value");
+            fail("formatted output can't be captured");
+        } catch (JsonEncoder.JsonException expected) {
+        }
+    }
+
     public void testWriteMapBegin() throws IOException {
         JsonEncoder json = new JsonEncoder(new StringBuilder(), false, false);
         json.writeMapBegin();
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.auraframework.util.test.util.UnitTestCase;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Tests for aura.util.resource.GeneratedResource
+ */
+public class GeneratedResourceTest extends UnitTestCase {
+    private static final String MIXED = "ascii \u00e9\u00e8 \u4e2d\u6587 \ud83d\ude00 end";
+
+    public void testDirectRoundTrip() throws Exception {
+        GeneratedResource resource = GeneratedResource.direct(MIXED);
+
+        assertTrue(resource.isDirect());
+        assertEquals(MIXED.getBytes(StandardCharsets.UTF_8).length, resource.length());
+        assertEquals(MIXED, resource.toString());
+    }
+
+    public void testHeapRoundTrip() throws Exception {
+        GeneratedResource resource = GeneratedResource.heap(MIXED);
+
+        assertFalse(resource.isDirect());
+        assertEquals(MIXED, resource.toString());
+    }
+
+    public void testWriteToOutputStreamLargerThanChunk() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append(MIXED);
+        }
+        String value = sb.toString();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        GeneratedResource.direct(value).writeTo(out);
+
+        assertEquals(value, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    public void testWriteToIsRepeatable() throws Exception {
+        GeneratedResource resource = GeneratedResource.direct(MIXED);
+        StringWriter first = new StringWriter();
+        StringWriter second = new StringWriter();
+
+        resource.writeTo(first);
+        resource.writeTo(second);
+
+        assertEquals(MIXED, first.toString());
+        assertEquals(MIXED, second.toString());
+    }
+
+    public void testUnpairedSurrogateIsReplaced() throws Exception {
+        GeneratedResource resource = GeneratedResource.direct("a\ud800b");
+
+        assertEquals(3, resource.length());
+        assertEquals("a?b", resource.toString());
+    }
+
+    public void testEmpty() throws Exception {
+        GeneratedResource resource = GeneratedResource.direct("");
+
+        assertEquals(0, resource.length());
+        assertEquals("", resource.toString());
+    }
+
+    public void testCompressedCarriesGzip() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append(MIXED);
+        }
+        String value = sb.toString();
+
+        GeneratedResource resource = GeneratedResource.compressed(value);
+        GeneratedResource gzipped = resource.getGzipped();
+
+        assertEquals(value, resource.toString());
+        assertNotNull(gzipped);
+        assertTrue(gzipped.isDirect());
+        assertTrue(gzipped.length() < resource.length());
+        assertEquals(resource.length() + gzipped.length(), resource.getRetainedLength());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        gzipped.writeTo(out);
+        byte[] inflated = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(value, new String(inflated, StandardCharsets.UTF_8));
+    }
+
+    public void testUncompressedHasNoGzip() throws Exception {
+        assertNull(GeneratedResource.direct(MIXED).getGzipped());
+        assertNull(GeneratedResource.heap(MIXED).getGzipped());
+        assertEquals(GeneratedResource.direct(MIXED).length(), GeneratedResource.direct(MIXED).getRetainedLength());
+    }
+
+    public void testWrapSharesBytes() throws Exception {
+        byte[] bytes = { 0, 1, 2, (byte) 0xff, 4, 5 };
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(1);
+
+        GeneratedResource resource = GeneratedResource.wrap(buffer, false);
+
+        assertEquals(5, resource.length());
+        assertNull(resource.getGzipped());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        resource.writeTo(out);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(bytes, 1, 6), out.toByteArray()));
+    }
+
+    public void testHeapIsWrittenFromItsArray() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append(MIXED);
+        }
+        String value = sb.toString();
+        final int[] writes = new int[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                writes[0]++;
+                super.write(b, off, len);
+            }
+        };
+
+        GeneratedResource.heap(value).writeTo(out);
+
+        assertEquals("A heap resource should be written in one go", 1, writes[0]);
+        assertEquals(value, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    public void testWrapCompressed() throws Exception {
+        byte[] bytes = MIXED.getBytes(StandardCharsets.UTF_8);
+
+        GeneratedResource resource = GeneratedResource.wrap(ByteBuffer.wrap(bytes), true);
+
+        assertEquals(MIXED, resource.toString());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        resource.getGzipped().writeTo(out);
+        byte[] inflated = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertTrue(Arrays.equals(bytes, inflated));
+    }
+
+    public void testBuilderTeesFragments() throws Exception {
+        StringWriter out = new StringWriter();
+        GeneratedResource.Builder builder = new GeneratedResource.Builder(out, true);
+        StringBuilder expected = new StringBuilder();
+        // enough fragments to span several blocks.
+        for (int i = 0; i < 3000; i++) {
+            String fragment = i + ":" + MIXED + "\n";
+            builder.append(fragment);
+            expected.append(fragment);
+        }
+
+        GeneratedResource resource = builder.build();
+
+        assertEquals(expected.toString(), out.toString());
+        assertTrue(resource.isDirect());
+        assertEquals(expected.toString(), resource.toString());
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        resource.getGzipped().writeTo(gzipped);
+        byte[] inflated = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipped.toByteArray())));
+        assertEquals(expected.toString(), new String(inflated, StandardCharsets.UTF_8));
+    }
+
+    public void testBuilderWithoutKeepCannotBuild() throws Exception {
+        StringWriter out = new StringWriter();
+        GeneratedResource.Builder builder = new GeneratedResource.Builder(out, false);
+        builder.append("a;").append('b');
+
+        assertEquals("a;b", out.toString());
+        try {
+            builder.build();
+            fail("Should not build without keeping the fragments");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testBuilderKeepsSurrogatePairSplitBetweenAppends() throws Exception {
+        StringWriter out = new StringWriter();
+        GeneratedResource.Builder builder = new GeneratedResource.Builder(out, true);
+
+        builder.append("a").append('\ud83d').append('\ude00');
+        builder.append("x\ud83d\ude00y", 0, 2).append("x\ud83d\ude00y", 2, 4);
+        GeneratedResource resource = builder.build();
+
+        String expected = "a\ud83d\ude00x\ud83d\ude00y";
+        assertEquals(expected, out.toString());
+        assertEquals(expected, resource.toString());
+        assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, resource.length());
+    }
+
+    public void testBuilderReplacesUnpairedSurrogateAtEnd() throws Exception {
+        GeneratedResource.Builder builder = new GeneratedResource.Builder(null, true);
+
+        builder.append("a").append('\ud83d');
+
+        assertEquals("a?", builder.build().toString());
+    }
+
+    public void testBuilderWithoutWriterKeepsFragments() throws Exception {
+        GeneratedResource.Builder builder = new GeneratedResource.Builder(null, true);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            String fragment = i + ":" + MIXED + "\n";
+            builder.append(fragment);
+            expected.append(fragment);
+        }
+
+        GeneratedResource resource = builder.build();
+
+        assertTrue(resource.isDirect());
+        assertEquals(expected.toString(), resource.toString());
+    }
+}
@@ -38,6 +38,13 @@ public interface ContextAdapter extends AuraAdapter {
      */
     void release();
 
+    /**
+     * Establish a context that was released from another thread, to continue its request on this one.
+     *
+     * @param context the context.
+     */
+    void resume(AuraContext context);
+
     /**
      * Establish a new context.
      *
@@ -27,5 +27,10 @@ public interface LoggingAdapter extends AuraAdapter {
 
     void release();
 
+    /**
+     * Establish a logging context that was released from another thread, to continue its request on this one.
+     */
+    void resume(LoggingContext context);
+
     LoggingContext getLoggingContext();
 }
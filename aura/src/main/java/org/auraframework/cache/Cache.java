@@ -48,5 +48,25 @@ public interface Cache<K,T> {
 	 */
 	Object getPrivateUnderlyingCache();
 
+	/**
+	 * Record the time taken to compute a value that was (or would have been) put in the cache.
+	 *
+	 * Caches do not load values themselves, so the code that computes a value reports the time here.
+	 *
+	 * @param nanos the time taken, in nanoseconds
+	 */
+	void recordLoad(long nanos);
+
+	/**
+	 * @return a snapshot of the statistics of the cache, for admin and monitoring.
+	 */
+	CacheStatistics getStatistics();
+
+	/**
+	 * @return a snapshot of the counters of the cache, without the retained bytes, which is cheap enough to take on
+	 *         every request.
+	 */
+	CacheStatistics getCounters();
+
 
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.cache;
+
+import java.io.IOException;
+
+import org.auraframework.util.json.Json;
+import org.auraframework.util.json.JsonSerializable;
+
+/**
+ * A point in time snapshot of the statistics of a {@link Cache}.
+ *
+ * Counters that a cache does not record are -1, and are left out of the JSON.
+ */
+public final class CacheStatistics implements JsonSerializable {
+    /**
+     * The upper bounds of the load time histogram buckets, in milliseconds. The last bucket holds everything slower.
+     */
+    public static final long[] LOAD_BUCKET_MILLIS = { 1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096 };
+
+    private final String name;
+    private final long size;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long loadCount;
+    private final long totalLoadNanos;
+    private final long[] loadHistogram;
+    private final long estimatedBytes;
+
+    /**
+     * Create a snapshot.
+     *
+     * @param name the name of the cache.
+     * @param size the number of entries.
+     * @param hitCount the number of lookups that found a value, or -1.
+     * @param missCount the number of lookups that found nothing, or -1.
+     * @param evictionCount the number of entries dropped to stay in bounds, or -1.
+     * @param loadCount the number of values computed for the cache.
+     * @param totalLoadNanos the total time spent computing values.
+     * @param loadHistogram the number of loads in each of the {@link #LOAD_BUCKET_MILLIS} buckets, plus one.
+     * @param estimatedBytes the approximate heap or off heap memory retained by the entries, or -1.
+     */
+    public CacheStatistics(String name, long size, long hitCount, long missCount, long evictionCount,
+            long loadCount, long totalLoadNanos, long[] loadHistogram, long estimatedBytes) {
+        this.name = name;
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.loadCount = loadCount;
+        this.totalLoadNanos = totalLoadNanos;
+        this.loadHistogram = loadHistogram;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the fraction of lookups that found a value, or -1 if lookups are not recorded.
+     */
+    public double getHitRate() {
+        if (hitCount < 0 || missCount < 0) {
+            return -1;
+        }
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    public long getTotalLoadNanos() {
+        return totalLoadNanos;
+    }
+
+    /**
+     * @return the average time to compute a value, in milliseconds.
+     */
+    public double getAverageLoadMillis() {
+        return loadCount == 0 ? 0 : totalLoadNanos / 1000000.0 / loadCount;
+    }
+
+    /**
+     * @return a copy of the load time histogram, see {@link #LOAD_BUCKET_MILLIS}.
+     */
+    public long[] getLoadHistogram() {
+        return loadHistogram.clone();
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public void serialize(Json json) throws IOException {
+        json.writeMapBegin();
+        json.writeMapEntry("name", name);
+        json.writeMapEntry("size", size);
+        if (hitCount >= 0) {
+            json.writeMapEntry("hits", hitCount);
+        }
+        if (missCount >= 0) {
+            json.writeMapEntry("misses", missCount);
+        }
+        if (hitCount >= 0 && missCount >= 0) {
+            json.writeMapEntry("hitRate", getHitRate());
+        }
+        if (evictionCount >= 0) {
+            json.writeMapEntry("evictions", evictionCount);
+        }
+        json.writeMapEntry("loads", loadCount);
+        json.writeMapEntry("averageLoadMillis", getAverageLoadMillis());
+        json.writeMapKey("loadMillis");
+        json.writeMapBegin();
+        for (int i = 0; i < loadHistogram.length; i++) {
+            if (loadHistogram[i] > 0) {
+                String bucket = i < LOAD_BUCKET_MILLIS.length ? "<" + LOAD_BUCKET_MILLIS[i] : ">="
+                        + LOAD_BUCKET_MILLIS[LOAD_BUCKET_MILLIS.length - 1];
+                json.writeMapEntry(bucket, loadHistogram[i]);
+            }
+        }
+        json.writeMapEnd();
+        if (estimatedBytes >= 0) {
+            json.writeMapEntry("estimatedBytes", estimatedBytes);
+        }
+        json.writeMapEnd();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: size=%d, hitRate=%.3f, evictions=%d, loads=%d, averageLoadMillis=%.3f, bytes=%d",
+                name, size, getHitRate(), evictionCount, loadCount, getAverageLoadMillis(), estimatedBytes);
+    }
+}
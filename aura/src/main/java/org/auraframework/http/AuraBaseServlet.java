@@ -16,7 +16,9 @@
 package org.auraframework.http;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -56,6 +58,7 @@ import org.auraframework.throwable.NoAccessException;
 import org.auraframework.throwable.quickfix.DefinitionNotFoundException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.AuraTextUtil;
+import org.auraframework.util.Utf8OutputStreamWriter;
 import org.auraframework.util.json.JsonEncoder;
 
 import com.google.common.collect.Lists;
@@ -103,6 +106,45 @@ public abstract class AuraBaseServlet extends HttpServlet {
     public static final String OUTDATED_MESSAGE = "OUTDATED";
     protected final static StringParam csrfToken = new StringParam(AURA_PREFIX + "token", 0, true);
 
+    /**
+     * Write JSON responses as UTF-8 straight to the output stream, see {@link #getJsonWriter(HttpServletResponse)}.
+     */
+    private static final boolean jsonUtf8Stream = Boolean.getBoolean("aura.json.utf8Stream");
+
+    /**
+     * Get a writer for a JSON response.
+     *
+     * With aura.json.utf8Stream set, and a UTF-8 response, this encodes into pooled byte buffers that are written to
+     * the output stream, rather than going through the response writer and its encoder. The writer must be handed
+     * back with {@link #releaseJsonWriter(Writer)}.
+     */
+    protected static Writer getJsonWriter(HttpServletResponse response) throws IOException {
+        if (jsonUtf8Stream && UTF_ENCODING.equalsIgnoreCase(response.getCharacterEncoding())) {
+            return new Utf8OutputStreamWriter(response.getOutputStream());
+        }
+        return response.getWriter();
+    }
+
+    /**
+     * Finish with a writer from {@link #getJsonWriter(HttpServletResponse)}, writing out anything it has buffered.
+     */
+    protected static void releaseJsonWriter(Writer out) throws IOException {
+        if (out instanceof Utf8OutputStreamWriter) {
+            ((Utf8OutputStreamWriter) out).release();
+        }
+    }
+
+    /**
+     * Get the writer of a response, even if its body was started on the output stream (by a JSON writer).
+     */
+    protected static PrintWriter getResponseWriter(HttpServletResponse response) throws IOException {
+        try {
+            return response.getWriter();
+        } catch (IllegalStateException ise) {
+            return new PrintWriter(new OutputStreamWriter(response.getOutputStream(), UTF_ENCODING), true);
+        }
+    }
+
     protected static void addCookie(HttpServletResponse response, String name, String value, long expiry) {
         if (name != null) {
             Cookie cookie = new Cookie(name, value);
@@ -168,6 +210,66 @@ public abstract class AuraBaseServlet extends HttpServlet {
         response.setDateHeader(HttpHeaders.LAST_MODIFIED, now - SHORT_EXPIRE);
     }
 
+    /**
+     * Check if a request will accept a gzip encoded response.
+     *
+     * @param acceptEncoding the Accept-Encoding header of the request, may be null.
+     * @return true if gzip (or a wildcard) is accepted with a non-zero quality.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            boolean accepted = true;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        accepted = Double.parseDouble(param.substring(2).trim()) > 0;
+                    } catch (NumberFormatException nfe) {
+                        accepted = false;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * Check if a request already has the current version of a resource.
+     *
+     * If-None-Match always uses the weak comparison, so a weak tag in the header matches the same strong tag.
+     *
+     * @param ifNoneMatch the If-None-Match header of the request, may be null.
+     * @param etag the quoted entity tag of the resource.
+     * @return true if the header lists the tag, or is a wildcard.
+     */
+    public static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static String addCacheBuster(String url) {
         // This method should be moved to HttpUtil class in the future
         String uri = url;
@@ -306,7 +408,7 @@ public abstract class AuraBaseServlet extends HttpServlet {
                 mappedEx = Aura.getExceptionAdapter().handleException(mappedEx);
             }
 
-            PrintWriter out = response.getWriter();
+            PrintWriter out = getResponseWriter(response);
 
             //
             // If we have written out data, We are kinda toast in this case.
@@ -357,6 +459,7 @@ public abstract class AuraBaseServlet extends HttpServlet {
                     out.write("/*ERROR*/");
                 }
             }
+            out.flush();
         } catch (IOException ioe) {
             throw ioe;
         } catch (Throwable death) {
@@ -369,14 +472,14 @@ public abstract class AuraBaseServlet extends HttpServlet {
                 response.setStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR);
                 Aura.getExceptionAdapter().handleException(death);
                 if (!isProductionMode(context.getMode())) {
-                    response.getWriter().println(death.getMessage());
+                    getResponseWriter(response).println(death.getMessage());
                 }
             } catch (IOException ioe) {
                 throw ioe;
             } catch (Throwable doubleDeath) {
                 // we are totally hosed.
                 if (!isProductionMode(context.getMode())) {
-                    response.getWriter().println(doubleDeath.getMessage());
+                    getResponseWriter(response).println(doubleDeath.getMessage());
                 }
             }
         } finally {
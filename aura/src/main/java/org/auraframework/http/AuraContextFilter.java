@@ -109,6 +109,8 @@ public class AuraContextFilter implements Filter {
             out.append(e.getMessage());
             return;
         } finally {
+            // A request that was handed to another thread (see AuraServlet) has no context left here, so this is
+            // a no-op for it, the other thread flushes and ends it.
             try {
                 if (loggingService != null) {
                     try {
@@ -248,10 +250,21 @@ public class AuraContextFilter implements Filter {
         context.setClientLoaded(clientLoaded);
     }
 
+    /**
+     * Get the context sent by the client, from the aura.context parameter, or from the body of a POST that sends its
+     * message as JSON.
+     */
     @SuppressWarnings("unchecked")
     private Map<String, Object> getConfigMap(HttpServletRequest request) {
         Map<String, Object> configMap = null;
         String config = contextConfig.get(request);
+        if (AuraTextUtil.isNullEmptyOrWhitespace(config) && JsonMessageBody.isJsonMessage(request)) {
+            try {
+                return JsonMessageBody.get(request).getContext();
+            } catch (IOException ioe) {
+                throw new AuraRuntimeException(ioe);
+            }
+        }
         if (!AuraTextUtil.isNullEmptyOrWhitespace(config)) {
             if (config.startsWith(AuraTextUtil.urlencode("{"))) {
                 // Decode encoded context json. Serialized AuraContext json always starts with "{"
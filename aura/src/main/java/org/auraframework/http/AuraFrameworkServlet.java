@@ -15,8 +15,17 @@
  */
 package org.auraframework.http;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -27,14 +36,52 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.http.HttpHeaders;
 import org.auraframework.Aura;
 import org.auraframework.util.IOUtil;
+import org.auraframework.util.resource.GeneratedResource;
 import org.auraframework.util.resource.ResourceLoader;
+import org.auraframework.util.text.Hash;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * Serves the framework javascript and resources under /auraFW.
+ *
+ * In production the framework resources cannot change without a new framework nonce, so each resource that is served
+ * is kept in memory along with its gzip encoding (for text) and an ETag, keyed by the nonce and the resource that the
+ * request resolved to, so requests with stale or made up nonces share the entry of the resource rather than adding
+ * their own. A cached resource is served without going back to the resource loader, and is written straight from its
+ * buffer.
+ * Resources larger than aura.framework.mappedResourceBytes are mapped from the resource loader's file cache instead of
+ * being held on the heap. The cache is dropped whenever the framework nonce changes.
+ */
 public class AuraFrameworkServlet extends AuraBaseServlet {
 
     private static final long serialVersionUID = 6034969764380397480L;
     private static final ResourceLoader resourceLoader = Aura.getConfigAdapter().getResourceLoader();
     private static final String MINIFIED_FILE_SUFFIX = ".min";
 
+    /** The largest number of bytes held by cached resources, including their gzip encodings. */
+    private static final long CACHE_BYTES = Long.getLong("aura.framework.cacheBytes", 64L * 1024 * 1024);
+
+    /** The largest resource that is cached, larger ones are streamed from the resource loader every time. */
+    private static final long MAX_CACHED_RESOURCE_BYTES = Long.getLong("aura.framework.maxCachedResourceBytes",
+            8L * 1024 * 1024);
+
+    /** The smallest resource that is mapped from its file rather than read onto the heap. */
+    private static final long MAPPED_RESOURCE_BYTES = Long.getLong("aura.framework.mappedResourceBytes", 256L * 1024);
+
+    private static final Cache<String, FrameworkResource> resourceCache = CacheBuilder.newBuilder()
+            .maximumWeight(CACHE_BYTES).weigher(new Weigher<String, FrameworkResource>() {
+                @Override
+                public int weigh(String path, FrameworkResource resource) {
+                    return resource.content.getRetainedLength();
+                }
+            }).build();
+
+    /** The framework nonce that the cached resources belong to. */
+    private static volatile String resourceCacheUid;
+
     // RESOURCES_PATTERN format:
     // /required_root/optional_nonce/required_rest_of_path
     private static final Pattern RESOURCES_PATTERN = Pattern.compile("^/([^/]+)(/[-_0-9a-zA-Z]+)?(/.*)$");
@@ -148,6 +195,16 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
                 }
             }
 
+            boolean cacheable = Aura.getConfigAdapter().isProduction();
+            String cacheKey = resStr;
+            if (cacheable) {
+                FrameworkResource cached = getCachedResource(currentUid, cacheKey);
+                if (cached != null) {
+                    writeResource(request, response, cached, haveUid, matchedUid);
+                    return;
+                }
+            }
+
             // Checks for a minified version of the external resource file
             // Uses the minified version if in production mode.
             if (resStr.startsWith("/aura/resources/") && Aura.getConfigAdapter().isProduction()) {
@@ -160,6 +217,22 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
                 }
             }
 
+            // handle any MIME content type, using only file name (not contents)
+            String mimeType = mimeTypesMap.getContentType(path);
+
+            if (mimeType.equals("application/octet-stream") || mimeType.equals(JAVASCRIPT_CONTENT_TYPE)) /* unidentified */{
+                mimeType = JAVASCRIPT_CONTENT_TYPE;
+            }
+
+            if (cacheable) {
+                FrameworkResource loaded = loadResource(resStr, mimeType);
+                if (loaded != null) {
+                    putCachedResource(currentUid, cacheKey, loaded);
+                    writeResource(request, response, loaded, haveUid, matchedUid);
+                    return;
+                }
+            }
+
             in = resourceLoader.getResourceAsStream(resStr);
 
             //
@@ -171,45 +244,9 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
                 response.sendError(HttpServletResponse.SC_NOT_FOUND);
                 return;
             }
-            response.reset();
-            setBasicHeaders(null, request, response);
-            
-            // handle any MIME content type, using only file name (not contents)
-            String mimeType = mimeTypesMap.getContentType(path);
-
-            if (mimeType.equals("application/octet-stream") || mimeType.equals(JAVASCRIPT_CONTENT_TYPE)) /* unidentified */{
-                mimeType = JAVASCRIPT_CONTENT_TYPE;
-            }
-            response.setContentType(mimeType);
-            if (mimeType.startsWith("text/")) {
-                response.setCharacterEncoding(AuraBaseServlet.UTF_ENCODING);
-            }
-
+            setResourceHeaders(request, response, mimeType, haveUid, matchedUid);
             response.setBufferSize(10240);// 10kb
 
-            boolean js = JAVASCRIPT_CONTENT_TYPE.equals(mimeType);
-            if ((haveUid && !matchedUid) || (!haveUid && js)) {
-                //
-                // If we had a mismatched UID or we had none, and are requesting js (legacy) we set a short
-                // cache response.
-                //
-                setNoCache(response);
-            } else if (matchedUid || js) {
-                //
-                // If we have a known good state, we send a long expire. Warning, this means that resources other
-                // than js may have to impact the MD5, which could make it cycle more than we would like.
-                //
-                // TODO: if we want to have things not included in the fw uid use the fw-uid nonce,
-                // we need to adjust to drop the matchedUid.
-                //
-                setLongCache(response);
-            } else {
-                //
-                // By default we use short expire. (1 day)
-                //
-                setShortCache(response);
-            }
-
             IOUtil.copyStream(in, response.getOutputStream());
         } finally {
             if (in != null) {
@@ -221,4 +258,159 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
             }
         }
     }
+
+    /**
+     * Reset the response and set the content type and cache headers of a resource.
+     */
+    private void setResourceHeaders(HttpServletRequest request, HttpServletResponse response, String mimeType,
+            boolean haveUid, boolean matchedUid) {
+        response.reset();
+        setBasicHeaders(null, request, response);
+
+        response.setContentType(mimeType);
+        if (mimeType.startsWith("text/")) {
+            response.setCharacterEncoding(AuraBaseServlet.UTF_ENCODING);
+        }
+
+        boolean js = JAVASCRIPT_CONTENT_TYPE.equals(mimeType);
+        if ((haveUid && !matchedUid) || (!haveUid && js)) {
+            //
+            // If we had a mismatched UID or we had none, and are requesting js (legacy) we set a short
+            // cache response.
+            //
+            setNoCache(response);
+        } else if (matchedUid || js) {
+            //
+            // If we have a known good state, we send a long expire. Warning, this means that resources other
+            // than js may have to impact the MD5, which could make it cycle more than we would like.
+            //
+            // TODO: if we want to have things not included in the fw uid use the fw-uid nonce,
+            // we need to adjust to drop the matchedUid.
+            //
+            setLongCache(response);
+        } else {
+            //
+            // By default we use short expire. (1 day)
+            //
+            setShortCache(response);
+        }
+    }
+
+    /**
+     * Write a cached resource, or a 304 if the client already has it.
+     *
+     * The ETag of the gzip encoding differs from that of the plain bytes, as the response varies by Accept-Encoding,
+     * but either one tells us that the client has the resource. Setting the Content-Encoding header keeps the
+     * compressing filter from compressing the response again.
+     */
+    private void writeResource(HttpServletRequest request, HttpServletResponse response, FrameworkResource resource,
+            boolean haveUid, boolean matchedUid) throws IOException {
+        setResourceHeaders(request, response, resource.mimeType, haveUid, matchedUid);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (matchesETag(ifNoneMatch, resource.etag) || matchesETag(ifNoneMatch, resource.gzipETag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        GeneratedResource content = resource.content;
+        GeneratedResource gzipped = content.getGzipped();
+        if (gzipped != null) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                response.setHeader(HttpHeaders.ETAG, resource.gzipETag);
+                content = gzipped;
+            } else {
+                response.setHeader(HttpHeaders.ETAG, resource.etag);
+            }
+        } else {
+            response.setHeader(HttpHeaders.ETAG, resource.etag);
+        }
+        response.setContentLength(content.length());
+        content.writeTo(response.getOutputStream());
+    }
+
+    /**
+     * Entries are keyed by the nonce as well as the resource, so that a request that raced with a change of nonce can
+     * never put an old resource under the new one. The resource is the one named by the request, before any minified
+     * version is substituted, so that a hit does not need to look for one.
+     */
+    private static FrameworkResource getCachedResource(String uid, String resStr) {
+        if (uid == null) {
+            return null;
+        }
+        return resourceCache.getIfPresent(uid + resStr);
+    }
+
+    private static void putCachedResource(String uid, String resStr, FrameworkResource resource) {
+        if (uid == null) {
+            return;
+        }
+        if (!uid.equals(resourceCacheUid)) {
+            // A new framework, drop the old resources rather than waiting for them to be evicted.
+            resourceCache.invalidateAll();
+            resourceCacheUid = uid;
+        }
+        resourceCache.put(uid + resStr, resource);
+    }
+
+    /**
+     * Load a resource for the cache from the resource loader's copy of it.
+     *
+     * @return the resource, or null if it is too large or there is no file to read it from.
+     */
+    private static FrameworkResource loadResource(String resStr, String mimeType) throws IOException {
+        File file;
+        try {
+            URL url = resourceLoader.getCachedResourceUrl(resStr.substring(1));
+            file = url == null ? null : new File(url.getPath());
+        } catch (ExecutionException ee) {
+            return null;
+        }
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        ByteBuffer bytes;
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            long size = channel.size();
+            if (size > MAX_CACHED_RESOURCE_BYTES) {
+                return null;
+            }
+            if (size >= MAPPED_RESOURCE_BYTES) {
+                bytes = channel.map(MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // keep reading until full.
+                }
+                bytes.flip();
+            }
+        }
+        boolean compress = mimeType.startsWith("text/") || mimeType.equals(SVG_CONTENT_TYPE);
+        return new FrameworkResource(GeneratedResource.wrap(bytes, compress), mimeType);
+    }
+
+    /**
+     * A resolved framework resource, with everything needed to serve it.
+     */
+    private static final class FrameworkResource {
+        private final GeneratedResource content;
+        private final String mimeType;
+        private final String etag;
+        private final String gzipETag;
+
+        private FrameworkResource(GeneratedResource content, String mimeType) {
+            this.content = content;
+            this.mimeType = mimeType;
+            String hash;
+            try {
+                MessageDigest digest = MessageDigest.getInstance("MD5");
+                digest.update(content.asByteBuffer());
+                hash = new Hash(digest.digest()).toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("MD-5 is a required hash algorithm, but isn't defined", e);
+            }
+            this.etag = "\"" + hash + "\"";
+            this.gzipETag = "\"" + hash + "-gzip\"";
+        }
+    }
 }
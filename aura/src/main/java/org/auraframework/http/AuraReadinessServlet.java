@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.auraframework.Aura;
+import org.auraframework.service.ServerService;
+
+import com.google.common.net.HttpHeaders;
+
+/**
+ * Readiness check for a load balancer or orchestrator: a 503 until the app.js and app.css served before the last
+ * restart have been built again (see {@link ServerService#startWarmUp()}), then a 200.
+ */
+@SuppressWarnings("serial")
+public class AuraReadinessServlet extends HttpServlet {
+
+    // KEEP THIS URL IN SYNC WITH THE SERVLET'S URL-MAPPING ENTRY IN WEB.XML!
+    public static final String URL = "/_/ready";
+
+    /** How long a client is told to wait before checking again, in seconds. */
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        // Normally already started by AuraServlet, this covers a check that arrives first.
+        Aura.getServerService().startWarmUp();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        resp.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache, no-store");
+        resp.setContentType("text/plain");
+        if (Aura.getServerService().isWarmedUp()) {
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.getWriter().write("ready");
+        } else {
+            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            resp.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            resp.getWriter().write("warming up");
+        }
+    }
+
+    @Override
+    protected void doHead(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        doGet(req, resp);
+    }
+}
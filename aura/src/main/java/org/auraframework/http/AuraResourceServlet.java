@@ -42,10 +42,12 @@ import org.auraframework.http.RequestParam.StringParam;
 import org.auraframework.instance.Component;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.InstanceService;
+import org.auraframework.service.LoggingService;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.MasterDefRegistry;
 import org.auraframework.throwable.ClientOutOfSyncException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.resource.GeneratedResource;
 
 import com.google.common.collect.Maps;
 
@@ -69,6 +71,9 @@ public class AuraResourceServlet extends AuraBaseServlet {
     private static final long serialVersionUID = -3642790050433142397L;
     public static final String ORIG_REQUEST_URI = "aura.origRequestURI";
 
+    /** The request attribute holding the ETag of the app.js, app.css or component JSON being served, if any. */
+    private static final String RESOURCE_ETAG = "aura.resourceETag";
+
     protected static final StringParam lookup = new StringParam(AuraServlet.AURA_PREFIX + "lookup", 0, false);
 
     private static ServletContext servletContext;
@@ -85,8 +90,11 @@ public class AuraResourceServlet extends AuraBaseServlet {
      * Finally, if there is no descriptor given, we simply ignore the request and give them an empty response. Which is
      * done here by returning null.
      * 
-     * Also note that this handles the 'if-modified-since' header, as we want to tell the browser that nothing changed
-     * in that case.
+     * Also note that this handles the 'if-modified-since' and 'if-none-match' headers, as we want to tell the browser
+     * that nothing changed in that case. Both are answered before the dependencies are computed, as that is most of
+     * the cost of a request that would otherwise be served from the resource cache. Only the app.js and app.css of an
+     * application, and component JSON, have an ETag. It is left in a request attribute for {@link #writeResource} to
+     * set, as it only holds for the bytes of the cached resource, or for the JSON to set as a weak tag.
      * 
      * @param request the request (for exception handling)
      * @param response the response (for exception handling)
@@ -109,8 +117,14 @@ public class AuraResourceServlet extends AuraBaseServlet {
             //
             return null;
         }
+        LoggingService loggingService = Aura.getLoggingService();
         long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifModifiedSince != -1 || ifNoneMatch != null) {
+            loggingService.incrementNum(LoggingService.CONDITIONAL_GET_COUNT);
+        }
         String uid = context.getUid(appDesc);
+        String etag = null;
         try {
             try {
                 definitionService.updateLoaded(appDesc);
@@ -119,9 +133,23 @@ public class AuraResourceServlet extends AuraBaseServlet {
                     // In this case, we have an unmodified descriptor, so just tell
                     // the client that.
                     //
+                    loggingService.incrementNum(LoggingService.NOT_MODIFIED_COUNT);
                     response.sendError(HttpServletResponse.SC_NOT_MODIFIED);
                     return null;
                 }
+                String tag = isTaggedRequest(request, context)
+                        ? Aura.getServerService().getResourceTag(context.getFormat()) : null;
+                if (tag != null) {
+                    etag = "\"" + tag + "\"";
+                    if (matchesETag(ifNoneMatch, etag) || matchesETag(ifNoneMatch, getGzipETag(etag))) {
+                        loggingService.incrementNum(LoggingService.NOT_MODIFIED_COUNT);
+                        setLongCache(response);
+                        response.setHeader(HttpHeaders.ETAG,
+                                context.getFormat() == AuraContext.Format.JSON ? getWeakETag(etag) : etag);
+                        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                        return null;
+                    }
+                }
             } catch (ClientOutOfSyncException coose) {
                 //
                 // We can't actually handle an out of sync here, since we are doing a
@@ -164,12 +192,42 @@ public class AuraResourceServlet extends AuraBaseServlet {
             return mdr.getDependencies(qfeUid);
         }
         setLongCache(response);
+        if (etag != null) {
+            request.setAttribute(RESOURCE_ETAG, etag);
+        }
         if (uid == null) {
             uid = context.getUid(appDesc);
         }
         return mdr.getDependencies(uid);
     }
 
+    /**
+     * Only app.js, app.css and component JSON are tagged. Client library JS and CSS are not identified by the app's
+     * tag.
+     */
+    private boolean isTaggedRequest(HttpServletRequest request, AuraContext context) {
+        AuraContext.Format format = context.getFormat();
+        if (format == AuraContext.Format.JSON) {
+            return true;
+        }
+        return (format == AuraContext.Format.JS || format == AuraContext.Format.CSS) && isAppRequest(request);
+    }
+
+    /**
+     * The weak form of a tag, for output that is streamed. It may be gzipped by the compressing filter, so the tag
+     * only says that the content is the same, not the bytes.
+     */
+    private static String getWeakETag(String etag) {
+        return "W/" + etag;
+    }
+
+    /**
+     * The tag of the gzip encoding of a resource, which has to differ from that of the plain bytes.
+     */
+    private static String getGzipETag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
     /**
      * Write out the manifest.
      * 
@@ -297,12 +355,94 @@ public class AuraResourceServlet extends AuraBaseServlet {
         }
     }
 
+    /**
+     * Write the CSS for an app or its client libraries.
+     *
+     * App CSS is fetched as UTF-8 bytes before anything is written, and then copied straight to the output stream.
+     * Since the response has not been touched if the fetch fails, the error can still be written to it.
+     */
     private void writeCss(HttpServletRequest request, Set<DefDescriptor<?>> dependencies, AuraContext context,
-            Writer out) throws IOException, QuickFixException {
+            HttpServletResponse response) throws IOException, QuickFixException {
         if (isAppRequest(request)) {
-            Aura.getServerService().writeAppCss(dependencies, out);
+            GeneratedResource css = Aura.getServerService().getAppCss(dependencies);
+            writeResource(request, response, css);
         } else {
-            Aura.getClientLibraryService().writeCss(context, out);
+            Aura.getClientLibraryService().writeCss(context, response.getWriter());
+        }
+    }
+
+    /**
+     * Write a generated resource, using its precomputed gzip encoding if it has one and the client accepts it.
+     *
+     * Setting the Content-Encoding header keeps the compressing filter from compressing the response again. The
+     * response varies by Accept-Encoding whichever way it goes, so that a shared cache never serves gzip to a client
+     * that did not ask for it. The ETag found by {@link #handleTopLevel} is set here, as the exact bytes written are
+     * only known here.
+     */
+    private void writeResource(HttpServletRequest request, HttpServletResponse response, GeneratedResource resource)
+            throws IOException {
+        GeneratedResource gzipped = resource.getGzipped();
+        String etag = (String) request.getAttribute(RESOURCE_ETAG);
+        boolean acceptsGzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzipped != null && acceptsGzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            if (etag != null) {
+                etag = getGzipETag(etag);
+            }
+            resource = gzipped;
+        } else if (acceptsGzip) {
+            // the compressing filter will encode the bytes, so the tag of the plain bytes does not hold.
+            etag = null;
+        }
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        response.setContentLength(resource.length());
+        resource.writeTo(response.getOutputStream());
+    }
+
+    /**
+     * A writer that only gets the response writer when it is first written to, so that a response that turns out
+     * not to need it can still use the output stream.
+     */
+    private static class ResponseWriter extends Writer {
+        private final HttpServletResponse response;
+
+        private Writer out;
+
+        private ResponseWriter(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        private Writer getOut() throws IOException {
+            if (out == null) {
+                out = response.getWriter();
+            }
+            return out;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            getOut().write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            getOut().write(str, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the container closes the response.
+            flush();
         }
     }
 
@@ -314,12 +454,22 @@ public class AuraResourceServlet extends AuraBaseServlet {
         return false;
     }
 
+    /**
+     * Write the JS for an app or its client libraries.
+     *
+     * @see #writeCss(HttpServletRequest, Set, AuraContext, HttpServletResponse)
+     */
     private void writeJs(HttpServletRequest request, Set<DefDescriptor<?>> dependencies, AuraContext context,
-            Writer out) throws IOException, QuickFixException {
+            HttpServletResponse response) throws IOException, QuickFixException {
         if (isAppRequest(request)) {
-            Aura.getServerService().writeDefinitions(dependencies, out);
+            // definitions that have to be generated are streamed, the rest are written as bytes.
+            GeneratedResource js = Aura.getServerService().streamDefinitions(dependencies,
+                    new ResponseWriter(response));
+            if (js != null) {
+                writeResource(request, response, js);
+            }
         } else {
-            Aura.getClientLibraryService().writeJs(context, out);
+            Aura.getClientLibraryService().writeJs(context, response.getWriter());
         }
     }
 
@@ -427,7 +577,7 @@ public class AuraResourceServlet extends AuraBaseServlet {
                 return;
             }
             try {
-                writeCss(request, topLevel, context, response.getWriter());
+                writeCss(request, topLevel, context, response);
             } catch (Throwable t) {
                 handleServletException(t, true, context, request, response, true);
             }
@@ -438,7 +588,7 @@ public class AuraResourceServlet extends AuraBaseServlet {
                 return;
             }
             try {
-                writeJs(request, topLevel, context, response.getWriter());
+                writeJs(request, topLevel, context, response);
             } catch (Throwable t) {
                 handleServletException(t, true, context, request, response, true);
             }
@@ -455,7 +605,16 @@ public class AuraResourceServlet extends AuraBaseServlet {
                 return;
             }
             try {
-                Aura.getServerService().writeComponents(topLevel, response.getWriter());
+                String etag = (String) request.getAttribute(RESOURCE_ETAG);
+                if (etag != null) {
+                    response.setHeader(HttpHeaders.ETAG, getWeakETag(etag));
+                }
+                Writer out = getJsonWriter(response);
+                try {
+                    Aura.getServerService().writeComponents(topLevel, out);
+                } finally {
+                    releaseJsonWriter(out);
+                }
             } catch (Throwable t) {
                 handleServletException(t, true, context, request, response, true);
             }
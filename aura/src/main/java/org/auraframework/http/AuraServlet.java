@@ -17,17 +17,31 @@ package org.auraframework.http;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.auraframework.Aura;
 import org.auraframework.def.ApplicationDef;
 import org.auraframework.def.BaseComponentDef;
@@ -38,6 +52,7 @@ import org.auraframework.http.RequestParam.EnumParam;
 import org.auraframework.http.RequestParam.StringParam;
 import org.auraframework.instance.Action;
 import org.auraframework.service.ContextService;
+import org.auraframework.service.ContextService.SuspendedContext;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.LoggingService;
 import org.auraframework.service.SerializationService;
@@ -54,6 +69,7 @@ import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.JsonStreamReader.JsonParseException;
 
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * The servlet for initialization and actions in Aura.
@@ -90,6 +106,11 @@ import com.google.common.collect.Maps;
  * Exception handling is dealt with in {@link #handleServletException} which should almost always be called when
  * exceptions are caught. This routine will use {@link org.auraframework.adapter.ExceptionAdapter ExceptionAdapter} to
  * log and rewrite exceptions as necessary.
+ *
+ * Actions can be run off the container threads, so that slow actions do not hold on to them, by setting
+ * aura.post.asyncThreads to the size of a pool to run them in. The servlet and the filters in front of it must then
+ * support async requests, otherwise POSTs are run synchronously as usual. The response of an async POST is buffered
+ * until its actions are done. See {@link #runAsync(HttpServletRequest, HttpServletResponse, Message, Map)}.
  */
 public class AuraServlet extends AuraBaseServlet {
     private static final long serialVersionUID = 2218469644108785216L;
@@ -104,9 +125,37 @@ public class AuraServlet extends AuraBaseServlet {
     // FIXME: is this really a good idea?
     private final static StringParam nocacheParam = new StringParam("nocache", 0, false);
 
+    private static final Log LOG = LogFactory.getLog(AuraServlet.class);
+
+    /** The number of threads that run actions off the container threads, 0 to run them synchronously. */
+    private static final int ASYNC_THREADS = Integer.getInteger("aura.post.asyncThreads", 0);
+
+    /** The number of async POSTs that can wait for a thread before they are run on the container thread. */
+    private static final int ASYNC_QUEUE_SIZE = Integer.getInteger("aura.post.asyncQueueSize", 1000);
+
+    /** How long an async POST can take before it is answered with a 503. */
+    private static final long ASYNC_TIMEOUT_MILLIS = Long.getLong("aura.post.asyncTimeoutMillis", 60000);
+
+    private transient ThreadPoolExecutor asyncExecutor;
+
     @Override
     public void init() throws ServletException {
         super.init();
+        if (ASYNC_THREADS > 0) {
+            asyncExecutor = new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(ASYNC_QUEUE_SIZE),
+                    new ThreadFactoryBuilder().setNameFormat("AuraAction-%d").setDaemon(true).build());
+            asyncExecutor.allowCoreThreadTimeOut(true);
+        }
+        Aura.getServerService().startWarmUp();
+    }
+
+    @Override
+    public void destroy() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+        }
+        super.destroy();
     }
 
     /**
@@ -384,7 +433,7 @@ public class AuraServlet extends AuraBaseServlet {
                 throw new AuraRuntimeException("Invalid request, post must use JSON");
             }
             response.setContentType(getContentType(Format.JSON));
-            String msg = messageParam.get(request);
+            Reader msg = getMessageReader(request);
             if (msg == null) {
                 throw new AuraRuntimeException("Invalid request, no message");
             }
@@ -399,7 +448,7 @@ public class AuraServlet extends AuraBaseServlet {
 
             loggingService.startTimer(LoggingService.TIMER_DESERIALIZATION);
             try {
-                message = serializationService.read(new StringReader(msg), Message.class);
+                message = serializationService.read(msg, Message.class);
             } finally {
                 loggingService.stopTimer(LoggingService.TIMER_DESERIALIZATION);
             }
@@ -408,7 +457,8 @@ public class AuraServlet extends AuraBaseServlet {
             boolean isBootstrapAction = isBootstrapAction(message, isProductionMode(context.getMode()));
 
             if (!isBootstrapAction) {
-                validateCSRF(csrfToken.get(request));
+                validateCSRF(JsonMessageBody.isJsonMessage(request) ? JsonMessageBody.get(request).getToken()
+                        : csrfToken.get(request));
             }
 
             DefDescriptor<? extends BaseComponentDef> applicationDescriptor = context.getApplicationDescriptor();
@@ -438,10 +488,19 @@ public class AuraServlet extends AuraBaseServlet {
                 attributes.put("token", getToken());
             }
 
-            PrintWriter out = response.getWriter();
+            if (asyncExecutor != null && request.isAsyncSupported()) {
+                runAsync(request, response, message, attributes);
+                return;
+            }
+
+            Writer out = getJsonWriter(response);
             written = true;
-            out.write(CSRF_PROTECT);
-            serverService.run(message, context, out, attributes);
+            try {
+                out.write(CSRF_PROTECT);
+                serverService.run(message, context, out, attributes);
+            } finally {
+                releaseJsonWriter(out);
+            }
         } catch (RequestParam.InvalidParamException ipe) {
             handleServletException(new SystemErrorException(ipe), false, context, request, response, false);
             return;
@@ -455,6 +514,139 @@ public class AuraServlet extends AuraBaseServlet {
         }
     }
 
+    /**
+     * Get the message of a POST.
+     *
+     * A POST with a JSON content type carries the message as its body, along with the context and CSRF token (see
+     * {@link JsonMessageBody}). The message is parsed as it is read rather than held as a string first. Otherwise the
+     * message is the "message" form parameter.
+     *
+     * @return a reader for the message, or null if there is none.
+     */
+    private Reader getMessageReader(HttpServletRequest request) throws IOException {
+        if (JsonMessageBody.isJsonMessage(request)) {
+            return JsonMessageBody.get(request).getReader();
+        }
+        String msg = messageParam.get(request);
+        return msg == null ? null : new StringReader(msg);
+    }
+
+    /**
+     * Run the actions of a POST on the async pool, suspending the request until they are done.
+     *
+     * The context is detached from the container thread and resumed on the pool thread, which ends it, the same as
+     * {@link AuraContextFilter} would have. When the queue is full the actions are run on the container thread, so
+     * that the container takes new requests more slowly rather than queueing without bound.
+     */
+    private void runAsync(HttpServletRequest request, HttpServletResponse response, Message message,
+            Map<String, Object> attributes) {
+        AsyncContext async = request.startAsync(request, response);
+        async.setTimeout(ASYNC_TIMEOUT_MILLIS);
+        AsyncRun run = new AsyncRun(async, request, response, message, attributes);
+        async.addListener(run);
+        run.suspended = Aura.getContextService().suspendContext();
+        try {
+            asyncExecutor.execute(run);
+        } catch (RejectedExecutionException ree) {
+            run.run();
+        }
+    }
+
+    /**
+     * The part of an async POST that runs on the pool.
+     *
+     * The actions write to a buffer, and whichever of the actions or the timeout finishes first claims the response.
+     * The pool thread never touches a response that the timeout has claimed, as the container may already have
+     * recycled it.
+     */
+    private class AsyncRun implements Runnable, AsyncListener {
+        private final AsyncContext async;
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final Message message;
+        private final Map<String, Object> attributes;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile SuspendedContext suspended;
+
+        private AsyncRun(AsyncContext async, HttpServletRequest request, HttpServletResponse response,
+                Message message, Map<String, Object> attributes) {
+            this.async = async;
+            this.request = request;
+            this.response = response;
+            this.message = message;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public void run() {
+            ContextService contextService = Aura.getContextService();
+            LoggingService loggingService = Aura.getLoggingService();
+            contextService.resumeContext(suspended);
+            AuraContext context = suspended.getContext();
+            boolean owner = false;
+            try {
+                if (claimed.get()) {
+                    // timed out while it was queued.
+                    return;
+                }
+                StringWriter buffer = new StringWriter();
+                buffer.write(CSRF_PROTECT);
+                Exception failure = null;
+                try {
+                    Aura.getServerService().run(message, context, buffer, attributes);
+                } catch (Exception e) {
+                    failure = e;
+                }
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                owner = true;
+                response.getWriter().write(buffer.toString());
+                if (failure != null) {
+                    handleServletException(failure, false, context, request, response, true);
+                }
+            } catch (Throwable t) {
+                LOG.error("Unable to write async response", t);
+            } finally {
+                try {
+                    if (owner) {
+                        loggingService.setValue(LoggingService.STATUS, String.valueOf(response.getStatus()));
+                    }
+                    loggingService.flush();
+                } finally {
+                    contextService.endContext();
+                    if (owner) {
+                        async.complete();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            if (claimed.compareAndSet(false, true)) {
+                LOG.warn("Async POST timed out after " + ASYNC_TIMEOUT_MILLIS + "ms");
+                response.setStatus(HttpStatus.SC_SERVICE_UNAVAILABLE);
+                async.complete();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            if (claimed.compareAndSet(false, true)) {
+                async.complete();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
     protected void sendPost404(HttpServletRequest request, HttpServletResponse response) {
         throw new NoAccessException("Missing required perms, or tried to access inaccessible namespace.");
     }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.auraframework.util.json.JsonConstant;
+import org.auraframework.util.json.JsonEncoder;
+import org.auraframework.util.json.JsonStreamReader;
+import org.auraframework.util.json.JsonStreamReader.JsonParseException;
+
+/**
+ * The body of a POST that carries its message as JSON, rather than as a "message" form parameter.
+ *
+ * The body is an object holding the context, the CSRF token and the actions, in that order:
+ *
+ * <pre>
+ * {"context":{...},"token":"...","actions":[...]}
+ * </pre>
+ *
+ * {@link AuraContextFilter} needs the context before the servlet runs, so the head of the body, up to the actions, is
+ * read ahead and buffered. The servlet then reads the whole body again from the start, and the message format adapter
+ * skips the context and token. Keeping them in the body keeps the token out of URLs, and so out of access logs and
+ * Referer headers, and keeps a large context clear of URL length limits.
+ */
+final class JsonMessageBody {
+    private static final String ATTRIBUTE = "aura.jsonMessageBody";
+
+    /** The most that is read ahead of the actions, in characters. */
+    private static final int MAX_HEAD_LENGTH = Integer.getInteger("aura.message.maxHeadLength", 256 * 1024);
+
+    /** Room for what the parser reads past the head into its buffer. */
+    private static final int READ_AHEAD = 8192;
+
+    private final BufferedReader reader;
+
+    private Map<String, Object> context;
+
+    private String token;
+
+    private JsonMessageBody(HttpServletRequest request) throws IOException {
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding(AuraBaseServlet.UTF_ENCODING);
+        }
+        reader = new BufferedReader(request.getReader());
+        reader.mark(MAX_HEAD_LENGTH + READ_AHEAD);
+        readHead(reader);
+        reader.reset();
+    }
+
+    /**
+     * @return true if the request is a POST with a JSON body.
+     */
+    static boolean isJsonMessage(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return "POST".equals(request.getMethod()) && contentType != null
+                && contentType.startsWith(JsonEncoder.MIME_TYPE);
+    }
+
+    /**
+     * Get the body of a request, reading its head the first time.
+     *
+     * @param request a request for which {@link #isJsonMessage(HttpServletRequest)} is true.
+     * @return the body.
+     * @throws IOException if the body cannot be read.
+     * @throws JsonParseException if the head of the body is not valid.
+     */
+    static JsonMessageBody get(HttpServletRequest request) throws IOException {
+        JsonMessageBody body = (JsonMessageBody) request.getAttribute(ATTRIBUTE);
+        if (body == null) {
+            body = new JsonMessageBody(request);
+            request.setAttribute(ATTRIBUTE, body);
+        }
+        return body;
+    }
+
+    private void readHead(Reader in) throws IOException {
+        JsonStreamReader json = new JsonStreamReader(in);
+        json.setRecursiveReadEnabled(false);
+        json.setMaxLength(MAX_HEAD_LENGTH);
+
+        expect(json, json.next(), JsonConstant.OBJECT_START);
+        JsonConstant next = json.next();
+        while (next != JsonConstant.OBJECT_END) {
+            expect(json, next, JsonConstant.STRING);
+            String key = json.getString();
+            expect(json, json.next(), JsonConstant.OBJECT_SEPARATOR);
+            if (key.equals("actions")) {
+                return;
+            }
+            next = json.next();
+            if (key.equals("context") && next == JsonConstant.OBJECT_START) {
+                context = json.getObject();
+            } else if (key.equals("token") && next == JsonConstant.STRING) {
+                token = json.getString();
+            } else if (next == JsonConstant.OBJECT_START) {
+                json.getObject();
+            } else if (next == JsonConstant.ARRAY_START) {
+                json.getList();
+            }
+            next = json.next();
+            if (next == JsonConstant.ENTRY_SEPARATOR) {
+                next = json.next();
+            }
+        }
+    }
+
+    private void expect(JsonStreamReader json, JsonConstant token, JsonConstant expected) {
+        if (token != expected) {
+            throw new JsonParseException(String.format("Invalid message, expected %s but found %s at line %d",
+                    expected, token, json.getLineNum()));
+        }
+    }
+
+    /**
+     * @return the context sent ahead of the actions, or null if there was none.
+     */
+    Map<String, Object> getContext() {
+        return context;
+    }
+
+    /**
+     * @return the CSRF token sent ahead of the actions, or null if there was none.
+     */
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * @return a reader for the whole body, from the start.
+     */
+    Reader getReader() {
+        return reader;
+    }
+}
@@ -86,7 +86,7 @@ public interface Action extends Instance<ActionDef> {
             // 2) add shouldSerializeNulls hook
             // 3) get rid of this hacky workaround
             // Hoo-rah.
-            Object returnValue = action.getReturnValue();
+            Object returnValue = getSerializableReturnValue(action);
             if (returnValue == null) {
                 returnValue = Literal.NULL;
             }
@@ -113,6 +113,14 @@ public interface Action extends Instance<ActionDef> {
             action.getInstanceStack().serializeAsPart(json);
             json.writeMapEnd();
         }
+
+        /**
+         * Get what to write as the return value of an action, which an action that already has its return value in
+         * JSON can replace with a literal.
+         */
+        protected Object getSerializableReturnValue(Action action) {
+            return action.getReturnValue();
+        }
     }
 
     /**
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.instance;
+
+import org.auraframework.system.Annotations.CacheableAction;
+
+/**
+ * Decides which callers can share the cached results of a {@link CacheableAction}.
+ *
+ * A result is only reused for a call in the same scope, so an action whose result depends on the user (or the
+ * organization, or the locale) gives a scope that identifies them.
+ */
+public interface ActionResultScope {
+    /**
+     * Get the scope of a call, on the request thread.
+     *
+     * @param action the action being run.
+     * @return the scope, or null to neither use nor keep a cached result for this call.
+     */
+    String getScope(Action action);
+
+    /**
+     * A scope that shares results between every caller, across users and organizations.
+     *
+     * Only for actions whose result is the same for everyone who can call them, e.g. public configuration.
+     */
+    public static class Shared implements ActionResultScope {
+        @Override
+        public String getScope(Action action) {
+            return "";
+        }
+    }
+}
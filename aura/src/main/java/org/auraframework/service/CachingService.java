@@ -17,16 +17,19 @@ package org.auraframework.service;
 
 import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
 
 import org.auraframework.builder.CacheBuilder;
 import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheStatistics;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.Definition;
 import org.auraframework.system.DependencyEntry;
 import org.auraframework.system.SourceListener;
 import org.auraframework.system.SourceListener.SourceMonitorEvent;
+import org.auraframework.util.resource.GeneratedResource;
 
 import com.google.common.base.Optional;
 
@@ -55,7 +58,10 @@ public interface CachingService extends AuraService {
 
     Cache<DefDescriptor<?>, Optional<? extends Definition>> getDefsCache();
 
-    Cache<String, String> getStringsCache();
+    /**
+     * @return the cache of generated strings, such as the app.js and app.css of an application, held as UTF-8 bytes.
+     */
+    Cache<String, GeneratedResource> getStringsCache();
 
     Cache<String, Set<DefDescriptor<?>>> getDescriptorFilterCache();
 
@@ -67,10 +73,71 @@ public interface CachingService extends AuraService {
 
     Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> getDefDescriptorByNameCache();
 
-    Lock getReadLock();
+    /**
+     * @return the cache of minified JavaScript fragments, keyed by the writer and a hash of the unminified source.
+     */
+    Cache<String, String> getJsFragmentCache();
+
+    /**
+     * Get the statistics of all of the caches above.
+     *
+     * Computing the retained bytes walks each cache, so this is meant for admin and monitoring, not per request use.
+     *
+     * @return a snapshot for each cache.
+     */
+    List<CacheStatistics> getStatistics();
+
+    /**
+     * Get the counters of all of the caches above: entries, hits, misses, evictions and load times.
+     *
+     * The counters are kept as the caches are used, so unlike {@link #getStatistics()} this is cheap enough for
+     * per request use.
+     *
+     * @return a snapshot for each cache, without the retained bytes.
+     */
+    List<CacheStatistics> getCounters();
 
+    /**
+     * Get the lock used to serialize writers (saves and source change invalidation).
+     *
+     * Readers never take a lock, they fence their cache writes with the epochs below instead.
+     */
     Lock getWriteLock();
 
+    /**
+     * Get the current invalidation epoch for a namespace.
+     *
+     * The epoch moves forward every time a source change invalidates definitions in the namespace (or in all
+     * namespaces). A reader captures it before it loads a value, and only publishes the value to a shared cache if
+     * the epoch is unchanged afterwards.
+     *
+     * @param namespace the namespace of the definition being loaded, may be null.
+     * @return a monotonically increasing epoch for the namespace.
+     */
+    long getNamespaceEpoch(String namespace);
+
+    /**
+     * Get the current global invalidation epoch.
+     *
+     * This moves forward on every source change, and fences values that span namespaces, such as dependency
+     * entries and descriptor filter results.
+     *
+     * @return a monotonically increasing epoch.
+     */
+    long getGlobalEpoch();
+
+    /**
+     * Record that a cache key was computed from the definitions of a dependency entry.
+     *
+     * This must be called before the value is put. When a source change hits one of the dependencies, only the keys
+     * recorded against it are invalidated, rather than the entire cache.
+     *
+     * @param cache the cache that will hold the key.
+     * @param key the key that will be put.
+     * @param de the dependency entry from which the value was computed.
+     */
+    <K> void registerDependentKey(Cache<K, ?> cache, K key, DependencyEntry de);
+
     void notifyDependentSourceChange(
             Collection<WeakReference<SourceListener>> listeners,
             DefDescriptor<?> source, SourceMonitorEvent event, String filePath);
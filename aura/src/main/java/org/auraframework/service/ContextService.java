@@ -84,6 +84,31 @@ public interface ContextService extends AuraService {
      */
     void endContext();
 
+    /**
+     * Detach the current context, and its logging context, from this thread.
+     *
+     * This hands a request over to another thread, e.g. a servlet request that has been suspended. Nothing is
+     * ended: the thread that calls {@link #resumeContext(SuspendedContext)} takes over the context, and ends it
+     * with {@link #endContext()}. There must not be a system context pushed.
+     *
+     * @return the detached context.
+     */
+    SuspendedContext suspendContext();
+
+    /**
+     * Establish a context detached by {@link #suspendContext()} on this thread.
+     *
+     * @param suspended the detached context, which must only be resumed once.
+     */
+    void resumeContext(SuspendedContext suspended);
+
+    /**
+     * A context that has been detached from its thread.
+     */
+    interface SuspendedContext {
+        AuraContext getContext();
+    }
+
     /**
      * Push a 'system-only' context used for private rendering.
      *
@@ -33,6 +33,8 @@ import org.auraframework.util.json.Json;
 public interface LoggingService extends AuraService {
 
     public static final String CMP_COUNT = "cmpCount";
+    public static final String COALESCED_WAIT_COUNT = "coalescedWaitCount";
+    public static final String CONDITIONAL_GET_COUNT = "conditionalGetCount";
     public static final String DEF_COUNT = "defCount";
     public static final String DEF_VISIT_COUNT = "defVisitCount";
     public static final String DEF_DESCRIPTOR_COUNT = "defDescriptorCount";
@@ -40,9 +42,12 @@ public interface LoggingService extends AuraService {
     public static final String AURA_REQUEST_QUERY = "auraRequestQuery";
     public static final String AURA_REQUEST_URI = "auraRequestURI";
     public static final String MESSAGE = "message";
+    public static final String NOT_MODIFIED_COUNT = "notModifiedCount";
+    public static final String PARALLEL_ACTION_COUNT = "parallelActionCount";
     public static final String REQUEST_METHOD = "requestMethod";
     public static final String STATUS = "httpStatus";
     public static final String TIMER_ACTION = "action_";
+    public static final String TIMER_COALESCED_WAIT = "coalescedWait";
     public static final String TIMER_COMPONENT_CREATION = "componentCreation";
     public static final String TIMER_DEF_DESCRIPTOR_CREATION = "defDescriptorCreation";
     public static final String TIMER_DEFINITION_CREATION = "definitionCreation";
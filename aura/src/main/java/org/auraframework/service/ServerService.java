@@ -24,8 +24,10 @@ import org.auraframework.Aura;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.SVGDef;
 import org.auraframework.system.AuraContext;
+import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.Message;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.resource.GeneratedResource;
 
 /**
  * <p>
@@ -68,6 +70,18 @@ public interface ServerService extends AuraService {
      */
     void writeAppCss(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException;
 
+    /**
+     * get the CSS for the preloads + app as UTF-8 bytes.
+     * 
+     * This does the same work as {@link #writeAppCss(Set, Writer)}, but hands back the (usually cached) bytes, so
+     * that they can be written directly to an output stream. Nothing is written, so an error can still be reported
+     * cleanly.
+     * 
+     * @throws IOException if unable to generate the CSS
+     * @throws QuickFixException if the definitions could not be compiled.
+     */
+    GeneratedResource getAppCss(Set<DefDescriptor<?>> dependencies) throws IOException, QuickFixException;
+
     /**
      * write out SVG.
      * 
@@ -87,10 +101,60 @@ public interface ServerService extends AuraService {
      */
     void writeDefinitions(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException;
 
+    /**
+     * get the complete set of definitions in JS as UTF-8 bytes.
+     * 
+     * @see #getAppCss(Set)
+     */
+    GeneratedResource getDefinitions(Set<DefDescriptor<?>> dependencies) throws IOException, QuickFixException;
+
+    /**
+     * Stream the complete set of definitions in JS, if they have to be generated.
+     *
+     * Definitions that are already cached are returned rather than written, so that they can be sent as bytes. If a
+     * definition fails to load part way, the output ends after the last complete statement.
+     *
+     * @param out the writer that generated definitions are streamed to.
+     * @return the built definitions, which have not been written, or null if they were written to out.
+     * @see #getDefinitions(Set)
+     */
+    GeneratedResource streamDefinitions(Set<DefDescriptor<?>> dependencies, Writer out)
+            throws IOException, QuickFixException;
+
     /**
      * Write out a set of components in JSON.
      * 
      * This writes out the entire set of components from the namespaces in JSON.
      */
     void writeComponents(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException;
+
+    /**
+     * Get a tag for the app.js, app.css or component JSON that the current context would be served.
+     * 
+     * The tag is built from the same things as the cache key of the resource, so that it can be checked against a
+     * conditional request before the dependencies of the application are computed. It changes whenever the resource
+     * could change.
+     * 
+     * @param format JS, CSS or JSON.
+     * @return the tag, or null if the resource cannot be identified without generating it, or is not tagged.
+     */
+    String getResourceTag(Format format);
+
+    /**
+     * Start building the app.js and app.css that were served before the last restart.
+     * 
+     * The set of served resources is only recorded when a manifest file is configured (aura.cache.hotSetManifest).
+     * The resources are built on a background thread, this returns immediately, and does nothing after the first
+     * call.
+     */
+    void startWarmUp();
+
+    /**
+     * Check if the warm up has finished.
+     * 
+     * This is the signal for a node to report that it is ready for traffic, see AuraReadinessServlet.
+     * 
+     * @return true if the warm up is done, or there was nothing to warm up.
+     */
+    boolean isWarmedUp();
 }
@@ -20,6 +20,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.auraframework.instance.ActionResultScope;
+
 /**
  */
 public interface Annotations {
@@ -46,6 +48,49 @@ public interface Annotations {
     public @interface CabooseAction {
     }
 
+    /**
+     * Marks a method that can run at the same time as the other actions in its request.
+     *
+     * When a request has more than one such action, their methods are called on a pool, and their results are
+     * written in the order of the request. The parameters are converted, and the results handled, on the request
+     * thread, but the method itself runs without an AuraContext, so it must not use Aura services or depend on
+     * the state of the thread. It should only compute its return value from its parameters (e.g. a remote call).
+     *
+     * The AuraEnabled annotation is still required to use this method as a server action.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    public @interface ParallelAction {
+    }
+
+    /**
+     * Marks a method whose result can be shared between calls with the same parameters, for a while.
+     *
+     * The result and its serialized form are kept in a server side cache, keyed by the action, its converted
+     * parameters, the mode and authentication of the request, and the scope of the caller. The scope has to be given,
+     * as only the action knows whether its result depends on the user or organization (see {@link ActionResultScope}).
+     * A call that finds a result neither calls the method nor serializes the
+     * result again. This is meant for lookups (e.g. picklists, metadata, configuration) that many users call
+     * with the same parameters. The method must not have side effects, and its result must not be changed after it
+     * is returned, as it is shared. The result is serialized without references, so it should be plain data (maps,
+     * lists, strings, numbers), not components or definitions.
+     *
+     * The AuraEnabled annotation is still required to use this method as a server action.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    public @interface CacheableAction {
+        /**
+         * @return the number of seconds that a result is kept.
+         */
+        int expireSeconds() default 60;
+
+        /**
+         * @return who can share a result. It is created once per action, and needs a public no argument constructor.
+         */
+        Class<? extends ActionResultScope> scope();
+    }
+
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.METHOD)
     public @interface AuraEnabled {
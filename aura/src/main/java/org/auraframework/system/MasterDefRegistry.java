@@ -15,6 +15,8 @@
  */
 package org.auraframework.system;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,6 +27,7 @@ import org.auraframework.def.Definition;
 import org.auraframework.def.DescriptorFilter;
 import org.auraframework.throwable.ClientOutOfSyncException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.resource.GeneratedResource;
 
 /**
  * Master Definition Registry.
@@ -191,6 +194,60 @@ public interface MasterDefRegistry {
      */
     void putCachedString(String uid, DefDescriptor<?> descriptor, String key, String value);
 
+    /**
+     * Get a named string from the cache for a def as UTF-8 bytes, computing it if it is not there.
+     *
+     * Concurrent calls for the same string are coalesced, so that only one thread runs the loader, and the others
+     * wait for its value. The computed value is put in the cache.
+     *
+     * @param uid the UID for the definition (must have called {@link #getUid(String, DefDescriptor<?>)}).
+     * @param descriptor the descriptor.
+     * @param key the key (must be unique).
+     * @param loader the loader used to compute the string on a cache miss.
+     * @return the resource, never null.
+     */
+    GeneratedResource getCachedResource(String uid, DefDescriptor<?> descriptor, String key, CachedStringLoader loader)
+            throws QuickFixException, IOException;
+
+    /**
+     * Computes a string for {@link MasterDefRegistry#getCachedResource(String, DefDescriptor, String, CachedStringLoader)}.
+     */
+    interface CachedStringLoader {
+        String load() throws QuickFixException, IOException;
+    }
+
+    /**
+     * Get a named string from the cache for a def, streaming it to the writer as it is generated if it has to be
+     * computed.
+     *
+     * A cached string is returned rather than written, so that the caller can choose how to send the bytes. On a
+     * miss, the loader's fragments are written out as they are generated, and encoded for the cache in the same pass.
+     * Concurrent calls are coalesced like {@link #getCachedResource(String, DefDescriptor, String, CachedStringLoader)},
+     * and never wait on the writer of the call that generates the string.
+     *
+     * If the loader throws, nothing is cached, and streamed output ends after the last fragment that was appended.
+     *
+     * @param uid the UID for the definition (must have called {@link #getUid(String, DefDescriptor<?>)}).
+     * @param descriptor the descriptor.
+     * @param key the key (must be unique).
+     * @param loader the loader used to generate the string on a cache miss.
+     * @param out the writer that a generated string is streamed to.
+     * @return the cached resource, which has not been written, or null if the string was generated and written to out.
+     */
+    GeneratedResource streamCachedResource(String uid, DefDescriptor<?> descriptor, String key,
+            CachedStreamLoader loader, Writer out) throws QuickFixException, IOException;
+
+    /**
+     * Generates a string for
+     * {@link MasterDefRegistry#streamCachedResource(String, DefDescriptor, String, CachedStreamLoader, Writer)}.
+     */
+    interface CachedStreamLoader {
+        /**
+         * @param out the appendable to write to, output that fails part way ends after the last append.
+         */
+        void load(Appendable out) throws QuickFixException, IOException;
+    }
+
     /**
      * Returns list of client libraries for given uid
      *
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.auraframework.util.json.JsonStreamReader.JsonParseException;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.CharStreams;
+
+public class JsonMessageBodyTest extends UnitTestCase {
+    private HttpServletRequest mockRequest(String method, String contentType, String body) throws Exception {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getMethod()).thenReturn(method);
+        Mockito.when(request.getContentType()).thenReturn(contentType);
+        Mockito.when(request.getCharacterEncoding()).thenReturn("UTF-8");
+        Mockito.when(request.getReader()).thenReturn(new BufferedReader(new StringReader(body)));
+        final Map<String, Object> attributes = Maps.newHashMap();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                attributes.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(request).setAttribute(Mockito.anyString(), Mockito.any());
+        Mockito.when(request.getAttribute(Mockito.anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return attributes.get(invocation.getArguments()[0]);
+            }
+        });
+        return request;
+    }
+
+    public void testIsJsonMessage() throws Exception {
+        assertTrue(JsonMessageBody.isJsonMessage(mockRequest("POST", "application/json; charset=UTF-8", "")));
+        assertFalse(JsonMessageBody.isJsonMessage(mockRequest("GET", "application/json", "")));
+        assertFalse(JsonMessageBody.isJsonMessage(mockRequest("POST", "application/x-www-form-urlencoded", "")));
+        assertFalse(JsonMessageBody.isJsonMessage(mockRequest("POST", null, "")));
+    }
+
+    public void testReadsContextAndTokenAheadOfActions() throws Exception {
+        String body = "{\"context\":{\"mode\":\"PROD\",\"loaded\":{\"APPLICATION@markup://a:b\":\"uid\"}},"
+                + "\"token\":\"secret\",\"actions\":[{\"id\":\"1;a\"}]}";
+        HttpServletRequest request = mockRequest("POST", "application/json", body);
+
+        JsonMessageBody message = JsonMessageBody.get(request);
+
+        assertEquals("PROD", message.getContext().get("mode"));
+        assertEquals("secret", message.getToken());
+        assertEquals(body, CharStreams.toString(message.getReader()));
+        assertSame(message, JsonMessageBody.get(request));
+    }
+
+    public void testWithoutContextOrToken() throws Exception {
+        JsonMessageBody message = JsonMessageBody.get(mockRequest("POST", "application/json",
+                "{\"other\":[1,2],\"actions\":[]}"));
+
+        assertNull(message.getContext());
+        assertNull(message.getToken());
+    }
+
+    public void testInvalidHead() throws Exception {
+        try {
+            JsonMessageBody.get(mockRequest("POST", "application/json", "[\"actions\"]"));
+            fail("Expected a body that is not an object to be rejected");
+        } catch (JsonParseException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Invalid message"));
+        }
+    }
+}
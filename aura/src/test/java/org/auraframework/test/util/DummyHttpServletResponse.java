@@ -55,7 +55,11 @@ public class DummyHttpServletResponse implements HttpServletResponse {
 
     @Override
     public ServletOutputStream getOutputStream() throws IOException {
-        return null;
+        return new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+            }
+        };
     }
 
     @Override